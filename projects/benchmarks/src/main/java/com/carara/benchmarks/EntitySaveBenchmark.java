@@ -0,0 +1,189 @@
+package com.carara.benchmarks;
+
+import com.carara.notification.NotificationApplication;
+import com.carara.notification.service.NotificationService;
+import com.carara.payment.PaymentApplication;
+import com.carara.payment.model.PaymentRequest;
+import com.carara.payment.service.PaymentService;
+import com.carara.reservation.ReservationApplication;
+import com.carara.reservation.service.ReservationService;
+import com.carara.saga.model.UuidV7;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+// Caminhos de gravação dos três serviços (service + repositório + Hibernate) sobre H2 em memória, com as mesmas
+// opções de lote do JDBC usadas em produção. Pagamento mantém a recusa aleatória do gateway simulado: essas chamadas
+// entram na medição e são consumidas pelo Blackhole. Notificação mede só o enfileiramento; a entrega fica com o
+// NotificationDispatcher, que roda em segundo plano no mesmo contexto
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntitySaveBenchmark {
+    private static final int GROUP_SIZE = 40;
+    private static final int SEATS_PER_JOURNEY = 1_000;
+
+    @Benchmark
+    public Object createReservation(ReservationState state) {
+        long seat = state.sequence.getAndIncrement();
+        return state.reservationService.createReservation("user-1", journeyDate(seat), "S" + seat % SEATS_PER_JOURNEY,
+                100.0, "bench:" + seat + ":CREATE_RESERVATION");
+    }
+
+    @Benchmark
+    public Object createGroupReservation(ReservationState state) {
+        long group = state.sequence.getAndIncrement();
+        List<String> seatNumbers = IntStream.range(0, GROUP_SIZE).mapToObj(seat -> "S" + seat).toList();
+        return state.reservationService.createReservations("school-1", "G" + group, seatNumbers, 50.0,
+                "bench:" + group + ":CREATE_RESERVATION");
+    }
+
+    // O PaymentBatcher só junta cobranças concorrentes: com uma thread cada chamada pagaria o max-wait sozinha
+    @Benchmark
+    @Threads(8)
+    public void processPayment(PaymentState state, Blackhole blackhole) {
+        try {
+            blackhole.consume(state.paymentService.processPayment(UuidV7.next(), 100.0,
+                    "bench:" + state.sequence.getAndIncrement() + ":PROCESS_PAYMENT"));
+        } catch (RuntimeException e) {
+            blackhole.consume(e);
+        }
+    }
+
+    @Benchmark
+    public void processGroupPayment(PaymentState state, Blackhole blackhole) {
+        List<PaymentRequest> requests = IntStream.range(0, GROUP_SIZE).mapToObj(i -> {
+            PaymentRequest request = new PaymentRequest();
+            request.setReservationId(UuidV7.next());
+            request.setAmount(50.0);
+            return request;
+        }).toList();
+        try {
+            blackhole.consume(state.paymentService.processPayments(requests,
+                    "bench:" + state.sequence.getAndIncrement() + ":PROCESS_PAYMENT"));
+        } catch (RuntimeException e) {
+            blackhole.consume(e);
+        }
+    }
+
+    @Benchmark
+    public void sendConfirmation(NotificationState state, Blackhole blackhole) {
+        try {
+            blackhole.consume(state.notificationService.sendConfirmation(UuidV7.next(),
+                    "bench:" + state.sequence.getAndIncrement() + ":SEND_NOTIFICATION"));
+        } catch (RuntimeException e) {
+            blackhole.consume(e);
+        }
+    }
+
+    @Benchmark
+    public void sendGroupConfirmation(NotificationState state, Blackhole blackhole) {
+        List<UUID> reservationIds = IntStream.range(0, GROUP_SIZE).mapToObj(i -> UuidV7.next()).toList();
+        try {
+            blackhole.consume(state.notificationService.sendConfirmations(reservationIds,
+                    "bench:" + state.sequence.getAndIncrement() + ":SEND_NOTIFICATION"));
+        } catch (RuntimeException e) {
+            blackhole.consume(e);
+        }
+    }
+
+    // Cada data de viagem recebe no máximo SEATS_PER_JOURNEY assentos, para o inventário em memória não crescer sem limite
+    private static String journeyDate(long seat) {
+        return "J" + seat / SEATS_PER_JOURNEY;
+    }
+
+    @State(Scope.Benchmark)
+    public static class ReservationState {
+        final AtomicLong sequence = new AtomicLong();
+        ConfigurableApplicationContext context;
+        ReservationService reservationService;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            context = start(ReservationApplication.class, "reservation");
+            reservationService = context.getBean(ReservationService.class);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class PaymentState {
+        final AtomicLong sequence = new AtomicLong();
+        ConfigurableApplicationContext context;
+        PaymentService paymentService;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            context = start(PaymentApplication.class, "payment");
+            paymentService = context.getBean(PaymentService.class);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class NotificationState {
+        final AtomicLong sequence = new AtomicLong();
+        ConfigurableApplicationContext context;
+        NotificationService notificationService;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            context = start(NotificationApplication.class, "notification");
+            notificationService = context.getBean(NotificationService.class);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    // Sobe só a camada de persistência do serviço: sem servidor web e sem RabbitMQ
+    private static ConfigurableApplicationContext start(Class<?> application, String database) {
+        return new SpringApplicationBuilder(application)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.main.banner-mode=off",
+                        "spring.datasource.url=jdbc:h2:mem:" + database + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.username=sa",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.jpa.open-in-view=false",
+                        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+                        "spring.jpa.properties.hibernate.order_inserts=true",
+                        "spring.jpa.properties.hibernate.order_updates=true",
+                        "spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.amqp.RabbitAutoConfiguration",
+                        "saga.messaging.enabled=false",
+                        "logging.level.com.carara=WARN")
+                .run();
+    }
+}
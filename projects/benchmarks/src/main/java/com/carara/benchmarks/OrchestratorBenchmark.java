@@ -0,0 +1,79 @@
+package com.carara.benchmarks;
+
+import com.carara.saga.client.RetryableErrors;
+import com.carara.saga.config.SagaDefinitionConfig;
+import com.carara.saga.engine.SagaEngine;
+import com.carara.saga.model.TransactionContext;
+import com.carara.saga.service.OrchestratorService;
+import com.carara.saga.service.SagaLog;
+import com.carara.saga.service.SagaMetrics;
+import com.carara.saga.service.SagaTracing;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// OrchestratorService.executeTransaction contra participantes em memória: caminho feliz, cada valor de
+// simulateFailureAt e a compensação disparada por uma falha real de participante (pagamento responde 500).
+// A falha real é no pagamento porque, com notificationOutbox, a notificação não é chamada durante a saga
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrchestratorBenchmark {
+
+    @Param({"HAPPY_PATH", "CREATE_RESERVATION", "PROCESS_PAYMENT", "SEND_NOTIFICATION", "PARTICIPANT_FAILURE"})
+    public String scenario;
+
+    // true: confirmação pela outbox, a saga termina no pagamento; false: SEND_NOTIFICATION no caminho crítico
+    @Param({"true", "false"})
+    public boolean notificationOutbox;
+
+    private SagaLog sagaLog;
+    private OrchestratorService orchestratorService;
+    private String simulateFailureAt;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String failingPath = scenario.equals("PARTICIPANT_FAILURE") ? "/api/payments" : null;
+        simulateFailureAt = scenario.equals("HAPPY_PATH") || failingPath != null ? null : scenario;
+        sagaLog = new SagaLog(StubParticipants.discardingSagaEventRepository(),
+                StubParticipants.discardingNotificationOutboxRepository(), StubParticipants.discardingPendingCompensationRepository(),
+                StubParticipants.noTransactions(), 10_000, 50);
+        sagaLog.start();
+        SagaMetrics sagaMetrics = new SagaMetrics(new SimpleMeterRegistry());
+        SagaTracing sagaTracing = new SagaTracing(Tracer.NOOP);
+        SagaEngine sagaEngine = new SagaEngine(sagaLog, sagaMetrics, sagaTracing,
+                new RetryableErrors(Set.of(), new ObjectMapper()), Duration.ofSeconds(10));
+        orchestratorService = new OrchestratorService(new SagaDefinitionConfig().reservationSaga(StubParticipants.client(failingPath)),
+                sagaEngine, sagaLog, sagaMetrics, sagaTracing, notificationOutbox);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        sagaLog.stop();
+    }
+
+    @Benchmark
+    public TransactionContext executeTransaction() {
+        return orchestratorService.executeTransaction("user-1", "2025-12-01", "12A", 100.0, simulateFailureAt);
+    }
+}
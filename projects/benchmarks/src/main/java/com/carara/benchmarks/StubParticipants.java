@@ -0,0 +1,137 @@
+package com.carara.benchmarks;
+
+import com.carara.saga.client.HttpParticipantClient;
+import com.carara.saga.model.NotificationOutbox;
+import com.carara.saga.model.PendingCompensation;
+import com.carara.saga.model.SagaEvent;
+import com.carara.saga.repository.NotificationOutboxRepository;
+import com.carara.saga.repository.PendingCompensationRepository;
+import com.carara.saga.repository.SagaEventRepository;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.UUID;
+
+// Participantes da saga simulados em memória: o WebClient real é usado, mas a troca HTTP é substituída
+// por respostas fixas, então o benchmark mede o orquestrador e não a rede ou os outros serviços
+final class StubParticipants {
+    static final UUID RESERVATION_ID = UUID.fromString("01900000-0000-7000-8000-0000000000a1");
+    static final UUID PAYMENT_ID = UUID.fromString("01900000-0000-7000-8000-0000000000b1");
+    static final UUID NOTIFICATION_ID = UUID.fromString("01900000-0000-7000-8000-0000000000c1");
+
+    private static final String RESERVATION_JSON = "{\"reservationId\":\"" + RESERVATION_ID
+            + "\",\"userId\":\"user-1\",\"journeyDate\":\"2025-12-01\",\"seatNumber\":\"12A\",\"amount\":100.0,\"status\":\"CREATED\"}";
+    private static final String CANCELED_RESERVATION_JSON = RESERVATION_JSON.replace("CREATED", "CANCELED");
+    private static final String PAYMENT_JSON = "{\"paymentId\":\"" + PAYMENT_ID + "\",\"reservationId\":\"" + RESERVATION_ID
+            + "\",\"amount\":100.0,\"status\":\"APPROVED\"}";
+    private static final String REFUNDED_PAYMENT_JSON = PAYMENT_JSON.replace("APPROVED", "REFUNDED");
+    private static final String NOTIFICATION_JSON = "{\"notificationId\":\"" + NOTIFICATION_ID + "\",\"reservationId\":\""
+            + RESERVATION_ID + "\",\"notificationType\":\"CONFIRMATION\",\"status\":\"SENT\"}";
+
+    private StubParticipants() {
+    }
+
+    // failingPath: caminho que responde 500, para exercitar a compensação disparada por um participante
+    static HttpParticipantClient client(String failingPath) {
+        ExchangeFunction exchange = request -> {
+            String path = request.url().getPath();
+            if (path.equals(failingPath)) {
+                return Mono.just(ClientResponse.create(HttpStatus.INTERNAL_SERVER_ERROR).build());
+            }
+            String body;
+            if (path.endsWith("/cancel")) {
+                body = CANCELED_RESERVATION_JSON;
+            } else if (path.startsWith("/api/reservations")) {
+                body = RESERVATION_JSON;
+            } else if (path.endsWith("/refund")) {
+                body = REFUNDED_PAYMENT_JSON;
+            } else if (path.startsWith("/api/payments")) {
+                body = PAYMENT_JSON;
+            } else {
+                body = NOTIFICATION_JSON;
+            }
+            return Mono.just(ClientResponse.create(HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body(body)
+                    .build());
+        };
+        return new HttpParticipantClient(
+                webClient(exchange, "http://reservation/api/reservations"),
+                webClient(exchange, "http://payment/api/payments"),
+                webClient(exchange, "http://notification/api/notifications"),
+                "http://reservation/api/reservations", "http://payment/api/payments", "http://notification/api/notifications");
+    }
+
+    // Log da saga sem banco: o group commit do SagaLog continua ativo, só o INSERT é descartado
+    @SuppressWarnings("unchecked")
+    static SagaEventRepository discardingSagaEventRepository() {
+        return (SagaEventRepository) Proxy.newProxyInstance(SagaEventRepository.class.getClassLoader(),
+                new Class<?>[]{SagaEventRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "saveAll" -> (Iterable<SagaEvent>) args[0];
+                    case "findBySagaIdOrderByIdAsc", "findInFlightSagaIds" -> List.of();
+                    case "toString" -> "DiscardingSagaEventRepository";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    static NotificationOutboxRepository discardingNotificationOutboxRepository() {
+        return (NotificationOutboxRepository) Proxy.newProxyInstance(NotificationOutboxRepository.class.getClassLoader(),
+                new Class<?>[]{NotificationOutboxRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "saveAll" -> (Iterable<NotificationOutbox>) args[0];
+                    case "toString" -> "DiscardingNotificationOutboxRepository";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    static PendingCompensationRepository discardingPendingCompensationRepository() {
+        return (PendingCompensationRepository) Proxy.newProxyInstance(PendingCompensationRepository.class.getClassLoader(),
+                new Class<?>[]{PendingCompensationRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "saveAll" -> (Iterable<PendingCompensation>) args[0];
+                    case "toString" -> "DiscardingPendingCompensationRepository";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    // Transação sem recurso nenhum por trás, só para o SagaLog executar o lote
+    static TransactionTemplate noTransactions() {
+        return new TransactionTemplate(new AbstractPlatformTransactionManager() {
+            @Override
+            protected Object doGetTransaction() {
+                return new Object();
+            }
+
+            @Override
+            protected void doBegin(Object transaction, TransactionDefinition definition) {
+            }
+
+            @Override
+            protected void doCommit(DefaultTransactionStatus status) {
+            }
+
+            @Override
+            protected void doRollback(DefaultTransactionStatus status) {
+            }
+        });
+    }
+
+    private static WebClient webClient(ExchangeFunction exchange, String baseUrl) {
+        return WebClient.builder().baseUrl(baseUrl).exchangeFunction(exchange).build();
+    }
+}
@@ -0,0 +1,100 @@
+package com.carara.benchmarks;
+
+import com.carara.saga.model.NotificationDto;
+import com.carara.saga.model.PaymentDto;
+import com.carara.saga.model.ReservationDto;
+import com.carara.saga.model.TransactionContext;
+import com.carara.saga.model.UuidV7;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Serialização do TransactionContext devolvido por /api/orchestrator/reserve, com o ObjectMapper
+// configurado como o do Spring MVC
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionContextSerializationBenchmark {
+
+    @Param({"SUCCEEDED", "COMPENSATED"})
+    public String outcome;
+
+    private ObjectMapper objectMapper;
+    private TransactionContext context;
+    private byte[] json;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        context = context(outcome.equals("SUCCEEDED"));
+        json = objectMapper.writeValueAsBytes(context);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(context);
+    }
+
+    @Benchmark
+    public TransactionContext deserialize() throws IOException {
+        return objectMapper.readValue(json, TransactionContext.class);
+    }
+
+    private static TransactionContext context(boolean succeeded) {
+        TransactionContext context = new TransactionContext();
+        context.setSagaId(UuidV7.next().toString());
+
+        ReservationDto reservation = new ReservationDto();
+        reservation.setReservationId(UuidV7.next());
+        reservation.setUserId("user-1");
+        reservation.setJourneyDate("2025-12-01");
+        reservation.setSeatNumber("12A");
+        reservation.setAmount(100.0);
+        reservation.setStatus("CREATED");
+        context.setReservation(reservation);
+        context.addCompletedStep("CREATE_RESERVATION");
+
+        PaymentDto payment = new PaymentDto();
+        payment.setPaymentId(UuidV7.next());
+        payment.setReservationId(reservation.getReservationId());
+        payment.setAmount(100.0);
+        payment.setStatus("APPROVED");
+        context.setPayment(payment);
+        context.addCompletedStep("PROCESS_PAYMENT");
+
+        NotificationDto notification = new NotificationDto();
+        notification.setNotificationId(UuidV7.next());
+        notification.setReservationId(reservation.getReservationId());
+        notification.setNotificationType("CONFIRMATION");
+        context.setNotification(notification);
+
+        if (succeeded) {
+            notification.setStatus("SENT");
+            context.addCompletedStep("SEND_NOTIFICATION");
+            context.markAsSuccess();
+        } else {
+            notification.setStatus("FAILED");
+            context.setFailure("SEND_NOTIFICATION", "Notification service failed to send confirmation");
+            context.addCompensatedStep("REFUND_PAYMENT");
+            context.addCompensatedStep("CANCEL_RESERVATION");
+        }
+        return context;
+    }
+}
@@ -0,0 +1,75 @@
+package com.carara.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Imprime os percentis de cada histograma em milissegundos e grava a distribuição completa
+// em arquivos .hgrm, que podem ser comparados entre execuções no HdrHistogram plotter
+public class LatencyReport {
+    private static final String HEADER = String.format("%-32s %9s %9s %9s %9s %9s %9s %9s",
+            "", "count", "mean", "p50", "p90", "p99", "p99.9", "max");
+
+    private final PrintStream out;
+    private final Path output;
+
+    public LatencyReport(PrintStream out, Path output) {
+        this.out = out;
+        this.output = output;
+    }
+
+    public void print(LoadTestOptions options, OpenModelLoadGenerator.RunSummary summary,
+                      LatencyRecorder outcomes, LatencyRecorder steps) throws IOException {
+        Map<String, Histogram> outcomeHistograms = outcomes.snapshot();
+        Map<String, Histogram> stepHistograms = steps.snapshot();
+        long completed = outcomeHistograms.values().stream().mapToLong(Histogram::getTotalCount).sum();
+        double seconds = summary.elapsedNanos() / (double) TimeUnit.SECONDS.toNanos(1);
+
+        out.printf("%nTarget rate: %.1f req/s (%s)  sent: %d  dropped: %d  completed: %d  throughput: %.1f sagas/s%n",
+                options.rate(), options.arrival(), summary.sent(), summary.dropped(), completed, completed / seconds);
+
+        out.printf("%nSaga latency by outcome (ms, from intended start)%n%s%n", HEADER);
+        for (SagaOutcome outcome : SagaOutcome.values()) {
+            Histogram histogram = outcomeHistograms.get(outcome.name());
+            if (histogram != null && histogram.getTotalCount() > 0) {
+                printRow(outcome.name(), histogram);
+            }
+        }
+
+        out.printf("%nParticipant call latency by step (ms)%n%s%n", HEADER);
+        stepHistograms.forEach((step, histogram) -> {
+            if (histogram.getTotalCount() > 0) {
+                printRow(step, histogram);
+            }
+        });
+
+        Files.createDirectories(output);
+        write("outcome", outcomeHistograms);
+        write("step", stepHistograms);
+        out.printf("%nFull distributions written to %s%n", output.toAbsolutePath());
+    }
+
+    private void printRow(String name, Histogram histogram) {
+        out.printf("%-32s %9d %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f%n", name, histogram.getTotalCount(),
+                histogram.getMean() / 1000.0,
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(90) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    private void write(String prefix, Map<String, Histogram> histograms) throws IOException {
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            String fileName = prefix + "-" + entry.getKey().replaceAll("[^A-Za-z0-9_]+", "_") + ".hgrm";
+            try (PrintStream file = new PrintStream(Files.newOutputStream(output.resolve(fileName)))) {
+                entry.getValue().outputPercentileDistribution(file, 1000.0);
+            }
+        }
+    }
+}
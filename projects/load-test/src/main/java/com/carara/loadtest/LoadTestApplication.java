@@ -0,0 +1,25 @@
+package com.carara.loadtest;
+
+// Ponto de entrada do load-test.jar: sobe os serviços localmente, aquece, mede e imprime o relatório
+public class LoadTestApplication {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        LatencyRecorder outcomes = new LatencyRecorder();
+        LatencyRecorder steps = new LatencyRecorder();
+
+        try (LocalStack stack = LocalStack.start(options, new StepTimingFilter(steps))) {
+            OpenModelLoadGenerator generator = new OpenModelLoadGenerator(options, stack.orchestratorUrl(), outcomes);
+            if (!options.warmup().isZero()) {
+                System.out.printf("Warming up for %s at %.1f req/s%n", options.warmup(), options.rate());
+                generator.run(options.warmup());
+                outcomes.reset();
+                steps.reset();
+            }
+
+            System.out.printf("Measuring for %s at %.1f req/s%n", options.duration(), options.rate());
+            OpenModelLoadGenerator.RunSummary summary = generator.run(options.duration());
+            new LatencyReport(System.out, options.output()).print(options, summary, outcomes, steps);
+        }
+    }
+}
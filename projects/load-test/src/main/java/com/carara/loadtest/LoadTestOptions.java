@@ -0,0 +1,57 @@
+package com.carara.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+// Opções de linha de comando no formato --nome=valor
+public record LoadTestOptions(double rate,
+                              Arrival arrival,
+                              Duration warmup,
+                              Duration duration,
+                              Duration timeout,
+                              int maxInFlight,
+                              int seatsPerJourney,
+                              double amount,
+                              int basePort,
+                              String serviceLogLevel,
+                              Path output) {
+
+    public enum Arrival {
+        // Intervalos fixos de 1/rate
+        CONSTANT,
+        // Intervalos exponenciais com média 1/rate (chegadas de Poisson)
+        POISSON
+    }
+
+    public static LoadTestOptions parse(String... args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Invalid option " + arg + ", expected --name=value");
+            }
+            int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        LoadTestOptions options = new LoadTestOptions(
+                Double.parseDouble(values.getOrDefault("rate", "100")),
+                Arrival.valueOf(values.getOrDefault("arrival", "poisson").toUpperCase()),
+                DurationStyle.detectAndParse(values.getOrDefault("warmup", "15s")),
+                DurationStyle.detectAndParse(values.getOrDefault("duration", "60s")),
+                DurationStyle.detectAndParse(values.getOrDefault("timeout", "30s")),
+                Integer.parseInt(values.getOrDefault("max-in-flight", "5000")),
+                Integer.parseInt(values.getOrDefault("seats-per-journey", "40")),
+                Double.parseDouble(values.getOrDefault("amount", "100.0")),
+                Integer.parseInt(values.getOrDefault("base-port", "18080")),
+                values.getOrDefault("service-log-level", "OFF"),
+                Path.of(values.getOrDefault("output", "target/load-test")));
+        if (options.rate() <= 0) {
+            throw new IllegalArgumentException("--rate must be greater than zero");
+        }
+        return options;
+    }
+}
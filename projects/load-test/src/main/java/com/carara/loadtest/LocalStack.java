@@ -0,0 +1,86 @@
+package com.carara.loadtest;
+
+import com.carara.notification.NotificationApplication;
+import com.carara.payment.PaymentApplication;
+import com.carara.reservation.ReservationApplication;
+import com.carara.saga.SagaApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Sobe os quatro serviços no mesmo processo, cada um com a sua configuração, na sua porta e com o seu H2 em
+// memória no lugar do PostgreSQL, e com o RabbitMQ desligado: o orquestrador usa o transporte HTTP
+public class LocalStack implements AutoCloseable {
+    private final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+    private final int orchestratorPort;
+
+    private LocalStack(int orchestratorPort) {
+        this.orchestratorPort = orchestratorPort;
+    }
+
+    public static LocalStack start(LoadTestOptions options, StepTimingFilter stepTimings) {
+        int orchestratorPort = options.basePort();
+        int reservationPort = options.basePort() + 1;
+        int paymentPort = options.basePort() + 2;
+        int notificationPort = options.basePort() + 3;
+
+        LocalStack stack = new LocalStack(orchestratorPort);
+        try {
+            stack.contexts.add(new SpringApplicationBuilder(ReservationApplication.class)
+                    .run(embedded("reservation", reservationPort, options)));
+            stack.contexts.add(new SpringApplicationBuilder(PaymentApplication.class)
+                    .run(embedded("payment", paymentPort, options)));
+            stack.contexts.add(new SpringApplicationBuilder(NotificationApplication.class)
+                    .run(embedded("notification", notificationPort, options)));
+            stack.contexts.add(new SpringApplicationBuilder(SagaApplication.class)
+                    // Registrado antes do refresh para que o WebClient.Builder dos participantes já saia com o filtro
+                    .initializers(context -> context.getBeanFactory().registerSingleton("stepTimingCustomizer",
+                            (WebClientCustomizer) builder -> builder.filter(stepTimings)))
+                    .run(embedded("saga", orchestratorPort, options,
+                            "services.reservation.url=http://localhost:" + reservationPort + "/api/reservations",
+                            "services.payment.url=http://localhost:" + paymentPort + "/api/payments",
+                            "services.notification.url=http://localhost:" + notificationPort + "/api/notifications")));
+        } catch (RuntimeException e) {
+            stack.close();
+            throw e;
+        }
+        return stack;
+    }
+
+    // Cada contexto lê o application.yml do próprio serviço (copiado para services/<serviço>/ pelo pom) e recebe
+    // como argumentos de linha de comando, que têm precedência sobre o yml, só o que muda na execução embarcada.
+    // As migrações do Flyway ficam de fora: são escritas para o PostgreSQL (índice parcial), então o esquema do
+    // H2 sai das entidades
+    private static String[] embedded(String service, int port, LoadTestOptions options, String... overrides) {
+        List<String> args = new ArrayList<>(List.of(
+                "spring.config.location=classpath:/services/" + service + "/",
+                "spring.main.banner-mode=off",
+                "server.port=" + port,
+                "spring.datasource.url=jdbc:h2:mem:" + service + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                "spring.datasource.username=sa",
+                "spring.datasource.password=",
+                "spring.jpa.hibernate.ddl-auto=create-drop",
+                "spring.jpa.show-sql=false",
+                "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.amqp.RabbitAutoConfiguration",
+                "saga.messaging.enabled=false",
+                "logging.level.com.carara=" + options.serviceLogLevel()));
+        args.addAll(List.of(overrides));
+        return args.stream().map(arg -> "--" + arg).toArray(String[]::new);
+    }
+
+    public String orchestratorUrl() {
+        return "http://localhost:" + orchestratorPort + "/api/orchestrator";
+    }
+
+    @Override
+    public void close() {
+        // Orquestrador primeiro, para que o log da saga seja descarregado enquanto os participantes ainda respondem
+        for (int i = contexts.size() - 1; i >= 0; i--) {
+            contexts.get(i).close();
+        }
+    }
+}
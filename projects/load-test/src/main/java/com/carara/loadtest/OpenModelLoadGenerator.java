@@ -0,0 +1,138 @@
+package com.carara.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Gerador em modelo aberto: as chegadas seguem a taxa configurada independentemente das respostas,
+// e a latência é medida a partir do instante planejado de envio, não do envio efetivo, para que
+// atrasos do próprio gerador não escondam filas no sistema (coordinated omission)
+public class OpenModelLoadGenerator {
+    private static final LocalDate FIRST_JOURNEY = LocalDate.of(2030, 1, 1);
+
+    private final LoadTestOptions options;
+    private final String reserveUrl;
+    private final LatencyRecorder outcomes;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Semaphore inFlight;
+    // Cada saga usa um assento ainda livre, inclusive entre o aquecimento e a medição
+    private long sequence;
+
+    public OpenModelLoadGenerator(LoadTestOptions options, String orchestratorUrl, LatencyRecorder outcomes) {
+        this.options = options;
+        this.reserveUrl = orchestratorUrl + "/reserve";
+        this.outcomes = outcomes;
+        this.inFlight = new Semaphore(options.maxInFlight());
+    }
+
+    public RunSummary run(Duration duration) throws InterruptedException {
+        long sent = 0;
+        long dropped = 0;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long intendedStart = start;
+
+        while (intendedStart < end) {
+            long now;
+            while ((now = System.nanoTime()) < intendedStart) {
+                LockSupport.parkNanos(intendedStart - now);
+            }
+            if (inFlight.tryAcquire()) {
+                send(intendedStart);
+                sent++;
+            } else {
+                // Acima do limite o sistema já está saturado; a chegada é descartada e contada
+                dropped++;
+            }
+            intendedStart += nextInterval();
+        }
+
+        // Espera as sagas em andamento terminarem antes de fechar a medição
+        long drainTimeout = options.timeout().plusSeconds(5).toMillis();
+        if (inFlight.tryAcquire(options.maxInFlight(), drainTimeout, TimeUnit.MILLISECONDS)) {
+            inFlight.release(options.maxInFlight());
+        }
+        return new RunSummary(sent, dropped, System.nanoTime() - start);
+    }
+
+    private long nextInterval() {
+        double meanNanos = TimeUnit.SECONDS.toNanos(1) / options.rate();
+        return switch (options.arrival()) {
+            case CONSTANT -> (long) meanNanos;
+            case POISSON -> (long) (-Math.log(1.0 - ThreadLocalRandom.current().nextDouble()) * meanNanos);
+        };
+    }
+
+    private void send(long intendedStart) {
+        long seat = sequence++;
+        String journeyDate = FIRST_JOURNEY.plusDays(seat / options.seatsPerJourney()).toString();
+        String query = "userId=" + encode("load-user-" + seat % 1000)
+                + "&journeyDate=" + encode(journeyDate)
+                + "&seatNumber=" + encode("S" + seat % options.seatsPerJourney())
+                + "&amount=" + options.amount();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(reserveUrl + "?" + query))
+                .timeout(options.timeout())
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .whenComplete((response, error) -> {
+                    long latency = System.nanoTime() - intendedStart;
+                    outcomes.record(classify(response, error).name(), latency);
+                    inFlight.release();
+                });
+    }
+
+    SagaOutcome classify(HttpResponse<byte[]> response, Throwable error) {
+        if (error != null) {
+            return SagaOutcome.ERROR;
+        }
+        if (response.statusCode() == 200) {
+            return SagaOutcome.SUCCESS;
+        }
+        if (response.statusCode() != 409) {
+            return SagaOutcome.ERROR;
+        }
+        try {
+            JsonNode context = objectMapper.readTree(response.body());
+            JsonNode compensated = context.path("compensatedSteps");
+            boolean paymentLeft = context.hasNonNull("payment") && !contains(compensated, "REFUND_PAYMENT");
+            boolean reservationLeft = context.hasNonNull("reservation") && !contains(compensated, "CANCEL_RESERVATION");
+            return paymentLeft || reservationLeft ? SagaOutcome.COMPENSATION_FAILED : SagaOutcome.COMPENSATED;
+        } catch (Exception e) {
+            return SagaOutcome.ERROR;
+        }
+    }
+
+    private static boolean contains(JsonNode steps, String step) {
+        for (JsonNode node : steps) {
+            if (step.equals(node.asText())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    public record RunSummary(long sent, long dropped, long elapsedNanos) {
+    }
+}
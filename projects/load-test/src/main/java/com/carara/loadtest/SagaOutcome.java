@@ -0,0 +1,12 @@
+package com.carara.loadtest;
+
+public enum SagaOutcome {
+    // 200: todos os steps concluídos
+    SUCCESS,
+    // 409: a saga falhou e todos os steps concluídos foram desfeitos
+    COMPENSATED,
+    // 409: a saga falhou e ao menos uma compensação falhou, ficando para a recuperação
+    COMPENSATION_FAILED,
+    // Qualquer outro status, timeout ou erro de conexão
+    ERROR
+}
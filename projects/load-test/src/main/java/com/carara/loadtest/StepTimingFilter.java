@@ -0,0 +1,44 @@
+package com.carara.loadtest;
+
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Mede cada chamada do orquestrador aos participantes, do envio até o status da resposta,
+// e grava a latência sob o nome do step da saga (com o sufixo " (error)" quando a chamada falha)
+public class StepTimingFilter implements ExchangeFilterFunction {
+    private final LatencyRecorder steps;
+
+    public StepTimingFilter(LatencyRecorder steps) {
+        this.steps = steps;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        String step = step(request.url().getPath());
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            AtomicBoolean failed = new AtomicBoolean(true);
+            return next.exchange(request)
+                    .doOnNext(response -> failed.set(response.statusCode().isError()))
+                    .doFinally(signal -> steps.record(failed.get() ? step + " (error)" : step, System.nanoTime() - start));
+        });
+    }
+
+    static String step(String path) {
+        if (path.startsWith("/api/reservations")) {
+            return path.endsWith("/cancel") ? "CANCEL_RESERVATION" : "CREATE_RESERVATION";
+        }
+        if (path.startsWith("/api/payments")) {
+            return path.endsWith("/refund") ? "REFUND_PAYMENT" : "PROCESS_PAYMENT";
+        }
+        if (path.startsWith("/api/notifications")) {
+            return "SEND_NOTIFICATION";
+        }
+        return path;
+    }
+}
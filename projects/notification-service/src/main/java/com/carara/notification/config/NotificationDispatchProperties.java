@@ -0,0 +1,44 @@
+package com.carara.notification.config;
+
+import com.carara.notification.model.NotificationChannel;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "notification.dispatch")
+public class NotificationDispatchProperties {
+    private NotificationChannel confirmationChannel = NotificationChannel.EMAIL;
+    private NotificationChannel cancellationChannel = NotificationChannel.EMAIL;
+
+    private Duration pollInterval = Duration.ofMillis(200);
+    // Tempo que um lote reservado fica fora da fila; se o worker cair, as linhas voltam depois dele
+    private Duration lease = Duration.ofSeconds(30);
+
+    // Repetição com backoff exponencial; depois de max-attempts a notificação vai para DEAD_LETTER
+    private int maxAttempts = 8;
+    private Duration initialBackoff = Duration.ofSeconds(1);
+    private Duration maxBackoff = Duration.ofMinutes(5);
+
+    // Intervalo da contagem das linhas PENDING que alimenta o gauge notification.queue.pending
+    private Duration pendingRefreshInterval = Duration.ofSeconds(10);
+
+    private Map<NotificationChannel, Channel> channels = new EnumMap<>(NotificationChannel.class);
+
+    public Channel channel(NotificationChannel channel) {
+        return channels.getOrDefault(channel, new Channel());
+    }
+
+    @Data
+    public static class Channel {
+        private int workers = 2;
+        private int batchSize = 50;
+
+        // Token bucket do provedor: limit-for-period envios liberados a cada limit-refresh-period
+        private int limitForPeriod = 100;
+        private Duration limitRefreshPeriod = Duration.ofSeconds(1);
+    }
+}
@@ -0,0 +1,45 @@
+package com.carara.notification.config;
+
+import com.carara.notification.model.NotificationChannel;
+import com.carara.notification.service.NotificationSender;
+import com.carara.notification.service.SimulatedNotificationSender;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+// Provedores locais de e-mail, SMS e push. Um provedor real entra como outro bean NotificationSender do canal,
+// com notification.sender.type diferente de simulator
+@Configuration
+@EnableConfigurationProperties(NotificationDispatchProperties.class)
+public class NotificationSenderConfig {
+    private final double failureRate;
+    private final Duration callLatency;
+
+    public NotificationSenderConfig(@Value("${notification.sender.simulator.failure-rate:0.1}") double failureRate,
+                                    @Value("${notification.sender.simulator.call-latency:0ms}") Duration callLatency) {
+        this.failureRate = failureRate;
+        this.callLatency = callLatency;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "notification.sender.type", havingValue = "simulator", matchIfMissing = true)
+    public NotificationSender emailSender() {
+        return new SimulatedNotificationSender(NotificationChannel.EMAIL, failureRate, callLatency);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "notification.sender.type", havingValue = "simulator", matchIfMissing = true)
+    public NotificationSender smsSender() {
+        return new SimulatedNotificationSender(NotificationChannel.SMS, failureRate, callLatency);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "notification.sender.type", havingValue = "simulator", matchIfMissing = true)
+    public NotificationSender pushSender() {
+        return new SimulatedNotificationSender(NotificationChannel.PUSH, failureRate, callLatency);
+    }
+}
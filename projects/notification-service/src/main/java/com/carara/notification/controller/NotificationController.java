@@ -12,6 +12,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.UUID;
+
 @RestController
 @RequestMapping("/api/notifications")
 @Tag(name = "Notification Controller", description = "API for managing notifications")
@@ -26,13 +29,33 @@ public class NotificationController {
 
     @PostMapping("/confirm")
     @Operation(summary = "Send confirmation notification", description = "Sends a confirmation notification for a reservation", responses = {@ApiResponse(responseCode = "200", description = "Notification sent successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Notification.class)))})
-    public ResponseEntity<Notification> sendConfirmation(@Parameter(description = "Reservation ID") @RequestParam String reservationId) {
-        return ResponseEntity.ok(notificationService.sendConfirmation(reservationId));
+    public ResponseEntity<Notification> sendConfirmation(@Parameter(description = "Reservation ID") @RequestParam UUID reservationId,
+                                                         @Parameter(description = "Idempotency key (optional): a repeated key returns the stored notification") @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return ResponseEntity.ok(notificationService.sendConfirmation(reservationId, idempotencyKey));
+    }
+
+    @PostMapping("/confirm/batch")
+    @Operation(summary = "Send confirmations for a group booking", description = "Sends the confirmation notifications of several reservations in a single batched transaction", responses = {@ApiResponse(responseCode = "200", description = "Notifications sent successfully")})
+    public ResponseEntity<List<Notification>> sendConfirmations(@RequestBody List<UUID> reservationIds,
+                                                                @Parameter(description = "Idempotency key (optional): a repeated key returns the stored notifications") @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return ResponseEntity.ok(notificationService.sendConfirmations(reservationIds, idempotencyKey));
+    }
+
+    @GetMapping("/{notificationId}")
+    @Operation(summary = "Get a notification", description = "Returns a notification by ID, served from the read cache when possible", responses = {@ApiResponse(responseCode = "200", description = "Notification found", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Notification.class))), @ApiResponse(responseCode = "404", description = "Notification not found")})
+    public ResponseEntity<Notification> getNotification(@Parameter(description = "Notification ID") @PathVariable UUID notificationId) {
+        return ResponseEntity.of(notificationService.findNotification(notificationId));
+    }
+
+    @GetMapping
+    @Operation(summary = "List the notifications of a reservation", description = "Returns every notification of a reservation, served from the read cache when possible", responses = {@ApiResponse(responseCode = "200", description = "Notifications of the reservation")})
+    public ResponseEntity<List<Notification>> getNotificationsByReservation(@Parameter(description = "Reservation ID") @RequestParam UUID reservationId) {
+        return ResponseEntity.ok(notificationService.findNotificationsByReservation(reservationId));
     }
 
     @PostMapping("/{notificationId}/cancel")
     @Operation(summary = "Send cancellation notification", description = "Sends a cancellation notification for an existing notification", responses = {@ApiResponse(responseCode = "200", description = "Cancellation notification sent successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Notification.class)))})
-    public ResponseEntity<Notification> sendCancellation(@Parameter(description = "Notification ID") @PathVariable String notificationId) {
+    public ResponseEntity<Notification> sendCancellation(@Parameter(description = "Notification ID") @PathVariable UUID notificationId) {
         return ResponseEntity.ok(notificationService.sendCancellation(notificationId));
     }
 } 
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.carara.notification.messaging;
+
+import com.carara.notification.service.NotificationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// Consome os comandos da saga e responde na fila indicada pelo orquestrador (replyTo)
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "saga.messaging.enabled", havingValue = "true")
+public class NotificationCommandListener {
+    private final NotificationService notificationService;
+
+    public NotificationCommandListener(NotificationService notificationService) {
+        this.notificationService = notificationService;
+    }
+
+    @RabbitListener(queues = MessagingConfig.COMMAND_QUEUE)
+    public SagaReply handle(SagaCommand command) {
+        log.info("Received {} command for saga {}", command.getCommandType(), command.getSagaId());
+        try {
+            return switch (command.getCommandType()) {
+                case "SEND_CONFIRMATION" -> SagaReply.success(command,
+                        notificationService.sendConfirmation(command.getUuid("reservationId"), command.getIdempotencyKey()));
+                case "SEND_CONFIRMATIONS" -> SagaReply.success(command,
+                        notificationService.sendConfirmations(command.getUuidList("reservationIds"), command.getIdempotencyKey()));
+                case "SEND_CANCELLATION" -> SagaReply.success(command,
+                        notificationService.sendCancellation(command.getUuid("notificationId")));
+                default -> throw new IllegalArgumentException("Unsupported command " + command.getCommandType());
+            };
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid {} command for saga {}: {}", command.getCommandType(), command.getSagaId(), e.getMessage());
+            return SagaReply.failure(command, "NOTIFICATION_INVALID_ARGUMENT", e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Notification service error for saga {}: {}", command.getSagaId(), e.getMessage(), e);
+            return SagaReply.failure(command, "NOTIFICATION_SEND_ERROR", "Failed to send notification: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.carara.notification.messaging;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+public class SagaCommand {
+    private String sagaId;
+    private String commandType;
+    private String idempotencyKey;
+    private Map<String, Object> arguments;
+
+    public String getString(String name) {
+        Object value = arguments == null ? null : arguments.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing argument " + name + " for command " + commandType);
+        }
+        return value.toString();
+    }
+
+    public Double getDouble(String name) {
+        return Double.valueOf(getString(name));
+    }
+
+    public UUID getUuid(String name) {
+        return UUID.fromString(getString(name));
+    }
+
+    public List<String> getStringList(String name) {
+        Object value = arguments == null ? null : arguments.get(name);
+        if (!(value instanceof List<?> values)) {
+            throw new IllegalArgumentException("Missing list argument " + name + " for command " + commandType);
+        }
+        return values.stream().map(String::valueOf).toList();
+    }
+
+    public List<UUID> getUuidList(String name) {
+        return getStringList(name).stream().map(UUID::fromString).toList();
+    }
+}
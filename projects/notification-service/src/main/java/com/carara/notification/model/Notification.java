@@ -2,14 +2,34 @@ package com.carara.notification.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+
+import java.time.Instant;
 import java.util.UUID;
 
 @Entity
 @Data
+@Table(indexes = @Index(name = "idx_notification_reservation_id", columnList = "reservationId"))
 public class Notification {
+    public static final String PENDING = "PENDING";
+    public static final String SENT = "SENT";
+    public static final String DEAD_LETTER = "DEAD_LETTER";
+
     @Id
-    private String notificationId = UUID.randomUUID().toString();
-    private String reservationId;
+    @GeneratedUuidV7
+    private UUID notificationId;
+    private UUID reservationId;
     private String notificationType;
     private String status;
-} 
\ No newline at end of file
+
+    @Column(unique = true)
+    private String idempotencyKey;
+
+    // Fila de envio: PENDING até o NotificationDispatcher entregar (SENT) ou desistir (DEAD_LETTER)
+    @Enumerated(EnumType.STRING)
+    private NotificationChannel channel;
+    private int attempts;
+    private Instant nextAttemptAt;
+    private String lastError;
+    private Instant createdAt;
+    private Instant sentAt;
+}
@@ -0,0 +1,7 @@
+package com.carara.notification.model;
+
+public enum NotificationChannel {
+    EMAIL,
+    SMS,
+    PUSH
+}
@@ -0,0 +1,25 @@
+package com.carara.notification.model;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// UUID versão 7 (RFC 9562): os 48 bits mais altos são o instante em milissegundos, então ids novos entram
+// sempre no fim do índice B-tree em vez de espalhados por ele. Dentro do mesmo milissegundo os 12 bits seguintes
+// funcionam como contador, mantendo a ordem também entre ids gerados em rajada. Os bits aleatórios vêm de
+// ThreadLocalRandom: o id não é segredo, então não há por que pagar SecureRandom a cada entidade
+public final class UuidV7 {
+    // Instante (ms) << 12 | contador do último id gerado
+    private static final AtomicLong lastTimestampAndCounter = new AtomicLong();
+
+    private UuidV7() {
+    }
+
+    public static UUID next() {
+        long now = System.currentTimeMillis() << 12;
+        long timestampAndCounter = lastTimestampAndCounter.updateAndGet(last -> Math.max(now, last + 1));
+        long mostSignificantBits = (timestampAndCounter >>> 12) << 16 | 0x7000L | (timestampAndCounter & 0xFFFL);
+        long leastSignificantBits = ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+}
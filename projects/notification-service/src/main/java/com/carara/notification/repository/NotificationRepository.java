@@ -1,7 +1,74 @@
 package com.carara.notification.repository;
 
 import com.carara.notification.model.Notification;
+import com.carara.notification.model.NotificationChannel;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface NotificationRepository extends JpaRepository<Notification, String> {
-} 
\ No newline at end of file
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface NotificationRepository extends JpaRepository<Notification, UUID> {
+
+    Optional<Notification> findByIdempotencyKey(String idempotencyKey);
+
+    List<Notification> findByIdempotencyKeyIn(Collection<String> idempotencyKeys);
+
+    List<Notification> findByReservationId(UUID reservationId);
+
+    long countByStatus(String status);
+
+    // FOR UPDATE SKIP LOCKED: os workers de um canal, nesta e nas outras instâncias, pegam linhas diferentes
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("""
+            select n from Notification n
+            where n.status = 'PENDING' and n.channel = :channel and n.nextAttemptAt <= :now
+            order by n.nextAttemptAt
+            """)
+    List<Notification> findDue(@Param("channel") NotificationChannel channel, @Param("now") Instant now, Pageable pageable);
+
+    // Transições da fila em lote, cada uma num único UPDATE. O filtro por PENDING protege uma linha que outro
+    // worker já resolveu depois que o lease deste venceu
+    @Transactional
+    @Modifying
+    @Query("""
+            update Notification n set n.status = 'SENT', n.attempts = :attempts, n.sentAt = :sentAt
+            where n.notificationId in :ids and n.status = 'PENDING'
+            """)
+    int markSent(@Param("ids") Collection<UUID> ids, @Param("attempts") int attempts, @Param("sentAt") Instant sentAt);
+
+    @Transactional
+    @Modifying
+    @Query("""
+            update Notification n set n.attempts = :attempts, n.nextAttemptAt = :nextAttemptAt, n.lastError = :lastError
+            where n.notificationId in :ids and n.status = 'PENDING'
+            """)
+    int retryLater(@Param("ids") Collection<UUID> ids, @Param("attempts") int attempts,
+                   @Param("nextAttemptAt") Instant nextAttemptAt, @Param("lastError") String lastError);
+
+    @Transactional
+    @Modifying
+    @Query("""
+            update Notification n set n.status = 'DEAD_LETTER', n.attempts = :attempts, n.lastError = :lastError
+            where n.notificationId in :ids and n.status = 'PENDING'
+            """)
+    int deadLetter(@Param("ids") Collection<UUID> ids, @Param("attempts") int attempts, @Param("lastError") String lastError);
+
+    // Devolve à fila, sem contar tentativa, um lote reservado que não chegou a ser enviado
+    @Transactional
+    @Modifying
+    @Query("update Notification n set n.nextAttemptAt = :now where n.notificationId in :ids and n.status = 'PENDING'")
+    int release(@Param("ids") Collection<UUID> ids, @Param("now") Instant now);
+}
@@ -0,0 +1,245 @@
+package com.carara.notification.service;
+
+import com.carara.notification.config.NotificationDispatchProperties;
+import com.carara.notification.model.Notification;
+import com.carara.notification.model.NotificationChannel;
+import com.carara.notification.repository.NotificationRepository;
+import com.carara.notification.service.NotificationSender.DeliveryResult;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Entrega as notificações da fila (as linhas PENDING da tabela notification) com um pool de workers por canal.
+// Cada worker reserva um lote vencido do seu canal (lease), espera o token bucket do provedor liberar o lote
+// inteiro, envia numa única chamada ao NotificationSender e aplica os status em UPDATEs em lote. Falhas voltam
+// para a fila com backoff exponencial; as recusadas e as que esgotam max-attempts vão para DEAD_LETTER.
+// Num pico de vendas a fila absorve a rajada e os provedores recebem no máximo o que o rate limit deixa
+@Slf4j
+@Service
+public class NotificationDispatcher {
+    private final NotificationRepository notificationRepository;
+    private final List<NotificationSender> senders;
+    private final NotificationService notificationService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final NotificationDispatchProperties properties;
+    private final List<ScheduledExecutorService> workerPools = new ArrayList<>();
+    // Contagem da fila para o gauge, refeita a cada pending-refresh-interval e não a cada scrape
+    private final AtomicLong pending = new AtomicLong();
+
+    public NotificationDispatcher(NotificationRepository notificationRepository,
+                                  List<NotificationSender> senders,
+                                  NotificationService notificationService,
+                                  TransactionTemplate transactionTemplate,
+                                  MeterRegistry meterRegistry,
+                                  NotificationDispatchProperties properties) {
+        this.notificationRepository = notificationRepository;
+        this.senders = senders;
+        this.notificationService = notificationService;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.properties = properties;
+        Gauge.builder("notification.queue.pending", pending, AtomicLong::get)
+                .description("Notifications waiting to be delivered")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        long pollMillis = properties.getPollInterval().toMillis();
+        for (NotificationSender sender : senders) {
+            NotificationDispatchProperties.Channel channel = properties.channel(sender.channel());
+            RateLimiter rateLimiter = RateLimiter.of(sender.channel().name().toLowerCase() + "-provider", RateLimiterConfig.custom()
+                    .limitForPeriod(channel.getLimitForPeriod())
+                    .limitRefreshPeriod(channel.getLimitRefreshPeriod())
+                    .timeoutDuration(properties.getLease().dividedBy(2))
+                    .build());
+            // O lote nunca pede mais permissões do que o bucket comporta
+            int batchSize = Math.min(channel.getBatchSize(), channel.getLimitForPeriod());
+            ScheduledExecutorService pool = Executors.newScheduledThreadPool(channel.getWorkers(), workerThreads(sender.channel()));
+            for (int i = 0; i < channel.getWorkers(); i++) {
+                pool.scheduleWithFixedDelay(() -> drain(sender, rateLimiter, batchSize, pool), pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+            }
+            workerPools.add(pool);
+            log.info("Notification channel {} started - workers: {}, batch size: {}, rate limit: {} per {}",
+                    sender.channel(), channel.getWorkers(), batchSize, channel.getLimitForPeriod(), channel.getLimitRefreshPeriod());
+        }
+        ScheduledExecutorService gauge = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-queue-gauge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long refreshMillis = properties.getPendingRefreshInterval().toMillis();
+        gauge.scheduleWithFixedDelay(this::refreshPending, 0, refreshMillis, TimeUnit.MILLISECONDS);
+        workerPools.add(gauge);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        workerPools.forEach(ScheduledExecutorService::shutdown);
+        for (ScheduledExecutorService pool : workerPools) {
+            pool.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static ThreadFactory workerThreads(NotificationChannel channel) {
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "notification-" + channel.name().toLowerCase() + "-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private void drain(NotificationSender sender, RateLimiter rateLimiter, int batchSize, ScheduledExecutorService pool) {
+        try {
+            // Enquanto vierem lotes cheios ainda há backlog: segue drenando sem esperar o próximo ciclo
+            while (dispatchBatch(sender, rateLimiter, batchSize) == batchSize && !pool.isShutdown()) {
+                log.debug("Notification backlog on channel {}, dispatching next batch", sender.channel());
+            }
+        } catch (Exception e) {
+            log.error("Notification dispatch failed on channel {}: {}", sender.channel(), e.getMessage(), e);
+        }
+    }
+
+    void refreshPending() {
+        try {
+            pending.set(notificationRepository.countByStatus(Notification.PENDING));
+        } catch (Exception e) {
+            log.warn("Failed to count pending notifications: {}", e.getMessage());
+        }
+    }
+
+    int dispatchBatch(NotificationSender sender, RateLimiter rateLimiter, int batchSize) {
+        Instant now = Instant.now();
+        List<Notification> due = transactionTemplate.execute(status -> {
+            List<Notification> rows = notificationRepository.findDue(sender.channel(), now, PageRequest.of(0, batchSize));
+            // Se esta instância cair no meio do envio, as linhas vencem de novo ao fim do lease e são reenviadas
+            rows.forEach(row -> row.setNextAttemptAt(now.plus(properties.getLease())));
+            return rows;
+        });
+        if (due == null || due.isEmpty()) {
+            return 0;
+        }
+
+        if (!rateLimiter.acquirePermission(due.size())) {
+            // Provedor no limite por mais de meio lease: o lote volta para a fila sem contar tentativa
+            log.warn("Rate limit of channel {} exhausted, releasing {} notifications", sender.channel(), due.size());
+            notificationRepository.release(ids(due), Instant.now());
+            return 0;
+        }
+
+        List<DeliveryResult> results;
+        try {
+            results = sender.send(due);
+            // Sem um resultado por notificação não dá para saber qual foi entregue: o lote inteiro volta para a fila
+            if (results == null || results.size() != due.size()) {
+                throw new IllegalStateException("Sender returned " + (results == null ? 0 : results.size())
+                        + " results for " + due.size() + " notifications");
+            }
+        } catch (Exception e) {
+            String reason = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+            results = due.stream().map(notification -> DeliveryResult.retry(reason)).toList();
+        }
+        record(sender.channel(), due, results);
+        return due.size();
+    }
+
+    private void record(NotificationChannel channel, List<Notification> due, List<DeliveryResult> results) {
+        Instant now = Instant.now();
+        // Agrupadas pelo que o UPDATE grava, para que cada grupo seja um único UPDATE ... where id in (...)
+        Map<Integer, List<Notification>> sent = new LinkedHashMap<>();
+        Map<List<Object>, List<Notification>> retries = new LinkedHashMap<>();
+        Map<List<Object>, List<Notification>> deadLetters = new LinkedHashMap<>();
+        for (int i = 0; i < due.size(); i++) {
+            Notification notification = due.get(i);
+            DeliveryResult result = results.get(i);
+            notification.setAttempts(notification.getAttempts() + 1);
+            if (result.delivered()) {
+                notification.setStatus(Notification.SENT);
+                notification.setSentAt(now);
+                sent.computeIfAbsent(notification.getAttempts(), attempts -> new ArrayList<>()).add(notification);
+                continue;
+            }
+            String error = result.error() == null ? "Delivery failed" : result.error();
+            notification.setLastError(error.substring(0, Math.min(255, error.length())));
+            if (!result.retryable() || notification.getAttempts() >= properties.getMaxAttempts()) {
+                notification.setStatus(Notification.DEAD_LETTER);
+                deadLetters.computeIfAbsent(List.of(notification.getAttempts(), notification.getLastError()),
+                        key -> new ArrayList<>()).add(notification);
+                log.error("Giving up on {} notification {} after {} attempts: {}", channel,
+                        notification.getNotificationId(), notification.getAttempts(), error);
+            } else {
+                retries.computeIfAbsent(List.of(notification.getAttempts(), notification.getLastError()),
+                        key -> new ArrayList<>()).add(notification);
+            }
+        }
+        retries.values().forEach(group -> {
+            Instant nextAttemptAt = now.plus(backoff(group.get(0).getAttempts()));
+            group.forEach(notification -> notification.setNextAttemptAt(nextAttemptAt));
+        });
+
+        transactionTemplate.executeWithoutResult(status -> {
+            sent.forEach((attempts, group) -> notificationRepository.markSent(ids(group), attempts, now));
+            retries.values().forEach(group -> notificationRepository.retryLater(ids(group), group.get(0).getAttempts(),
+                    group.get(0).getNextAttemptAt(), group.get(0).getLastError()));
+            deadLetters.values().forEach(group -> notificationRepository.deadLetter(ids(group), group.get(0).getAttempts(),
+                    group.get(0).getLastError()));
+        });
+        notificationService.refresh(due);
+
+        Timer lag = Timer.builder("notification.dispatch.lag")
+                .description("Time from notification queued to delivered")
+                .tag("channel", channel.name())
+                .register(meterRegistry);
+        sent.values().forEach(group -> group.stream().filter(notification -> notification.getCreatedAt() != null)
+                .forEach(notification -> lag.record(Duration.between(notification.getCreatedAt(), now))));
+        count(channel, "sent", sent);
+        count(channel, "retry", retries);
+        count(channel, "dead_letter", deadLetters);
+        // Entre duas contagens o gauge acompanha o que este worker tirou da fila
+        int finished = due.size() - retries.values().stream().mapToInt(List::size).sum();
+        pending.updateAndGet(current -> Math.max(0, current - finished));
+    }
+
+    // Backoff exponencial com jitter de até 50%, para as repetições de um pico não voltarem todas juntas
+    private Duration backoff(int attempts) {
+        double exponential = properties.getInitialBackoff().toMillis() * Math.pow(2, attempts - 1);
+        long millis = (long) Math.min(properties.getMaxBackoff().toMillis(), exponential);
+        return Duration.ofMillis(millis / 2 + ThreadLocalRandom.current().nextLong(millis / 2 + 1));
+    }
+
+    private void count(NotificationChannel channel, String outcome, Map<?, List<Notification>> groups) {
+        int total = groups.values().stream().mapToInt(List::size).sum();
+        if (total > 0) {
+            meterRegistry.counter("notification.dispatches", "channel", channel.name(), "outcome", outcome).increment(total);
+        }
+    }
+
+    private static List<UUID> ids(List<Notification> notifications) {
+        return notifications.stream().map(Notification::getNotificationId).toList();
+    }
+}
@@ -0,0 +1,31 @@
+package com.carara.notification.service;
+
+import com.carara.notification.model.Notification;
+import com.carara.notification.model.NotificationChannel;
+
+import java.util.List;
+
+// Provedor de um canal (e-mail, SMS, push). Recebe um lote numa única chamada e devolve um resultado por
+// notificação, na mesma ordem do lote. Uma exceção conta como falha temporária do lote inteiro
+public interface NotificationSender {
+
+    NotificationChannel channel();
+
+    List<DeliveryResult> send(List<Notification> notifications);
+
+    // retryable = false (destinatário inválido, mensagem recusada) vai direto para DEAD_LETTER
+    record DeliveryResult(boolean delivered, boolean retryable, String error) {
+
+        public static DeliveryResult ok() {
+            return new DeliveryResult(true, false, null);
+        }
+
+        public static DeliveryResult retry(String error) {
+            return new DeliveryResult(false, true, error);
+        }
+
+        public static DeliveryResult reject(String error) {
+            return new DeliveryResult(false, false, error);
+        }
+    }
+}
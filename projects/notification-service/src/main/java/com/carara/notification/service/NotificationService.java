@@ -1,66 +1,208 @@
 package com.carara.notification.service;
 
+import com.carara.notification.config.NotificationDispatchProperties;
 import com.carara.notification.model.Notification;
+import com.carara.notification.model.NotificationChannel;
 import com.carara.notification.repository.NotificationRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Autowired;
-import java.util.Random;
+import org.springframework.beans.factory.annotation.Value;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class NotificationService {
     private final NotificationRepository notificationRepository;
-    private final Random random = new Random();
+    private final NotificationDispatchProperties dispatchProperties;
+    private final IdempotencyCache<Notification> idempotencyCache;
+    private final ReadCache<Notification> readCache;
+    private final ObservationRegistry observationRegistry;
 
     @Autowired
-    public NotificationService(NotificationRepository notificationRepository) {
+    public NotificationService(NotificationRepository notificationRepository,
+                               NotificationDispatchProperties dispatchProperties,
+                               ObservationRegistry observationRegistry,
+                               MeterRegistry meterRegistry,
+                               @Value("${idempotency.cache.max-entries:10000}") int idempotencyCacheSize,
+                               @Value("${read-cache.max-entries:10000}") int readCacheSize,
+                               @Value("${read-cache.expire-after-write:5m}") Duration readCacheExpiry) {
         this.notificationRepository = notificationRepository;
+        this.dispatchProperties = dispatchProperties;
+        this.idempotencyCache = new IdempotencyCache<>(idempotencyCacheSize);
+        this.readCache = new ReadCache<>("notifications", readCacheSize, readCacheExpiry, Notification::getNotificationId, meterRegistry);
+        this.observationRegistry = observationRegistry;
     }
 
-    public Notification sendConfirmation(String reservationId) {
+    public Notification sendConfirmation(UUID reservationId) {
+        return sendConfirmation(reservationId, null);
+    }
+
+    public Notification sendConfirmation(UUID reservationId, String idempotencyKey) {
         log.info("Starting confirmation notification process for reservation: {}", reservationId);
-        
-        if (random.nextDouble() > 0.9) {
-            log.error("Confirmation notification failed for reservation {} - Random failure triggered", reservationId);
-            throw new RuntimeException("Confirmation sending failed");
+
+        if (idempotencyKey != null) {
+            Notification replayed = idempotencyCache.get(idempotencyKey);
+            if (replayed != null) {
+                log.info("Returning stored notification {} for idempotency key {}", replayed.getNotificationId(), idempotencyKey);
+                return replayed;
+            }
         }
-        
-        Notification notification = new Notification();
-        notification.setReservationId(reservationId);
-        notification.setNotificationType("CONFIRMATION");
-        notification.setStatus("SENT");
-        
-        Notification savedNotification = notificationRepository.save(notification);
-        log.info("Confirmation notification sent successfully - Notification ID: {}, Reservation ID: {}", 
+
+        Notification notification = pending(reservationId, "CONFIRMATION", dispatchProperties.getConfirmationChannel());
+        notification.setIdempotencyKey(idempotencyKey);
+
+        Notification savedNotification;
+        try {
+            savedNotification = observeSave("sendConfirmation", () -> notificationRepository.save(notification));
+        } catch (DataIntegrityViolationException e) {
+            // Repetição concorrente ou vinda de outra instância: o índice único impede a confirmação duplicada
+            savedNotification = findByIdempotencyKey(idempotencyKey, e);
+            log.info("Returning stored notification {} for idempotency key {}", savedNotification.getNotificationId(), idempotencyKey);
+        }
+        if (idempotencyKey != null) {
+            idempotencyCache.put(idempotencyKey, savedNotification);
+        }
+        cache(savedNotification);
+        log.info("Confirmation notification queued - Notification ID: {}, Reservation ID: {}", 
                 savedNotification.getNotificationId(), reservationId);
         return savedNotification;
     }
 
-    public Notification sendCancellation(String notificationId) {
+    private Notification findByIdempotencyKey(String idempotencyKey, DataIntegrityViolationException violation) {
+        if (idempotencyKey == null) {
+            throw violation;
+        }
+        return notificationRepository.findByIdempotencyKey(idempotencyKey).orElseThrow(() -> violation);
+    }
+
+    // Confirmações de uma reserva em grupo enfileiradas com INSERTs em lote (saveAll)
+    public List<Notification> sendConfirmations(List<UUID> reservationIds, String idempotencyKey) {
+        if (reservationIds == null || reservationIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one reservation ID is required");
+        }
+        log.info("Starting group confirmation for {} reservations", reservationIds.size());
+
+        List<String> itemKeys = idempotencyKey == null ? null
+                : reservationIds.stream().map(reservationId -> idempotencyKey + ":" + reservationId).toList();
+        if (itemKeys != null) {
+            List<Notification> replayed = itemKeys.stream().map(idempotencyCache::get).toList();
+            if (!replayed.contains(null)) {
+                log.info("Returning {} stored notifications for idempotency key {}", replayed.size(), idempotencyKey);
+                return replayed;
+            }
+        }
+
+        List<Notification> notifications = new ArrayList<>(reservationIds.size());
+        for (int i = 0; i < reservationIds.size(); i++) {
+            Notification notification = pending(reservationIds.get(i), "CONFIRMATION", dispatchProperties.getConfirmationChannel());
+            notification.setIdempotencyKey(itemKeys == null ? null : itemKeys.get(i));
+            notifications.add(notification);
+        }
+
+        List<Notification> savedNotifications;
+        try {
+            savedNotifications = observeSave("sendConfirmations", () -> notificationRepository.saveAll(notifications));
+        } catch (DataIntegrityViolationException e) {
+            savedNotifications = findByIdempotencyKeys(itemKeys, e);
+            log.info("Returning {} stored notifications for idempotency key {}", savedNotifications.size(), idempotencyKey);
+        }
+        if (itemKeys != null) {
+            savedNotifications.forEach(notification -> idempotencyCache.put(notification.getIdempotencyKey(), notification));
+        }
+        savedNotifications.forEach(this::cache);
+        log.info("Group confirmation queued with {} notifications", savedNotifications.size());
+        return savedNotifications;
+    }
+
+    private List<Notification> findByIdempotencyKeys(List<String> itemKeys, DataIntegrityViolationException violation) {
+        if (itemKeys == null) {
+            throw violation;
+        }
+        Map<String, Notification> stored = notificationRepository.findByIdempotencyKeyIn(itemKeys).stream()
+                .collect(Collectors.toMap(Notification::getIdempotencyKey, Function.identity()));
+        if (stored.size() != itemKeys.size()) {
+            throw violation;
+        }
+        return itemKeys.stream().map(stored::get).toList();
+    }
+
+    public Notification sendCancellation(UUID notificationId) {
         log.info("Starting cancellation notification process for notification: {}", notificationId);
-        
-        return notificationRepository.findById(notificationId).map(notification -> {
-            log.info("Found original notification for cancellation: {}", notification);
-            Notification cancellationNotice = new Notification();
-            cancellationNotice.setReservationId(notification.getReservationId());
-            cancellationNotice.setNotificationType("CANCELLATION");
-            cancellationNotice.setStatus("SENT");
-            
-            Notification savedCancellation = notificationRepository.save(cancellationNotice);
-            log.info("Cancellation notification sent successfully - Notification ID: {}, Original Notification ID: {}", 
-                    savedCancellation.getNotificationId(), notificationId);
-            return savedCancellation;
-        }).orElseGet(() -> {
-            log.info("Original notification {} not found, creating standalone cancellation", notificationId);
-            Notification cancellation = new Notification();
-            cancellation.setNotificationType("CANCELLATION");
-            cancellation.setStatus("SENT");
-            
-            Notification savedCancellation = notificationRepository.save(cancellation);
-            log.info("Standalone cancellation notification created - Notification ID: {}", 
-                    savedCancellation.getNotificationId());
-            return savedCancellation;
-        });
+
+        // A reserva da notificação original pode vir do cache: só o status dela muda depois de gravada
+        UUID reservationId = readCache.findById(notificationId, notificationRepository::findById)
+                .map(Notification::getReservationId)
+                .orElseGet(() -> {
+                    log.info("Original notification {} not found, creating standalone cancellation", notificationId);
+                    return null;
+                });
+        Notification cancellation = pending(reservationId, "CANCELLATION", dispatchProperties.getCancellationChannel());
+
+        Notification savedCancellation = cache(observeSave("sendCancellation", () -> notificationRepository.save(cancellation)));
+        log.info("Cancellation notification queued - Notification ID: {}, Original Notification ID: {}",
+                savedCancellation.getNotificationId(), notificationId);
+        return savedCancellation;
+    }
+
+    // Notificação nova entra na fila do canal como PENDING, vencida agora; quem entrega é o NotificationDispatcher
+    private static Notification pending(UUID reservationId, String notificationType, NotificationChannel channel) {
+        Instant now = Instant.now();
+        Notification notification = new Notification();
+        notification.setReservationId(reservationId);
+        notification.setNotificationType(notificationType);
+        notification.setChannel(channel);
+        notification.setStatus(Notification.PENDING);
+        notification.setCreatedAt(now);
+        notification.setNextAttemptAt(now);
+        return notification;
+    }
+
+    public Optional<Notification> findNotification(UUID notificationId) {
+        return readCache.findById(notificationId, notificationRepository::findById);
+    }
+
+    public List<Notification> findNotificationsByReservation(UUID reservationId) {
+        return readCache.query(byReservation(reservationId), () -> notificationRepository.findByReservationId(reservationId));
+    }
+
+    // Write-through: a notificação nova entra no cache e a lista da reserva dela passa a ser lida do banco
+    private Notification cache(Notification notification) {
+        if (notification.getReservationId() != null) {
+            readCache.invalidateQuery(byReservation(notification.getReservationId()));
+        }
+        return readCache.put(notification);
+    }
+
+    // Status aplicados em lote pelo NotificationDispatcher: o cache de leitura passa a servir o estado novo
+    void refresh(List<Notification> notifications) {
+        readCache.putAll(notifications);
+    }
+
+    private static String byReservation(UUID reservationId) {
+        return "reservationId=" + reservationId;
+    }
+
+    // Gravação no repositório, incluindo o commit: vira o timer repository.save (por entity e operation)
+    // e um span filho do span HTTP ou da mensagem que originou a chamada
+    private <T> T observeSave(String operation, Supplier<T> save) {
+        return Observation.createNotStarted("repository.save", observationRegistry)
+                .contextualName("notification " + operation)
+                .lowCardinalityKeyValue("entity", "notification")
+                .lowCardinalityKeyValue("operation", operation)
+                .observe(save);
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,71 @@
+package com.carara.notification.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Cache de leitura na frente do repositório (Caffeine, limitado por tamanho e com expiração), com as métricas
+// cache.gets (hit/miss), cache.evictions e cache.size. As entidades ficam por id; uma consulta guarda só a lista
+// de ids e resolve as entidades pelo cache por id, então uma mudança de status só precisa atualizar a entidade.
+// Toda gravação do serviço passa por put (write-through) e uma linha nova invalida as consultas que ela muda;
+// a expiração limita o quanto uma entrada alterada por outra instância fica velha
+public class ReadCache<T> {
+    private final Cache<UUID, T> entities;
+    private final Cache<String, List<UUID>> queries;
+    private final Function<T, UUID> idOf;
+
+    public ReadCache(String name, int maxEntries, Duration expireAfterWrite, Function<T, UUID> idOf, MeterRegistry meterRegistry) {
+        this.entities = Caffeine.newBuilder().maximumSize(maxEntries).expireAfterWrite(expireAfterWrite).recordStats().build();
+        this.queries = Caffeine.newBuilder().maximumSize(maxEntries).expireAfterWrite(expireAfterWrite).recordStats().build();
+        this.idOf = idOf;
+        CaffeineCacheMetrics.monitor(meterRegistry, entities, name);
+        CaffeineCacheMetrics.monitor(meterRegistry, queries, name + "-queries");
+    }
+
+    public Optional<T> findById(UUID id, Function<UUID, Optional<T>> loader) {
+        return Optional.ofNullable(entities.get(id, key -> loader.apply(key).orElse(null)));
+    }
+
+    public Optional<T> getIfPresent(UUID id) {
+        return Optional.ofNullable(entities.getIfPresent(id));
+    }
+
+    public List<T> query(String query, Supplier<List<T>> loader) {
+        List<UUID> ids = queries.getIfPresent(query);
+        if (ids != null) {
+            Map<UUID, T> cached = entities.getAllPresent(ids);
+            if (cached.size() == ids.size()) {
+                return ids.stream().map(cached::get).toList();
+            }
+        }
+        List<T> loaded = loader.get();
+        putAll(loaded);
+        queries.put(query, loaded.stream().map(idOf).toList());
+        return loaded;
+    }
+
+    public T put(T entity) {
+        if (entity != null) {
+            entities.put(idOf.apply(entity), entity);
+        }
+        return entity;
+    }
+
+    public void putAll(Collection<T> entities) {
+        entities.forEach(this::put);
+    }
+
+    public void invalidateQuery(String query) {
+        queries.invalidate(query);
+    }
+}
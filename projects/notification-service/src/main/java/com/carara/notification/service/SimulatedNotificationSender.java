@@ -0,0 +1,50 @@
+package com.carara.notification.service;
+
+import com.carara.notification.model.Notification;
+import com.carara.notification.model.NotificationChannel;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Provedor local no lugar de um real: falha cada envio com probabilidade failure-rate (a falha aleatória que o
+// serviço sempre simulou, agora repetida pelo dispatcher) e leva call-latency por chamada, não por mensagem
+@Slf4j
+public class SimulatedNotificationSender implements NotificationSender {
+    private final NotificationChannel channel;
+    private final double failureRate;
+    private final Duration callLatency;
+
+    public SimulatedNotificationSender(NotificationChannel channel, double failureRate, Duration callLatency) {
+        this.channel = channel;
+        this.failureRate = failureRate;
+        this.callLatency = callLatency;
+    }
+
+    @Override
+    public NotificationChannel channel() {
+        return channel;
+    }
+
+    @Override
+    public List<DeliveryResult> send(List<Notification> notifications) {
+        if (!callLatency.isZero()) {
+            try {
+                Thread.sleep(callLatency.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while sending " + notifications.size() + " notifications", e);
+            }
+        }
+        return notifications.stream().map(notification -> {
+            if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+                log.warn("{} {} notification for reservation {} failed - Random failure triggered",
+                        channel, notification.getNotificationType(), notification.getReservationId());
+                return DeliveryResult.retry(channel + " provider unavailable");
+            }
+            log.debug("{} {} notification {} delivered", channel, notification.getNotificationType(), notification.getNotificationId());
+            return DeliveryResult.ok();
+        }).toList();
+    }
+}
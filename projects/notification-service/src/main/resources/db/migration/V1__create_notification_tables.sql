@@ -0,0 +1,13 @@
+-- Esquema inicial, equivalente ao que o ddl-auto: update gerava a partir das entidades.
+-- Bancos já criados pelo Hibernate entram nesta versão pelo baseline-on-migrate, sem executar o script
+
+create table notification (
+    notification_id   uuid not null,
+    reservation_id    uuid,
+    notification_type varchar(255),
+    status            varchar(255),
+    idempotency_key   varchar(255) unique,
+    primary key (notification_id)
+);
+
+create index idx_notification_reservation_id on notification (reservation_id);
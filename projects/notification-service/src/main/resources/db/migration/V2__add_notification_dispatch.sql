@@ -0,0 +1,14 @@
+-- Fila de envio: as notificações entram PENDING e o NotificationDispatcher as entrega por canal.
+-- As linhas anteriores já estão SENT e não voltam para a fila
+
+alter table notification add column channel varchar(255);
+alter table notification add column attempts integer not null default 0;
+alter table notification add column next_attempt_at timestamp(6) with time zone;
+alter table notification add column last_error varchar(255);
+alter table notification add column created_at timestamp(6) with time zone;
+alter table notification add column sent_at timestamp(6) with time zone;
+
+update notification set channel = 'EMAIL';
+
+-- Índice parcial: os workers só procuram as pendentes vencidas do seu canal
+create index idx_notification_pending on notification (channel, next_attempt_at) where status = 'PENDING';
@@ -0,0 +1,197 @@
+package com.carara.notification.service;
+
+import com.carara.notification.config.NotificationDispatchProperties;
+import com.carara.notification.model.Notification;
+import com.carara.notification.model.NotificationChannel;
+import com.carara.notification.repository.NotificationRepository;
+import com.carara.notification.service.NotificationSender.DeliveryResult;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationDispatcherTests {
+
+    private final NotificationRepository repository = mock(NotificationRepository.class);
+    private final NotificationSender sender = mock(NotificationSender.class);
+    private final NotificationService notificationService = mock(NotificationService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final NotificationDispatchProperties properties = new NotificationDispatchProperties();
+    private final NotificationDispatcher dispatcher = new NotificationDispatcher(repository, List.of(sender), notificationService,
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), meterRegistry, properties);
+    private final RateLimiter unlimited = rateLimiter(1000);
+
+    @BeforeEach
+    void emailChannel() {
+        when(sender.channel()).thenReturn(NotificationChannel.EMAIL);
+        properties.setMaxAttempts(3);
+    }
+
+    private static RateLimiter rateLimiter(int limitForPeriod) {
+        return RateLimiter.of("test", RateLimiterConfig.custom()
+                .limitForPeriod(limitForPeriod)
+                .limitRefreshPeriod(Duration.ofMinutes(1))
+                .timeoutDuration(Duration.ZERO)
+                .build());
+    }
+
+    private static List<Notification> due(int count, int attempts) {
+        return IntStream.range(0, count).mapToObj(i -> {
+            Notification notification = new Notification();
+            notification.setNotificationId(UUID.randomUUID());
+            notification.setReservationId(UUID.randomUUID());
+            notification.setNotificationType("CONFIRMATION");
+            notification.setStatus(Notification.PENDING);
+            notification.setChannel(NotificationChannel.EMAIL);
+            notification.setAttempts(attempts);
+            notification.setCreatedAt(Instant.now().minusSeconds(1));
+            notification.setNextAttemptAt(Instant.now());
+            return notification;
+        }).toList();
+    }
+
+    private static List<UUID> ids(List<Notification> notifications) {
+        return notifications.stream().map(Notification::getNotificationId).toList();
+    }
+
+    @Test
+    void dueRowsAreClaimedWithSkipLocked() throws NoSuchMethodException {
+        Method findDue = NotificationRepository.class.getMethod("findDue", NotificationChannel.class, Instant.class, Pageable.class);
+
+        assertThat(findDue.getAnnotation(Lock.class).value()).isEqualTo(LockModeType.PESSIMISTIC_WRITE);
+        // lock.timeout -2 é o SKIP LOCKED do Hibernate
+        QueryHint hint = findDue.getAnnotation(QueryHints.class).value()[0];
+        assertThat(hint.name()).isEqualTo("jakarta.persistence.lock.timeout");
+        assertThat(hint.value()).isEqualTo("-2");
+    }
+
+    @Test
+    void claimedBatchIsLeasedBeforeItIsSent() {
+        List<Notification> rows = due(3, 0);
+        when(repository.findDue(eq(NotificationChannel.EMAIL), any(), eq(PageRequest.of(0, 50)))).thenReturn(rows);
+        List<Instant> leasedUntil = new ArrayList<>();
+        Instant claimedAfter = Instant.now();
+        when(sender.send(anyList())).thenAnswer(invocation -> {
+            List<Notification> batch = invocation.getArgument(0);
+            batch.forEach(notification -> leasedUntil.add(notification.getNextAttemptAt()));
+            return batch.stream().map(notification -> DeliveryResult.ok()).toList();
+        });
+
+        assertThat(dispatcher.dispatchBatch(sender, unlimited, 50)).isEqualTo(3);
+
+        // Até o fim do lease as linhas não vencem de novo: se o worker cair, voltam para a fila depois dele
+        assertThat(leasedUntil).hasSize(3).allSatisfy(until ->
+                assertThat(until).isAfterOrEqualTo(claimedAfter.plus(properties.getLease())));
+    }
+
+    @Test
+    void emptyQueueDoesNotCallTheProvider() {
+        when(repository.findDue(any(), any(), any())).thenReturn(List.of());
+
+        assertThat(dispatcher.dispatchBatch(sender, unlimited, 50)).isZero();
+        verify(sender, never()).send(anyList());
+    }
+
+    @Test
+    void statusesAreWrittenInOneUpdatePerGroup() {
+        List<Notification> rows = due(5, 0);
+        when(repository.findDue(any(), any(), any())).thenReturn(rows);
+        when(sender.send(anyList())).thenReturn(List.of(DeliveryResult.ok(), DeliveryResult.ok(),
+                DeliveryResult.retry("EMAIL provider unavailable"), DeliveryResult.retry("EMAIL provider unavailable"),
+                DeliveryResult.reject("invalid address")));
+
+        dispatcher.dispatchBatch(sender, unlimited, 50);
+
+        verify(repository, times(1)).markSent(eq(ids(rows.subList(0, 2))), eq(1), any());
+        verify(repository, times(1)).retryLater(eq(ids(rows.subList(2, 4))), eq(1), any(), eq("EMAIL provider unavailable"));
+        verify(repository, times(1)).deadLetter(ids(rows.subList(4, 5)), 1, "invalid address");
+        verify(notificationService).refresh(rows);
+        assertThat(rows.get(0).getStatus()).isEqualTo(Notification.SENT);
+        assertThat(rows.get(2).getNextAttemptAt()).isAfter(Instant.now());
+        assertThat(meterRegistry.counter("notification.dispatches", "channel", "EMAIL", "outcome", "sent").count()).isEqualTo(2);
+    }
+
+    @Test
+    void lastAttemptGoesToDeadLetter() {
+        List<Notification> rows = due(2, 2);
+        when(repository.findDue(any(), any(), any())).thenReturn(rows);
+        when(sender.send(anyList())).thenThrow(new IllegalStateException("provider timeout"));
+
+        dispatcher.dispatchBatch(sender, unlimited, 50);
+
+        verify(repository, times(1)).deadLetter(ids(rows), 3, "provider timeout");
+        verify(repository, never()).retryLater(anyList(), anyInt(), any(), anyString());
+        assertThat(rows).allMatch(notification -> Notification.DEAD_LETTER.equals(notification.getStatus()));
+    }
+
+    @Test
+    void batchWithMissingResultsIsRetriedAsAWhole() {
+        List<Notification> rows = due(3, 0);
+        when(repository.findDue(any(), any(), any())).thenReturn(rows);
+        when(sender.send(anyList())).thenReturn(List.of(DeliveryResult.ok()));
+
+        assertThat(dispatcher.dispatchBatch(sender, unlimited, 50)).isEqualTo(3);
+
+        verify(repository, times(1)).retryLater(eq(ids(rows)), eq(1), any(), eq("Sender returned 1 results for 3 notifications"));
+        verify(repository, never()).markSent(anyList(), anyInt(), any());
+        assertThat(rows).allMatch(notification -> Notification.PENDING.equals(notification.getStatus()));
+    }
+
+    @Test
+    void batchOverTheRateLimitIsReleasedWithoutCountingAnAttempt() {
+        RateLimiter limiter = rateLimiter(3);
+        when(repository.findDue(any(), any(), any())).thenReturn(due(2, 0), due(2, 0));
+        when(sender.send(anyList())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).stream()
+                .map(notification -> DeliveryResult.ok()).toList());
+
+        assertThat(dispatcher.dispatchBatch(sender, limiter, 2)).isEqualTo(2);
+        assertThat(dispatcher.dispatchBatch(sender, limiter, 2)).isZero();
+
+        verify(sender, times(1)).send(anyList());
+        verify(repository, times(1)).release(anyList(), any());
+        verify(repository, times(1)).markSent(anyList(), anyInt(), any());
+    }
+
+    @Test
+    void pendingGaugeReadsTheLastCountInsteadOfQueryingOnScrape() {
+        when(repository.countByStatus(Notification.PENDING)).thenReturn(10L);
+        dispatcher.refreshPending();
+        when(repository.findDue(any(), any(), any())).thenReturn(due(4, 0));
+        when(sender.send(anyList())).thenReturn(List.of(DeliveryResult.ok(), DeliveryResult.ok(),
+                DeliveryResult.reject("invalid address"), DeliveryResult.retry("EMAIL provider unavailable")));
+
+        dispatcher.dispatchBatch(sender, unlimited, 50);
+
+        assertThat(meterRegistry.get("notification.queue.pending").gauge().value()).isEqualTo(7.0);
+        verify(repository, times(1)).countByStatus(Notification.PENDING);
+    }
+}
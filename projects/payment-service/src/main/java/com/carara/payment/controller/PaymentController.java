@@ -1,6 +1,10 @@
 package com.carara.payment.controller;
 
+import com.carara.payment.model.KeysetPage;
 import com.carara.payment.model.Payment;
+import com.carara.payment.model.PaymentRequest;
+import com.carara.payment.service.ExportFormat;
+import com.carara.payment.service.PaymentExporter;
 import com.carara.payment.service.PaymentService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -9,8 +13,17 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/payments")
@@ -18,22 +31,79 @@ import org.springframework.web.bind.annotation.*;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final PaymentExporter paymentExporter;
 
     @Autowired
-    public PaymentController(PaymentService paymentService) {
+    public PaymentController(PaymentService paymentService, PaymentExporter paymentExporter) {
         this.paymentService = paymentService;
+        this.paymentExporter = paymentExporter;
     }
 
     @PostMapping
     @Operation(summary = "Process a payment", description = "Processes a payment for a reservation", responses = {@ApiResponse(responseCode = "200", description = "Payment processed successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Payment.class)))})
-    public ResponseEntity<Payment> processPayment(@Parameter(description = "Reservation ID") @RequestParam String reservationId,
-                                                  @Parameter(description = "Amount") @RequestParam Double amount) {
-        return ResponseEntity.ok(paymentService.processPayment(reservationId, amount));
+    public CompletableFuture<ResponseEntity<Payment>> processPayment(@Parameter(description = "Reservation ID") @RequestParam UUID reservationId,
+                                                                     @Parameter(description = "Amount") @RequestParam Double amount,
+                                                                     @Parameter(description = "Idempotency key (optional): a repeated key returns the stored payment") @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        // Resposta assíncrona: a thread do Tomcat não fica presa enquanto a cobrança espera o lote
+        return paymentService.processPaymentAsync(reservationId, amount, idempotencyKey).thenApply(ResponseEntity::ok);
+    }
+
+    @GetMapping("/{paymentId}")
+    @Operation(summary = "Get a payment", description = "Returns a payment by ID, served from the read cache when possible", responses = {@ApiResponse(responseCode = "200", description = "Payment found", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Payment.class))), @ApiResponse(responseCode = "404", description = "Payment not found")})
+    public ResponseEntity<Payment> getPayment(@Parameter(description = "Payment ID") @PathVariable UUID paymentId) {
+        return ResponseEntity.of(paymentService.findPayment(paymentId));
+    }
+
+    @GetMapping
+    @Operation(summary = "List the payments of a reservation", description = "Returns every payment of a reservation, served from the read cache when possible", responses = {@ApiResponse(responseCode = "200", description = "Payments of the reservation")})
+    public ResponseEntity<List<Payment>> getPaymentsByReservation(@Parameter(description = "Reservation ID") @RequestParam UUID reservationId) {
+        return ResponseEntity.ok(paymentService.findPaymentsByReservation(reservationId));
+    }
+
+    @GetMapping("/page")
+    @Operation(summary = "List payments page by page", description = "Keyset pagination in creation order: pass the nextCursor of a page as the after parameter of the next one", responses = {@ApiResponse(responseCode = "200", description = "Page of payments")})
+    public ResponseEntity<KeysetPage<Payment>> listPayments(@Parameter(description = "Cursor: nextCursor of the previous page (omit for the first page)") @RequestParam(required = false) UUID after,
+                                                            @Parameter(description = "Exclusive upper bound of the ID range (optional)") @RequestParam(required = false) UUID before,
+                                                            @Parameter(description = "Page size, up to " + PaymentService.MAX_PAGE_SIZE) @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(paymentService.findPayments(after, before, limit));
+    }
+
+    @PostMapping("/batch/by-reservation")
+    @Operation(summary = "Look up the payments of several reservations", description = "Returns every payment of the given reservations", responses = {@ApiResponse(responseCode = "200", description = "Payments of the reservations")})
+    public ResponseEntity<List<Payment>> lookupPaymentsByReservations(@RequestBody List<UUID> reservationIds) {
+        return ResponseEntity.ok(paymentService.findPaymentsByReservations(reservationIds));
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Export payments", description = "Streams the payments created in [from, to) as NDJSON or CSV, without loading them in memory", responses = {@ApiResponse(responseCode = "200", description = "Export stream"), @ApiResponse(responseCode = "429", description = "Too many exports running, retry later")})
+    public ResponseEntity<StreamingResponseBody> exportPayments(@Parameter(description = "Start of the creation range, inclusive (ISO-8601 instant)") @RequestParam(required = false) Instant from,
+                                                                @Parameter(description = "End of the creation range, exclusive (ISO-8601 instant)") @RequestParam(required = false) Instant to,
+                                                                @Parameter(description = "ndjson or csv") @RequestParam(defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat = ExportFormat.parse(format);
+        return paymentExporter.export(from, to, exportFormat)
+                .map(body -> ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=payments." + exportFormat.getExtension())
+                        .body(body))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build());
     }
 
     @PostMapping("/{paymentId}/refund")
     @Operation(summary = "Refund a payment", description = "Refunds an existing payment by ID", responses = {@ApiResponse(responseCode = "200", description = "Payment refunded successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Payment.class)))})
-    public ResponseEntity<Payment> refundPayment(@Parameter(description = "Payment ID") @PathVariable String paymentId) {
+    public ResponseEntity<Payment> refundPayment(@Parameter(description = "Payment ID") @PathVariable UUID paymentId) {
         return ResponseEntity.ok(paymentService.refundPayment(paymentId));
     }
-} 
\ No newline at end of file
+
+    @PostMapping("/batch")
+    @Operation(summary = "Process a group of payments", description = "Processes the payments of a group booking, all or nothing, in a single batched transaction", responses = {@ApiResponse(responseCode = "200", description = "Payments processed successfully")})
+    public ResponseEntity<List<Payment>> processPayments(@RequestBody List<PaymentRequest> requests,
+                                                         @Parameter(description = "Idempotency key (optional): a repeated key returns the stored payments") @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return ResponseEntity.ok(paymentService.processPayments(requests, idempotencyKey));
+    }
+
+    @PostMapping("/batch/refund")
+    @Operation(summary = "Refund a group of payments", description = "Refunds several payments by ID in a single batched transaction", responses = {@ApiResponse(responseCode = "200", description = "Payments refunded successfully")})
+    public ResponseEntity<List<Payment>> refundPayments(@RequestBody List<UUID> paymentIds) {
+        return ResponseEntity.ok(paymentService.refundPayments(paymentIds));
+    }
+}
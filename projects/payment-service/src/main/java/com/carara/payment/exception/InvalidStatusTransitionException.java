@@ -0,0 +1,10 @@
+package com.carara.payment.exception;
+
+import java.util.UUID;
+
+public class InvalidStatusTransitionException extends RuntimeException {
+
+    public InvalidStatusTransitionException(UUID id, String status, String targetStatus) {
+        super("Payment " + id + " cannot move from " + status + " to " + targetStatus);
+    }
+}
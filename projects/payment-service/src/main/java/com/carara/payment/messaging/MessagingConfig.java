@@ -0,0 +1,29 @@
+package com.carara.payment.messaging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "saga.messaging.enabled", havingValue = "true")
+public class MessagingConfig {
+    public static final String COMMAND_QUEUE = "saga.payment.commands";
+
+    @Bean
+    public Queue paymentCommandQueue() {
+        return QueueBuilder.durable(COMMAND_QUEUE).build();
+    }
+
+    @Bean
+    public MessageConverter sagaMessageConverter(ObjectMapper objectMapper) {
+        Jackson2JsonMessageConverter converter = new Jackson2JsonMessageConverter(objectMapper);
+        // O orquestrador usa suas próprias classes de mensagem; o tipo vem do parâmetro do listener
+        converter.setAlwaysConvertToInferredType(true);
+        return converter;
+    }
+}
@@ -0,0 +1,62 @@
+package com.carara.payment.messaging;
+
+import com.carara.payment.exception.InvalidStatusTransitionException;
+import com.carara.payment.model.PaymentRequest;
+import com.carara.payment.service.PaymentService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+
+// Consome os comandos da saga e responde na fila indicada pelo orquestrador (replyTo)
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "saga.messaging.enabled", havingValue = "true")
+public class PaymentCommandListener {
+    private final PaymentService paymentService;
+
+    public PaymentCommandListener(PaymentService paymentService) {
+        this.paymentService = paymentService;
+    }
+
+    @RabbitListener(queues = MessagingConfig.COMMAND_QUEUE)
+    public SagaReply handle(SagaCommand command) {
+        log.info("Received {} command for saga {}", command.getCommandType(), command.getSagaId());
+        try {
+            return switch (command.getCommandType()) {
+                case "PROCESS_PAYMENT" -> SagaReply.success(command, paymentService.processPayment(
+                        command.getUuid("reservationId"), command.getDouble("amount"), command.getIdempotencyKey()));
+                case "REFUND_PAYMENT" -> SagaReply.success(command,
+                        paymentService.refundPayment(command.getUuid("paymentId")));
+                case "PROCESS_PAYMENTS" -> SagaReply.success(command, paymentService.processPayments(
+                        paymentRequests(command.getUuidList("reservationIds"), command.getDouble("amount")),
+                        command.getIdempotencyKey()));
+                case "REFUND_PAYMENTS" -> SagaReply.success(command,
+                        paymentService.refundPayments(command.getUuidList("paymentIds")));
+                default -> throw new IllegalArgumentException("Unsupported command " + command.getCommandType());
+            };
+        } catch (InvalidStatusTransitionException e) {
+            // Mesmo código do 409 do HTTP: repetir não muda o status, então o orquestrador não repete
+            log.warn("Invalid status transition for saga {}: {}", command.getSagaId(), e.getMessage());
+            return SagaReply.failure(command, "PAYMENT_INVALID_STATUS_TRANSITION", e.getMessage());
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid {} command for saga {}: {}", command.getCommandType(), command.getSagaId(), e.getMessage());
+            return SagaReply.failure(command, "PAYMENT_INVALID_ARGUMENT", e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Payment service error for saga {}: {}", command.getSagaId(), e.getMessage(), e);
+            return SagaReply.failure(command, "PAYMENT_PROCESSING_ERROR", "Failed to process payment: " + e.getMessage());
+        }
+    }
+
+    private List<PaymentRequest> paymentRequests(List<UUID> reservationIds, Double amount) {
+        return reservationIds.stream().map(reservationId -> {
+            PaymentRequest request = new PaymentRequest();
+            request.setReservationId(reservationId);
+            request.setAmount(amount);
+            return request;
+        }).toList();
+    }
+}
@@ -0,0 +1,16 @@
+package com.carara.payment.model;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+// Chave primária UUIDv7 gravada como uuid nativo do Postgres (16 bytes em vez de um varchar de 36)
+@IdGeneratorType(UuidV7Generator.class)
+@Retention(RUNTIME)
+@Target(FIELD)
+public @interface GeneratedUuidV7 {
+}
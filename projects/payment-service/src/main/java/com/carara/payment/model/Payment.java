@@ -1,15 +1,27 @@
 package com.carara.payment.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
 import java.util.UUID;
 
 @Entity
 @Data
+@Table(indexes = @Index(name = "idx_payment_reservation_id", columnList = "reservationId"))
 public class Payment {
     @Id
-    private String paymentId = UUID.randomUUID().toString();
-    private String reservationId;
+    @GeneratedUuidV7
+    private UUID paymentId;
+    private UUID reservationId;
     private Double amount;
     private String status;
+
+    @Column(unique = true)
+    private String idempotencyKey;
+
+    // Lock otimista: as transições de status do repositório também incrementam a versão, então um save
+    // de uma cópia carregada antes de uma transição falha em vez de sobrescrevê-la
+    @Version
+    @JsonIgnore
+    private Long version;
 } 
\ No newline at end of file
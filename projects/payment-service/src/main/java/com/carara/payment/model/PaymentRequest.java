@@ -0,0 +1,12 @@
+package com.carara.payment.model;
+
+import lombok.Data;
+
+import java.util.UUID;
+
+// Item de um pagamento em lote: uma reserva do grupo e o seu valor
+@Data
+public class PaymentRequest {
+    private UUID reservationId;
+    private Double amount;
+}
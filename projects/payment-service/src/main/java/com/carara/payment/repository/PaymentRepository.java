@@ -1,7 +1,51 @@
 package com.carara.payment.repository;
 
 import com.carara.payment.model.Payment;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface PaymentRepository extends JpaRepository<Payment, String> {
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+public interface PaymentRepository extends JpaRepository<Payment, UUID> {
+    String EXPORT_FETCH_SIZE = "1000";
+
+    Optional<Payment> findByIdempotencyKey(String idempotencyKey);
+
+    List<Payment> findByIdempotencyKeyIn(Collection<String> idempotencyKeys);
+
+    List<Payment> findByReservationId(UUID reservationId);
+
+    List<Payment> findByReservationIdIn(Collection<UUID> reservationIds);
+
+    // Transição APPROVED -> REFUNDED num único UPDATE condicional, sem o SELECT antes: só altera a linha que ainda
+    // está em APPROVED e incrementa a versão. Retorna quantas linhas mudaram (0: já estornado ou inexistente)
+    @Transactional
+    @Modifying
+    @Query("update Payment p set p.status = 'REFUNDED', p.version = p.version + 1 where p.paymentId = :paymentId and p.status = 'APPROVED'")
+    int refund(@Param("paymentId") UUID paymentId);
+
+    @Transactional
+    @Modifying
+    @Query("update Payment p set p.status = 'REFUNDED', p.version = p.version + 1 where p.paymentId in :paymentIds and p.status = 'APPROVED'")
+    int refundAll(@Param("paymentIds") Collection<UUID> paymentIds);
+
+    // Keyset: a página começa depois do último id da anterior, uma busca no índice da chave primária
+    List<Payment> findByPaymentIdGreaterThanAndPaymentIdLessThanOrderByPaymentIdAsc(UUID after, UUID before, Limit limit);
+
+    // Cursor do servidor: o driver do Postgres só busca fetch size linhas por vez dentro de uma transação
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("select p from Payment p where p.paymentId >= :from and p.paymentId < :to order by p.paymentId")
+    Stream<Payment> streamByPaymentIdRange(@Param("from") UUID from, @Param("to") UUID to);
 } 
\ No newline at end of file
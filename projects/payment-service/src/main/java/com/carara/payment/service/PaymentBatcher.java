@@ -0,0 +1,244 @@
+package com.carara.payment.service;
+
+import com.carara.payment.model.Payment;
+import com.carara.payment.repository.PaymentRepository;
+import com.carara.payment.service.PaymentGateway.Authorization;
+import com.carara.payment.service.PaymentGateway.AuthorizationRequest;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Micro-batching das autorizações: as cobranças de todas as requisições em andamento entram numa fila e uma única
+// thread as agrupa (até max-batch-size, esperando no máximo max-wait depois da primeira) e autoriza o lote numa
+// única chamada ao gateway. Os aprovados seguem para a thread de gravação, que os grava com um saveAll (INSERTs em
+// lote) enquanto o próximo lote já é autorizado. Cada chamador recebe o resultado da sua cobrança no próprio future
+@Slf4j
+@Service
+public class PaymentBatcher {
+    private final PaymentGateway gateway;
+    private final PaymentRepository paymentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObservationRegistry observationRegistry;
+    private final DistributionSummary batchSizes;
+    private final BlockingQueue<PendingCharge> queue;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final Thread authorizer;
+    // Uma única thread de gravação; com a fila dela cheia, a autorização grava o lote ela mesma (backpressure)
+    private final ThreadPoolExecutor writer;
+    private volatile boolean running = true;
+
+    public PaymentBatcher(PaymentGateway gateway,
+                          PaymentRepository paymentRepository,
+                          TransactionTemplate transactionTemplate,
+                          ObservationRegistry observationRegistry,
+                          MeterRegistry meterRegistry,
+                          @Value("${payment.batching.queue-capacity:10000}") int queueCapacity,
+                          @Value("${payment.batching.max-batch-size:100}") int maxBatchSize,
+                          @Value("${payment.batching.max-wait:2ms}") Duration maxWait) {
+        this.gateway = gateway;
+        this.paymentRepository = paymentRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.observationRegistry = observationRegistry;
+        this.batchSizes = DistributionSummary.builder("payment.authorization.batch.size")
+                .description("Charges authorized per gateway call")
+                .register(meterRegistry);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.authorizer = new Thread(this::authorizeLoop, "payment-authorizer");
+        this.authorizer.setDaemon(true);
+        this.writer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(4), runnable -> {
+            Thread thread = new Thread(runnable, "payment-writer");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PostConstruct
+    public void start() {
+        authorizer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        authorizer.interrupt();
+        authorizer.join(TimeUnit.SECONDS.toMillis(5));
+        // Autoriza e grava o que ainda estiver na fila antes de desligar
+        flushRemaining();
+        writer.shutdown();
+        writer.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    // Uma cobrança: os pagamentos de uma reserva ou de um grupo, autorizados juntos pelo valor total (tudo ou nada).
+    // O future completa com os pagamentos gravados, com a recusa do gateway ou com a falha da gravação
+    public CompletableFuture<List<Payment>> charge(List<Payment> payments) {
+        PendingCharge pending = new PendingCharge(payments, new CompletableFuture<>());
+        if (!running || !queue.offer(pending)) {
+            pending.future().completeExceptionally(new IllegalStateException(
+                    "Payment batcher is not accepting charges for reservation " + payments.get(0).getReservationId()));
+        }
+        return pending.future();
+    }
+
+    private void authorizeLoop() {
+        List<PendingCharge> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingCharge next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                authorize(List.copyOf(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flushRemaining() {
+        List<PendingCharge> batch = new ArrayList<>(maxBatchSize);
+        while (queue.drainTo(batch, maxBatchSize) > 0) {
+            authorize(List.copyOf(batch));
+            batch.clear();
+        }
+    }
+
+    // Qualquer falha fica no lote que a causou: os futures dele falham e a thread de autorização segue viva
+    private void authorize(List<PendingCharge> batch) {
+        try {
+            authorizeBatch(batch);
+        } catch (RuntimeException e) {
+            log.error("Failed to authorize batch of {} charges: {}", batch.size(), e.getMessage(), e);
+            batch.forEach(pending -> pending.future().completeExceptionally(e));
+        }
+    }
+
+    private void authorizeBatch(List<PendingCharge> batch) {
+        // A mesma chave de idempotência duas vezes no lote (repetição concorrente) vira uma só cobrança,
+        // e a repetição recebe o resultado da original
+        Map<Object, PendingCharge> charges = new LinkedHashMap<>();
+        for (PendingCharge pending : batch) {
+            String key = pending.payments().get(0).getIdempotencyKey();
+            PendingCharge original = charges.putIfAbsent(key == null ? new Object() : key, pending);
+            if (original != null) {
+                original.future().whenComplete((payments, failure) -> {
+                    if (failure != null) {
+                        pending.future().completeExceptionally(failure);
+                    } else {
+                        pending.future().complete(payments);
+                    }
+                });
+            }
+        }
+        List<PendingCharge> unique = List.copyOf(charges.values());
+        batchSizes.record(unique.size());
+
+        List<Authorization> authorizations;
+        try {
+            authorizations = gateway.authorize(unique.stream().map(PendingCharge::toAuthorizationRequest).toList());
+        } catch (Exception e) {
+            log.error("Failed to authorize {} payments: {}", unique.size(), e.getMessage(), e);
+            unique.forEach(pending -> pending.future().completeExceptionally(e));
+            return;
+        }
+        if (authorizations == null || authorizations.size() != unique.size()) {
+            throw new IllegalStateException("Payment gateway returned " + (authorizations == null ? 0 : authorizations.size())
+                    + " decisions for " + unique.size() + " charges");
+        }
+
+        List<PendingCharge> approved = new ArrayList<>(unique.size());
+        for (int i = 0; i < unique.size(); i++) {
+            if (authorizations.get(i).approved()) {
+                unique.get(i).payments().forEach(payment -> payment.setStatus("APPROVED"));
+                approved.add(unique.get(i));
+            } else {
+                unique.get(i).future().completeExceptionally(new RuntimeException(authorizations.get(i).declineReason()));
+            }
+        }
+        if (!approved.isEmpty()) {
+            writer.execute(() -> write(approved));
+        }
+    }
+
+    private void write(List<PendingCharge> approved) {
+        try {
+            observeSave(() -> transactionTemplate.execute(status -> paymentRepository.saveAll(
+                    approved.stream().flatMap(pending -> pending.payments().stream()).toList())));
+            approved.forEach(pending -> pending.future().complete(pending.payments()));
+        } catch (DataIntegrityViolationException e) {
+            // Uma chave de idempotência já gravada derruba o lote inteiro: grava cada cobrança na sua transação,
+            // para que só a repetida falhe (e o PaymentService devolva o pagamento já gravado)
+            log.info("Batch of {} payments hit a stored idempotency key, writing them one by one", approved.size());
+            approved.forEach(this::writeOne);
+        } catch (Exception e) {
+            log.error("Failed to write {} payments: {}", approved.size(), e.getMessage(), e);
+            approved.forEach(pending -> pending.future().completeExceptionally(e));
+        }
+    }
+
+    private void writeOne(PendingCharge pending) {
+        // O INSERT que voltou atrás deixou id e versão nas entidades, que pareceriam já gravadas
+        pending.payments().forEach(payment -> {
+            payment.setPaymentId(null);
+            payment.setVersion(null);
+        });
+        try {
+            pending.future().complete(observeSave(() -> transactionTemplate.execute(
+                    status -> paymentRepository.saveAll(pending.payments()))));
+        } catch (Exception e) {
+            pending.future().completeExceptionally(e);
+        }
+    }
+
+    // Mesmo timer repository.save dos demais caminhos de gravação, com a operação do lote
+    private <T> T observeSave(Supplier<T> save) {
+        return Observation.createNotStarted("repository.save", observationRegistry)
+                .contextualName("payment processPaymentBatch")
+                .lowCardinalityKeyValue("entity", "payment")
+                .lowCardinalityKeyValue("operation", "processPaymentBatch")
+                .observe(save);
+    }
+
+    private record PendingCharge(List<Payment> payments, CompletableFuture<List<Payment>> future) {
+
+        AuthorizationRequest toAuthorizationRequest() {
+            return new AuthorizationRequest(payments.get(0).getReservationId().toString(), payments.get(0).getIdempotencyKey(),
+                    payments.stream().mapToDouble(Payment::getAmount).sum());
+        }
+    }
+}
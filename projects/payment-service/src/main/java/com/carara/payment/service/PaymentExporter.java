@@ -0,0 +1,103 @@
+package com.carara.payment.service;
+
+import com.carara.payment.model.Payment;
+import com.carara.payment.model.UuidV7;
+import com.carara.payment.repository.PaymentRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// Exportação dos pagamentos de um intervalo de criação para reconciliação. As linhas saem de um cursor do banco
+// direto para a resposta e são desanexadas do contexto de persistência depois de escritas, então a memória não
+// cresce com o tamanho do dia. A leitura roda numa transação somente leitura em REPEATABLE READ: um snapshot
+// consistente que, no Postgres, não bloqueia nem é bloqueado pelas gravações das sagas
+@Slf4j
+@Component
+public class PaymentExporter {
+    private static final UUID FIRST_ID = new UUID(0L, 0L);
+    private static final UUID LAST_ID = new UUID(-1L, -1L);
+    private static final List<String> CSV_HEADER = List.of("paymentId", "reservationId", "amount", "status");
+    private static final Function<Payment, List<?>> CSV_ROW = payment -> Arrays.asList(payment.getPaymentId(),
+            payment.getReservationId(), payment.getAmount(), payment.getStatus());
+
+    private final PaymentRepository paymentRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+    private final Semaphore exports;
+
+    public PaymentExporter(PaymentRepository paymentRepository,
+                               EntityManager entityManager,
+                               PlatformTransactionManager transactionManager,
+                               ObjectMapper objectMapper,
+                               @Value("${export.max-concurrent:2}") int maxConcurrentExports) {
+        this.paymentRepository = paymentRepository;
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.objectMapper = objectMapper;
+        this.exports = new Semaphore(maxConcurrentExports);
+    }
+
+    // Vazio quando já há export.max-concurrent exportações rodando: cada uma segura uma conexão do pool até
+    // terminar, e o resto do pool fica para o tráfego das sagas. from e to são opcionais (to exclusivo)
+    public Optional<StreamingResponseBody> export(Instant from, Instant to, ExportFormat format) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("Export range start must be before its end");
+        }
+        if (!exports.tryAcquire()) {
+            log.warn("Payment export rejected: too many exports running");
+            return Optional.empty();
+        }
+        return Optional.of(out -> {
+            try {
+                write(from, to, format, out);
+            } finally {
+                exports.release();
+            }
+        });
+    }
+
+    long write(Instant from, Instant to, ExportFormat format, OutputStream out) {
+        long start = System.nanoTime();
+        UUID firstId = from == null ? FIRST_ID : UuidV7.lowerBound(from);
+        UUID lastId = to == null ? LAST_ID : UuidV7.lowerBound(to);
+        Long rows = readOnlyTransaction.execute(status -> {
+            ExportWriter<Payment> writer = new ExportWriter<>(out, format, objectMapper, CSV_HEADER, CSV_ROW);
+            long written = 0;
+            try (Stream<Payment> payments = paymentRepository.streamByPaymentIdRange(firstId, lastId)) {
+                Iterator<Payment> iterator = payments.iterator();
+                while (iterator.hasNext()) {
+                    Payment payment = iterator.next();
+                    writer.write(payment);
+                    entityManager.detach(payment);
+                    written++;
+                }
+            }
+            writer.flush();
+            return written;
+        });
+        log.info("Exported {} payments ({} to {}) as {} in {} ms", rows, from, to, format,
+                Duration.ofNanos(System.nanoTime() - start).toMillis());
+        return rows;
+    }
+}
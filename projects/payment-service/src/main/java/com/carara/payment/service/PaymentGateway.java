@@ -0,0 +1,27 @@
+package com.carara.payment.service;
+
+import java.util.List;
+
+// Adquirente que autoriza as cobranças. Recebe um lote numa única chamada (um gateway real cobra por chamada)
+// e devolve uma decisão por cobrança, na mesma ordem do lote. Uma exceção falha o lote inteiro
+public interface PaymentGateway {
+
+    List<Authorization> authorize(List<AuthorizationRequest> requests);
+
+    // reference identifica a cobrança no gateway: o id da reserva, ou o da primeira reserva de um grupo.
+    // idempotencyKey (quando o cliente mandou uma) vai como chave de idempotência da cobrança: uma repetição
+    // que escape das verificações do serviço recebe a decisão original do gateway em vez de ser cobrada de novo
+    record AuthorizationRequest(String reference, String idempotencyKey, double amount) {
+    }
+
+    record Authorization(boolean approved, String declineReason) {
+
+        public static Authorization approve() {
+            return new Authorization(true, null);
+        }
+
+        public static Authorization decline(String reason) {
+            return new Authorization(false, reason);
+        }
+    }
+}
@@ -1,54 +1,338 @@
 package com.carara.payment.service;
 
+import com.carara.payment.exception.InvalidStatusTransitionException;
+import com.carara.payment.model.KeysetPage;
 import com.carara.payment.model.Payment;
+import com.carara.payment.model.PaymentRequest;
 import com.carara.payment.repository.PaymentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
-import java.util.Random;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class PaymentService {
+    public static final int MAX_PAGE_SIZE = 1000;
+    private static final UUID FIRST_PAGE = new UUID(0L, 0L);
+    private static final UUID LAST_PAGE = new UUID(-1L, -1L);
+
     private final PaymentRepository paymentRepository;
-    private final Random random = new Random();
+    private final PaymentBatcher paymentBatcher;
+    private final IdempotencyCache<Payment> idempotencyCache;
+    private final ReadCache<Payment> readCache;
+    private final ObservationRegistry observationRegistry;
+    // Releitura pela chave de idempotência quando a cobrança esbarra no índice único: roda nesta thread e não
+    // nas do PaymentBatcher (payment-authorizer e payment-writer), que não podem ficar presas numa consulta
+    private final ExecutorService idempotencyLookups;
 
     @Autowired
-    public PaymentService(PaymentRepository paymentRepository) {
+    public PaymentService(PaymentRepository paymentRepository,
+                          PaymentBatcher paymentBatcher,
+                          ObservationRegistry observationRegistry,
+                          MeterRegistry meterRegistry,
+                          @Value("${idempotency.cache.max-entries:10000}") int idempotencyCacheSize,
+                          @Value("${read-cache.max-entries:10000}") int readCacheSize,
+                          @Value("${read-cache.expire-after-write:5m}") Duration readCacheExpiry) {
         this.paymentRepository = paymentRepository;
+        this.paymentBatcher = paymentBatcher;
+        this.idempotencyCache = new IdempotencyCache<>(idempotencyCacheSize);
+        this.readCache = new ReadCache<>("payments", readCacheSize, readCacheExpiry, Payment::getPaymentId, meterRegistry);
+        this.observationRegistry = observationRegistry;
+        this.idempotencyLookups = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "payment-idempotency-lookup");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        idempotencyLookups.shutdown();
+        idempotencyLookups.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    public Payment processPayment(UUID reservationId, Double amount) {
+        return processPayment(reservationId, amount, null);
+    }
+
+    public Payment processPayment(UUID reservationId, Double amount, String idempotencyKey) {
+        return await(processPaymentAsync(reservationId, amount, idempotencyKey));
     }
 
-    public Payment processPayment(String reservationId, Double amount) {
+    // A cobrança entra no lote do PaymentBatcher; o future completa quando o lote for autorizado e gravado
+    public CompletableFuture<Payment> processPaymentAsync(UUID reservationId, Double amount, String idempotencyKey) {
         log.info("Starting payment processing for reservation {} with amount {}", reservationId, amount);
 
-        if (random.nextDouble() > 0.8) {
-            log.error("Payment processing failed for reservation {} - Random failure triggered", reservationId);
-            throw new RuntimeException("Payment processing failed");
+        if (idempotencyKey != null) {
+            Payment replayed = idempotencyCache.get(idempotencyKey);
+            if (replayed != null) {
+                log.info("Returning stored payment {} for idempotency key {}", replayed.getPaymentId(), idempotencyKey);
+                return CompletableFuture.completedFuture(replayed);
+            }
+            // O cache é local e limitado: antes de cobrar, o índice único diz se a chave já foi paga
+            Optional<Payment> stored = paymentRepository.findByIdempotencyKey(idempotencyKey);
+            if (stored.isPresent()) {
+                log.info("Returning stored payment {} for idempotency key {}", stored.get().getPaymentId(), idempotencyKey);
+                idempotencyCache.put(idempotencyKey, stored.get());
+                return CompletableFuture.completedFuture(readCache.put(stored.get()));
+            }
         }
 
         Payment payment = new Payment();
         payment.setReservationId(reservationId);
         payment.setAmount(amount);
-        payment.setStatus("APPROVED");
+        payment.setIdempotencyKey(idempotencyKey);
+
+        return paymentBatcher.charge(List.of(payment)).thenApply(saved -> saved.get(0)).exceptionallyAsync(failure -> {
+            if (unwrap(failure) instanceof DataIntegrityViolationException e) {
+                // Repetição concorrente ou vinda de outra instância: o índice único impede a cobrança em dobro
+                Payment storedPayment = findByIdempotencyKey(idempotencyKey, e);
+                log.info("Returning stored payment {} for idempotency key {}", storedPayment.getPaymentId(), idempotencyKey);
+                return storedPayment;
+            }
+            throw new CompletionException(unwrap(failure));
+        }, idempotencyLookups).thenApply(savedPayment -> {
+            if (idempotencyKey != null) {
+                idempotencyCache.put(idempotencyKey, savedPayment);
+            }
+            readCache.put(savedPayment);
+            readCache.invalidateQuery(byReservation(reservationId));
+            log.info("Payment processed successfully - Payment ID: {}, Reservation ID: {}, Amount: {}", savedPayment.getPaymentId(), reservationId, amount);
+            return savedPayment;
+        });
+    }
+
+    private Payment findByIdempotencyKey(String idempotencyKey, DataIntegrityViolationException violation) {
+        if (idempotencyKey == null) {
+            throw violation;
+        }
+        return paymentRepository.findByIdempotencyKey(idempotencyKey).orElseThrow(() -> violation);
+    }
+
+    // Pagamento do grupo numa única autorização (uma cobrança do lote, pelo valor total): ou todas as reservas
+    // são pagas ou nenhuma, e os pagamentos são gravados com INSERTs em lote (saveAll)
+    public List<Payment> processPayments(List<PaymentRequest> requests, String idempotencyKey) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("At least one payment is required");
+        }
+        log.info("Starting group payment processing for {} reservations", requests.size());
 
-        Payment savedPayment = paymentRepository.save(payment);
-        log.info("Payment processed successfully - Payment ID: {}, Reservation ID: {}, Amount: {}", savedPayment.getPaymentId(), reservationId, amount);
-        return savedPayment;
+        List<String> itemKeys = idempotencyKey == null ? null
+                : requests.stream().map(request -> idempotencyKey + ":" + request.getReservationId()).toList();
+        if (itemKeys != null) {
+            List<Payment> replayed = itemKeys.stream().map(idempotencyCache::get).toList();
+            if (!replayed.contains(null)) {
+                log.info("Returning {} stored payments for idempotency key {}", replayed.size(), idempotencyKey);
+                return replayed;
+            }
+            List<Payment> stored = storedPayments(itemKeys);
+            if (!stored.isEmpty()) {
+                log.info("Returning {} stored payments for idempotency key {}", stored.size(), idempotencyKey);
+                stored.forEach(payment -> idempotencyCache.put(payment.getIdempotencyKey(), payment));
+                readCache.putAll(stored);
+                return stored;
+            }
+        }
+
+        List<Payment> payments = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            Payment payment = new Payment();
+            payment.setReservationId(requests.get(i).getReservationId());
+            payment.setAmount(requests.get(i).getAmount());
+            payment.setIdempotencyKey(itemKeys == null ? null : itemKeys.get(i));
+            payments.add(payment);
+        }
+
+        List<Payment> savedPayments;
+        try {
+            savedPayments = await(paymentBatcher.charge(payments));
+        } catch (DataIntegrityViolationException e) {
+            savedPayments = findByIdempotencyKeys(itemKeys, e);
+            log.info("Returning {} stored payments for idempotency key {}", savedPayments.size(), idempotencyKey);
+        }
+        if (itemKeys != null) {
+            savedPayments.forEach(payment -> idempotencyCache.put(payment.getIdempotencyKey(), payment));
+        }
+        readCache.putAll(savedPayments);
+        savedPayments.forEach(payment -> readCache.invalidateQuery(byReservation(payment.getReservationId())));
+        log.info("Group payment processed successfully with {} payments", savedPayments.size());
+        return savedPayments;
+    }
+
+    // O grupo é gravado num único saveAll: ou nenhuma chave está gravada, ou todas. Só parte delas significa
+    // a mesma chave reaproveitada para outro conjunto de reservas, que não é cobrado
+    private List<Payment> storedPayments(List<String> itemKeys) {
+        Map<String, Payment> stored = paymentRepository.findByIdempotencyKeyIn(itemKeys).stream()
+                .collect(Collectors.toMap(Payment::getIdempotencyKey, Function.identity()));
+        if (stored.isEmpty()) {
+            return List.of();
+        }
+        if (stored.size() != itemKeys.size()) {
+            throw new IllegalArgumentException("Idempotency key was already used for a different group of payments");
+        }
+        return itemKeys.stream().map(stored::get).toList();
+    }
+
+    private List<Payment> findByIdempotencyKeys(List<String> itemKeys, DataIntegrityViolationException violation) {
+        if (itemKeys == null) {
+            throw violation;
+        }
+        Map<String, Payment> stored = paymentRepository.findByIdempotencyKeyIn(itemKeys).stream()
+                .collect(Collectors.toMap(Payment::getIdempotencyKey, Function.identity()));
+        if (stored.size() != itemKeys.size()) {
+            throw violation;
+        }
+        return itemKeys.stream().map(stored::get).toList();
     }
 
-    public Payment refundPayment(String paymentId) {
+    public Payment refundPayment(UUID paymentId) {
         log.info("Starting refund process for payment: {}", paymentId);
 
-        return paymentRepository.findById(paymentId).map(payment -> {
-            log.info("Found payment to refund: {}", payment);
-            payment.setStatus("REFUNDED");
-            Payment refundedPayment = paymentRepository.save(payment);
-            log.info("Payment {} refunded successfully", paymentId);
-            return refundedPayment;
-        }).orElseGet(() -> {
+        // Compensação repetida (retry, hedge, CompensationRetrier): REFUNDED é final, então o cache basta
+        Optional<Payment> cached = readCache.getIfPresent(paymentId);
+        if (cached.isPresent() && "REFUNDED".equals(cached.get().getStatus())) {
+            log.info("Payment {} already refunded", paymentId);
+            return cached.get();
+        }
+
+        // APPROVED -> REFUNDED direto no UPDATE condicional; o pagamento só é lido se não estiver no cache
+        if (observeSave("refundPayment", () -> paymentRepository.refund(paymentId)) == 0) {
+            return currentRefunded(paymentId);
+        }
+        Payment refundedPayment = cached.map(PaymentService::refunded)
+                .orElseGet(() -> paymentRepository.findById(paymentId).orElseThrow());
+        log.info("Payment {} refunded successfully", paymentId);
+        return readCache.put(refundedPayment);
+    }
+
+    // O UPDATE condicional não mudou a linha: relê o status atual, que só pode ser REFUNDED (estornado por outra
+    // chamada ou instância) ou o pagamento não existe
+    private Payment currentRefunded(UUID paymentId) {
+        Payment current = paymentRepository.findById(paymentId).orElse(null);
+        if (current == null) {
             log.info("Payment {} not found for refund", paymentId);
             return null;
-        });
+        }
+        if (!"REFUNDED".equals(current.getStatus())) {
+            throw new InvalidStatusTransitionException(paymentId, current.getStatus(), "REFUNDED");
+        }
+        log.info("Payment {} already refunded", paymentId);
+        return readCache.put(current);
+    }
+
+    // Cópia com o que o UPDATE condicional gravou. A instância do cache nunca é alterada: outras threads
+    // podem estar lendo ou serializando a mesma entidade
+    private static Payment refunded(Payment payment) {
+        Payment refunded = new Payment();
+        refunded.setPaymentId(payment.getPaymentId());
+        refunded.setReservationId(payment.getReservationId());
+        refunded.setAmount(payment.getAmount());
+        refunded.setIdempotencyKey(payment.getIdempotencyKey());
+        refunded.setStatus("REFUNDED");
+        refunded.setVersion(payment.getVersion() + 1);
+        return refunded;
+    }
+
+    // Estorno do grupo num único UPDATE condicional. Com o grupo inteiro no cache e todos os APPROVED estornados,
+    // a resposta sai do cache; senão o estado final é lido do banco
+    public List<Payment> refundPayments(List<UUID> paymentIds) {
+        log.info("Starting group refund for {} payments", paymentIds.size());
+
+        List<Payment> cached = paymentIds.stream().map(readCache::getIfPresent).flatMap(Optional::stream).toList();
+        List<Payment> toRefund = cached.stream().filter(payment -> "APPROVED".equals(payment.getStatus())).toList();
+        int updated = observeSave("refundPayments", () -> paymentRepository.refundAll(paymentIds));
+
+        List<Payment> refundedPayments;
+        if (cached.size() == paymentIds.size() && updated == toRefund.size()) {
+            refundedPayments = cached.stream()
+                    .map(payment -> "APPROVED".equals(payment.getStatus()) ? refunded(payment) : payment)
+                    .toList();
+        } else {
+            refundedPayments = paymentRepository.findAllById(paymentIds);
+        }
+        readCache.putAll(refundedPayments);
+        log.info("{} payments refunded successfully", refundedPayments.size());
+        return refundedPayments;
+    }
+
+    public Optional<Payment> findPayment(UUID paymentId) {
+        return readCache.findById(paymentId, paymentRepository::findById);
+    }
+
+    public List<Payment> findPaymentsByReservation(UUID reservationId) {
+        return readCache.query(byReservation(reservationId), () -> paymentRepository.findByReservationId(reservationId));
+    }
+
+    // Paginação por keyset sobre a chave primária (UUID v7, em ordem de criação): cada página custa o mesmo
+    // no começo e no fim da tabela, ao contrário do OFFSET. Não passa pelo cache de leitura, para que uma
+    // varredura não expulse as entradas quentes. before (exclusivo) limita a faixa de ids, para dividir a
+    // varredura de uma tabela grande em partições
+    public KeysetPage<Payment> findPayments(UUID after, UUID before, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        List<Payment> rows = paymentRepository.findByPaymentIdGreaterThanAndPaymentIdLessThanOrderByPaymentIdAsc(
+                after == null ? FIRST_PAGE : after, before == null ? LAST_PAGE : before, Limit.of(limit + 1));
+        return KeysetPage.of(rows, limit, Payment::getPaymentId);
+    }
+
+    // Consulta em lote da reconciliação, direto no banco para não encher o cache de leitura
+    public List<Payment> findPaymentsByReservations(List<UUID> reservationIds) {
+        if (reservationIds.size() > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_PAGE_SIZE + " reservation IDs per lookup");
+        }
+        return paymentRepository.findByReservationIdIn(reservationIds);
+    }
+
+    // Espera o resultado do lote na thread do chamador (listener e endpoint do grupo), relançando a falha original
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (unwrap(e) instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
+    private static String byReservation(UUID reservationId) {
+        return "reservationId=" + reservationId;
+    }
+
+    // Gravação no repositório, incluindo o commit: vira o timer repository.save (por entity e operation)
+    // e um span filho do span HTTP ou da mensagem que originou a chamada
+    private <T> T observeSave(String operation, Supplier<T> save) {
+        return Observation.createNotStarted("repository.save", observationRegistry)
+                .contextualName("payment " + operation)
+                .lowCardinalityKeyValue("entity", "payment")
+                .lowCardinalityKeyValue("operation", operation)
+                .observe(save);
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,69 @@
+package com.carara.payment.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Gateway local no lugar de um adquirente real: recusa cada cobrança com probabilidade decline-rate (a falha
+// aleatória que o serviço sempre simulou) e leva call-latency por chamada, não por cobrança. Guarda as aprovações
+// por chave de idempotência: a repetição de uma cobrança aprovada recebe a mesma aprovação, sem cobrar de novo.
+// A recusa simula uma falha transitória do processador, então a repetição dela (retry do orquestrador) é decidida de novo
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "payment.gateway.type", havingValue = "simulator", matchIfMissing = true)
+public class SimulatedPaymentGateway implements PaymentGateway {
+    private final double declineRate;
+    private final Duration callLatency;
+    private final Cache<String, Authorization> approvals;
+
+    public SimulatedPaymentGateway(@Value("${payment.gateway.simulator.decline-rate:0.2}") double declineRate,
+                                   @Value("${payment.gateway.simulator.call-latency:0ms}") Duration callLatency,
+                                   @Value("${idempotency.cache.max-entries:10000}") int maxApprovals) {
+        this.declineRate = declineRate;
+        this.callLatency = callLatency;
+        this.approvals = Caffeine.newBuilder().maximumSize(maxApprovals).build();
+    }
+
+    @Override
+    public List<Authorization> authorize(List<AuthorizationRequest> requests) {
+        if (!callLatency.isZero()) {
+            try {
+                Thread.sleep(callLatency.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while authorizing " + requests.size() + " payments", e);
+            }
+        }
+        return requests.stream().map(this::authorize).toList();
+    }
+
+    private Authorization authorize(AuthorizationRequest request) {
+        if (request.idempotencyKey() == null) {
+            return decide(request);
+        }
+        Authorization approved = approvals.getIfPresent(request.idempotencyKey());
+        if (approved != null) {
+            return approved;
+        }
+        Authorization authorization = decide(request);
+        if (authorization.approved()) {
+            approvals.put(request.idempotencyKey(), authorization);
+        }
+        return authorization;
+    }
+
+    private Authorization decide(AuthorizationRequest request) {
+        if (ThreadLocalRandom.current().nextDouble() < declineRate) {
+            log.error("Payment processing failed for {} - Random failure triggered", request.reference());
+            return Authorization.decline("Payment processing failed");
+        }
+        return Authorization.approve();
+    }
+}
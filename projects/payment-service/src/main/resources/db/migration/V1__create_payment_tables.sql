@@ -0,0 +1,13 @@
+-- Esquema inicial, equivalente ao que o ddl-auto: update gerava a partir das entidades.
+-- Bancos já criados pelo Hibernate entram nesta versão pelo baseline-on-migrate, sem executar o script
+
+create table payment (
+    payment_id      uuid not null,
+    reservation_id  uuid,
+    amount          float(53),
+    status          varchar(255),
+    idempotency_key varchar(255) unique,
+    primary key (payment_id)
+);
+
+create index idx_payment_reservation_id on payment (reservation_id);
@@ -0,0 +1,169 @@
+package com.carara.payment.service;
+
+import com.carara.payment.model.Payment;
+import com.carara.payment.repository.PaymentRepository;
+import com.carara.payment.service.PaymentGateway.Authorization;
+import com.carara.payment.service.PaymentGateway.AuthorizationRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaymentBatcherTests {
+
+    private final PaymentGateway gateway = mock(PaymentGateway.class);
+    private final PaymentRepository repository = mock(PaymentRepository.class);
+    private final PaymentBatcher batcher = new PaymentBatcher(gateway, repository,
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), ObservationRegistry.NOOP,
+            new SimpleMeterRegistry(), 100, 100, Duration.ofMillis(50));
+
+    @AfterEach
+    void stopBatcher() throws InterruptedException {
+        batcher.stop();
+    }
+
+    // Simula o gerador de id e a versão inicial atribuídos pelo Hibernate no persist
+    private static List<Payment> persisted(List<Payment> payments) {
+        payments.forEach(payment -> {
+            payment.setPaymentId(UUID.randomUUID());
+            payment.setVersion(0L);
+        });
+        return payments;
+    }
+
+    private static Payment payment(String idempotencyKey) {
+        Payment payment = new Payment();
+        payment.setReservationId(UUID.randomUUID());
+        payment.setAmount(100.0);
+        payment.setIdempotencyKey(idempotencyKey);
+        return payment;
+    }
+
+    private static List<Authorization> approveAll(List<AuthorizationRequest> requests) {
+        return requests.stream().map(request -> Authorization.approve()).toList();
+    }
+
+    @Test
+    void queuedChargesAreAuthorizedInOneGatewayCallAndWrittenInOneSaveAll() {
+        when(gateway.authorize(anyList())).thenAnswer(invocation -> approveAll(invocation.getArgument(0)));
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> persisted(invocation.getArgument(0)));
+
+        // Enfileiradas antes da thread de autorização começar: todas caem no mesmo lote
+        List<CompletableFuture<List<Payment>>> charges = List.of(
+                batcher.charge(List.of(payment("saga-1:PROCESS_PAYMENT"))),
+                batcher.charge(List.of(payment("saga-2:PROCESS_PAYMENT"))),
+                batcher.charge(List.of(payment(null), payment(null))));
+        batcher.start();
+
+        charges.forEach(charge -> assertThat(charge.join()).allSatisfy(payment -> {
+            assertThat(payment.getStatus()).isEqualTo("APPROVED");
+            assertThat(payment.getPaymentId()).isNotNull();
+        }));
+        verify(gateway, times(1)).authorize(anyList());
+        verify(repository, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    void groupChargeIsAuthorizedByItsTotalUnderItsIdempotencyKey() {
+        when(gateway.authorize(anyList())).thenAnswer(invocation -> approveAll(invocation.getArgument(0)));
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> persisted(invocation.getArgument(0)));
+        Payment first = payment("saga-1:PROCESS_PAYMENT:a");
+        Payment second = payment("saga-1:PROCESS_PAYMENT:b");
+
+        CompletableFuture<List<Payment>> charge = batcher.charge(List.of(first, second));
+        batcher.start();
+
+        assertThat(charge.join()).containsExactly(first, second);
+        verify(gateway).authorize(List.of(new AuthorizationRequest(first.getReservationId().toString(),
+                "saga-1:PROCESS_PAYMENT:a", 200.0)));
+    }
+
+    @Test
+    void repeatedIdempotencyKeyInTheBatchIsChargedOnce() {
+        when(gateway.authorize(anyList())).thenAnswer(invocation -> approveAll(invocation.getArgument(0)));
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> persisted(invocation.getArgument(0)));
+
+        CompletableFuture<List<Payment>> original = batcher.charge(List.of(payment("saga-1:PROCESS_PAYMENT")));
+        CompletableFuture<List<Payment>> replay = batcher.charge(List.of(payment("saga-1:PROCESS_PAYMENT")));
+        batcher.start();
+
+        assertThat(replay.join()).isSameAs(original.join());
+        verify(gateway).authorize(argThat(requests -> requests.size() == 1));
+    }
+
+    @Test
+    void declinedChargeFailsAloneAndIsNotWritten() {
+        when(gateway.authorize(anyList())).thenReturn(List.of(Authorization.approve(), Authorization.decline("Payment processing failed")));
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> persisted(invocation.getArgument(0)));
+        Payment approved = payment("saga-1:PROCESS_PAYMENT");
+
+        CompletableFuture<List<Payment>> approvedCharge = batcher.charge(List.of(approved));
+        CompletableFuture<List<Payment>> declinedCharge = batcher.charge(List.of(payment("saga-2:PROCESS_PAYMENT")));
+        batcher.start();
+
+        assertThat(approvedCharge.join()).containsExactly(approved);
+        assertThatThrownBy(declinedCharge::join).isInstanceOf(CompletionException.class)
+                .hasRootCauseMessage("Payment processing failed");
+        verify(repository).saveAll(List.of(approved));
+    }
+
+    @Test
+    void storedIdempotencyKeyFailsOnlyItsChargeWhenTheBatchIsWrittenOneByOne() {
+        when(gateway.authorize(anyList())).thenAnswer(invocation -> approveAll(invocation.getArgument(0)));
+        DataIntegrityViolationException duplicate = new DataIntegrityViolationException("duplicate key");
+        when(repository.saveAll(anyList()))
+                .thenThrow(duplicate)
+                .thenAnswer(invocation -> persisted(invocation.getArgument(0)))
+                .thenThrow(duplicate);
+
+        CompletableFuture<List<Payment>> fresh = batcher.charge(List.of(payment("saga-1:PROCESS_PAYMENT")));
+        CompletableFuture<List<Payment>> stored = batcher.charge(List.of(payment("saga-2:PROCESS_PAYMENT")));
+        batcher.start();
+
+        assertThat(fresh.join()).singleElement().extracting(Payment::getPaymentId).isNotNull();
+        assertThatThrownBy(stored::join).hasCauseInstanceOf(DataIntegrityViolationException.class);
+        // O lote e depois cada cobrança na sua transação
+        verify(repository, times(3)).saveAll(anyList());
+    }
+
+    @Test
+    void malformedGatewayResponseFailsTheBatchAndKeepsTheAuthorizerRunning() {
+        when(gateway.authorize(anyList()))
+                .thenReturn(List.of())
+                .thenAnswer(invocation -> approveAll(invocation.getArgument(0)));
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> persisted(invocation.getArgument(0)));
+        batcher.start();
+
+        CompletableFuture<List<Payment>> failed = batcher.charge(List.of(payment("saga-1:PROCESS_PAYMENT")));
+        assertThatThrownBy(failed::join).hasCauseInstanceOf(IllegalStateException.class);
+
+        CompletableFuture<List<Payment>> next = batcher.charge(List.of(payment("saga-2:PROCESS_PAYMENT")));
+        assertThat(next.join()).singleElement().extracting(Payment::getStatus).isEqualTo("APPROVED");
+    }
+
+    @Test
+    void stoppedBatcherRejectsCharges() throws InterruptedException {
+        batcher.start();
+        batcher.stop();
+
+        assertThatThrownBy(() -> batcher.charge(List.of(payment(null))).join()).hasCauseInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,192 @@
+package com.carara.payment.service;
+
+import com.carara.payment.exception.InvalidStatusTransitionException;
+import com.carara.payment.model.Payment;
+import com.carara.payment.model.PaymentRequest;
+import com.carara.payment.repository.PaymentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaymentServiceTests {
+
+    private final PaymentRepository repository = mock(PaymentRepository.class);
+    private final PaymentBatcher batcher = mock(PaymentBatcher.class);
+    private final PaymentService service = new PaymentService(repository, batcher, ObservationRegistry.NOOP,
+            new SimpleMeterRegistry(), 100, 100, Duration.ofMinutes(5));
+
+    private static Payment stored(UUID reservationId, String idempotencyKey, String status) {
+        Payment payment = new Payment();
+        payment.setPaymentId(UUID.randomUUID());
+        payment.setReservationId(reservationId);
+        payment.setAmount(100.0);
+        payment.setStatus(status);
+        payment.setIdempotencyKey(idempotencyKey);
+        payment.setVersion(0L);
+        return payment;
+    }
+
+    private static PaymentRequest request(UUID reservationId) {
+        PaymentRequest request = new PaymentRequest();
+        request.setReservationId(reservationId);
+        request.setAmount(100.0);
+        return request;
+    }
+
+    @Test
+    void replayMissingTheCacheIsAnsweredFromTheDatabaseWithoutCharging() {
+        UUID reservationId = UUID.randomUUID();
+        Payment payment = stored(reservationId, "saga-1:PROCESS_PAYMENT", "APPROVED");
+        when(repository.findByIdempotencyKey("saga-1:PROCESS_PAYMENT")).thenReturn(Optional.of(payment));
+
+        Payment result = service.processPayment(reservationId, 100.0, "saga-1:PROCESS_PAYMENT");
+        Payment replay = service.processPayment(reservationId, 100.0, "saga-1:PROCESS_PAYMENT");
+
+        assertThat(result).isSameAs(payment);
+        assertThat(replay).isSameAs(payment);
+        verify(batcher, never()).charge(anyList());
+        // A segunda repetição já sai do cache
+        verify(repository, times(1)).findByIdempotencyKey("saga-1:PROCESS_PAYMENT");
+    }
+
+    @Test
+    void newIdempotencyKeyIsCharged() {
+        UUID reservationId = UUID.randomUUID();
+        Payment payment = stored(reservationId, "saga-1:PROCESS_PAYMENT", "APPROVED");
+        when(repository.findByIdempotencyKey("saga-1:PROCESS_PAYMENT")).thenReturn(Optional.empty());
+        when(batcher.charge(anyList())).thenReturn(CompletableFuture.completedFuture(List.of(payment)));
+
+        assertThat(service.processPayment(reservationId, 100.0, "saga-1:PROCESS_PAYMENT")).isSameAs(payment);
+        verify(batcher, times(1)).charge(anyList());
+    }
+
+    @Test
+    void concurrentChargeOfTheSameKeyIsReadBackOffTheBatcherThreads() {
+        UUID reservationId = UUID.randomUUID();
+        Payment payment = stored(reservationId, "saga-1:PROCESS_PAYMENT", "APPROVED");
+        List<String> lookupThreads = new CopyOnWriteArrayList<>();
+        when(repository.findByIdempotencyKey("saga-1:PROCESS_PAYMENT")).thenReturn(Optional.empty()).thenAnswer(invocation -> {
+            lookupThreads.add(Thread.currentThread().getName());
+            return Optional.of(payment);
+        });
+        when(batcher.charge(anyList())).thenReturn(CompletableFuture.failedFuture(new DataIntegrityViolationException("duplicate key")));
+
+        assertThat(service.processPayment(reservationId, 100.0, "saga-1:PROCESS_PAYMENT")).isSameAs(payment);
+        assertThat(lookupThreads).containsExactly("payment-idempotency-lookup");
+    }
+
+    @Test
+    void storedGroupIsReturnedWithoutCharging() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        List<String> itemKeys = List.of("saga-1:" + first, "saga-1:" + second);
+        Payment firstPayment = stored(first, itemKeys.get(0), "APPROVED");
+        Payment secondPayment = stored(second, itemKeys.get(1), "APPROVED");
+        when(repository.findByIdempotencyKeyIn(itemKeys)).thenReturn(List.of(secondPayment, firstPayment));
+
+        List<Payment> result = service.processPayments(List.of(request(first), request(second)), "saga-1");
+
+        assertThat(result).containsExactly(firstPayment, secondPayment);
+        verify(batcher, never()).charge(anyList());
+    }
+
+    @Test
+    void groupKeyReusedForOtherReservationsIsRejected() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        List<String> itemKeys = List.of("saga-1:" + first, "saga-1:" + second);
+        when(repository.findByIdempotencyKeyIn(itemKeys)).thenReturn(List.of(stored(first, itemKeys.get(0), "APPROVED")));
+
+        assertThatThrownBy(() -> service.processPayments(List.of(request(first), request(second)), "saga-1"))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(batcher, never()).charge(anyList());
+    }
+
+    // Coloca o pagamento no cache de leitura pelo caminho normal (repetição respondida pelo banco)
+    private Payment cached(String status) {
+        Payment payment = stored(UUID.randomUUID(), "saga-" + UUID.randomUUID() + ":PROCESS_PAYMENT", status);
+        when(repository.findByIdempotencyKey(payment.getIdempotencyKey())).thenReturn(Optional.of(payment));
+        service.processPayment(payment.getReservationId(), payment.getAmount(), payment.getIdempotencyKey());
+        return payment;
+    }
+
+    @Test
+    void refundOfCachedPaymentIsOneConditionalUpdate() {
+        Payment payment = cached("APPROVED");
+        when(repository.refund(payment.getPaymentId())).thenReturn(1);
+
+        Payment refunded = service.refundPayment(payment.getPaymentId());
+
+        assertThat(refunded.getStatus()).isEqualTo("REFUNDED");
+        assertThat(refunded.getVersion()).isEqualTo(1L);
+        // O cache recebe uma cópia: a instância que outras threads podem estar lendo não muda
+        assertThat(payment.getStatus()).isEqualTo("APPROVED");
+        assertThat(service.findPayment(payment.getPaymentId())).contains(refunded);
+        verify(repository, never()).findById(payment.getPaymentId());
+        // Compensação repetida: REFUNDED é final e sai do cache, sem outro UPDATE
+        assertThat(service.refundPayment(payment.getPaymentId()).getStatus()).isEqualTo("REFUNDED");
+        verify(repository, times(1)).refund(payment.getPaymentId());
+    }
+
+    @Test
+    void refundThatLostTheRaceReturnsTheRefundedRow() {
+        Payment payment = cached("APPROVED");
+        Payment refundedElsewhere = stored(payment.getReservationId(), payment.getIdempotencyKey(), "REFUNDED");
+        refundedElsewhere.setPaymentId(payment.getPaymentId());
+        when(repository.refund(payment.getPaymentId())).thenReturn(0);
+        when(repository.findById(payment.getPaymentId())).thenReturn(Optional.of(refundedElsewhere));
+
+        assertThat(service.refundPayment(payment.getPaymentId())).isSameAs(refundedElsewhere);
+        assertThat(service.findPayment(payment.getPaymentId())).contains(refundedElsewhere);
+    }
+
+    @Test
+    void refundOfPaymentThatIsNotApprovedIsAnInvalidTransition() {
+        UUID paymentId = UUID.randomUUID();
+        Payment pending = stored(UUID.randomUUID(), null, "PENDING");
+        pending.setPaymentId(paymentId);
+        when(repository.refund(paymentId)).thenReturn(0);
+        when(repository.findById(paymentId)).thenReturn(Optional.of(pending));
+
+        assertThatThrownBy(() -> service.refundPayment(paymentId)).isInstanceOf(InvalidStatusTransitionException.class);
+    }
+
+    @Test
+    void refundOfUnknownPaymentReturnsNull() {
+        UUID paymentId = UUID.randomUUID();
+        when(repository.refund(paymentId)).thenReturn(0);
+        when(repository.findById(paymentId)).thenReturn(Optional.empty());
+
+        assertThat(service.refundPayment(paymentId)).isNull();
+    }
+
+    @Test
+    void groupRefundRereadsTheRowsWhenPartOfItChangedElsewhere() {
+        Payment first = cached("APPROVED");
+        Payment second = cached("APPROVED");
+        List<UUID> paymentIds = List.of(first.getPaymentId(), second.getPaymentId());
+        Payment firstRefunded = stored(first.getReservationId(), first.getIdempotencyKey(), "REFUNDED");
+        Payment secondRefunded = stored(second.getReservationId(), second.getIdempotencyKey(), "REFUNDED");
+        when(repository.refundAll(paymentIds)).thenReturn(1);
+        when(repository.findAllById(paymentIds)).thenReturn(List.of(firstRefunded, secondRefunded));
+
+        assertThat(service.refundPayments(paymentIds)).containsExactly(firstRefunded, secondRefunded);
+    }
+}
@@ -0,0 +1,84 @@
+package com.carara.payment.service;
+
+import com.carara.payment.service.PaymentGateway.Authorization;
+import com.carara.payment.service.PaymentGateway.AuthorizationRequest;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SimulatedPaymentGatewayTests {
+
+    private static List<AuthorizationRequest> requests(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new AuthorizationRequest("reservation-" + i, "saga-" + i + ":PROCESS_PAYMENT", 100.0))
+                .toList();
+    }
+
+    @Test
+    void answersEveryChargeOfTheBatchInOrder() {
+        SimulatedPaymentGateway gateway = new SimulatedPaymentGateway(0.0, Duration.ZERO, 100);
+
+        assertThat(gateway.authorize(requests(50))).hasSize(50).allMatch(Authorization::approved);
+    }
+
+    @Test
+    void declineRateOneDeclinesEveryCharge() {
+        SimulatedPaymentGateway gateway = new SimulatedPaymentGateway(1.0, Duration.ZERO, 100);
+
+        assertThat(gateway.authorize(requests(10))).allSatisfy(authorization -> {
+            assertThat(authorization.approved()).isFalse();
+            assertThat(authorization.declineReason()).isEqualTo("Payment processing failed");
+        });
+    }
+
+    @Test
+    void replayOfAnApprovedChargeGetsTheSameApproval() {
+        SimulatedPaymentGateway gateway = new SimulatedPaymentGateway(0.5, Duration.ZERO, 100);
+        List<AuthorizationRequest> requests = requests(100);
+        List<Authorization> original = gateway.authorize(requests);
+
+        for (int replay = 0; replay < 5; replay++) {
+            List<Authorization> replayed = gateway.authorize(requests);
+            for (int i = 0; i < requests.size(); i++) {
+                if (original.get(i).approved()) {
+                    assertThat(replayed.get(i)).isEqualTo(original.get(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    void retryOfADeclinedChargeIsDecidedAgain() {
+        SimulatedPaymentGateway gateway = new SimulatedPaymentGateway(0.5, Duration.ZERO, 100);
+        List<AuthorizationRequest> requests = requests(100);
+
+        List<Authorization> first = gateway.authorize(requests);
+        List<Authorization> retry = gateway.authorize(requests);
+
+        assertThat(retry.stream().filter(Authorization::approved).count())
+                .isGreaterThan(first.stream().filter(Authorization::approved).count());
+    }
+
+    @Test
+    void chargesWithoutIdempotencyKeyAreDecidedEachTime() {
+        SimulatedPaymentGateway gateway = new SimulatedPaymentGateway(1.0, Duration.ZERO, 100);
+        AuthorizationRequest request = new AuthorizationRequest("reservation-1", null, 100.0);
+
+        assertThat(gateway.authorize(List.of(request))).singleElement().extracting(Authorization::approved).isEqualTo(false);
+    }
+
+    @Test
+    void callLatencyIsPaidOncePerBatch() {
+        SimulatedPaymentGateway gateway = new SimulatedPaymentGateway(0.0, Duration.ofMillis(20), 100);
+
+        long start = System.nanoTime();
+        gateway.authorize(requests(100));
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertThat(elapsedMillis).isBetween(20L, 1000L);
+    }
+}
@@ -1,10 +1,22 @@
 package com.carara.reservation.controller;
 
+import com.carara.reservation.model.BatchReservationRequest;
+import com.carara.reservation.model.KeysetPage;
 import com.carara.reservation.model.Reservation;
+import com.carara.reservation.service.ExportFormat;
+import com.carara.reservation.service.ReservationExporter;
 import com.carara.reservation.service.ReservationService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -19,10 +31,12 @@ import io.swagger.v3.oas.annotations.media.Schema;
 public class ReservationController {
 
     private final ReservationService reservationService;
+    private final ReservationExporter reservationExporter;
 
     @Autowired
-    public ReservationController(ReservationService reservationService) {
+    public ReservationController(ReservationService reservationService, ReservationExporter reservationExporter) {
         this.reservationService = reservationService;
+        this.reservationExporter = reservationExporter;
     }
 
     @PostMapping
@@ -30,13 +44,68 @@ public class ReservationController {
     public ResponseEntity<Reservation> createReservation(@Parameter(description = "User ID") @RequestParam String userId,
                                                          @Parameter(description = "Journey date") @RequestParam String journeyDate,
                                                          @Parameter(description = "Seat number") @RequestParam String seatNumber,
-                                                         @Parameter(description = "Amount") @RequestParam Double amount) {
-        return ResponseEntity.ok(reservationService.createReservation(userId, journeyDate, seatNumber, amount));
+                                                         @Parameter(description = "Amount") @RequestParam Double amount,
+                                                         @Parameter(description = "Idempotency key (optional): a repeated key returns the stored reservation") @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return ResponseEntity.ok(reservationService.createReservation(userId, journeyDate, seatNumber, amount, idempotencyKey));
+    }
+
+    @GetMapping("/{reservationId}")
+    @Operation(summary = "Get a reservation", description = "Returns a reservation by ID, served from the read cache when possible", responses = {@ApiResponse(responseCode = "200", description = "Reservation found", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Reservation.class))), @ApiResponse(responseCode = "404", description = "Reservation not found")})
+    public ResponseEntity<Reservation> getReservation(@Parameter(description = "Reservation ID") @PathVariable UUID reservationId) {
+        return ResponseEntity.of(reservationService.findReservation(reservationId));
+    }
+
+    @GetMapping
+    @Operation(summary = "List the reservations of a user", description = "Returns every reservation of a user, served from the read cache when possible", responses = {@ApiResponse(responseCode = "200", description = "Reservations of the user")})
+    public ResponseEntity<List<Reservation>> getReservationsByUser(@Parameter(description = "User ID") @RequestParam String userId) {
+        return ResponseEntity.ok(reservationService.findReservationsByUser(userId));
+    }
+
+    @GetMapping("/page")
+    @Operation(summary = "List reservations page by page", description = "Keyset pagination in creation order: pass the nextCursor of a page as the after parameter of the next one", responses = {@ApiResponse(responseCode = "200", description = "Page of reservations")})
+    public ResponseEntity<KeysetPage<Reservation>> listReservations(@Parameter(description = "Cursor: nextCursor of the previous page (omit for the first page)") @RequestParam(required = false) UUID after,
+                                                                    @Parameter(description = "Exclusive upper bound of the ID range (optional)") @RequestParam(required = false) UUID before,
+                                                                    @Parameter(description = "Page size, up to " + ReservationService.MAX_PAGE_SIZE) @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(reservationService.findReservations(after, before, limit));
+    }
+
+    @PostMapping("/batch/lookup")
+    @Operation(summary = "Look up reservations by ID", description = "Returns the reservations found among the given IDs, in no particular order", responses = {@ApiResponse(responseCode = "200", description = "Reservations found")})
+    public ResponseEntity<List<Reservation>> lookupReservations(@RequestBody List<UUID> reservationIds) {
+        return ResponseEntity.ok(reservationService.findReservationsById(reservationIds));
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Export reservations", description = "Streams the reservations created in [from, to) as NDJSON or CSV, without loading them in memory", responses = {@ApiResponse(responseCode = "200", description = "Export stream"), @ApiResponse(responseCode = "429", description = "Too many exports running, retry later")})
+    public ResponseEntity<StreamingResponseBody> exportReservations(@Parameter(description = "Start of the creation range, inclusive (ISO-8601 instant)") @RequestParam(required = false) Instant from,
+                                                                    @Parameter(description = "End of the creation range, exclusive (ISO-8601 instant)") @RequestParam(required = false) Instant to,
+                                                                    @Parameter(description = "ndjson or csv") @RequestParam(defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat = ExportFormat.parse(format);
+        return reservationExporter.export(from, to, exportFormat)
+                .map(body -> ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=reservations." + exportFormat.getExtension())
+                        .body(body))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build());
     }
 
     @PostMapping("/{reservationId}/cancel")
     @Operation(summary = "Cancel a reservation", description = "Cancels an existing reservation by ID", responses = {@ApiResponse(responseCode = "200", description = "Reservation canceled successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Reservation.class)))})
-    public ResponseEntity<Reservation> cancelReservation(@Parameter(description = "Reservation ID") @PathVariable String reservationId) {
+    public ResponseEntity<Reservation> cancelReservation(@Parameter(description = "Reservation ID") @PathVariable UUID reservationId) {
         return ResponseEntity.ok(reservationService.cancelReservation(reservationId));
     }
-} 
\ No newline at end of file
+
+    @PostMapping("/batch")
+    @Operation(summary = "Create a group of reservations", description = "Reserves several seats of the same journey for one user, all or nothing, in a single batched transaction", responses = {@ApiResponse(responseCode = "200", description = "Reservations created successfully"), @ApiResponse(responseCode = "409", description = "At least one seat is already reserved; no reservation was created")})
+    public ResponseEntity<List<Reservation>> createReservations(@RequestBody BatchReservationRequest request,
+                                                                @Parameter(description = "Idempotency key (optional): a repeated key returns the stored reservations") @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return ResponseEntity.ok(reservationService.createReservations(request.getUserId(), request.getJourneyDate(),
+                request.getSeatNumbers(), request.getAmount(), idempotencyKey));
+    }
+
+    @PostMapping("/batch/cancel")
+    @Operation(summary = "Cancel a group of reservations", description = "Cancels several reservations by ID in a single batched transaction", responses = {@ApiResponse(responseCode = "200", description = "Reservations canceled successfully")})
+    public ResponseEntity<List<Reservation>> cancelReservations(@RequestBody List<UUID> reservationIds) {
+        return ResponseEntity.ok(reservationService.cancelReservations(reservationIds));
+    }
+}
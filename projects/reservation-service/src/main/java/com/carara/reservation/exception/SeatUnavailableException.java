@@ -0,0 +1,10 @@
+package com.carara.reservation.exception;
+
+public class SeatUnavailableException extends RuntimeException {
+
+    public SeatUnavailableException(String journeyDate, String seatNumber) {
+        super(seatNumber == null
+                ? "One or more seats are already reserved for journey " + journeyDate
+                : "Seat " + seatNumber + " is already reserved for journey " + journeyDate);
+    }
+}
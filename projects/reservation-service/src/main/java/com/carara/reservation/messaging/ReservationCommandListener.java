@@ -0,0 +1,54 @@
+package com.carara.reservation.messaging;
+
+import com.carara.reservation.exception.InvalidStatusTransitionException;
+import com.carara.reservation.exception.SeatUnavailableException;
+import com.carara.reservation.service.ReservationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// Consome os comandos da saga e responde na fila indicada pelo orquestrador (replyTo)
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "saga.messaging.enabled", havingValue = "true")
+public class ReservationCommandListener {
+    private final ReservationService reservationService;
+
+    public ReservationCommandListener(ReservationService reservationService) {
+        this.reservationService = reservationService;
+    }
+
+    @RabbitListener(queues = MessagingConfig.COMMAND_QUEUE)
+    public SagaReply handle(SagaCommand command) {
+        log.info("Received {} command for saga {}", command.getCommandType(), command.getSagaId());
+        try {
+            return switch (command.getCommandType()) {
+                case "CREATE_RESERVATION" -> SagaReply.success(command, reservationService.createReservation(
+                        command.getString("userId"), command.getString("journeyDate"),
+                        command.getString("seatNumber"), command.getDouble("amount"), command.getIdempotencyKey()));
+                case "CANCEL_RESERVATION" -> SagaReply.success(command,
+                        reservationService.cancelReservation(command.getUuid("reservationId")));
+                case "CREATE_RESERVATIONS" -> SagaReply.success(command, reservationService.createReservations(
+                        command.getString("userId"), command.getString("journeyDate"),
+                        command.getStringList("seatNumbers"), command.getDouble("amount"), command.getIdempotencyKey()));
+                case "CANCEL_RESERVATIONS" -> SagaReply.success(command,
+                        reservationService.cancelReservations(command.getUuidList("reservationIds")));
+                default -> throw new IllegalArgumentException("Unsupported command " + command.getCommandType());
+            };
+        } catch (SeatUnavailableException e) {
+            log.info("Seat unavailable for saga {}: {}", command.getSagaId(), e.getMessage());
+            return SagaReply.failure(command, "RESERVATION_SEAT_UNAVAILABLE", e.getMessage());
+        } catch (InvalidStatusTransitionException e) {
+            // Mesmo código do 409 do HTTP: repetir não muda o status, então o orquestrador não repete
+            log.warn("Invalid status transition for saga {}: {}", command.getSagaId(), e.getMessage());
+            return SagaReply.failure(command, "RESERVATION_INVALID_STATUS_TRANSITION", e.getMessage());
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid {} command for saga {}: {}", command.getCommandType(), command.getSagaId(), e.getMessage());
+            return SagaReply.failure(command, "RESERVATION_INVALID_ARGUMENT", e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Reservation service error for saga {}: {}", command.getSagaId(), e.getMessage(), e);
+            return SagaReply.failure(command, "RESERVATION_PROCESSING_ERROR", "Failed to process reservation: " + e.getMessage());
+        }
+    }
+}
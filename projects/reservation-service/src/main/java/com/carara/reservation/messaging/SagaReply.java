@@ -0,0 +1,25 @@
+package com.carara.reservation.messaging;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SagaReply {
+    private String sagaId;
+    private String commandType;
+    private boolean success;
+    private Object result;
+    private String errorCode;
+    private String errorMessage;
+
+    public static SagaReply success(SagaCommand command, Object result) {
+        return new SagaReply(command.getSagaId(), command.getCommandType(), true, result, null, null);
+    }
+
+    public static SagaReply failure(SagaCommand command, String errorCode, String errorMessage) {
+        return new SagaReply(command.getSagaId(), command.getCommandType(), false, null, errorCode, errorMessage);
+    }
+}
@@ -0,0 +1,25 @@
+package com.carara.reservation.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+// Página de uma listagem por keyset: nextCursor vai no parâmetro after da próxima página e é null na última
+@Data
+@AllArgsConstructor
+public class KeysetPage<T> {
+    private List<T> items;
+    private UUID nextCursor;
+
+    // rows vem da consulta com limit + 1 linhas: a linha a mais só indica que existe uma próxima página
+    public static <T> KeysetPage<T> of(List<T> rows, int limit, Function<T, UUID> idOf) {
+        if (rows.size() <= limit) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<T> items = List.copyOf(rows.subList(0, limit));
+        return new KeysetPage<>(items, idOf.apply(items.get(limit - 1)));
+    }
+}
@@ -1,17 +1,29 @@
 package com.carara.reservation.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
 import java.util.UUID;
 
 @Entity
 @Data
+@Table(indexes = @Index(name = "idx_reservation_user_id", columnList = "userId"))
 public class Reservation {
     @Id
-    private String reservationId = UUID.randomUUID().toString();
+    @GeneratedUuidV7
+    private UUID reservationId;
     private String userId;
     private String journeyDate;
     private String status;
     private String seatNumber;
     private Double amount;
+
+    @Column(unique = true)
+    private String idempotencyKey;
+
+    // Lock otimista: as transições de status do repositório também incrementam a versão, então um save
+    // de uma cópia carregada antes de uma transição falha em vez de sobrescrevê-la
+    @Version
+    @JsonIgnore
+    private Long version;
 } 
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.carara.reservation.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+// Assento ocupado em uma data de viagem: a chave primária (journeyDate, seatNumber) é o índice único
+// que impede duas reservas ativas para o mesmo assento. A linha é removida quando a reserva é cancelada
+@Entity
+@Data
+@NoArgsConstructor
+@IdClass(SeatClaim.SeatKey.class)
+public class SeatClaim implements Persistable<SeatClaim.SeatKey> {
+    @Id
+    private String journeyDate;
+    @Id
+    private String seatNumber;
+    private UUID reservationId;
+
+    // Sempre INSERT direto (sem o SELECT do merge): um assento ocupado falha na chave primária
+    @Transient
+    private boolean newClaim = true;
+
+    public SeatClaim(String journeyDate, String seatNumber, UUID reservationId) {
+        this.journeyDate = journeyDate;
+        this.seatNumber = seatNumber;
+        this.reservationId = reservationId;
+    }
+
+    @Override
+    public SeatKey getId() {
+        return new SeatKey(journeyDate, seatNumber);
+    }
+
+    @Override
+    public boolean isNew() {
+        return newClaim;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newClaim = false;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SeatKey implements Serializable {
+        private String journeyDate;
+        private String seatNumber;
+    }
+}
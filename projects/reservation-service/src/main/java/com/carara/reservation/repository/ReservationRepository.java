@@ -1,7 +1,54 @@
 package com.carara.reservation.repository;
 
 import com.carara.reservation.model.Reservation;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
-public interface ReservationRepository extends JpaRepository<Reservation, String> {
-} 
\ No newline at end of file
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+public interface ReservationRepository extends JpaRepository<Reservation, UUID> {
+    String EXPORT_FETCH_SIZE = "1000";
+
+    Optional<Reservation> findByIdempotencyKey(String idempotencyKey);
+
+    List<Reservation> findByIdempotencyKeyIn(Collection<String> idempotencyKeys);
+
+    List<Reservation> findByUserId(String userId);
+
+    // Transição CREATED -> CANCELED num único UPDATE condicional, sem o SELECT antes: só altera a linha que ainda
+    // está em CREATED e incrementa a versão. Retorna quantas linhas mudaram (0: já cancelada ou inexistente)
+    @Modifying
+    @Query("update Reservation r set r.status = 'CANCELED', r.version = r.version + 1 where r.reservationId = :reservationId and r.status = 'CREATED'")
+    int cancel(@Param("reservationId") UUID reservationId);
+
+    // Reservas do grupo ainda em CREATED, travadas (FOR UPDATE) até o commit: são exatamente as que o cancelAll
+    // seguinte na mesma transação cancela. A ordem por id evita deadlock entre compensações concorrentes
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from Reservation r where r.reservationId in :reservationIds and r.status = 'CREATED' order by r.reservationId")
+    List<Reservation> findCreatedForUpdate(@Param("reservationIds") Collection<UUID> reservationIds);
+
+    @Modifying
+    @Query("update Reservation r set r.status = 'CANCELED', r.version = r.version + 1 where r.reservationId in :reservationIds and r.status = 'CREATED'")
+    int cancelAll(@Param("reservationIds") Collection<UUID> reservationIds);
+
+    // Keyset: a página começa depois do último id da anterior, uma busca no índice da chave primária
+    List<Reservation> findByReservationIdGreaterThanAndReservationIdLessThanOrderByReservationIdAsc(UUID after, UUID before, Limit limit);
+
+    // Cursor do servidor: o driver do Postgres só busca fetch size linhas por vez dentro de uma transação
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("select r from Reservation r where r.reservationId >= :from and r.reservationId < :to order by r.reservationId")
+    Stream<Reservation> streamByReservationIdRange(@Param("from") UUID from, @Param("to") UUID to);
+}
@@ -0,0 +1,26 @@
+package com.carara.reservation.repository;
+
+import com.carara.reservation.model.SeatClaim;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface SeatClaimRepository extends JpaRepository<SeatClaim, SeatClaim.SeatKey> {
+
+    @Query("select s.seatNumber from SeatClaim s where s.journeyDate = :journeyDate")
+    List<String> findSeatNumbersByJourneyDate(@Param("journeyDate") String journeyDate);
+
+    @Modifying
+    @Query("delete from SeatClaim s where s.journeyDate = :journeyDate and s.seatNumber = :seatNumber and s.reservationId = :reservationId")
+    int release(@Param("journeyDate") String journeyDate, @Param("seatNumber") String seatNumber,
+                @Param("reservationId") UUID reservationId);
+
+    @Modifying
+    @Query("delete from SeatClaim s where s.reservationId in :reservationIds")
+    int releaseAll(@Param("reservationIds") Collection<UUID> reservationIds);
+}
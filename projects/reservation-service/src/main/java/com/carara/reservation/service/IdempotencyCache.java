@@ -0,0 +1,23 @@
+package com.carara.reservation.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+// Cache limitado (Caffeine, maximumSize) com os resultados já gravados por chave de idempotência.
+// Leituras e escritas concorrentes não disputam um lock único, ao contrário de um LinkedHashMap sincronizado.
+// A fonte da verdade continua sendo o índice único no banco; o cache só evita a ida ao banco nas repetições
+public class IdempotencyCache<T> {
+    private final Cache<String, T> entries;
+
+    public IdempotencyCache(int maxEntries) {
+        this.entries = Caffeine.newBuilder().maximumSize(maxEntries).build();
+    }
+
+    public T get(String idempotencyKey) {
+        return entries.getIfPresent(idempotencyKey);
+    }
+
+    public void put(String idempotencyKey, T result) {
+        entries.put(idempotencyKey, result);
+    }
+}
@@ -0,0 +1,103 @@
+package com.carara.reservation.service;
+
+import com.carara.reservation.model.Reservation;
+import com.carara.reservation.model.UuidV7;
+import com.carara.reservation.repository.ReservationRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// Exportação das reservas de um intervalo de criação para reconciliação. As linhas saem de um cursor do banco
+// direto para a resposta e são desanexadas do contexto de persistência depois de escritas, então a memória não
+// cresce com o tamanho do dia. A leitura roda numa transação somente leitura em REPEATABLE READ: um snapshot
+// consistente que, no Postgres, não bloqueia nem é bloqueado pelas gravações das sagas
+@Slf4j
+@Component
+public class ReservationExporter {
+    private static final UUID FIRST_ID = new UUID(0L, 0L);
+    private static final UUID LAST_ID = new UUID(-1L, -1L);
+    private static final List<String> CSV_HEADER = List.of("reservationId", "userId", "journeyDate", "status", "seatNumber", "amount");
+    private static final Function<Reservation, List<?>> CSV_ROW = reservation -> Arrays.asList(reservation.getReservationId(),
+            reservation.getUserId(), reservation.getJourneyDate(), reservation.getStatus(), reservation.getSeatNumber(), reservation.getAmount());
+
+    private final ReservationRepository reservationRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+    private final Semaphore exports;
+
+    public ReservationExporter(ReservationRepository reservationRepository,
+                               EntityManager entityManager,
+                               PlatformTransactionManager transactionManager,
+                               ObjectMapper objectMapper,
+                               @Value("${export.max-concurrent:2}") int maxConcurrentExports) {
+        this.reservationRepository = reservationRepository;
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.objectMapper = objectMapper;
+        this.exports = new Semaphore(maxConcurrentExports);
+    }
+
+    // Vazio quando já há export.max-concurrent exportações rodando: cada uma segura uma conexão do pool até
+    // terminar, e o resto do pool fica para o tráfego das sagas. from e to são opcionais (to exclusivo)
+    public Optional<StreamingResponseBody> export(Instant from, Instant to, ExportFormat format) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("Export range start must be before its end");
+        }
+        if (!exports.tryAcquire()) {
+            log.warn("Reservation export rejected: too many exports running");
+            return Optional.empty();
+        }
+        return Optional.of(out -> {
+            try {
+                write(from, to, format, out);
+            } finally {
+                exports.release();
+            }
+        });
+    }
+
+    long write(Instant from, Instant to, ExportFormat format, OutputStream out) {
+        long start = System.nanoTime();
+        UUID firstId = from == null ? FIRST_ID : UuidV7.lowerBound(from);
+        UUID lastId = to == null ? LAST_ID : UuidV7.lowerBound(to);
+        Long rows = readOnlyTransaction.execute(status -> {
+            ExportWriter<Reservation> writer = new ExportWriter<>(out, format, objectMapper, CSV_HEADER, CSV_ROW);
+            long written = 0;
+            try (Stream<Reservation> reservations = reservationRepository.streamByReservationIdRange(firstId, lastId)) {
+                Iterator<Reservation> iterator = reservations.iterator();
+                while (iterator.hasNext()) {
+                    Reservation reservation = iterator.next();
+                    writer.write(reservation);
+                    entityManager.detach(reservation);
+                    written++;
+                }
+            }
+            writer.flush();
+            return written;
+        });
+        log.info("Exported {} reservations ({} to {}) as {} in {} ms", rows, from, to, format,
+                Duration.ofNanos(System.nanoTime() - start).toMillis());
+        return rows;
+    }
+}
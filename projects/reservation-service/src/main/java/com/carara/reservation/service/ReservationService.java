@@ -1,25 +1,91 @@
 package com.carara.reservation.service;
 
+import com.carara.reservation.exception.InvalidStatusTransitionException;
+import com.carara.reservation.exception.SeatUnavailableException;
+import com.carara.reservation.model.KeysetPage;
 import com.carara.reservation.model.Reservation;
+import com.carara.reservation.model.SeatClaim;
 import com.carara.reservation.repository.ReservationRepository;
+import com.carara.reservation.repository.SeatClaimRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class ReservationService {
+    public static final int MAX_PAGE_SIZE = 1000;
+    private static final UUID FIRST_PAGE = new UUID(0L, 0L);
+    private static final UUID LAST_PAGE = new UUID(-1L, -1L);
+
     private final ReservationRepository reservationRepository;
+    private final SeatClaimRepository seatClaimRepository;
+    private final SeatInventory seatInventory;
+    private final TransactionTemplate transactionTemplate;
+    private final IdempotencyCache<Reservation> idempotencyCache;
+    private final ReadCache<Reservation> readCache;
+    private final ObservationRegistry observationRegistry;
 
     @Autowired
-    public ReservationService(ReservationRepository reservationRepository) {
+    public ReservationService(ReservationRepository reservationRepository,
+                              SeatClaimRepository seatClaimRepository,
+                              SeatInventory seatInventory,
+                              PlatformTransactionManager transactionManager,
+                              ObservationRegistry observationRegistry,
+                              MeterRegistry meterRegistry,
+                              @Value("${idempotency.cache.max-entries:10000}") int idempotencyCacheSize,
+                              @Value("${read-cache.max-entries:10000}") int readCacheSize,
+                              @Value("${read-cache.expire-after-write:5m}") Duration readCacheExpiry) {
         this.reservationRepository = reservationRepository;
+        this.seatClaimRepository = seatClaimRepository;
+        this.seatInventory = seatInventory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.idempotencyCache = new IdempotencyCache<>(idempotencyCacheSize);
+        this.readCache = new ReadCache<>("reservations", readCacheSize, readCacheExpiry, Reservation::getReservationId, meterRegistry);
+        this.observationRegistry = observationRegistry;
     }
 
     public Reservation createReservation(String userId, String journeyDate,
                                        String seatNumber, Double amount) {
+        return createReservation(userId, journeyDate, seatNumber, amount, null);
+    }
+
+    public Reservation createReservation(String userId, String journeyDate,
+                                       String seatNumber, Double amount, String idempotencyKey) {
         log.info("Starting reservation creation for user {} - Journey: {}, Seat: {}, Amount: {}", 
                 userId, journeyDate, seatNumber, amount);
+
+        if (idempotencyKey != null) {
+            Reservation replayed = idempotencyCache.get(idempotencyKey);
+            if (replayed != null) {
+                log.info("Returning stored reservation {} for idempotency key {}", replayed.getReservationId(), idempotencyKey);
+                return replayed;
+            }
+        }
+
+        // Assento já ocupado: falha sem tocar no banco (salvo uma repetição de uma reserva já gravada)
+        if (!seatInventory.claim(journeyDate, seatNumber)) {
+            return replayOrReject(idempotencyKey, journeyDate, seatNumber);
+        }
         
         Reservation reservation = new Reservation();
         reservation.setUserId(userId);
@@ -27,24 +93,269 @@ public class ReservationService {
         reservation.setSeatNumber(seatNumber);
         reservation.setAmount(amount);
         reservation.setStatus("CREATED");
+        reservation.setIdempotencyKey(idempotencyKey);
         
-        Reservation savedReservation = reservationRepository.save(reservation);
+        Reservation savedReservation;
+        try {
+            savedReservation = observeSave("createReservation", () -> transactionTemplate.execute(status -> {
+                // O id é gerado no persist da reserva, antes do INSERT, e já pode ser usado pelo assento
+                Reservation persisted = reservationRepository.save(reservation);
+                seatClaimRepository.save(new SeatClaim(journeyDate, seatNumber, persisted.getReservationId()));
+                return persisted;
+            }));
+        } catch (DataIntegrityViolationException e) {
+            // Repetição concorrente ou vinda de outra instância (índice único da chave de idempotência),
+            // ou assento ocupado por outra instância (chave primária de SeatClaim): nos dois casos o assento
+            // continua ocupado no mapa em memória
+            savedReservation = replayOrReject(idempotencyKey, journeyDate, seatNumber);
+        } catch (RuntimeException e) {
+            seatInventory.release(journeyDate, seatNumber);
+            throw e;
+        }
+        if (idempotencyKey != null) {
+            idempotencyCache.put(idempotencyKey, savedReservation);
+        }
+        readCache.put(savedReservation);
+        readCache.invalidateQuery(byUser(userId));
         log.info("Reservation created successfully with ID: {}", savedReservation.getReservationId());
         return savedReservation;
     }
 
-    public Reservation cancelReservation(String reservationId) {
+    private Reservation replayOrReject(String idempotencyKey, String journeyDate, String seatNumber) {
+        Optional<Reservation> stored = idempotencyKey == null
+                ? Optional.empty()
+                : reservationRepository.findByIdempotencyKey(idempotencyKey);
+        if (stored.isEmpty()) {
+            log.info("Seat {} already reserved for journey {}", seatNumber, journeyDate);
+            throw new SeatUnavailableException(journeyDate, seatNumber);
+        }
+        log.info("Returning stored reservation {} for idempotency key {}", stored.get().getReservationId(), idempotencyKey);
+        idempotencyCache.put(idempotencyKey, stored.get());
+        return stored.get();
+    }
+
+    // Reserva em grupo tudo-ou-nada: todos os assentos são ocupados em memória antes de qualquer escrita,
+    // e as reservas e os assentos são gravados numa única transação com INSERTs em lote (saveAll)
+    public List<Reservation> createReservations(String userId, String journeyDate, List<String> seatNumbers,
+                                                Double amount, String idempotencyKey) {
+        if (seatNumbers == null || seatNumbers.isEmpty()) {
+            throw new IllegalArgumentException("At least one seat number is required");
+        }
+        if (new HashSet<>(seatNumbers).size() != seatNumbers.size()) {
+            throw new IllegalArgumentException("Seat numbers must not repeat within a group booking");
+        }
+        log.info("Starting group reservation for user {} - Journey: {}, Seats: {}, Amount per seat: {}",
+                userId, journeyDate, seatNumbers, amount);
+
+        List<String> itemKeys = idempotencyKey == null ? null
+                : seatNumbers.stream().map(seatNumber -> idempotencyKey + ":" + seatNumber).toList();
+        if (itemKeys != null) {
+            List<Reservation> replayed = itemKeys.stream().map(idempotencyCache::get).toList();
+            if (!replayed.contains(null)) {
+                log.info("Returning {} stored reservations for idempotency key {}", replayed.size(), idempotencyKey);
+                return replayed;
+            }
+        }
+
+        List<String> claimed = new ArrayList<>(seatNumbers.size());
+        for (String seatNumber : seatNumbers) {
+            if (!seatInventory.claim(journeyDate, seatNumber)) {
+                claimed.forEach(claimedSeat -> seatInventory.release(journeyDate, claimedSeat));
+                return replayOrReject(itemKeys, idempotencyKey, journeyDate, seatNumber);
+            }
+            claimed.add(seatNumber);
+        }
+
+        List<Reservation> reservations = new ArrayList<>(seatNumbers.size());
+        for (int i = 0; i < seatNumbers.size(); i++) {
+            Reservation reservation = new Reservation();
+            reservation.setUserId(userId);
+            reservation.setJourneyDate(journeyDate);
+            reservation.setSeatNumber(seatNumbers.get(i));
+            reservation.setAmount(amount);
+            reservation.setStatus("CREATED");
+            reservation.setIdempotencyKey(itemKeys == null ? null : itemKeys.get(i));
+            reservations.add(reservation);
+        }
+
+        List<Reservation> savedReservations;
+        try {
+            savedReservations = observeSave("createReservations", () -> transactionTemplate.execute(status -> {
+                List<Reservation> persisted = reservationRepository.saveAll(reservations);
+                seatClaimRepository.saveAll(persisted.stream()
+                        .map(reservation -> new SeatClaim(journeyDate, reservation.getSeatNumber(), reservation.getReservationId()))
+                        .toList());
+                return persisted;
+            }));
+        } catch (DataIntegrityViolationException e) {
+            // Não se sabe qual assento conflitou com outra instância: libera o grupo e recarrega a data do banco
+            claimed.forEach(claimedSeat -> seatInventory.release(journeyDate, claimedSeat));
+            seatInventory.invalidate(journeyDate);
+            savedReservations = replayOrReject(itemKeys, idempotencyKey, journeyDate, null);
+        } catch (RuntimeException e) {
+            claimed.forEach(claimedSeat -> seatInventory.release(journeyDate, claimedSeat));
+            throw e;
+        }
+        if (itemKeys != null) {
+            savedReservations.forEach(reservation -> idempotencyCache.put(reservation.getIdempotencyKey(), reservation));
+        }
+        readCache.putAll(savedReservations);
+        readCache.invalidateQuery(byUser(userId));
+        log.info("Group reservation created successfully with {} reservations", savedReservations.size());
+        return savedReservations;
+    }
+
+    private List<Reservation> replayOrReject(List<String> itemKeys, String idempotencyKey, String journeyDate, String seatNumber) {
+        if (itemKeys != null) {
+            Map<String, Reservation> stored = reservationRepository.findByIdempotencyKeyIn(itemKeys).stream()
+                    .collect(Collectors.toMap(Reservation::getIdempotencyKey, Function.identity()));
+            if (stored.size() == itemKeys.size()) {
+                log.info("Returning {} stored reservations for idempotency key {}", stored.size(), idempotencyKey);
+                stored.values().forEach(reservation -> idempotencyCache.put(reservation.getIdempotencyKey(), reservation));
+                return itemKeys.stream().map(stored::get).toList();
+            }
+        }
+        log.info("Group reservation rejected: seat {} already reserved for journey {}", seatNumber, journeyDate);
+        throw new SeatUnavailableException(journeyDate, seatNumber);
+    }
+
+    public Reservation cancelReservation(UUID reservationId) {
         log.info("Starting cancellation process for reservation: {}", reservationId);
-        
-        return reservationRepository.findById(reservationId).map(reservation -> {
-            log.info("Found reservation to cancel: {}", reservation);
-            reservation.setStatus("CANCELED");
-            Reservation canceledReservation = reservationRepository.save(reservation);
-            log.info("Reservation {} canceled successfully", reservationId);
-            return canceledReservation;
-        }).orElseGet(() -> {
+
+        // Compensação repetida (retry, hedge, CompensationRetrier): CANCELED é final, então o cache basta.
+        // Do cache também sai o assento a liberar (imutável na reserva), sem um SELECT antes do UPDATE
+        Optional<Reservation> cached = readCache.getIfPresent(reservationId);
+        if (cached.isPresent() && "CANCELED".equals(cached.get().getStatus())) {
+            log.info("Reservation {} already canceled", reservationId);
+            return cached.get();
+        }
+        Reservation reservation = cached.orElseGet(() -> reservationRepository.findById(reservationId).orElse(null));
+        if (reservation == null) {
             log.info("Reservation {} not found for cancellation", reservationId);
             return null;
-        });
+        }
+        log.debug("Found reservation to cancel: {}", reservation);
+
+        // Só quem fez a transição libera o assento: duas compensações concorrentes não liberam duas vezes
+        boolean canceled = observeSave("cancelReservation", () -> transactionTemplate.execute(status -> {
+            if (reservationRepository.cancel(reservationId) == 0) {
+                return false;
+            }
+            seatClaimRepository.release(reservation.getJourneyDate(), reservation.getSeatNumber(), reservationId);
+            return true;
+        }));
+        if (!canceled) {
+            return currentCanceled(reservationId);
+        }
+        seatInventory.release(reservation.getJourneyDate(), reservation.getSeatNumber());
+        log.info("Reservation {} canceled successfully", reservationId);
+        return readCache.put(canceled(reservation));
+    }
+
+    // O UPDATE condicional não mudou a linha: relê o status atual, que só pode ser CANCELED (cancelada por outra
+    // chamada ou instância depois da leitura)
+    private Reservation currentCanceled(UUID reservationId) {
+        Reservation current = reservationRepository.findById(reservationId).orElse(null);
+        if (current == null) {
+            log.info("Reservation {} not found for cancellation", reservationId);
+            return null;
+        }
+        if (!"CANCELED".equals(current.getStatus())) {
+            throw new InvalidStatusTransitionException(reservationId, current.getStatus(), "CANCELED");
+        }
+        log.info("Reservation {} already canceled", reservationId);
+        return readCache.put(current);
+    }
+
+    // Cópia com o que o UPDATE condicional gravou. A instância do cache nunca é alterada: outras threads
+    // podem estar lendo ou serializando a mesma entidade
+    private static Reservation canceled(Reservation reservation) {
+        Reservation canceled = new Reservation();
+        canceled.setReservationId(reservation.getReservationId());
+        canceled.setUserId(reservation.getUserId());
+        canceled.setJourneyDate(reservation.getJourneyDate());
+        canceled.setSeatNumber(reservation.getSeatNumber());
+        canceled.setAmount(reservation.getAmount());
+        canceled.setIdempotencyKey(reservation.getIdempotencyKey());
+        canceled.setStatus("CANCELED");
+        canceled.setVersion(reservation.getVersion() + 1);
+        return canceled;
+    }
+
+    // Compensação do grupo: um SELECT ... FOR UPDATE das reservas ainda CREATED, um único UPDATE condicional que as
+    // cancela e um único DELETE que libera os assentos. Só os assentos das linhas travadas por esta chamada são
+    // liberados no mapa em memória: uma compensação concorrente que cancelou parte do grupo libera a sua parte
+    public List<Reservation> cancelReservations(List<UUID> reservationIds) {
+        log.info("Starting group cancellation for {} reservations", reservationIds.size());
+
+        // Compensação repetida: CANCELED é final, então o grupo inteiro no cache basta
+        List<Reservation> cached = reservationIds.stream().map(readCache::getIfPresent).flatMap(Optional::stream).toList();
+        if (cached.size() == reservationIds.size() && cached.stream().allMatch(reservation -> "CANCELED".equals(reservation.getStatus()))) {
+            log.info("{} reservations already canceled", cached.size());
+            return cached;
+        }
+
+        List<Reservation> canceled = observeSave("cancelReservations", () -> transactionTemplate.execute(status -> {
+            List<Reservation> toCancel = reservationRepository.findCreatedForUpdate(reservationIds);
+            if (!toCancel.isEmpty()) {
+                List<UUID> toCancelIds = toCancel.stream().map(Reservation::getReservationId).toList();
+                reservationRepository.cancelAll(toCancelIds);
+                seatClaimRepository.releaseAll(toCancelIds);
+            }
+            return toCancel;
+        }));
+        canceled.forEach(reservation -> seatInventory.release(reservation.getJourneyDate(), reservation.getSeatNumber()));
+
+        List<Reservation> canceledReservations = canceled.stream().map(ReservationService::canceled).toList();
+        if (canceled.size() != reservationIds.size()) {
+            // Parte do grupo já estava cancelada (por outra chamada ou instância) ou não existe: relê o estado final
+            canceledReservations = reservationRepository.findAllById(reservationIds);
+        }
+        readCache.putAll(canceledReservations);
+        log.info("{} reservations canceled successfully", canceled.size());
+        return canceledReservations;
+    }
+
+    public Optional<Reservation> findReservation(UUID reservationId) {
+        return readCache.findById(reservationId, reservationRepository::findById);
+    }
+
+    public List<Reservation> findReservationsByUser(String userId) {
+        return readCache.query(byUser(userId), () -> reservationRepository.findByUserId(userId));
+    }
+
+    // Paginação por keyset sobre a chave primária (UUID v7, em ordem de criação): cada página custa o mesmo
+    // no começo e no fim da tabela, ao contrário do OFFSET. Não passa pelo cache de leitura, para que uma
+    // varredura não expulse as entradas quentes. before (exclusivo) limita a faixa de ids, para dividir a
+    // varredura de uma tabela grande em partições
+    public KeysetPage<Reservation> findReservations(UUID after, UUID before, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        List<Reservation> rows = reservationRepository.findByReservationIdGreaterThanAndReservationIdLessThanOrderByReservationIdAsc(
+                after == null ? FIRST_PAGE : after, before == null ? LAST_PAGE : before, Limit.of(limit + 1));
+        return KeysetPage.of(rows, limit, Reservation::getReservationId);
+    }
+
+    // Consulta em lote da reconciliação, direto no banco para não encher o cache de leitura
+    public List<Reservation> findReservationsById(List<UUID> reservationIds) {
+        if (reservationIds.size() > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_PAGE_SIZE + " reservation IDs per lookup");
+        }
+        return reservationRepository.findAllById(reservationIds);
+    }
+
+    private static String byUser(String userId) {
+        return "userId=" + userId;
+    }
+
+    // Gravação no repositório, incluindo o commit: vira o timer repository.save (por entity e operation)
+    // e um span filho do span HTTP ou da mensagem que originou a chamada
+    private <T> T observeSave(String operation, Supplier<T> save) {
+        return Observation.createNotStarted("repository.save", observationRegistry)
+                .contextualName("reservation " + operation)
+                .lowCardinalityKeyValue("entity", "reservation")
+                .lowCardinalityKeyValue("operation", operation)
+                .observe(save);
     }
-} 
\ No newline at end of file
+}
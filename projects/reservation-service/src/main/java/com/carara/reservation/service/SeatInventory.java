@@ -0,0 +1,112 @@
+package com.carara.reservation.service;
+
+import com.carara.reservation.model.SeatClaim;
+import com.carara.reservation.repository.SeatClaimRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Mapa em memória dos assentos ocupados por data de viagem, carregado do banco no primeiro acesso a cada data.
+// claim/release são operações atômicas sem lock (ConcurrentHashMap), então um pedido para um assento ocupado
+// há pouco falha em microssegundos sem ir ao Postgres. O índice único de SeatClaim continua sendo a garantia
+// final: com várias instâncias, um assento ocupado por outra instância só é detectado no INSERT, e um assento
+// liberado por outra instância só é percebido quando o conflito em memória é conferido no banco.
+// As datas ficam num cache Caffeine limitado por tamanho e por tempo sem acesso, então as viagens que já passaram
+// saem da memória; uma data descartada é recarregada do seat_claim no próximo acesso
+@Slf4j
+@Component
+public class SeatInventory {
+    private final SeatClaimRepository seatClaimRepository;
+    private final long confirmAfterNanos;
+    // Por assento, o instante (nanoTime) em que o mapa o viu ocupado pela última vez
+    private final Map<String, CompletableFuture<Map<String, Long>>> claimedSeatsByJourneyDate;
+
+    @Autowired
+    public SeatInventory(SeatClaimRepository seatClaimRepository,
+                         @Value("${seat-inventory.confirm-after:5s}") Duration confirmAfter,
+                         @Value("${seat-inventory.max-journey-dates:1000}") int maxJourneyDates,
+                         @Value("${seat-inventory.expire-after-access:6h}") Duration expireAfterAccess) {
+        this.seatClaimRepository = seatClaimRepository;
+        this.confirmAfterNanos = confirmAfter.toNanos();
+        this.claimedSeatsByJourneyDate = Caffeine.newBuilder()
+                .maximumSize(maxJourneyDates)
+                .expireAfterAccess(expireAfterAccess)
+                .<String, CompletableFuture<Map<String, Long>>>build()
+                .asMap();
+    }
+
+    public boolean claim(String journeyDate, String seatNumber) {
+        Map<String, Long> seats = seats(journeyDate);
+        long now = System.nanoTime();
+        Long claimedAt = seats.putIfAbsent(seatNumber, now);
+        if (claimedAt == null) {
+            return true;
+        }
+        // Ocupado há pouco (por esta instância ou na carga da data): recusa sem ir ao banco
+        if (now - claimedAt < confirmAfterNanos) {
+            return false;
+        }
+        // Ocupação antiga no mapa: outra instância pode ter cancelado a reserva. Confere no seat_claim antes
+        // de recusar; o replace garante que só um dos pedidos concorrentes fica com o assento liberado
+        if (seatClaimRepository.existsById(new SeatClaim.SeatKey(journeyDate, seatNumber))) {
+            seats.replace(seatNumber, claimedAt, now);
+            return false;
+        }
+        log.info("Seat {} of journey {} was released elsewhere, claiming it", seatNumber, journeyDate);
+        return seats.replace(seatNumber, claimedAt, now);
+    }
+
+    public void release(String journeyDate, String seatNumber) {
+        seats(journeyDate).remove(seatNumber);
+    }
+
+    // Descarta o mapa da data para recarregá-lo do banco no próximo acesso, quando não se sabe
+    // qual assento foi ocupado por outra instância
+    public void invalidate(String journeyDate) {
+        claimedSeatsByJourneyDate.remove(journeyDate);
+    }
+
+    public boolean isClaimed(String journeyDate, String seatNumber) {
+        return seats(journeyDate).containsKey(seatNumber);
+    }
+
+    // A carga do banco roda fora do computeIfAbsent, para não segurar o lock do mapa durante a consulta;
+    // os acessos concorrentes à mesma data esperam a carga de quem chegou primeiro
+    private Map<String, Long> seats(String journeyDate) {
+        CompletableFuture<Map<String, Long>> seats = claimedSeatsByJourneyDate.get(journeyDate);
+        if (seats == null) {
+            CompletableFuture<Map<String, Long>> loading = new CompletableFuture<>();
+            seats = claimedSeatsByJourneyDate.putIfAbsent(journeyDate, loading);
+            if (seats == null) {
+                seats = loading;
+                try {
+                    loading.complete(warm(journeyDate));
+                } catch (RuntimeException e) {
+                    claimedSeatsByJourneyDate.remove(journeyDate, loading);
+                    loading.completeExceptionally(e);
+                }
+            }
+        }
+        try {
+            return seats.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private Map<String, Long> warm(String journeyDate) {
+        Map<String, Long> seats = new ConcurrentHashMap<>();
+        long now = System.nanoTime();
+        seatClaimRepository.findSeatNumbersByJourneyDate(journeyDate).forEach(seatNumber -> seats.put(seatNumber, now));
+        log.info("Seat inventory warmed for journey {} with {} claimed seats", journeyDate, seats.size());
+        return seats;
+    }
+}
@@ -0,0 +1,23 @@
+-- Esquema inicial, equivalente ao que o ddl-auto: update gerava a partir das entidades.
+-- Bancos já criados pelo Hibernate entram nesta versão pelo baseline-on-migrate, sem executar o script
+
+create table reservation (
+    reservation_id  uuid not null,
+    user_id         varchar(255),
+    journey_date    varchar(255),
+    status          varchar(255),
+    seat_number     varchar(255),
+    amount          float(53),
+    idempotency_key varchar(255) unique,
+    primary key (reservation_id)
+);
+
+create index idx_reservation_user_id on reservation (user_id);
+
+-- A chave primária (journey_date, seat_number) impede duas reservas ativas para o mesmo assento
+create table seat_claim (
+    journey_date   varchar(255) not null,
+    seat_number    varchar(255) not null,
+    reservation_id uuid,
+    primary key (journey_date, seat_number)
+);
@@ -0,0 +1,2 @@
+-- Versão do lock otimista (@Version); as linhas existentes começam na versão 0
+alter table reservation add column version bigint not null default 0;
@@ -0,0 +1,42 @@
+package com.carara.reservation.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UuidV7Tests {
+
+    @Test
+    void encodesVersionVariantAndCurrentTime() {
+        long before = System.currentTimeMillis();
+        UUID id = UuidV7.next();
+
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+        assertThat(id.getMostSignificantBits() >>> 16).isGreaterThanOrEqualTo(before);
+    }
+
+    @Test
+    void idsGeneratedInABurstAreStrictlyIncreasing() {
+        List<UUID> ids = IntStream.range(0, 10_000).mapToObj(i -> UuidV7.next()).toList();
+
+        // Ordem do índice uuid do Postgres: comparação sem sinal dos bytes, como a string hexadecimal
+        assertThat(ids.stream().map(UUID::toString).toList()).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void lowerBoundSortsBeforeEveryIdGeneratedFromThatInstant() {
+        Instant before = Instant.ofEpochMilli(System.currentTimeMillis());
+        UUID id = UuidV7.next();
+        Instant after = Instant.ofEpochMilli(System.currentTimeMillis() + 1);
+
+        assertThat(UuidV7.lowerBound(before).toString()).isLessThanOrEqualTo(id.toString());
+        assertThat(UuidV7.lowerBound(after).toString()).isGreaterThan(id.toString());
+        assertThat(UuidV7.lowerBound(before).version()).isEqualTo(7);
+    }
+}
@@ -0,0 +1,77 @@
+package com.carara.reservation.service;
+
+import com.carara.reservation.model.Reservation;
+import com.carara.reservation.model.UuidV7;
+import com.carara.reservation.repository.ReservationRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReservationExporterTests {
+
+    private final ReservationRepository repository = mock(ReservationRepository.class);
+    private final EntityManager entityManager = mock(EntityManager.class);
+    private final ReservationExporter exporter = new ReservationExporter(repository, entityManager,
+            mock(PlatformTransactionManager.class), new ObjectMapper(), 1);
+
+    private static Reservation reservation(String userId, String seatNumber) {
+        Reservation reservation = new Reservation();
+        reservation.setReservationId(UuidV7.next());
+        reservation.setUserId(userId);
+        reservation.setJourneyDate("2025-12-01");
+        reservation.setStatus("CREATED");
+        reservation.setSeatNumber(seatNumber);
+        reservation.setAmount(100.0);
+        return reservation;
+    }
+
+    @Test
+    void streamsTheCreationRangeAsCsvAndDetachesEachRow() {
+        Reservation first = reservation("user-1", "12A");
+        Reservation second = reservation("user \"2\", jr", "12B");
+        Instant from = Instant.parse("2025-12-01T00:00:00Z");
+        Instant to = Instant.parse("2025-12-02T00:00:00Z");
+        when(repository.streamByReservationIdRange(UuidV7.lowerBound(from), UuidV7.lowerBound(to))).thenReturn(Stream.of(first, second));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = exporter.write(from, to, ExportFormat.CSV, out);
+
+        assertThat(rows).isEqualTo(2);
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "reservationId,userId,journeyDate,status,seatNumber,amount\n"
+                        + first.getReservationId() + ",user-1,2025-12-01,CREATED,12A,100.0\n"
+                        + second.getReservationId() + ",\"user \"\"2\"\", jr\",2025-12-01,CREATED,12B,100.0\n");
+        verify(entityManager, times(2)).detach(any(Reservation.class));
+    }
+
+    @Test
+    void writesOneJsonObjectPerLineAndLimitsConcurrentExports() throws Exception {
+        Reservation reservation = reservation("user-1", "12A");
+        when(repository.streamByReservationIdRange(new UUID(0L, 0L), new UUID(-1L, -1L))).thenReturn(Stream.of(reservation));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        var running = exporter.export(null, null, ExportFormat.NDJSON);
+        assertThat(running).isPresent();
+        assertThat(exporter.export(null, null, ExportFormat.NDJSON)).isEmpty();
+        running.get().writeTo(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(1);
+        assertThat(new ObjectMapper().readValue(lines[0], Reservation.class)).isEqualTo(reservation);
+        assertThat(exporter.export(null, null, ExportFormat.NDJSON)).isPresent();
+    }
+}
@@ -0,0 +1,203 @@
+package com.carara.reservation.service;
+
+import com.carara.reservation.exception.SeatUnavailableException;
+import com.carara.reservation.model.Reservation;
+import com.carara.reservation.model.SeatClaim;
+import com.carara.reservation.model.UuidV7;
+import com.carara.reservation.repository.ReservationRepository;
+import com.carara.reservation.repository.SeatClaimRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReservationServiceTests {
+
+    private final ReservationRepository repository = mock(ReservationRepository.class);
+    private final SeatClaimRepository seatClaimRepository = mock(SeatClaimRepository.class);
+    private final SeatInventory seatInventory = new SeatInventory(seatClaimRepository, Duration.ofSeconds(5), 100, Duration.ofHours(1));
+    private final ReservationService service = new ReservationService(repository, seatClaimRepository, seatInventory,
+            mock(PlatformTransactionManager.class), ObservationRegistry.NOOP, new SimpleMeterRegistry(), 100, 100, Duration.ofMinutes(5));
+
+    // Simula o gerador de id e a versão inicial atribuídos pelo Hibernate no persist
+    private static Reservation persisted(Reservation reservation) {
+        if (reservation.getReservationId() == null) {
+            reservation.setReservationId(UuidV7.next());
+            reservation.setVersion(0L);
+        }
+        return reservation;
+    }
+
+    @Test
+    void replayedIdempotencyKeyReturnsStoredReservation() {
+        when(repository.save(any(Reservation.class))).thenAnswer(invocation -> persisted(invocation.getArgument(0)));
+
+        Reservation first = service.createReservation("user-1", "2025-12-01", "12A", 100.0, "saga-1:CREATE_RESERVATION");
+        Reservation replay = service.createReservation("user-1", "2025-12-01", "12A", 100.0, "saga-1:CREATE_RESERVATION");
+
+        assertThat(replay.getReservationId()).isEqualTo(first.getReservationId());
+        verify(repository, times(1)).save(any(Reservation.class));
+    }
+
+    @Test
+    void concurrentReplayResolvesToTheRowThatWonTheUniqueIndex() {
+        Reservation stored = persisted(new Reservation());
+        stored.setIdempotencyKey("saga-1:CREATE_RESERVATION");
+        when(repository.save(any(Reservation.class))).thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(repository.findByIdempotencyKey("saga-1:CREATE_RESERVATION")).thenReturn(Optional.of(stored));
+
+        Reservation result = service.createReservation("user-1", "2025-12-01", "12A", 100.0, "saga-1:CREATE_RESERVATION");
+
+        assertThat(result.getReservationId()).isEqualTo(stored.getReservationId());
+    }
+
+    @Test
+    void rejectsTakenSeatWithoutTouchingTheReservationTable() {
+        when(seatClaimRepository.findSeatNumbersByJourneyDate("2025-12-01")).thenReturn(List.of("12A"));
+
+        assertThatThrownBy(() -> service.createReservation("user-2", "2025-12-01", "12A", 100.0, "saga-2:CREATE_RESERVATION"))
+                .isInstanceOf(SeatUnavailableException.class);
+        verify(repository, never()).save(any(Reservation.class));
+        verify(seatClaimRepository, never()).save(any(SeatClaim.class));
+    }
+
+    @Test
+    void cancelReleasesTheSeat() {
+        when(repository.save(any(Reservation.class))).thenAnswer(invocation -> persisted(invocation.getArgument(0)));
+        Reservation reservation = service.createReservation("user-1", "2025-12-01", "12A", 100.0);
+        when(repository.cancel(reservation.getReservationId())).thenReturn(1);
+
+        Reservation canceled = service.cancelReservation(reservation.getReservationId());
+
+        assertThat(canceled.getStatus()).isEqualTo("CANCELED");
+        assertThat(canceled.getVersion()).isEqualTo(1L);
+        // O cache recebe uma cópia: a instância que outras threads podem estar lendo não muda
+        assertThat(reservation.getStatus()).isEqualTo("CREATED");
+        assertThat(service.findReservation(reservation.getReservationId())).contains(canceled);
+        assertThat(seatInventory.isClaimed("2025-12-01", "12A")).isFalse();
+        verify(seatClaimRepository).release("2025-12-01", "12A", reservation.getReservationId());
+        // A reserva estava no cache: o cancelamento é só o UPDATE condicional, sem SELECT antes
+        verify(repository, never()).findById(reservation.getReservationId());
+    }
+
+    @Test
+    void cancellationThatLostTheRaceDoesNotReleaseTheSeatAgain() {
+        when(repository.save(any(Reservation.class))).thenAnswer(invocation -> persisted(invocation.getArgument(0)));
+        Reservation reservation = service.createReservation("user-1", "2025-12-01", "12A", 100.0);
+        Reservation canceledElsewhere = new Reservation();
+        canceledElsewhere.setReservationId(reservation.getReservationId());
+        canceledElsewhere.setStatus("CANCELED");
+        when(repository.cancel(reservation.getReservationId())).thenReturn(0);
+        when(repository.findById(reservation.getReservationId())).thenReturn(Optional.of(canceledElsewhere));
+
+        Reservation result = service.cancelReservation(reservation.getReservationId());
+
+        assertThat(result.getStatus()).isEqualTo("CANCELED");
+        verify(seatClaimRepository, never()).release(any(), any(), any());
+        assertThat(service.findReservation(reservation.getReservationId())).contains(canceledElsewhere);
+    }
+
+    @Test
+    void readsComeFromTheCacheAndStatusChangesWriteThrough() {
+        when(repository.save(any(Reservation.class))).thenAnswer(invocation -> persisted(invocation.getArgument(0)));
+        Reservation reservation = service.createReservation("user-1", "2025-12-01", "12A", 100.0);
+        when(repository.findById(reservation.getReservationId())).thenReturn(Optional.of(reservation));
+        when(repository.findByUserId("user-1")).thenReturn(List.of(reservation));
+        when(repository.cancel(reservation.getReservationId())).thenReturn(1);
+
+        assertThat(service.findReservation(reservation.getReservationId())).contains(reservation);
+        assertThat(service.findReservationsByUser("user-1")).containsExactly(reservation);
+        assertThat(service.findReservationsByUser("user-1")).containsExactly(reservation);
+        service.cancelReservation(reservation.getReservationId());
+        service.cancelReservation(reservation.getReservationId());
+
+        assertThat(service.findReservation(reservation.getReservationId())).get()
+                .extracting(Reservation::getStatus).isEqualTo("CANCELED");
+        verify(repository, never()).findById(reservation.getReservationId());
+        verify(repository, times(1)).cancel(reservation.getReservationId());
+        verify(repository, times(1)).findByUserId("user-1");
+
+        // Uma reserva nova do usuário invalida a lista em cache
+        service.createReservation("user-1", "2025-12-01", "12B", 100.0);
+        service.findReservationsByUser("user-1");
+        verify(repository, times(2)).findByUserId("user-1");
+    }
+
+    @Test
+    void groupReservationIsAllOrNothing() {
+        when(seatClaimRepository.findSeatNumbersByJourneyDate("2025-12-01")).thenReturn(List.of("1C"));
+
+        assertThatThrownBy(() -> service.createReservations("school-1", "2025-12-01", List.of("1A", "1B", "1C"), 50.0, "saga-3:CREATE_RESERVATION"))
+                .isInstanceOf(SeatUnavailableException.class);
+        assertThat(seatInventory.isClaimed("2025-12-01", "1A")).isFalse();
+        assertThat(seatInventory.isClaimed("2025-12-01", "1B")).isFalse();
+        verify(repository, never()).saveAll(any());
+    }
+
+    @Test
+    void groupCancellationReleasesOnlyTheSeatsItCanceled() {
+        when(repository.save(any(Reservation.class))).thenAnswer(invocation -> persisted(invocation.getArgument(0)));
+        Reservation first = service.createReservation("user-1", "2025-12-01", "1A", 100.0);
+        Reservation second = service.createReservation("user-1", "2025-12-01", "1B", 100.0);
+        List<UUID> reservationIds = List.of(first.getReservationId(), second.getReservationId());
+        // A segunda já foi cancelada por uma compensação concorrente, que liberou o assento; outra reserva o ocupou
+        when(repository.findCreatedForUpdate(reservationIds)).thenReturn(List.of(copy(first)));
+        Reservation firstCanceled = copy(first);
+        firstCanceled.setStatus("CANCELED");
+        Reservation secondCanceled = copy(second);
+        secondCanceled.setStatus("CANCELED");
+        when(repository.findAllById(reservationIds)).thenReturn(List.of(firstCanceled, secondCanceled));
+
+        List<Reservation> result = service.cancelReservations(reservationIds);
+
+        assertThat(result).extracting(Reservation::getStatus).containsExactly("CANCELED", "CANCELED");
+        verify(repository).cancelAll(List.of(first.getReservationId()));
+        verify(seatClaimRepository).releaseAll(List.of(first.getReservationId()));
+        assertThat(seatInventory.isClaimed("2025-12-01", "1A")).isFalse();
+        assertThat(seatInventory.isClaimed("2025-12-01", "1B")).isTrue();
+    }
+
+    @Test
+    void repeatedGroupCancellationIsAnsweredFromTheCache() {
+        when(repository.save(any(Reservation.class))).thenAnswer(invocation -> persisted(invocation.getArgument(0)));
+        Reservation first = service.createReservation("user-1", "2025-12-01", "1A", 100.0);
+        Reservation second = service.createReservation("user-1", "2025-12-01", "1B", 100.0);
+        List<UUID> reservationIds = List.of(first.getReservationId(), second.getReservationId());
+        when(repository.findCreatedForUpdate(reservationIds)).thenReturn(List.of(copy(first), copy(second)));
+
+        assertThat(service.cancelReservations(reservationIds)).extracting(Reservation::getStatus).containsOnly("CANCELED");
+        assertThat(service.cancelReservations(reservationIds)).extracting(Reservation::getStatus).containsOnly("CANCELED");
+
+        verify(repository, times(1)).findCreatedForUpdate(reservationIds);
+        verify(repository, never()).findAllById(any());
+    }
+
+    // O que o SELECT do banco devolveria: uma instância nova, não a do cache
+    private static Reservation copy(Reservation reservation) {
+        Reservation copy = new Reservation();
+        copy.setReservationId(reservation.getReservationId());
+        copy.setUserId(reservation.getUserId());
+        copy.setJourneyDate(reservation.getJourneyDate());
+        copy.setSeatNumber(reservation.getSeatNumber());
+        copy.setAmount(reservation.getAmount());
+        copy.setStatus(reservation.getStatus());
+        copy.setIdempotencyKey(reservation.getIdempotencyKey());
+        copy.setVersion(reservation.getVersion());
+        return copy;
+    }
+}
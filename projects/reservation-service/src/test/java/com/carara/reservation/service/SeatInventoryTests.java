@@ -0,0 +1,83 @@
+package com.carara.reservation.service;
+
+import com.carara.reservation.model.SeatClaim;
+import com.carara.reservation.repository.SeatClaimRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SeatInventoryTests {
+
+    private final SeatClaimRepository repository = mock(SeatClaimRepository.class);
+    private final SeatInventory inventory = new SeatInventory(repository, Duration.ofSeconds(5), 100, Duration.ofHours(1));
+
+    @Test
+    void onlyOneConcurrentClaimWinsTheSeat() {
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<CompletableFuture<Boolean>> claims = IntStream.range(0, 200)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> inventory.claim("2025-12-24", "1A"), executor))
+                .toList();
+
+        long winners = claims.stream().map(CompletableFuture::join).filter(Boolean::booleanValue).count();
+        executor.shutdown();
+
+        assertThat(winners).isEqualTo(1);
+        verify(repository, times(1)).findSeatNumbersByJourneyDate("2025-12-24");
+    }
+
+    @Test
+    void warmsEachJourneyDateFromTheDatabaseOnce() {
+        when(repository.findSeatNumbersByJourneyDate("2025-12-24")).thenReturn(List.of("1A", "1B"));
+
+        assertThat(inventory.claim("2025-12-24", "1A")).isFalse();
+        assertThat(inventory.claim("2025-12-24", "1C")).isTrue();
+        inventory.release("2025-12-24", "1A");
+        assertThat(inventory.claim("2025-12-24", "1A")).isTrue();
+        verify(repository, times(1)).findSeatNumbersByJourneyDate("2025-12-24");
+    }
+
+    @Test
+    void recentConflictIsRejectedWithoutConfirmingInTheDatabase() {
+        when(repository.findSeatNumbersByJourneyDate("2025-12-24")).thenReturn(List.of("1A"));
+
+        assertThat(inventory.claim("2025-12-24", "1A")).isFalse();
+        verify(repository, never()).existsById(any());
+    }
+
+    @Test
+    void seatReleasedByAnotherInstanceIsClaimedAfterConfirmingInTheDatabase() {
+        SeatInventory confirming = new SeatInventory(repository, Duration.ZERO, 100, Duration.ofHours(1));
+        when(repository.findSeatNumbersByJourneyDate("2025-12-24")).thenReturn(List.of("1A", "1B"));
+        when(repository.existsById(new SeatClaim.SeatKey("2025-12-24", "1A"))).thenReturn(false);
+        when(repository.existsById(new SeatClaim.SeatKey("2025-12-24", "1B"))).thenReturn(true);
+
+        assertThat(confirming.claim("2025-12-24", "1A")).isTrue();
+        assertThat(confirming.claim("2025-12-24", "1B")).isFalse();
+        assertThat(confirming.isClaimed("2025-12-24", "1A")).isTrue();
+    }
+
+    @Test
+    void journeyDateLeftIdleIsDroppedAndReloadedFromTheDatabase() {
+        SeatInventory expiring = new SeatInventory(repository, Duration.ofSeconds(5), 100, Duration.ZERO);
+        when(repository.findSeatNumbersByJourneyDate("2025-12-24")).thenReturn(List.of("1A"));
+
+        assertThat(expiring.isClaimed("2025-12-24", "1A")).isTrue();
+        assertThat(expiring.isClaimed("2025-12-24", "1A")).isTrue();
+
+        // Sem o mapa da data em memória, o estado volta do seat_claim a cada acesso
+        verify(repository, times(2)).findSeatNumbersByJourneyDate("2025-12-24");
+    }
+}
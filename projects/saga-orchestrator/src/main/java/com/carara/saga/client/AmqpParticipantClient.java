@@ -0,0 +1,201 @@
+package com.carara.saga.client;
+
+import com.carara.saga.exception.SagaCommandFailedException;
+import com.carara.saga.messaging.SagaCommand;
+import com.carara.saga.messaging.SagaReply;
+import com.carara.saga.model.NotificationDto;
+import com.carara.saga.model.PaymentDto;
+import com.carara.saga.model.ReservationDto;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.carara.saga.service.StepLogSampler.STEP;
+
+// Envia os comandos da saga pelas filas de cada participante e correlaciona as respostas pelo sagaId.
+// Nenhuma thread fica presa esperando: cada comando é um future completado pelo listener de respostas,
+// o que permite que muitas sagas compartilhem poucos canais do RabbitMQ
+@Slf4j
+public class AmqpParticipantClient implements ParticipantClient {
+    private final RabbitTemplate rabbitTemplate;
+    private final ObjectMapper objectMapper;
+    private final MessagingQueues queues;
+    private final Duration replyTimeout;
+    private final Map<String, CompletableFuture<SagaReply>> pendingReplies = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public AmqpParticipantClient(RabbitTemplate rabbitTemplate, ObjectMapper objectMapper,
+                                 MessagingQueues queues, Duration replyTimeout) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.objectMapper = objectMapper;
+        this.queues = queues;
+        this.replyTimeout = replyTimeout;
+    }
+
+    @Override
+    public CompletableFuture<ReservationDto> createReservation(String sagaId, String userId, String journeyDate,
+                                                               String seatNumber, Double amount) {
+        Map<String, Object> arguments = new LinkedHashMap<>();
+        arguments.put("userId", userId);
+        arguments.put("journeyDate", journeyDate);
+        arguments.put("seatNumber", seatNumber);
+        arguments.put("amount", amount);
+        return send(queues.reservationCommands(), queues.reservationReplies(), sagaId, "CREATE_RESERVATION",
+                ParticipantClient.idempotencyKey(sagaId, "CREATE_RESERVATION"), arguments, ReservationDto.class);
+    }
+
+    @Override
+    public CompletableFuture<ReservationDto> cancelReservation(String sagaId, UUID reservationId) {
+        return send(queues.reservationCommands(), queues.reservationReplies(), sagaId, "CANCEL_RESERVATION", null,
+                Map.of("reservationId", reservationId), ReservationDto.class);
+    }
+
+    @Override
+    public CompletableFuture<PaymentDto> processPayment(String sagaId, UUID reservationId, Double amount) {
+        return send(queues.paymentCommands(), queues.paymentReplies(), sagaId, "PROCESS_PAYMENT",
+                ParticipantClient.idempotencyKey(sagaId, "PROCESS_PAYMENT"),
+                Map.of("reservationId", reservationId, "amount", amount), PaymentDto.class);
+    }
+
+    @Override
+    public CompletableFuture<PaymentDto> refundPayment(String sagaId, UUID paymentId) {
+        return send(queues.paymentCommands(), queues.paymentReplies(), sagaId, "REFUND_PAYMENT", null,
+                Map.of("paymentId", paymentId), PaymentDto.class);
+    }
+
+    @Override
+    public CompletableFuture<NotificationDto> sendConfirmation(String sagaId, UUID reservationId) {
+        return send(queues.notificationCommands(), queues.notificationReplies(), sagaId, "SEND_CONFIRMATION",
+                ParticipantClient.idempotencyKey(sagaId, "SEND_NOTIFICATION"),
+                Map.of("reservationId", reservationId), NotificationDto.class);
+    }
+
+    @Override
+    public CompletableFuture<List<ReservationDto>> createReservations(String sagaId, String userId, String journeyDate,
+                                                                      List<String> seatNumbers, Double amount) {
+        Map<String, Object> arguments = new LinkedHashMap<>();
+        arguments.put("userId", userId);
+        arguments.put("journeyDate", journeyDate);
+        arguments.put("seatNumbers", seatNumbers);
+        arguments.put("amount", amount);
+        return send(queues.reservationCommands(), queues.reservationReplies(), sagaId, "CREATE_RESERVATIONS",
+                ParticipantClient.idempotencyKey(sagaId, "CREATE_RESERVATION"), arguments, listOf(ReservationDto.class));
+    }
+
+    @Override
+    public CompletableFuture<List<ReservationDto>> cancelReservations(String sagaId, List<UUID> reservationIds) {
+        return send(queues.reservationCommands(), queues.reservationReplies(), sagaId, "CANCEL_RESERVATIONS", null,
+                Map.of("reservationIds", reservationIds), listOf(ReservationDto.class));
+    }
+
+    @Override
+    public CompletableFuture<List<PaymentDto>> processPayments(String sagaId, List<UUID> reservationIds, Double amount) {
+        return send(queues.paymentCommands(), queues.paymentReplies(), sagaId, "PROCESS_PAYMENTS",
+                ParticipantClient.idempotencyKey(sagaId, "PROCESS_PAYMENT"),
+                Map.of("reservationIds", reservationIds, "amount", amount), listOf(PaymentDto.class));
+    }
+
+    @Override
+    public CompletableFuture<List<PaymentDto>> refundPayments(String sagaId, List<UUID> paymentIds) {
+        return send(queues.paymentCommands(), queues.paymentReplies(), sagaId, "REFUND_PAYMENTS", null,
+                Map.of("paymentIds", paymentIds), listOf(PaymentDto.class));
+    }
+
+    @Override
+    public CompletableFuture<List<NotificationDto>> sendConfirmations(String sagaId, List<UUID> reservationIds) {
+        return send(queues.notificationCommands(), queues.notificationReplies(), sagaId, "SEND_CONFIRMATIONS",
+                ParticipantClient.idempotencyKey(sagaId, "SEND_NOTIFICATION"),
+                Map.of("reservationIds", reservationIds), listOf(NotificationDto.class));
+    }
+
+    @RabbitListener(queues = {
+            "#{messagingQueues.reservationReplies()}",
+            "#{messagingQueues.paymentReplies()}",
+            "#{messagingQueues.notificationReplies()}"})
+    public void onReply(SagaReply reply, @Header(AmqpHeaders.CORRELATION_ID) String correlationId) {
+        CompletableFuture<SagaReply> pending = pendingReplies.remove(correlationId);
+        if (pending == null) {
+            // Resposta de um comando que já expirou ou de outra instância que reiniciou
+            log.warn("Discarding reply {} for saga {} with no pending command", correlationId, reply.getSagaId());
+            return;
+        }
+        pending.complete(reply);
+    }
+
+    int pendingReplyCount() {
+        return pendingReplies.size();
+    }
+
+    private <T> CompletableFuture<T> send(String commandQueue, String replyQueue, String sagaId, String commandType,
+                                          String idempotencyKey, Map<String, Object> arguments, Class<T> resultType) {
+        return send(commandQueue, replyQueue, sagaId, commandType, idempotencyKey, arguments,
+                objectMapper.getTypeFactory().constructType(resultType));
+    }
+
+    private <T> CompletableFuture<T> send(String commandQueue, String replyQueue, String sagaId, String commandType,
+                                          String idempotencyKey, Map<String, Object> arguments, JavaType resultType) {
+        String correlationId = sagaId + ":" + commandType + ":" + sequence.incrementAndGet();
+        CompletableFuture<SagaReply> reply = new CompletableFuture<>();
+        pendingReplies.put(correlationId, reply);
+        reply.orTimeout(replyTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((r, e) -> pendingReplies.remove(correlationId));
+
+        CorrelationData correlationData = new CorrelationData(correlationId);
+        log.info(STEP, "Sending {} command for saga {} to {}", commandType, sagaId, commandQueue);
+        try {
+            SagaCommand command = new SagaCommand(sagaId, commandType, idempotencyKey, arguments);
+            rabbitTemplate.convertAndSend("", commandQueue, command,
+                    message -> withReplyTo(message, replyQueue, correlationId), correlationData);
+        } catch (Exception e) {
+            reply.completeExceptionally(e);
+        }
+
+        // Publisher confirm: um nack do broker falha o comando sem esperar pelo timeout da resposta
+        correlationData.getFuture().whenComplete((confirm, e) -> {
+            if (e != null) {
+                reply.completeExceptionally(e);
+            } else if (!confirm.isAck()) {
+                reply.completeExceptionally(new IllegalStateException(
+                        "Broker rejected " + commandType + " command for saga " + sagaId + ": " + confirm.getReason()));
+            }
+        });
+
+        return reply.thenApply(r -> {
+            if (!r.isSuccess()) {
+                throw new SagaCommandFailedException(r.getErrorCode(), r.getErrorMessage());
+            }
+            return r.getResult() == null || r.getResult().isNull() ? null : objectMapper.<T>convertValue(r.getResult(), resultType);
+        });
+    }
+
+    private JavaType listOf(Class<?> elementType) {
+        return objectMapper.getTypeFactory().constructCollectionType(List.class, elementType);
+    }
+
+    private Message withReplyTo(Message message, String replyQueue, String correlationId) {
+        message.getMessageProperties().setReplyTo(replyQueue);
+        message.getMessageProperties().setCorrelationId(correlationId);
+        return message;
+    }
+
+    public record MessagingQueues(String reservationCommands, String reservationReplies,
+                                  String paymentCommands, String paymentReplies,
+                                  String notificationCommands, String notificationReplies) {
+    }
+}
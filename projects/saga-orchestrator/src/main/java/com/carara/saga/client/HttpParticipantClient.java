@@ -0,0 +1,173 @@
+package com.carara.saga.client;
+
+import com.carara.saga.model.NotificationDto;
+import com.carara.saga.model.PaymentDto;
+import com.carara.saga.model.ReservationDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static com.carara.saga.service.StepLogSampler.STEP;
+
+// Chamadas não-bloqueantes aos serviços participantes da saga, cada um com seu próprio pool de conexões.
+// Os templates de URI são montados e codificados uma vez na construção; por chamada só as variáveis são expandidas
+@Slf4j
+public class HttpParticipantClient implements ParticipantClient {
+    public static final String SAGA_ID_HEADER = "X-Saga-Id";
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private static final ParameterizedTypeReference<List<ReservationDto>> RESERVATION_LIST = new ParameterizedTypeReference<>() {
+    };
+    private static final ParameterizedTypeReference<List<PaymentDto>> PAYMENT_LIST = new ParameterizedTypeReference<>() {
+    };
+    private static final ParameterizedTypeReference<List<NotificationDto>> NOTIFICATION_LIST = new ParameterizedTypeReference<>() {
+    };
+
+    private final WebClient reservationClient;
+    private final WebClient paymentClient;
+    private final WebClient notificationClient;
+    private final UriComponents createReservationUri;
+    private final UriComponents cancelReservationUri;
+    private final UriComponents processPaymentUri;
+    private final UriComponents refundPaymentUri;
+    private final UriComponents sendConfirmationUri;
+    private final URI createReservationsUri;
+    private final URI cancelReservationsUri;
+    private final URI processPaymentsUri;
+    private final URI refundPaymentsUri;
+    private final URI sendConfirmationsUri;
+
+    public HttpParticipantClient(WebClient reservationClient, WebClient paymentClient, WebClient notificationClient,
+                                 String reservationUrl, String paymentUrl, String notificationUrl) {
+        this.reservationClient = reservationClient;
+        this.paymentClient = paymentClient;
+        this.notificationClient = notificationClient;
+        this.createReservationUri = template(reservationUrl, "?userId={userId}&journeyDate={journeyDate}&seatNumber={seatNumber}&amount={amount}");
+        this.cancelReservationUri = template(reservationUrl, "/{reservationId}/cancel");
+        this.processPaymentUri = template(paymentUrl, "?reservationId={reservationId}&amount={amount}");
+        this.refundPaymentUri = template(paymentUrl, "/{paymentId}/refund");
+        this.sendConfirmationUri = template(notificationUrl, "/confirm?reservationId={reservationId}");
+        this.createReservationsUri = template(reservationUrl, "/batch").toUri();
+        this.cancelReservationsUri = template(reservationUrl, "/batch/cancel").toUri();
+        this.processPaymentsUri = template(paymentUrl, "/batch").toUri();
+        this.refundPaymentsUri = template(paymentUrl, "/batch/refund").toUri();
+        this.sendConfirmationsUri = template(notificationUrl, "/confirm/batch").toUri();
+    }
+
+    // encode() codifica o template agora e, no expand, codifica as variáveis por inteiro (inclusive '&', '=' e '+')
+    private static UriComponents template(String baseUrl, String path) {
+        return UriComponentsBuilder.fromUriString(baseUrl + path).encode().build();
+    }
+
+    @Override
+    public CompletableFuture<ReservationDto> createReservation(String sagaId, String userId, String journeyDate,
+                                                               String seatNumber, Double amount) {
+        log.info(STEP, "Calling reservation service for user {} - Journey: {}, Seat: {}", userId, journeyDate, seatNumber);
+        return post(reservationClient, sagaId, ParticipantClient.idempotencyKey(sagaId, "CREATE_RESERVATION"), ReservationDto.class,
+                createReservationUri.expand(userId, journeyDate, seatNumber, amount).toUri());
+    }
+
+    @Override
+    public CompletableFuture<ReservationDto> cancelReservation(String sagaId, UUID reservationId) {
+        log.info(STEP, "Calling reservation cancellation for reservation {}", reservationId);
+        return post(reservationClient, sagaId, null, ReservationDto.class, cancelReservationUri.expand(reservationId).toUri());
+    }
+
+    @Override
+    public CompletableFuture<PaymentDto> processPayment(String sagaId, UUID reservationId, Double amount) {
+        log.info(STEP, "Calling payment service for reservation {} - Amount: {}", reservationId, amount);
+        return post(paymentClient, sagaId, ParticipantClient.idempotencyKey(sagaId, "PROCESS_PAYMENT"), PaymentDto.class,
+                processPaymentUri.expand(reservationId, amount).toUri());
+    }
+
+    @Override
+    public CompletableFuture<PaymentDto> refundPayment(String sagaId, UUID paymentId) {
+        log.info(STEP, "Calling payment refund for payment {}", paymentId);
+        return post(paymentClient, sagaId, null, PaymentDto.class, refundPaymentUri.expand(paymentId).toUri());
+    }
+
+    @Override
+    public CompletableFuture<NotificationDto> sendConfirmation(String sagaId, UUID reservationId) {
+        log.info(STEP, "Calling notification service for reservation {}", reservationId);
+        return post(notificationClient, sagaId, ParticipantClient.idempotencyKey(sagaId, "SEND_NOTIFICATION"), NotificationDto.class,
+                sendConfirmationUri.expand(reservationId).toUri());
+    }
+
+    @Override
+    public CompletableFuture<List<ReservationDto>> createReservations(String sagaId, String userId, String journeyDate,
+                                                                      List<String> seatNumbers, Double amount) {
+        log.info(STEP, "Calling reservation service for user {} - Journey: {}, {} seats", userId, journeyDate, seatNumbers.size());
+        Map<String, Object> body = Map.of("userId", userId, "journeyDate", journeyDate,
+                "seatNumbers", seatNumbers, "amount", amount);
+        return postBatch(reservationClient, sagaId, ParticipantClient.idempotencyKey(sagaId, "CREATE_RESERVATION"),
+                createReservationsUri, body, RESERVATION_LIST);
+    }
+
+    @Override
+    public CompletableFuture<List<ReservationDto>> cancelReservations(String sagaId, List<UUID> reservationIds) {
+        log.info(STEP, "Calling reservation cancellation for {} reservations", reservationIds.size());
+        return postBatch(reservationClient, sagaId, null, cancelReservationsUri, reservationIds, RESERVATION_LIST);
+    }
+
+    @Override
+    public CompletableFuture<List<PaymentDto>> processPayments(String sagaId, List<UUID> reservationIds, Double amount) {
+        log.info(STEP, "Calling payment service for {} reservations - Amount per seat: {}", reservationIds.size(), amount);
+        List<Map<String, Object>> body = reservationIds.stream()
+                .map(reservationId -> Map.<String, Object>of("reservationId", reservationId, "amount", amount))
+                .toList();
+        return postBatch(paymentClient, sagaId, ParticipantClient.idempotencyKey(sagaId, "PROCESS_PAYMENT"),
+                processPaymentsUri, body, PAYMENT_LIST);
+    }
+
+    @Override
+    public CompletableFuture<List<PaymentDto>> refundPayments(String sagaId, List<UUID> paymentIds) {
+        log.info(STEP, "Calling payment refund for {} payments", paymentIds.size());
+        return postBatch(paymentClient, sagaId, null, refundPaymentsUri, paymentIds, PAYMENT_LIST);
+    }
+
+    @Override
+    public CompletableFuture<List<NotificationDto>> sendConfirmations(String sagaId, List<UUID> reservationIds) {
+        log.info(STEP, "Calling notification service for {} reservations", reservationIds.size());
+        return postBatch(notificationClient, sagaId, ParticipantClient.idempotencyKey(sagaId, "SEND_NOTIFICATION"),
+                sendConfirmationsUri, reservationIds, NOTIFICATION_LIST);
+    }
+
+    private <T> CompletableFuture<T> post(WebClient client, String sagaId, String idempotencyKey, Class<T> responseType,
+                                          URI uri) {
+        return client.post()
+                .uri(uri)
+                .headers(headers -> {
+                    headers.set(SAGA_ID_HEADER, sagaId);
+                    if (idempotencyKey != null) {
+                        headers.set(IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+                    }
+                })
+                .retrieve()
+                .bodyToMono(responseType)
+                .toFuture();
+    }
+
+    private <T> CompletableFuture<T> postBatch(WebClient client, String sagaId, String idempotencyKey, URI uri,
+                                               Object body, ParameterizedTypeReference<T> responseType) {
+        return client.post()
+                .uri(uri)
+                .headers(headers -> {
+                    headers.set(SAGA_ID_HEADER, sagaId);
+                    if (idempotencyKey != null) {
+                        headers.set(IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+                    }
+                })
+                .bodyValue(body)
+                .retrieve()
+                .bodyToMono(responseType)
+                .toFuture();
+    }
+}
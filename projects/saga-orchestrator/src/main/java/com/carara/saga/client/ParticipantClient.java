@@ -0,0 +1,42 @@
+package com.carara.saga.client;
+
+import com.carara.saga.model.NotificationDto;
+import com.carara.saga.model.PaymentDto;
+import com.carara.saga.model.ReservationDto;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+// Transporte usado pelo orquestrador para falar com os participantes da saga (HTTP ou mensageria)
+public interface ParticipantClient {
+
+    // Chave de idempotência por saga e step: a repetição de um step retorna o resultado já gravado pelo participante
+    static String idempotencyKey(String sagaId, String step) {
+        return sagaId + ":" + step;
+    }
+
+    CompletableFuture<ReservationDto> createReservation(String sagaId, String userId, String journeyDate,
+                                                        String seatNumber, Double amount);
+
+    CompletableFuture<ReservationDto> cancelReservation(String sagaId, UUID reservationId);
+
+    CompletableFuture<PaymentDto> processPayment(String sagaId, UUID reservationId, Double amount);
+
+    CompletableFuture<PaymentDto> refundPayment(String sagaId, UUID paymentId);
+
+    CompletableFuture<NotificationDto> sendConfirmation(String sagaId, UUID reservationId);
+
+    // Reserva em grupo: uma única chamada por participante para todos os assentos da saga
+
+    CompletableFuture<List<ReservationDto>> createReservations(String sagaId, String userId, String journeyDate,
+                                                               List<String> seatNumbers, Double amount);
+
+    CompletableFuture<List<ReservationDto>> cancelReservations(String sagaId, List<UUID> reservationIds);
+
+    CompletableFuture<List<PaymentDto>> processPayments(String sagaId, List<UUID> reservationIds, Double amount);
+
+    CompletableFuture<List<PaymentDto>> refundPayments(String sagaId, List<UUID> paymentIds);
+
+    CompletableFuture<List<NotificationDto>> sendConfirmations(String sagaId, List<UUID> reservationIds);
+}
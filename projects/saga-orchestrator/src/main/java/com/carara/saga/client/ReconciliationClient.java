@@ -0,0 +1,71 @@
+package com.carara.saga.client;
+
+import com.carara.saga.model.KeysetPageDto;
+import com.carara.saga.model.PaymentDto;
+import com.carara.saga.model.ReservationDto;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+// Consultas da reconciliação aos participantes: páginas por keyset das tabelas de reservas e pagamentos e buscas
+// em lote para cruzar o estado de um lado com o do outro. Sempre por HTTP, com pools separados dos da saga
+public class ReconciliationClient {
+    private static final ParameterizedTypeReference<KeysetPageDto<ReservationDto>> RESERVATION_PAGE = new ParameterizedTypeReference<>() {
+    };
+    private static final ParameterizedTypeReference<KeysetPageDto<PaymentDto>> PAYMENT_PAGE = new ParameterizedTypeReference<>() {
+    };
+    private static final ParameterizedTypeReference<List<ReservationDto>> RESERVATION_LIST = new ParameterizedTypeReference<>() {
+    };
+    private static final ParameterizedTypeReference<List<PaymentDto>> PAYMENT_LIST = new ParameterizedTypeReference<>() {
+    };
+
+    private final WebClient reservationClient;
+    private final WebClient paymentClient;
+
+    public ReconciliationClient(WebClient reservationClient, WebClient paymentClient) {
+        this.reservationClient = reservationClient;
+        this.paymentClient = paymentClient;
+    }
+
+    public CompletableFuture<KeysetPageDto<ReservationDto>> reservationsPage(UUID after, UUID before, int limit) {
+        return page(reservationClient, after, before, limit, RESERVATION_PAGE);
+    }
+
+    public CompletableFuture<KeysetPageDto<PaymentDto>> paymentsPage(UUID after, UUID before, int limit) {
+        return page(paymentClient, after, before, limit, PAYMENT_PAGE);
+    }
+
+    public CompletableFuture<List<ReservationDto>> findReservations(List<UUID> reservationIds) {
+        return lookup(reservationClient, "/batch/lookup", reservationIds, RESERVATION_LIST);
+    }
+
+    public CompletableFuture<List<PaymentDto>> findPaymentsByReservations(List<UUID> reservationIds) {
+        return lookup(paymentClient, "/batch/by-reservation", reservationIds, PAYMENT_LIST);
+    }
+
+    private <T> CompletableFuture<T> page(WebClient client, UUID after, UUID before, int limit,
+                                          ParameterizedTypeReference<T> responseType) {
+        return client.get()
+                .uri(uriBuilder -> uriBuilder.path("/page")
+                        .queryParamIfPresent("after", Optional.ofNullable(after))
+                        .queryParamIfPresent("before", Optional.ofNullable(before))
+                        .queryParam("limit", limit)
+                        .build())
+                .retrieve()
+                .bodyToMono(responseType)
+                .toFuture();
+    }
+
+    private <T> CompletableFuture<T> lookup(WebClient client, String uri, List<UUID> ids, ParameterizedTypeReference<T> responseType) {
+        return client.post()
+                .uri(uri)
+                .bodyValue(ids)
+                .retrieve()
+                .bodyToMono(responseType)
+                .toFuture();
+    }
+}
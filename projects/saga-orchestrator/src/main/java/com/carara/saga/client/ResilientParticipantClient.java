@@ -0,0 +1,125 @@
+package com.carara.saga.client;
+
+import com.carara.saga.exception.ParticipantUnavailableException;
+import com.carara.saga.model.NotificationDto;
+import com.carara.saga.model.PaymentDto;
+import com.carara.saga.model.ReservationDto;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+// Isola cada participante atrás de um bulkhead (limite de chamadas simultâneas) e de um circuit breaker:
+// um participante lento ou fora do ar passa a recusar as chamadas na hora, e a saga falha rápido para a
+// compensação em vez de prender conexões e threads esperando o timeout. As compensações passam pelo mesmo
+// circuito; se forem recusadas, a saga fica em andamento no log e a recuperação tenta de novo depois
+public class ResilientParticipantClient implements ParticipantClient {
+    public static final String RESERVATION = "reservation";
+    public static final String PAYMENT = "payment";
+    public static final String NOTIFICATION = "notification";
+
+    private final ParticipantClient delegate;
+    private final Guard reservation;
+    private final Guard payment;
+    private final Guard notification;
+
+    public ResilientParticipantClient(ParticipantClient delegate, CircuitBreakerRegistry circuitBreakers,
+                                      BulkheadRegistry bulkheads) {
+        this.delegate = delegate;
+        this.reservation = new Guard(RESERVATION, circuitBreakers, bulkheads);
+        this.payment = new Guard(PAYMENT, circuitBreakers, bulkheads);
+        this.notification = new Guard(NOTIFICATION, circuitBreakers, bulkheads);
+    }
+
+    @Override
+    public CompletableFuture<ReservationDto> createReservation(String sagaId, String userId, String journeyDate,
+                                                               String seatNumber, Double amount) {
+        return reservation.call(() -> delegate.createReservation(sagaId, userId, journeyDate, seatNumber, amount));
+    }
+
+    @Override
+    public CompletableFuture<ReservationDto> cancelReservation(String sagaId, UUID reservationId) {
+        return reservation.call(() -> delegate.cancelReservation(sagaId, reservationId));
+    }
+
+    @Override
+    public CompletableFuture<PaymentDto> processPayment(String sagaId, UUID reservationId, Double amount) {
+        return payment.call(() -> delegate.processPayment(sagaId, reservationId, amount));
+    }
+
+    @Override
+    public CompletableFuture<PaymentDto> refundPayment(String sagaId, UUID paymentId) {
+        return payment.call(() -> delegate.refundPayment(sagaId, paymentId));
+    }
+
+    @Override
+    public CompletableFuture<NotificationDto> sendConfirmation(String sagaId, UUID reservationId) {
+        return notification.call(() -> delegate.sendConfirmation(sagaId, reservationId));
+    }
+
+    @Override
+    public CompletableFuture<List<ReservationDto>> createReservations(String sagaId, String userId, String journeyDate,
+                                                                      List<String> seatNumbers, Double amount) {
+        return reservation.call(() -> delegate.createReservations(sagaId, userId, journeyDate, seatNumbers, amount));
+    }
+
+    @Override
+    public CompletableFuture<List<ReservationDto>> cancelReservations(String sagaId, List<UUID> reservationIds) {
+        return reservation.call(() -> delegate.cancelReservations(sagaId, reservationIds));
+    }
+
+    @Override
+    public CompletableFuture<List<PaymentDto>> processPayments(String sagaId, List<UUID> reservationIds, Double amount) {
+        return payment.call(() -> delegate.processPayments(sagaId, reservationIds, amount));
+    }
+
+    @Override
+    public CompletableFuture<List<PaymentDto>> refundPayments(String sagaId, List<UUID> paymentIds) {
+        return payment.call(() -> delegate.refundPayments(sagaId, paymentIds));
+    }
+
+    @Override
+    public CompletableFuture<List<NotificationDto>> sendConfirmations(String sagaId, List<UUID> reservationIds) {
+        return notification.call(() -> delegate.sendConfirmations(sagaId, reservationIds));
+    }
+
+    private static final class Guard {
+        private final String participant;
+        private final CircuitBreaker circuitBreaker;
+        private final Bulkhead bulkhead;
+
+        Guard(String participant, CircuitBreakerRegistry circuitBreakers, BulkheadRegistry bulkheads) {
+            this.participant = participant;
+            this.circuitBreaker = circuitBreakers.circuitBreaker(participant);
+            this.bulkhead = bulkheads.bulkhead(participant);
+        }
+
+        // O bulkhead fica por fora: chamadas recusadas por excesso de concorrência não contam como falha do circuito
+        <T> CompletableFuture<T> call(Supplier<CompletableFuture<T>> action) {
+            return bulkhead.executeCompletionStage(() -> circuitBreaker.executeCompletionStage(action::get))
+                    .toCompletableFuture()
+                    .handle((result, error) -> {
+                        if (error == null) {
+                            return result;
+                        }
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                        if (cause instanceof CallNotPermittedException) {
+                            throw new ParticipantUnavailableException(participant, "circuit breaker is open", cause);
+                        }
+                        if (cause instanceof BulkheadFullException) {
+                            throw new ParticipantUnavailableException(participant, "bulkhead is full ("
+                                    + bulkhead.getBulkheadConfig().getMaxConcurrentCalls() + " concurrent calls)", cause);
+                        }
+                        throw error instanceof CompletionException completion ? completion : new CompletionException(cause);
+                    });
+        }
+    }
+}
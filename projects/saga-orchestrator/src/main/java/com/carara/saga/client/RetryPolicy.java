@@ -0,0 +1,35 @@
+package com.carara.saga.client;
+
+import java.time.Duration;
+
+// Política de retry de um passo da saga: backoff exponencial limitado a maxBackoff, com jitter sorteando o atraso
+// entre (1 - jitter) e 100% do valor calculado (jitter = 1 é o "full jitter"). hedgeAfter > 0 dispara uma segunda
+// requisição igual quando a primeira passa desse tempo sem resposta
+public record RetryPolicy(int maxAttempts, Duration initialBackoff, double multiplier, Duration maxBackoff,
+                          double jitter, Duration hedgeAfter) {
+
+    public static final RetryPolicy NONE = new RetryPolicy(1, Duration.ZERO, 1.0, Duration.ZERO, 0.0, null);
+
+    public RetryPolicy {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        if (multiplier < 1.0) {
+            throw new IllegalArgumentException("multiplier must be at least 1.0");
+        }
+        if (jitter < 0.0 || jitter > 1.0) {
+            throw new IllegalArgumentException("jitter must be between 0 and 1");
+        }
+    }
+
+    // Atraso antes da tentativa attempt + 1; random em [0, 1)
+    public Duration backoff(int attempt, double random) {
+        double exponential = initialBackoff.toMillis() * Math.pow(multiplier, attempt - 1);
+        double capped = Math.min(exponential, maxBackoff.toMillis());
+        return Duration.ofMillis(Math.round(capped * (1.0 - jitter * random)));
+    }
+
+    public boolean hedges() {
+        return hedgeAfter != null && !hedgeAfter.isZero() && !hedgeAfter.isNegative();
+    }
+}
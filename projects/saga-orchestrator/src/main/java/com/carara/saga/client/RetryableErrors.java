@@ -0,0 +1,56 @@
+package com.carara.saga.client;
+
+import com.carara.saga.exception.ParticipantUnavailableException;
+import com.carara.saga.exception.SagaCommandFailedException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+
+// Classifica as falhas dos participantes pelo código do ErrorResponse (HTTP) ou do SagaReply (AMQP):
+// só os códigos configurados, erros de conexão e timeouts valem nova tentativa. Regra de negócio
+// (assento ocupado, argumento inválido) e participante recusado pelo circuit breaker falham na hora
+public class RetryableErrors {
+    private final Set<String> retryableCodes;
+    private final ObjectMapper objectMapper;
+
+    public RetryableErrors(Set<String> retryableCodes, ObjectMapper objectMapper) {
+        this.retryableCodes = Set.copyOf(retryableCodes);
+        this.objectMapper = objectMapper;
+    }
+
+    public boolean isRetryable(Throwable error) {
+        if (error instanceof ParticipantUnavailableException) {
+            return false;
+        }
+        if (error instanceof SagaCommandFailedException failed) {
+            return retryableCodes.contains(failed.getErrorCode());
+        }
+        if (error instanceof WebClientResponseException response) {
+            String code = errorCode(response);
+            if (code != null) {
+                return retryableCodes.contains(code);
+            }
+            // Sem ErrorResponse no corpo a resposta veio de um proxy/gateway, não do participante
+            int status = response.getStatusCode().value();
+            return status == 502 || status == 503 || status == 504;
+        }
+        return error instanceof WebClientRequestException
+                || error instanceof TimeoutException
+                || error instanceof IOException;
+    }
+
+    public String errorCode(WebClientResponseException response) {
+        try {
+            JsonNode body = objectMapper.readTree(response.getResponseBodyAsByteArray());
+            JsonNode code = body == null ? null : body.get("code");
+            return code == null || !code.isTextual() ? null : code.asText();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
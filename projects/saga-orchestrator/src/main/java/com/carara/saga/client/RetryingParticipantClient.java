@@ -0,0 +1,191 @@
+package com.carara.saga.client;
+
+import com.carara.saga.model.NotificationDto;
+import com.carara.saga.model.PaymentDto;
+import com.carara.saga.model.ReservationDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+// Retry por passo da saga, por fora do circuit breaker: cada tentativa conta no circuito do participante e,
+// com o circuito aberto, a saga desiste na hora. Falhas transitórias (ver RetryableErrors) são repetidas com
+// backoff exponencial e jitter, sem bloquear thread. Os passos enviados com Idempotency-Key podem ainda ser
+// duplicados (hedge) quando a primeira requisição demora: vale a primeira resposta bem-sucedida
+@Slf4j
+public class RetryingParticipantClient implements ParticipantClient {
+    public static final String CREATE_RESERVATION = "CREATE_RESERVATION";
+    public static final String PROCESS_PAYMENT = "PROCESS_PAYMENT";
+    public static final String SEND_NOTIFICATION = "SEND_NOTIFICATION";
+    public static final String CANCEL_RESERVATION = "CANCEL_RESERVATION";
+    public static final String REFUND_PAYMENT = "REFUND_PAYMENT";
+
+    // Só os passos deduplicados pelo participante (Idempotency-Key) aceitam requisições em paralelo;
+    // as compensações são reenviadas apenas depois que a tentativa anterior terminou
+    private static final Set<String> HEDGEABLE_STEPS = Set.of(CREATE_RESERVATION, PROCESS_PAYMENT, SEND_NOTIFICATION);
+
+    private final ParticipantClient delegate;
+    private final Map<String, RetryPolicy> policies;
+    private final RetryableErrors retryableErrors;
+    private final MeterRegistry meterRegistry;
+    private final Tracer tracer;
+
+    public RetryingParticipantClient(ParticipantClient delegate, Map<String, RetryPolicy> policies,
+                                     RetryableErrors retryableErrors, MeterRegistry meterRegistry, Tracer tracer) {
+        this.delegate = delegate;
+        this.policies = Map.copyOf(policies);
+        this.retryableErrors = retryableErrors;
+        this.meterRegistry = meterRegistry;
+        this.tracer = tracer;
+        this.policies.forEach((step, policy) -> {
+            if (policy.hedges() && !HEDGEABLE_STEPS.contains(step)) {
+                log.warn("Ignoring hedge-after for step {}: only idempotent forward steps are hedged", step);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<ReservationDto> createReservation(String sagaId, String userId, String journeyDate,
+                                                               String seatNumber, Double amount) {
+        return call(CREATE_RESERVATION, () -> delegate.createReservation(sagaId, userId, journeyDate, seatNumber, amount));
+    }
+
+    @Override
+    public CompletableFuture<ReservationDto> cancelReservation(String sagaId, UUID reservationId) {
+        return call(CANCEL_RESERVATION, () -> delegate.cancelReservation(sagaId, reservationId));
+    }
+
+    @Override
+    public CompletableFuture<PaymentDto> processPayment(String sagaId, UUID reservationId, Double amount) {
+        return call(PROCESS_PAYMENT, () -> delegate.processPayment(sagaId, reservationId, amount));
+    }
+
+    @Override
+    public CompletableFuture<PaymentDto> refundPayment(String sagaId, UUID paymentId) {
+        return call(REFUND_PAYMENT, () -> delegate.refundPayment(sagaId, paymentId));
+    }
+
+    @Override
+    public CompletableFuture<NotificationDto> sendConfirmation(String sagaId, UUID reservationId) {
+        return call(SEND_NOTIFICATION, () -> delegate.sendConfirmation(sagaId, reservationId));
+    }
+
+    @Override
+    public CompletableFuture<List<ReservationDto>> createReservations(String sagaId, String userId, String journeyDate,
+                                                                      List<String> seatNumbers, Double amount) {
+        return call(CREATE_RESERVATION, () -> delegate.createReservations(sagaId, userId, journeyDate, seatNumbers, amount));
+    }
+
+    @Override
+    public CompletableFuture<List<ReservationDto>> cancelReservations(String sagaId, List<UUID> reservationIds) {
+        return call(CANCEL_RESERVATION, () -> delegate.cancelReservations(sagaId, reservationIds));
+    }
+
+    @Override
+    public CompletableFuture<List<PaymentDto>> processPayments(String sagaId, List<UUID> reservationIds, Double amount) {
+        return call(PROCESS_PAYMENT, () -> delegate.processPayments(sagaId, reservationIds, amount));
+    }
+
+    @Override
+    public CompletableFuture<List<PaymentDto>> refundPayments(String sagaId, List<UUID> paymentIds) {
+        return call(REFUND_PAYMENT, () -> delegate.refundPayments(sagaId, paymentIds));
+    }
+
+    @Override
+    public CompletableFuture<List<NotificationDto>> sendConfirmations(String sagaId, List<UUID> reservationIds) {
+        return call(SEND_NOTIFICATION, () -> delegate.sendConfirmations(sagaId, reservationIds));
+    }
+
+    private <T> CompletableFuture<T> call(String step, Supplier<CompletableFuture<T>> action) {
+        RetryPolicy policy = policies.getOrDefault(step, RetryPolicy.NONE);
+        // As tentativas seguintes rodam na thread do timer: reabre o span do passo para não perder o trace
+        Span span = tracer.currentSpan();
+        Executor inSpan = span == null ? Runnable::run : task -> {
+            try (Tracer.SpanInScope scope = tracer.withSpan(span)) {
+                task.run();
+            }
+        };
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(step, policy, action, inSpan, 1, result);
+        return result;
+    }
+
+    private <T> void attempt(String step, RetryPolicy policy, Supplier<CompletableFuture<T>> action, Executor executor,
+                             int attempt, CompletableFuture<T> result) {
+        CompletableFuture<T> response = policy.hedges() && HEDGEABLE_STEPS.contains(step)
+                ? hedged(step, policy, action, executor)
+                : start(action);
+        response.whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (attempt >= policy.maxAttempts() || !retryableErrors.isRetryable(cause)) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            long delay = policy.backoff(attempt, ThreadLocalRandom.current().nextDouble()).toMillis();
+            log.warn("Step {} failed on attempt {}/{} ({}), retrying in {} ms",
+                    step, attempt, policy.maxAttempts(), cause.getMessage(), delay);
+            counter("saga.step.retries", step).increment();
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, executor)
+                    .execute(() -> attempt(step, policy, action, executor, attempt + 1, result));
+        });
+    }
+
+    // Primeira resposta bem-sucedida vence; a tentativa só falha quando todas as requisições disparadas falharam.
+    // A requisição que perde não é cancelada: o participante devolve o mesmo resultado pela Idempotency-Key
+    private <T> CompletableFuture<T> hedged(String step, RetryPolicy policy, Supplier<CompletableFuture<T>> action,
+                                            Executor executor) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        BiConsumer<T, Throwable> settle = (value, error) -> {
+            if (error == null) {
+                result.complete(value);
+            } else if (outstanding.decrementAndGet() == 0) {
+                result.completeExceptionally(error);
+            }
+        };
+        start(action).whenComplete(settle);
+        CompletableFuture.delayedExecutor(policy.hedgeAfter().toMillis(), TimeUnit.MILLISECONDS, executor).execute(() -> {
+            int pending;
+            do {
+                pending = outstanding.get();
+                if (pending == 0 || result.isDone()) {
+                    return;
+                }
+            } while (!outstanding.compareAndSet(pending, pending + 1));
+            log.info("Step {} still pending after {} ms, sending hedged request", step, policy.hedgeAfter().toMillis());
+            counter("saga.step.hedges", step).increment();
+            start(action).whenComplete(settle);
+        });
+        return result;
+    }
+
+    private <T> CompletableFuture<T> start(Supplier<CompletableFuture<T>> action) {
+        try {
+            return action.get();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private Counter counter(String name, String step) {
+        return Counter.builder(name).tag("step", step).register(meterRegistry);
+    }
+}
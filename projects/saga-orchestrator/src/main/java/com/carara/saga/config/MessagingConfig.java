@@ -0,0 +1,77 @@
+package com.carara.saga.config;
+
+import com.carara.saga.client.AmqpParticipantClient;
+import com.carara.saga.client.AmqpParticipantClient.MessagingQueues;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.RabbitTemplateCustomizer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.UUID;
+
+// Modo de saga orientado a mensagens: ativado com saga.transport=amqp
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "saga.transport", havingValue = "amqp")
+public class MessagingConfig {
+    public static final String RESERVATION_COMMANDS = "saga.reservation.commands";
+    public static final String PAYMENT_COMMANDS = "saga.payment.commands";
+    public static final String NOTIFICATION_COMMANDS = "saga.notification.commands";
+
+    @Bean
+    public MessagingQueues messagingQueues(@Value("${saga.messaging.instance-id:}") String instanceId) {
+        // As filas de resposta são por instância do orquestrador, já que os futures pendentes vivem em memória
+        String suffix = instanceId.isBlank() ? UUID.randomUUID().toString() : instanceId;
+        log.info("Using saga reply queues for orchestrator instance {}", suffix);
+        return new MessagingQueues(
+                RESERVATION_COMMANDS, "saga.reservation.replies." + suffix,
+                PAYMENT_COMMANDS, "saga.payment.replies." + suffix,
+                NOTIFICATION_COMMANDS, "saga.notification.replies." + suffix);
+    }
+
+    @Bean
+    public Declarables sagaQueues(MessagingQueues queues) {
+        return new Declarables(
+                QueueBuilder.durable(queues.reservationCommands()).build(),
+                QueueBuilder.durable(queues.paymentCommands()).build(),
+                QueueBuilder.durable(queues.notificationCommands()).build(),
+                replyQueue(queues.reservationReplies()),
+                replyQueue(queues.paymentReplies()),
+                replyQueue(queues.notificationReplies()));
+    }
+
+    @Bean
+    public MessageConverter sagaMessageConverter(ObjectMapper objectMapper) {
+        Jackson2JsonMessageConverter converter = new Jackson2JsonMessageConverter(objectMapper);
+        // Os participantes usam suas próprias classes de mensagem; o tipo vem do parâmetro do listener
+        converter.setAlwaysConvertToInferredType(true);
+        return converter;
+    }
+
+    // Propaga o traceparent do step nos headers do comando (spring.rabbitmq.template.observation-enabled só existe a partir do Boot 3.3)
+    @Bean
+    public RabbitTemplateCustomizer observedRabbitTemplate() {
+        return rabbitTemplate -> rabbitTemplate.setObservationEnabled(true);
+    }
+
+    @Bean
+    public AmqpParticipantClient amqpParticipantClient(RabbitTemplate rabbitTemplate, ObjectMapper objectMapper,
+                                                       MessagingQueues messagingQueues,
+                                                       @Value("${saga.messaging.reply-timeout:10s}") Duration replyTimeout) {
+        return new AmqpParticipantClient(rabbitTemplate, objectMapper, messagingQueues, replyTimeout);
+    }
+
+    private Queue replyQueue(String name) {
+        return QueueBuilder.nonDurable(name).autoDelete().build();
+    }
+}
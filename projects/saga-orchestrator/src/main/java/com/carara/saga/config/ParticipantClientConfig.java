@@ -0,0 +1,83 @@
+package com.carara.saga.config;
+
+import com.carara.saga.client.HttpParticipantClient;
+import com.carara.saga.client.ReconciliationClient;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(ParticipantClientProperties.class)
+public class ParticipantClientConfig {
+    private final List<ConnectionProvider> connectionProviders = new ArrayList<>();
+
+    @Bean
+    @ConditionalOnProperty(name = "saga.transport", havingValue = "http", matchIfMissing = true)
+    public HttpParticipantClient httpParticipantClient(WebClient.Builder webClientBuilder, ParticipantClientProperties properties) {
+        return new HttpParticipantClient(
+                participantWebClient(webClientBuilder, "reservation", properties.getReservation()),
+                participantWebClient(webClientBuilder, "payment", properties.getPayment()),
+                participantWebClient(webClientBuilder, "notification", properties.getNotification()),
+                properties.getReservation().getUrl(), properties.getPayment().getUrl(), properties.getNotification().getUrl());
+    }
+
+    // Pools próprios: a varredura da reconciliação não ocupa as conexões das sagas
+    @Bean
+    @ConditionalOnProperty(name = "saga.reconciliation.enabled", havingValue = "true", matchIfMissing = true)
+    public ReconciliationClient reconciliationClient(WebClient.Builder webClientBuilder, ParticipantClientProperties properties) {
+        return new ReconciliationClient(
+                participantWebClient(webClientBuilder, "reservation-reconciliation", properties.getReservation()),
+                participantWebClient(webClientBuilder, "payment-reconciliation", properties.getPayment()));
+    }
+
+    private WebClient participantWebClient(WebClient.Builder webClientBuilder, String name,
+                                           ParticipantClientProperties.Participant participant) {
+        ConnectionProvider connectionProvider = ConnectionProvider.builder(name + "-pool")
+                .maxConnections(participant.getMaxConnections())
+                .pendingAcquireMaxCount(participant.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(participant.getPendingAcquireTimeout())
+                .maxIdleTime(participant.getMaxIdleTime())
+                .maxLifeTime(participant.getMaxLifeTime())
+                .evictInBackground(participant.getEvictionInterval())
+                .build();
+        connectionProviders.add(connectionProvider);
+
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) participant.getConnectTimeout().toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(participant.getResponseTimeout())
+                .doOnConnected(connection -> connection.addHandlerLast(
+                        new ReadTimeoutHandler(participant.getReadTimeout().toMillis(), TimeUnit.MILLISECONDS)));
+        if (participant.isHttp2()) {
+            // h2c com fallback para HTTP/1.1 caso o serviço não aceite o upgrade
+            httpClient = httpClient.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+
+        log.info("Participant client {} initialized - URL: {}, max connections: {}, HTTP/2: {}",
+                name, participant.getUrl(), participant.getMaxConnections(), participant.isHttp2());
+        return webClientBuilder.clone()
+                .baseUrl(participant.getUrl())
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+
+    @PreDestroy
+    public void disposeConnectionPools() {
+        connectionProviders.forEach(ConnectionProvider::dispose);
+    }
+}
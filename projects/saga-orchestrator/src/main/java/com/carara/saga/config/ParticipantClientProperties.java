@@ -0,0 +1,34 @@
+package com.carara.saga.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "services")
+public class ParticipantClientProperties {
+    private Participant reservation = new Participant();
+    private Participant payment = new Participant();
+    private Participant notification = new Participant();
+
+    @Data
+    public static class Participant {
+        private String url;
+
+        // Pool de conexões persistentes por serviço
+        private int maxConnections = 200;
+        private int pendingAcquireMaxCount = 2000;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictionInterval = Duration.ofSeconds(10);
+
+        // Timeouts
+        private Duration connectTimeout = Duration.ofSeconds(2);
+        private Duration readTimeout = Duration.ofSeconds(5);
+        private Duration responseTimeout = Duration.ofSeconds(5);
+
+        private boolean http2 = false;
+    }
+}
@@ -0,0 +1,59 @@
+package com.carara.saga.config;
+
+import com.carara.saga.client.AmqpParticipantClient;
+import com.carara.saga.client.HttpParticipantClient;
+import com.carara.saga.client.ParticipantClient;
+import com.carara.saga.client.ResilientParticipantClient;
+import com.carara.saga.client.RetryPolicy;
+import com.carara.saga.client.RetryableErrors;
+import com.carara.saga.client.RetryingParticipantClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Retry por passo (saga.retry) por fora dos circuit breakers e bulkheads por participante
+// (resilience4j.circuitbreaker/bulkhead.instances no application.yml), aplicados sobre o transporte
+// configurado em saga.transport
+@Configuration
+@EnableConfigurationProperties(SagaRetryProperties.class)
+public class ResilienceConfig {
+
+    @Bean
+    @Primary
+    public ParticipantClient resilientParticipantClient(ObjectProvider<HttpParticipantClient> httpParticipantClient,
+                                                        ObjectProvider<AmqpParticipantClient> amqpParticipantClient,
+                                                        CircuitBreakerRegistry circuitBreakerRegistry,
+                                                        BulkheadRegistry bulkheadRegistry,
+                                                        SagaRetryProperties retryProperties,
+                                                        RetryableErrors retryableErrors,
+                                                        MeterRegistry meterRegistry,
+                                                        ObjectProvider<Tracer> tracer) {
+        HttpParticipantClient http = httpParticipantClient.getIfAvailable();
+        ParticipantClient transport = http != null ? http : amqpParticipantClient.getObject();
+        ParticipantClient resilient = new ResilientParticipantClient(transport, circuitBreakerRegistry, bulkheadRegistry);
+        Map<String, RetryPolicy> policies = Stream.of(RetryingParticipantClient.CREATE_RESERVATION,
+                        RetryingParticipantClient.PROCESS_PAYMENT, RetryingParticipantClient.SEND_NOTIFICATION,
+                        RetryingParticipantClient.CANCEL_RESERVATION, RetryingParticipantClient.REFUND_PAYMENT)
+                .collect(Collectors.toMap(Function.identity(), retryProperties::policyFor));
+        return new RetryingParticipantClient(resilient, policies, retryableErrors,
+                meterRegistry, tracer.getIfAvailable(() -> Tracer.NOOP));
+    }
+
+    // Também usado pelo SagaEngine nos steps que declaram retry próprio
+    @Bean
+    public RetryableErrors retryableErrors(SagaRetryProperties retryProperties, ObjectMapper objectMapper) {
+        return new RetryableErrors(retryProperties.getRetryableCodes(), objectMapper);
+    }
+}
@@ -0,0 +1,67 @@
+package com.carara.saga.config;
+
+import com.carara.saga.client.ParticipantClient;
+import com.carara.saga.engine.SagaDefinition;
+import com.carara.saga.engine.SagaStep;
+import com.carara.saga.model.TransactionContext;
+import com.carara.saga.service.SagaMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static com.carara.saga.service.StepLogSampler.STEP;
+
+// Steps da saga de reserva. Um step novo (checagem de fraude, bloqueio de assento...) entra aqui com as
+// dependências dele, sem mexer no OrchestratorService; o SagaEngine roda em paralelo o que não depende entre si.
+// O retry dos steps abaixo fica no RetryingParticipantClient (saga.retry), por isso eles não declaram retry próprio
+@Slf4j
+@Configuration
+public class SagaDefinitionConfig {
+    public static final String CREATE_RESERVATION = "CREATE_RESERVATION";
+    public static final String PROCESS_PAYMENT = "PROCESS_PAYMENT";
+    public static final String SEND_NOTIFICATION = "SEND_NOTIFICATION";
+
+    @Bean
+    public SagaDefinition<TransactionContext> reservationSaga(ParticipantClient participantClient) {
+        return SagaDefinition.<TransactionContext>builder(SagaMetrics.SINGLE)
+                .step(SagaStep.<TransactionContext>named(CREATE_RESERVATION)
+                        .participant("reservation")
+                        .action(context -> participantClient.createReservation(context.getSagaId(), context.getUserId(),
+                                context.getJourneyDate(), context.getSeatNumber(), context.getAmount()).thenApply(reservation -> {
+                            context.setReservation(reservation);
+                            log.info(STEP, "Reservation created successfully - ID: {}", reservation.getReservationId());
+                            return reservation.getReservationId();
+                        }))
+                        // O cancelamento não precisa esperar o estorno: os dois rodam ao mesmo tempo
+                        .compensation("CANCEL_RESERVATION",
+                                context -> context.getReservation() == null ? null : context.getReservation().getReservationId(),
+                                (context, reservationId) -> participantClient.cancelReservation(context.getSagaId(), reservationId))
+                        .independentCompensation()
+                        .build())
+                .step(SagaStep.<TransactionContext>named(PROCESS_PAYMENT)
+                        .participant("payment")
+                        .dependsOn(CREATE_RESERVATION)
+                        .action(context -> participantClient.processPayment(context.getSagaId(),
+                                context.getReservation().getReservationId(), context.getAmount()).thenApply(payment -> {
+                            context.setPayment(payment);
+                            log.info(STEP, "Payment processed successfully - ID: {}", payment.getPaymentId());
+                            return payment.getPaymentId();
+                        }))
+                        .compensation("REFUND_PAYMENT",
+                                context -> context.getPayment() == null ? null : context.getPayment().getPaymentId(),
+                                (context, paymentId) -> participantClient.refundPayment(context.getSagaId(), paymentId))
+                        .build())
+                // A confirmação só sai com o pagamento aprovado
+                .step(SagaStep.<TransactionContext>named(SEND_NOTIFICATION)
+                        .participant("notification")
+                        .dependsOn(PROCESS_PAYMENT)
+                        .action(context -> participantClient.sendConfirmation(context.getSagaId(),
+                                context.getReservation().getReservationId()).thenApply(notification -> {
+                            context.setNotification(notification);
+                            log.info(STEP, "Confirmation sent successfully - ID: {}", notification.getNotificationId());
+                            return notification.getNotificationId();
+                        }))
+                        .build())
+                .build();
+    }
+}
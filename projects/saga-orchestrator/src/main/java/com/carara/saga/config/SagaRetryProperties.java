@@ -0,0 +1,64 @@
+package com.carara.saga.config;
+
+import com.carara.saga.client.RetryPolicy;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+@Data
+@ConfigurationProperties(prefix = "saga.retry")
+public class SagaRetryProperties {
+    // Códigos de ErrorResponse/SagaReply tratados como falha transitória
+    private Set<String> retryableCodes = new LinkedHashSet<>(List.of(
+            "RESERVATION_PROCESSING_ERROR", "RESERVATION_UNEXPECTED_ERROR",
+            "PAYMENT_PROCESSING_ERROR", "PAYMENT_UNEXPECTED_ERROR",
+            "NOTIFICATION_SEND_ERROR", "NOTIFICATION_UNEXPECTED_ERROR"));
+
+    private Policy defaults = new Policy(3, Duration.ofMillis(50), 2.0, Duration.ofSeconds(1), 0.5, null);
+
+    // Sobrescritas por passo, com o nome do passo em minúsculas (process-payment, send-notification...)
+    private Map<String, Policy> steps = new HashMap<>();
+
+    public RetryPolicy policyFor(String step) {
+        Policy override = steps.getOrDefault(step.toLowerCase(Locale.ROOT).replace('_', '-'), new Policy());
+        return new RetryPolicy(
+                Objects.requireNonNullElse(override.getMaxAttempts(), defaults.getMaxAttempts()),
+                Objects.requireNonNullElse(override.getInitialBackoff(), defaults.getInitialBackoff()),
+                Objects.requireNonNullElse(override.getMultiplier(), defaults.getMultiplier()),
+                Objects.requireNonNullElse(override.getMaxBackoff(), defaults.getMaxBackoff()),
+                Objects.requireNonNullElse(override.getJitter(), defaults.getJitter()),
+                override.getHedgeAfter() != null ? override.getHedgeAfter() : defaults.getHedgeAfter());
+    }
+
+    @Data
+    public static class Policy {
+        private Integer maxAttempts;
+        private Duration initialBackoff;
+        private Double multiplier;
+        private Duration maxBackoff;
+        private Double jitter;
+        // Vazio ou 0 desliga o hedge
+        private Duration hedgeAfter;
+
+        public Policy() {
+        }
+
+        Policy(Integer maxAttempts, Duration initialBackoff, Double multiplier, Duration maxBackoff, Double jitter,
+               Duration hedgeAfter) {
+            this.maxAttempts = maxAttempts;
+            this.initialBackoff = initialBackoff;
+            this.multiplier = multiplier;
+            this.maxBackoff = maxBackoff;
+            this.jitter = jitter;
+            this.hedgeAfter = hedgeAfter;
+        }
+    }
+}
@@ -1,11 +1,19 @@
 package com.carara.saga.controller;
 
+import com.carara.saga.model.BatchReservationRequest;
+import com.carara.saga.model.BatchTransactionContext;
 import com.carara.saga.model.TransactionContext;
+import com.carara.saga.service.BatchOrchestratorService;
 import com.carara.saga.service.OrchestratorService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -19,10 +27,15 @@ import io.swagger.v3.oas.annotations.media.Schema;
 public class OrchestratorController {
 
     private final OrchestratorService orchestratorService;
+    private final BatchOrchestratorService batchOrchestratorService;
+    private final int maxGroupSeats;
 
     @Autowired
-    public OrchestratorController(OrchestratorService orchestratorService) {
+    public OrchestratorController(OrchestratorService orchestratorService, BatchOrchestratorService batchOrchestratorService,
+                                  @Value("${saga.batch.max-seats:100}") int maxGroupSeats) {
         this.orchestratorService = orchestratorService;
+        this.batchOrchestratorService = batchOrchestratorService;
+        this.maxGroupSeats = maxGroupSeats;
     }
 
     @PostMapping("/reserve")
@@ -43,19 +56,77 @@ public class OrchestratorController {
                                                                 @Parameter(description = "Simulate failure at step (optional): CREATE_RESERVATION, PROCESS_PAYMENT, SEND_NOTIFICATION") @RequestParam(required = false) String simulateFailureAt) {
         try {
             TransactionContext context = orchestratorService.executeTransaction(userId, journeyDate, seatNumber, amount, simulateFailureAt);
-            
-            if (context.isSuccess()) {
-                return ResponseEntity.ok(context);
-            } else {
-                // Retorna 409 (Conflict) para indicar que a transação falhou mas foi compensada
-                return ResponseEntity.status(409).body(context);
-            }
+            return toResponse(context);
         } catch (Exception e) {
             // Se por algum motivo uma exceção não tratada chegar até aqui,
             // cria um contexto de falha e retorna
-            TransactionContext errorContext = new TransactionContext();
-            errorContext.setFailure("UNKNOWN_ERROR", e.getMessage());
-            return ResponseEntity.status(500).body(errorContext);
+            return toErrorResponse(e);
         }
     }
+
+    @PostMapping("/reserve/async")
+    @Operation(
+        summary = "Create a reservation with Saga pattern (non-blocking)",
+        description = "Orchestrates the complete reservation flow without holding a request thread while the saga steps run",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Reservation process completed successfully",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = TransactionContext.class))),
+            @ApiResponse(responseCode = "409", description = "Reservation process failed with compensation details",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = TransactionContext.class)))
+        }
+    )
+    public CompletableFuture<ResponseEntity<TransactionContext>> createReservationAsync(@Parameter(description = "User ID") @RequestParam String userId,
+                                                                                       @Parameter(description = "Journey date") @RequestParam String journeyDate,
+                                                                                       @Parameter(description = "Seat number") @RequestParam String seatNumber,
+                                                                                       @Parameter(description = "Amount") @RequestParam Double amount,
+                                                                                       @Parameter(description = "Simulate failure at step (optional): CREATE_RESERVATION, PROCESS_PAYMENT, SEND_NOTIFICATION") @RequestParam(required = false) String simulateFailureAt) {
+        return orchestratorService.executeTransactionAsync(userId, journeyDate, seatNumber, amount, simulateFailureAt)
+                .thenApply(this::toResponse)
+                .exceptionally(this::toErrorResponse);
+    }
+
+    @PostMapping("/reserve/batch")
+    @Operation(
+        summary = "Create a group reservation with Saga pattern",
+        description = "Reserves several seats of one journey for one user with a single batched call per participant service; all seats are booked or none",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Group reservation completed successfully",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = BatchTransactionContext.class))),
+            @ApiResponse(responseCode = "400", description = "No seats, too many seats, or repeated seats in the request",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = BatchTransactionContext.class))),
+            @ApiResponse(responseCode = "409", description = "Group reservation failed and every seat was compensated",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = BatchTransactionContext.class)))
+        }
+    )
+    public CompletableFuture<ResponseEntity<BatchTransactionContext>> createGroupReservation(@RequestBody BatchReservationRequest request) {
+        List<String> seatNumbers = request.getSeatNumbers();
+        if (seatNumbers == null || seatNumbers.isEmpty() || seatNumbers.size() > maxGroupSeats
+                || new HashSet<>(seatNumbers).size() != seatNumbers.size()) {
+            BatchTransactionContext invalid = new BatchTransactionContext();
+            invalid.setFailure("INVALID_REQUEST", "A group reservation needs between 1 and " + maxGroupSeats
+                    + " seats and no repeated seats");
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(invalid));
+        }
+        return batchOrchestratorService.executeBatchTransactionAsync(request)
+                .thenApply(context -> context.isSuccess() ? ResponseEntity.ok(context) : ResponseEntity.status(409).body(context))
+                .exceptionally(e -> {
+                    BatchTransactionContext errorContext = new BatchTransactionContext();
+                    errorContext.setFailure("UNKNOWN_ERROR", e.getMessage());
+                    return ResponseEntity.status(500).body(errorContext);
+                });
+    }
+
+    private ResponseEntity<TransactionContext> toResponse(TransactionContext context) {
+        if (context.isSuccess()) {
+            return ResponseEntity.ok(context);
+        }
+        // Retorna 409 (Conflict) para indicar que a transação falhou mas foi compensada
+        return ResponseEntity.status(409).body(context);
+    }
+
+    private ResponseEntity<TransactionContext> toErrorResponse(Throwable e) {
+        TransactionContext errorContext = new TransactionContext();
+        errorContext.setFailure("UNKNOWN_ERROR", e.getMessage());
+        return ResponseEntity.status(500).body(errorContext);
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.carara.saga.engine;
+
+// O que o SagaEngine precisa do contexto de uma saga; o resto do estado (reserva, pagamento...) é
+// lido e preenchido pelas ações e compensações dos steps
+public interface SagaContext {
+
+    String getSagaId();
+
+    void addCompletedStep(String step);
+
+    void addCompensatedStep(String step);
+}
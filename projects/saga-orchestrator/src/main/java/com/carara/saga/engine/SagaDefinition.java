@@ -0,0 +1,103 @@
+package com.carara.saga.engine;
+
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Definição declarativa de uma saga: os steps e o grafo de dependências entre eles, validado na construção
+// (nomes repetidos, dependências desconhecidas e ciclos). Os steps ficam em ordem topológica, desempatada
+// pela ordem de declaração; o nome é o tipo da saga nas métricas e nos spans
+public class SagaDefinition<C extends SagaContext> {
+    @Getter
+    private final String name;
+    @Getter
+    private final List<SagaStep<C>> steps;
+    private final Map<String, List<String>> dependents;
+
+    private SagaDefinition(String name, List<SagaStep<C>> steps) {
+        this.name = name;
+        this.steps = List.copyOf(steps);
+        Map<String, List<String>> dependents = new HashMap<>();
+        steps.forEach(step -> dependents.put(step.getName(), new ArrayList<>()));
+        steps.forEach(step -> step.getDependsOn().forEach(dependency -> dependents.get(dependency).add(step.getName())));
+        this.dependents = dependents;
+    }
+
+    public static <C extends SagaContext> Builder<C> builder(String name) {
+        return new Builder<>(name);
+    }
+
+    public boolean hasStep(String stepName) {
+        return dependents.containsKey(stepName);
+    }
+
+    // Steps que dependem diretamente de stepName
+    public List<String> dependentsOf(String stepName) {
+        return dependents.getOrDefault(stepName, List.of());
+    }
+
+    // A mesma saga sem um step que nenhum outro usa (por exemplo, a notificação enviada pela outbox)
+    public SagaDefinition<C> without(String stepName) {
+        if (!dependentsOf(stepName).isEmpty()) {
+            throw new IllegalArgumentException("Saga step " + stepName + " is required by " + dependentsOf(stepName));
+        }
+        return new SagaDefinition<>(name, steps.stream().filter(step -> !step.getName().equals(stepName)).toList());
+    }
+
+    public static class Builder<C extends SagaContext> {
+        private final String name;
+        private final Map<String, SagaStep<C>> steps = new LinkedHashMap<>();
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        public Builder<C> step(SagaStep<C> step) {
+            if (steps.putIfAbsent(step.getName(), step) != null) {
+                throw new IllegalStateException("Duplicate saga step " + step.getName());
+            }
+            return this;
+        }
+
+        public SagaDefinition<C> build() {
+            Map<String, Integer> pending = new LinkedHashMap<>();
+            for (SagaStep<C> step : steps.values()) {
+                for (String dependency : step.getDependsOn()) {
+                    if (!steps.containsKey(dependency)) {
+                        throw new IllegalStateException("Saga step " + step.getName() + " depends on unknown step " + dependency);
+                    }
+                }
+                pending.put(step.getName(), step.getDependsOn().size());
+            }
+
+            // Kahn: a cada rodada entram os steps sem dependência pendente, na ordem em que foram declarados
+            List<SagaStep<C>> ordered = new ArrayList<>();
+            Deque<String> ready = new ArrayDeque<>();
+            pending.forEach((step, count) -> {
+                if (count == 0) {
+                    ready.add(step);
+                }
+            });
+            while (!ready.isEmpty()) {
+                SagaStep<C> step = steps.get(ready.poll());
+                ordered.add(step);
+                for (SagaStep<C> candidate : steps.values()) {
+                    if (candidate.getDependsOn().contains(step.getName()) && pending.merge(candidate.getName(), -1, Integer::sum) == 0) {
+                        ready.add(candidate.getName());
+                    }
+                }
+            }
+            if (ordered.size() != steps.size()) {
+                List<String> unresolved = pending.entrySet().stream().filter(entry -> entry.getValue() > 0).map(Map.Entry::getKey).toList();
+                throw new IllegalStateException("Saga " + name + " has a dependency cycle, unresolved steps: " + unresolved);
+            }
+            return new SagaDefinition<>(name, ordered);
+        }
+    }
+}
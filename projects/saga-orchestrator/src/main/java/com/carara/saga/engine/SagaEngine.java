@@ -0,0 +1,181 @@
+package com.carara.saga.engine;
+
+import com.carara.saga.client.RetryPolicy;
+import com.carara.saga.client.RetryableErrors;
+import com.carara.saga.exception.SagaStepException;
+import com.carara.saga.model.PendingCompensation;
+import com.carara.saga.service.SagaLog;
+import com.carara.saga.service.SagaMetrics;
+import com.carara.saga.service.SagaTracing;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static com.carara.saga.service.OrchestratorService.compensationFailure;
+import static com.carara.saga.service.OrchestratorService.unwrap;
+import static com.carara.saga.service.StepLogSampler.STEP;
+
+// Executa uma SagaDefinition: cada step começa quando os steps de que depende terminam, então steps
+// independentes rodam ao mesmo tempo e a saga leva o tempo do caminho mais longo do grafo, não a soma dos steps.
+// As compensações andam no sentido inverso do grafo
+@Slf4j
+@Component
+public class SagaEngine {
+    private final SagaLog sagaLog;
+    private final SagaMetrics sagaMetrics;
+    private final SagaTracing sagaTracing;
+    private final RetryableErrors retryableErrors;
+    private final Duration compensationTimeout;
+
+    public SagaEngine(SagaLog sagaLog, SagaMetrics sagaMetrics, SagaTracing sagaTracing, RetryableErrors retryableErrors,
+                      @Value("${saga.compensation.timeout:10s}") Duration compensationTimeout) {
+        this.sagaLog = sagaLog;
+        this.sagaMetrics = sagaMetrics;
+        this.sagaTracing = sagaTracing;
+        this.retryableErrors = retryableErrors;
+        this.compensationTimeout = compensationTimeout;
+    }
+
+    // Depois da primeira falha nenhum step novo começa; o resultado espera os steps que já estavam em voo,
+    // para que o contexto mostre tudo o que precisa ser compensado, e falha com o SagaStepException do
+    // primeiro step que falhou. beforeStep roda no span do step, antes da ação (simulação de falhas)
+    public <C extends SagaContext> CompletableFuture<Void> execute(SagaDefinition<C> definition, C context, Span sagaSpan,
+                                                                   Consumer<String> beforeStep) {
+        AtomicReference<SagaStepException> firstFailure = new AtomicReference<>();
+        Map<String, CompletableFuture<Void>> steps = new HashMap<>();
+        for (SagaStep<C> step : definition.getSteps()) {
+            CompletableFuture<?>[] dependencies = step.getDependsOn().stream().map(steps::get).toArray(CompletableFuture[]::new);
+            steps.put(step.getName(), CompletableFuture.allOf(dependencies).thenCompose(v -> firstFailure.get() == null
+                    ? executeStep(definition, step, context, sagaSpan, beforeStep, firstFailure)
+                    : CompletableFuture.failedFuture(new CancellationException("Saga aborted before step " + step.getName()))));
+        }
+        return CompletableFuture.allOf(steps.values().toArray(CompletableFuture[]::new)).handle((v, e) -> {
+            if (firstFailure.get() != null) {
+                throw firstFailure.get();
+            }
+            if (e != null) {
+                throw new SagaStepException(null, unwrap(e));
+            }
+            return null;
+        });
+    }
+
+    // O step só é considerado concluído depois que a transição estiver gravada no log da saga,
+    // para que a recuperação saiba o que compensar caso o orquestrador caia no meio da saga
+    private <C extends SagaContext> CompletableFuture<Void> executeStep(SagaDefinition<C> definition, SagaStep<C> step, C context,
+                                                                        Span sagaSpan, Consumer<String> beforeStep,
+                                                                        AtomicReference<SagaStepException> firstFailure) {
+        log.info(STEP, "Executing step {} on {}", step.getName(), step.getParticipant());
+        Timer.Sample stepTimer = sagaMetrics.startTimer();
+        CompletableFuture<UUID> result = sagaTracing.inSpan(sagaSpan, step.getName(), () -> {
+            beforeStep.accept(step.getName());
+            return attempt(step, context, 1);
+        });
+        return result
+                .whenComplete((resourceId, e) -> sagaMetrics.stepFinished(stepTimer, definition.getName(), step.getName(), e == null))
+                .thenCompose(resourceId -> sagaLog.stepCompleted(context.getSagaId(), step.getName(), Objects.toString(resourceId, null)))
+                .handle((v, e) -> {
+                    if (e != null) {
+                        SagaStepException failure = new SagaStepException(step.getName(), unwrap(e));
+                        firstFailure.compareAndSet(null, failure);
+                        throw failure;
+                    }
+                    context.addCompletedStep(step.getName());
+                    return null;
+                });
+    }
+
+    // Retry do próprio step, para ações que não passam pelo RetryingParticipantClient
+    private <C extends SagaContext> CompletableFuture<UUID> attempt(SagaStep<C> step, C context, int attempt) {
+        CompletableFuture<UUID> call;
+        try {
+            call = step.getAction().apply(context);
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        if (step.getTimeout() != null) {
+            call = call.orTimeout(step.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        }
+        RetryPolicy retryPolicy = step.getRetryPolicy();
+        return call.exceptionallyCompose(e -> {
+            Throwable cause = unwrap(e);
+            if (attempt >= retryPolicy.maxAttempts() || !retryableErrors.isRetryable(cause)) {
+                return CompletableFuture.failedFuture(cause);
+            }
+            Duration delay = retryPolicy.backoff(attempt, ThreadLocalRandom.current().nextDouble());
+            log.warn("Step {} failed (attempt {}), retrying in {} ms: {}", step.getName(), attempt, delay.toMillis(), cause.getMessage());
+            return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(delay.toMillis(), TimeUnit.MILLISECONDS))
+                    .thenCompose(v -> attempt(step, context, attempt + 1));
+        });
+    }
+
+    // Compensa os steps cujo recurso ainda está no contexto, em ordem topológica inversa: a compensação de um
+    // step espera as dos steps que dependem dele, a não ser que ele declare independentCompensation. Devolve
+    // true quando todas tiveram sucesso; as que falharam ficam com o CompensationRetrier
+    public <C extends SagaContext> CompletableFuture<Boolean> compensate(SagaDefinition<C> definition, C context, Span sagaSpan) {
+        Map<String, CompletableFuture<Boolean>> compensations = new HashMap<>();
+        List<SagaStep<C>> reversed = new ArrayList<>(definition.getSteps());
+        Collections.reverse(reversed);
+        for (SagaStep<C> step : reversed) {
+            CompletableFuture<?>[] dependents = step.isIndependentCompensation() ? new CompletableFuture<?>[0]
+                    : definition.dependentsOf(step.getName()).stream().map(compensations::get).toArray(CompletableFuture[]::new);
+            UUID resourceId = step.hasCompensation() ? step.getCompensationTarget().apply(context) : null;
+            compensations.put(step.getName(), CompletableFuture.allOf(dependents).handle((v, e) -> null)
+                    .thenCompose(v -> resourceId == null
+                            ? CompletableFuture.completedFuture(true)
+                            : compensateStep(definition, step, context, sagaSpan, resourceId)));
+        }
+        return CompletableFuture.allOf(compensations.values().toArray(CompletableFuture[]::new))
+                .thenApply(v -> compensations.values().stream().allMatch(CompletableFuture::join));
+    }
+
+    private <C extends SagaContext> CompletableFuture<Boolean> compensateStep(SagaDefinition<C> definition, SagaStep<C> step,
+                                                                              C context, Span sagaSpan, UUID resourceId) {
+        String compensationStep = step.getCompensationName();
+        log.info("Executing compensation {} - ID: {}", compensationStep, resourceId);
+        Timer.Sample compensationTimer = sagaMetrics.startTimer();
+        return sagaTracing.inSpan(sagaSpan, compensationStep, () -> step.getCompensation().apply(context, resourceId))
+                .orTimeout(compensationTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .handle((response, e) -> e == null ? null : unwrap(e))
+                .thenCompose(error -> {
+                    sagaMetrics.compensationFinished(compensationTimer, definition.getName(), compensationStep, error == null);
+                    if (error == null) {
+                        context.addCompensatedStep(compensationStep);
+                        log.info("Compensation {} completed successfully", compensationStep);
+                        return recorded(sagaLog.stepCompensated(context.getSagaId(), compensationStep, resourceId.toString()))
+                                .thenApply(v -> true);
+                    }
+                    String reason = compensationFailure(error, compensationTimeout);
+                    log.error("Failed to execute compensation {}: {} - retrying in background", compensationStep, reason);
+                    PendingCompensation pending = new PendingCompensation(context.getSagaId(), compensationStep,
+                            List.of(resourceId), false, reason);
+                    return recorded(sagaLog.compensationFailed(context.getSagaId(), compensationStep, resourceId.toString(), reason, pending))
+                            .thenApply(v -> false);
+                });
+    }
+
+    // Falhas ao gravar o log durante a compensação não podem interromper o desfazer dos steps
+    private CompletableFuture<Void> recorded(CompletableFuture<Void> logWrite) {
+        return logWrite.exceptionally(e -> {
+            log.error("Failed to record saga log event: {}", unwrap(e).getMessage());
+            return null;
+        });
+    }
+}
@@ -0,0 +1,120 @@
+package com.carara.saga.engine;
+
+import com.carara.saga.client.RetryPolicy;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+// Um step da saga: a ação chama o participante e devolve o id do recurso criado (gravado no STEP_COMPLETED);
+// a compensação, quando existe, desfaz o recurso que compensationTarget encontra no contexto. O step só começa
+// depois que todos os steps de dependsOn terminarem
+@Getter
+public class SagaStep<C extends SagaContext> {
+    private final String name;
+    private final String participant;
+    private final Set<String> dependsOn;
+    private final Function<C, CompletableFuture<UUID>> action;
+    private final String compensationName;
+    private final Function<C, UUID> compensationTarget;
+    private final BiFunction<C, UUID, CompletableFuture<?>> compensation;
+    private final boolean independentCompensation;
+    private final Duration timeout;
+    private final RetryPolicy retryPolicy;
+
+    private SagaStep(Builder<C> builder) {
+        this.name = builder.name;
+        this.participant = builder.participant;
+        this.dependsOn = Set.copyOf(builder.dependsOn);
+        this.action = builder.action;
+        this.compensationName = builder.compensationName;
+        this.compensationTarget = builder.compensationTarget;
+        this.compensation = builder.compensation;
+        this.independentCompensation = builder.independentCompensation;
+        this.timeout = builder.timeout;
+        this.retryPolicy = builder.retryPolicy;
+    }
+
+    public static <C extends SagaContext> Builder<C> named(String name) {
+        return new Builder<>(name);
+    }
+
+    public boolean hasCompensation() {
+        return compensation != null;
+    }
+
+    public static class Builder<C extends SagaContext> {
+        private final String name;
+        private String participant;
+        private final Set<String> dependsOn = new LinkedHashSet<>();
+        private Function<C, CompletableFuture<UUID>> action;
+        private String compensationName;
+        private Function<C, UUID> compensationTarget;
+        private BiFunction<C, UUID, CompletableFuture<?>> compensation;
+        private boolean independentCompensation;
+        private Duration timeout;
+        private RetryPolicy retryPolicy = RetryPolicy.NONE;
+
+        private Builder(String name) {
+            this.name = Objects.requireNonNull(name, "name");
+        }
+
+        public Builder<C> participant(String participant) {
+            this.participant = participant;
+            return this;
+        }
+
+        public Builder<C> dependsOn(String... steps) {
+            this.dependsOn.addAll(Arrays.asList(steps));
+            return this;
+        }
+
+        public Builder<C> action(Function<C, CompletableFuture<UUID>> action) {
+            this.action = action;
+            return this;
+        }
+
+        public Builder<C> compensation(String compensationName, Function<C, UUID> target,
+                                       BiFunction<C, UUID, CompletableFuture<?>> compensation) {
+            this.compensationName = compensationName;
+            this.compensationTarget = target;
+            this.compensation = compensation;
+            return this;
+        }
+
+        // A compensação não espera as dos steps que dependem deste: vale quando desfazer este recurso
+        // não invalida o desfazer dos outros (estorno e cancelamento, por exemplo)
+        public Builder<C> independentCompensation() {
+            this.independentCompensation = true;
+            return this;
+        }
+
+        // Prazo de cada tentativa da ação; sem prazo valem só os timeouts do cliente do participante
+        public Builder<C> timeout(Duration timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        public Builder<C> retry(RetryPolicy retryPolicy) {
+            this.retryPolicy = Objects.requireNonNull(retryPolicy, "retryPolicy");
+            return this;
+        }
+
+        public SagaStep<C> build() {
+            if (action == null) {
+                throw new IllegalStateException("Saga step " + name + " has no action");
+            }
+            if (dependsOn.contains(name)) {
+                throw new IllegalStateException("Saga step " + name + " depends on itself");
+            }
+            return new SagaStep<>(this);
+        }
+    }
+}
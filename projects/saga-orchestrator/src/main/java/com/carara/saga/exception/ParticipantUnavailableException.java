@@ -0,0 +1,14 @@
+package com.carara.saga.exception;
+
+import lombok.Getter;
+
+// Chamada recusada sem chegar ao participante: circuit breaker aberto ou bulkhead cheio
+@Getter
+public class ParticipantUnavailableException extends RuntimeException {
+    private final String participant;
+
+    public ParticipantUnavailableException(String participant, String reason, Throwable cause) {
+        super("Participant " + participant + " unavailable: " + reason, cause);
+        this.participant = participant;
+    }
+}
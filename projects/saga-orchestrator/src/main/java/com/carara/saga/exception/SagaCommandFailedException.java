@@ -0,0 +1,14 @@
+package com.carara.saga.exception;
+
+import lombok.Getter;
+
+// Resposta de falha de um participante, com o mesmo código de erro que a API HTTP retornaria
+@Getter
+public class SagaCommandFailedException extends RuntimeException {
+    private final String errorCode;
+
+    public SagaCommandFailedException(String errorCode, String message) {
+        super(errorCode + ": " + message);
+        this.errorCode = errorCode;
+    }
+}
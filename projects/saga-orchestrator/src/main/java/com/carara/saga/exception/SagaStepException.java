@@ -0,0 +1,14 @@
+package com.carara.saga.exception;
+
+import lombok.Getter;
+
+// Carrega o step da saga em que a falha ocorreu pelo pipeline assíncrono
+@Getter
+public class SagaStepException extends RuntimeException {
+    private final String step;
+
+    public SagaStepException(String step, Throwable cause) {
+        super(cause.getMessage(), cause);
+        this.step = step;
+    }
+}
@@ -0,0 +1,17 @@
+package com.carara.saga.messaging;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SagaCommand {
+    private String sagaId;
+    private String commandType;
+    private String idempotencyKey;
+    private Map<String, Object> arguments;
+}
@@ -0,0 +1,16 @@
+package com.carara.saga.messaging;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class SagaReply {
+    private String sagaId;
+    private String commandType;
+    private boolean success;
+    private JsonNode result;
+    private String errorCode;
+    private String errorMessage;
+}
@@ -0,0 +1,14 @@
+package com.carara.saga.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+// Reserva em grupo: vários assentos da mesma viagem para o mesmo usuário, com o valor por assento
+@Data
+public class BatchReservationRequest {
+    private String userId;
+    private String journeyDate;
+    private List<String> seatNumbers;
+    private Double amount;
+}
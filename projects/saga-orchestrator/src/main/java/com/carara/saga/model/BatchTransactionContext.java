@@ -0,0 +1,43 @@
+package com.carara.saga.model;
+
+import lombok.Data;
+import java.util.ArrayList;
+import java.util.List;
+
+// Contexto de uma saga de reserva em grupo: cada step processa todos os assentos de uma vez
+@Data
+public class BatchTransactionContext {
+    private String sagaId;
+    private List<ReservationDto> reservations = new ArrayList<>();
+    private List<PaymentDto> payments = new ArrayList<>();
+    private List<NotificationDto> notifications = new ArrayList<>();
+
+    // Informações sobre os steps executados
+    private List<String> completedSteps = new ArrayList<>();
+    private String failedStep;
+    private String failureReason;
+    private boolean isSuccess = false;
+    private List<String> compensatedSteps = new ArrayList<>();
+
+    // Confirmação gravada na outbox, a ser enviada depois do retorno da saga
+    private boolean notificationQueued;
+
+    public void addCompletedStep(String step) {
+        this.completedSteps.add(step);
+    }
+
+    public void setFailure(String step, String reason) {
+        this.failedStep = step;
+        this.failureReason = reason;
+        this.isSuccess = false;
+    }
+
+    // As compensações rodam em paralelo e podem concluir em threads diferentes
+    public synchronized void addCompensatedStep(String step) {
+        this.compensatedSteps.add(step);
+    }
+
+    public void markAsSuccess() {
+        this.isSuccess = true;
+    }
+}
@@ -0,0 +1,13 @@
+package com.carara.saga.model;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+// Página das listagens por keyset dos participantes: nextCursor é null na última página
+@Data
+public class KeysetPageDto<T> {
+    private List<T> items;
+    private UUID nextCursor;
+}
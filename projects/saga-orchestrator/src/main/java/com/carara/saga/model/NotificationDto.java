@@ -2,10 +2,12 @@ package com.carara.saga.model;
 
 import lombok.Data;
 
+import java.util.UUID;
+
 @Data
 public class NotificationDto {
-    private String notificationId;
-    private String reservationId;
+    private UUID notificationId;
+    private UUID reservationId;
     private String notificationType;
     private String status;
 } 
\ No newline at end of file
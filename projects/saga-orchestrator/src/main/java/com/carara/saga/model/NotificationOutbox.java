@@ -0,0 +1,62 @@
+package com.carara.saga.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+// Confirmação devida por uma saga concluída, gravada na mesma transação do SAGA_SUCCEEDED e enviada depois
+// pelo NotificationDispatcher. Sagas em grupo têm uma única linha com todas as reservas
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "notification_outbox", indexes = {
+        @Index(name = "idx_notification_outbox_status_next_attempt", columnList = "status, nextAttemptAt")
+})
+public class NotificationOutbox {
+    public static final String PENDING = "PENDING";
+    // Esgotou as tentativas: fica na tabela para inspeção e reenvio manual
+    public static final String FAILED = "FAILED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_outbox_seq")
+    @SequenceGenerator(name = "notification_outbox_seq", sequenceName = "notification_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false, length = 36)
+    private String sagaId;
+
+    @Column(nullable = false, length = 4000)
+    private String reservationIds;
+
+    // Saga em grupo: enviada pelo endpoint em lote, com a mesma Idempotency-Key que a saga usaria
+    private boolean groupSaga;
+
+    @Column(nullable = false, length = 16)
+    private String status = PENDING;
+
+    private int attempts;
+
+    @Column(nullable = false)
+    private Instant nextAttemptAt = Instant.now();
+
+    private String lastError;
+
+    @Column(nullable = false)
+    private Instant createdAt = Instant.now();
+
+    public NotificationOutbox(String sagaId, List<UUID> reservationIds, boolean groupSaga) {
+        this.sagaId = sagaId;
+        this.reservationIds = reservationIds.stream().map(UUID::toString).collect(Collectors.joining(","));
+        this.groupSaga = groupSaga;
+    }
+
+    public List<UUID> reservationIdList() {
+        return Arrays.stream(reservationIds.split(",")).map(UUID::fromString).toList();
+    }
+}
@@ -2,10 +2,12 @@ package com.carara.saga.model;
 
 import lombok.Data;
 
+import java.util.UUID;
+
 @Data
 public class PaymentDto {
-    private String paymentId;
-    private String reservationId;
+    private UUID paymentId;
+    private UUID reservationId;
     private Double amount;
     private String status;
 } 
\ No newline at end of file
@@ -0,0 +1,69 @@
+package com.carara.saga.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+// Compensação que falhou ou estourou o prazo, gravada junto com o COMPENSATION_FAILED e repetida em segundo plano
+// pelo CompensationRetrier até dar certo; a saga só é marcada como compensada quando não restar nenhuma
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "pending_compensation", indexes = {
+        @Index(name = "idx_pending_compensation_status_next_attempt", columnList = "status, nextAttemptAt"),
+        @Index(name = "idx_pending_compensation_saga_id", columnList = "sagaId")
+})
+public class PendingCompensation {
+    public static final String PENDING = "PENDING";
+    // Esgotou as tentativas: precisa de intervenção manual
+    public static final String FAILED = "FAILED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pending_compensation_seq")
+    @SequenceGenerator(name = "pending_compensation_seq", sequenceName = "pending_compensation_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false, length = 36)
+    private String sagaId;
+
+    // REFUND_PAYMENT ou CANCEL_RESERVATION
+    @Column(nullable = false, length = 32)
+    private String step;
+
+    @Column(nullable = false, length = 4000)
+    private String resourceIds;
+
+    // Saga em grupo: compensada pelo endpoint em lote
+    private boolean groupSaga;
+
+    @Column(nullable = false, length = 16)
+    private String status = PENDING;
+
+    private int attempts;
+
+    @Column(nullable = false)
+    private Instant nextAttemptAt = Instant.now();
+
+    private String lastError;
+
+    @Column(nullable = false)
+    private Instant createdAt = Instant.now();
+
+    public PendingCompensation(String sagaId, String step, List<UUID> resourceIds, boolean groupSaga, String lastError) {
+        this.sagaId = sagaId;
+        this.step = step;
+        this.resourceIds = resourceIds.stream().map(UUID::toString).collect(Collectors.joining(","));
+        this.groupSaga = groupSaga;
+        this.lastError = lastError;
+    }
+
+    public List<UUID> resourceIdList() {
+        return Arrays.stream(resourceIds.split(",")).map(UUID::fromString).toList();
+    }
+}
@@ -0,0 +1,30 @@
+package com.carara.saga.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// Posição da reconciliação incremental de uma tabela: todas as linhas com id abaixo de position já foram conferidas.
+// leaseUntil impede que duas instâncias do orquestrador varram a mesma tabela ao mesmo tempo
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "reconciliation_cursor")
+public class ReconciliationCursor {
+    @Id
+    @Column(length = 32)
+    private String scan;
+
+    private UUID position;
+
+    private Instant leaseUntil;
+
+    private Instant updatedAt;
+
+    public ReconciliationCursor(String scan) {
+        this.scan = scan;
+    }
+}
@@ -2,9 +2,11 @@ package com.carara.saga.model;
 
 import lombok.Data;
 
+import java.util.UUID;
+
 @Data
 public class ReservationDto {
-    private String reservationId;
+    private UUID reservationId;
     private String userId;
     private String journeyDate;
     private String status;
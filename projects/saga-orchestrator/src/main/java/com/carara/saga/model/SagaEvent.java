@@ -0,0 +1,44 @@
+package com.carara.saga.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// Registro append-only das transições da saga: cada transição é um único INSERT, nunca um UPDATE
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "saga_event", indexes = {
+        @Index(name = "idx_saga_event_saga_id", columnList = "sagaId"),
+        @Index(name = "idx_saga_event_type_created_at", columnList = "eventType, createdAt")
+})
+public class SagaEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "saga_event_seq")
+    @SequenceGenerator(name = "saga_event_seq", sequenceName = "saga_event_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false, length = 36)
+    private String sagaId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private SagaEventType eventType;
+
+    private String step;
+    private String resourceId;
+    private String detail;
+
+    @Column(nullable = false)
+    private Instant createdAt = Instant.now();
+
+    public SagaEvent(String sagaId, SagaEventType eventType, String step, String resourceId, String detail) {
+        this.sagaId = sagaId;
+        this.eventType = eventType;
+        this.step = step;
+        this.resourceId = resourceId;
+        this.detail = detail;
+    }
+}
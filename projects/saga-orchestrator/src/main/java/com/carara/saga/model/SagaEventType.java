@@ -0,0 +1,15 @@
+package com.carara.saga.model;
+
+public enum SagaEventType {
+    SAGA_STARTED,
+    STEP_COMPLETED,
+    STEP_FAILED,
+    STEP_COMPENSATED,
+    COMPENSATION_FAILED,
+    SAGA_SUCCEEDED,
+    SAGA_COMPENSATED;
+
+    public boolean isTerminal() {
+        return this == SAGA_SUCCEEDED || this == SAGA_COMPENSATED;
+    }
+}
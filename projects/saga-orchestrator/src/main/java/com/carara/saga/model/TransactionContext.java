@@ -1,11 +1,25 @@
 package com.carara.saga.model;
 
+import com.carara.saga.engine.SagaContext;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import java.util.ArrayList;
 import java.util.List;
 
 @Data
-public class TransactionContext {
+public class TransactionContext implements SagaContext {
+    private String sagaId;
+
+    // Dados da requisição, lidos pelos steps da saga; não voltam na resposta
+    @JsonIgnore
+    private String userId;
+    @JsonIgnore
+    private String journeyDate;
+    @JsonIgnore
+    private String seatNumber;
+    @JsonIgnore
+    private Double amount;
+
     private ReservationDto reservation;
     private PaymentDto payment;
     private NotificationDto notification;
@@ -16,8 +30,12 @@ public class TransactionContext {
     private String failureReason;
     private boolean isSuccess = false;
     private List<String> compensatedSteps = new ArrayList<>();
+
+    // Confirmação gravada na outbox, a ser enviada depois do retorno da saga
+    private boolean notificationQueued;
     
-    public void addCompletedStep(String step) {
+    // Steps independentes da saga podem concluir ao mesmo tempo, em threads diferentes
+    public synchronized void addCompletedStep(String step) {
         this.completedSteps.add(step);
     }
     
@@ -27,7 +45,8 @@ public class TransactionContext {
         this.isSuccess = false;
     }
     
-    public void addCompensatedStep(String step) {
+    // As compensações rodam em paralelo e podem concluir em threads diferentes
+    public synchronized void addCompensatedStep(String step) {
         this.compensatedSteps.add(step);
     }
     
@@ -0,0 +1,29 @@
+package com.carara.saga.repository;
+
+import com.carara.saga.model.NotificationOutbox;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long> {
+
+    // FOR UPDATE SKIP LOCKED: instâncias do orquestrador drenando ao mesmo tempo pegam linhas diferentes
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("""
+            select o from NotificationOutbox o
+            where o.status = 'PENDING' and o.nextAttemptAt <= :now
+            order by o.nextAttemptAt
+            """)
+    List<NotificationOutbox> findDue(@Param("now") Instant now, Pageable pageable);
+
+    long countByStatus(String status);
+}
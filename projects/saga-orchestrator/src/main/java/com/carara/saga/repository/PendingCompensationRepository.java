@@ -0,0 +1,29 @@
+package com.carara.saga.repository;
+
+import com.carara.saga.model.PendingCompensation;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface PendingCompensationRepository extends JpaRepository<PendingCompensation, Long> {
+
+    // FOR UPDATE SKIP LOCKED, como na outbox de confirmações
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("""
+            select c from PendingCompensation c
+            where c.status = 'PENDING' and c.nextAttemptAt <= :now
+            order by c.nextAttemptAt
+            """)
+    List<PendingCompensation> findDue(@Param("now") Instant now, Pageable pageable);
+
+    boolean existsBySagaId(String sagaId);
+}
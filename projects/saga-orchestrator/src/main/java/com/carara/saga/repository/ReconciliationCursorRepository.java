@@ -0,0 +1,18 @@
+package com.carara.saga.repository;
+
+import com.carara.saga.model.ReconciliationCursor;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface ReconciliationCursorRepository extends JpaRepository<ReconciliationCursor, String> {
+
+    // FOR UPDATE: duas instâncias disputando o lease ao mesmo tempo ficam em fila na linha
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from ReconciliationCursor c where c.scan = :scan")
+    Optional<ReconciliationCursor> lockByScan(@Param("scan") String scan);
+}
@@ -0,0 +1,29 @@
+package com.carara.saga.repository;
+
+import com.carara.saga.model.SagaEvent;
+import com.carara.saga.model.SagaEventType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface SagaEventRepository extends JpaRepository<SagaEvent, Long> {
+
+    @Query("""
+            select e.sagaId from SagaEvent e
+            where e.eventType = com.carara.saga.model.SagaEventType.SAGA_STARTED
+              and e.createdAt < :startedBefore
+              and not exists (select t.id from SagaEvent t where t.sagaId = e.sagaId and t.eventType in :terminalTypes)
+              and not exists (select c.id from PendingCompensation c where c.sagaId = e.sagaId)
+            order by e.createdAt
+            """)
+    List<String> findInFlightSagaIds(@Param("startedBefore") Instant startedBefore,
+                                     @Param("terminalTypes") Collection<SagaEventType> terminalTypes,
+                                     Pageable pageable);
+
+    List<SagaEvent> findBySagaIdOrderByIdAsc(String sagaId);
+}
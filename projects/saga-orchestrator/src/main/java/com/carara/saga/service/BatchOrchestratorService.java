@@ -0,0 +1,240 @@
+package com.carara.saga.service;
+
+import com.carara.saga.client.ParticipantClient;
+import com.carara.saga.exception.SagaStepException;
+import com.carara.saga.model.BatchReservationRequest;
+import com.carara.saga.model.BatchTransactionContext;
+import com.carara.saga.model.NotificationDto;
+import com.carara.saga.model.NotificationOutbox;
+import com.carara.saga.model.PaymentDto;
+import com.carara.saga.model.PendingCompensation;
+import com.carara.saga.model.ReservationDto;
+import com.carara.saga.model.SagaEventType;
+import com.carara.saga.model.UuidV7;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static com.carara.saga.service.OrchestratorService.compensationFailure;
+import static com.carara.saga.service.OrchestratorService.unwrap;
+
+// Saga de reserva em grupo: cada step é uma única chamada em lote ao participante, que grava todos os assentos
+// numa transação. A saga é tudo-ou-nada: uma falha em qualquer step compensa o grupo inteiro
+@Slf4j
+@Service
+public class BatchOrchestratorService {
+    private final ParticipantClient participantClient;
+    private final SagaLog sagaLog;
+    private final SagaMetrics sagaMetrics;
+    private final SagaTracing sagaTracing;
+    private final boolean notificationOutbox;
+    private final Duration compensationTimeout;
+
+    public BatchOrchestratorService(ParticipantClient participantClient, SagaLog sagaLog, SagaMetrics sagaMetrics,
+                                    SagaTracing sagaTracing,
+                                    @Value("${saga.notification.outbox.enabled:true}") boolean notificationOutbox,
+                                    @Value("${saga.compensation.timeout:10s}") Duration compensationTimeout) {
+        this.participantClient = participantClient;
+        this.sagaLog = sagaLog;
+        this.sagaMetrics = sagaMetrics;
+        this.sagaTracing = sagaTracing;
+        this.notificationOutbox = notificationOutbox;
+        this.compensationTimeout = compensationTimeout;
+    }
+
+    public CompletableFuture<BatchTransactionContext> executeBatchTransactionAsync(BatchReservationRequest request) {
+        String userId = request.getUserId();
+        List<String> seatNumbers = request.getSeatNumbers();
+        log.info("Starting group transaction for user {} - Journey: {}, Seats: {}, Amount per seat: {}",
+                userId, request.getJourneyDate(), seatNumbers, request.getAmount());
+
+        BatchTransactionContext context = new BatchTransactionContext();
+        context.setSagaId(UuidV7.next().toString());
+        // Só a quantidade de assentos: a lista inteira não cabe na coluna detail (os assentos ficam nos logs)
+        String detail = "userId=" + SagaLog.truncate(userId, SagaLog.DETAIL_USER_ID_LENGTH) + ";journeyDate=" + request.getJourneyDate()
+                + ";seats=" + seatNumbers.size() + ";amount=" + request.getAmount();
+        Timer.Sample sagaTimer = sagaMetrics.sagaStarted(SagaMetrics.GROUP);
+        Span sagaSpan = sagaTracing.sagaStarted(SagaMetrics.GROUP, context.getSagaId());
+
+        return sagaLog.sagaStarted(context.getSagaId(), detail)
+                // Step 1: Create Reservations
+                .thenCompose(v -> executeStep(context, sagaSpan, "CREATE_RESERVATION",
+                        () -> participantClient.createReservations(context.getSagaId(), userId, request.getJourneyDate(),
+                                seatNumbers, request.getAmount()).thenApply(reservations -> {
+                            context.setReservations(reservations);
+                            log.info(StepLogSampler.STEP, "{} reservations created successfully", reservations.size());
+                            return ids(reservations, ReservationDto::getReservationId);
+                        })))
+                // Step 2: Process Payments
+                .thenCompose(v -> executeStep(context, sagaSpan, "PROCESS_PAYMENT",
+                        () -> participantClient.processPayments(context.getSagaId(), reservationIds(context), request.getAmount())
+                                .thenApply(payments -> {
+                                    context.setPayments(payments);
+                                    log.info(StepLogSampler.STEP, "{} payments processed successfully", payments.size());
+                                    return ids(payments, PaymentDto::getPaymentId);
+                                })))
+                .thenCompose(v -> notificationOutbox
+                        ? queueConfirmations(context)
+                        // Step 3: Send Notifications
+                        : executeStep(context, sagaSpan, "SEND_NOTIFICATION",
+                                () -> participantClient.sendConfirmations(context.getSagaId(), reservationIds(context))
+                                        .thenApply(notifications -> {
+                                            context.setNotifications(notifications);
+                                            log.info(StepLogSampler.STEP, "{} confirmations sent successfully", notifications.size());
+                                            return ids(notifications, NotificationDto::getNotificationId);
+                                        }))
+                                .thenCompose(sent -> recorded(sagaLog.sagaFinished(context.getSagaId(), SagaEventType.SAGA_SUCCEEDED))))
+                .thenApply(v -> {
+                    context.markAsSuccess();
+                    sagaMetrics.sagaFinished(sagaTimer, SagaMetrics.GROUP, SagaMetrics.SUCCEEDED);
+                    sagaTracing.sagaFinished(sagaSpan, SagaMetrics.SUCCEEDED);
+                    log.info("Group transaction completed successfully for user {}", userId);
+                    return context;
+                })
+                .exceptionallyCompose(e -> handleFailure(context, userId, e, sagaTimer, sagaSpan));
+    }
+
+    // Um evento STEP_COMPLETED por recurso criado, para que a recuperação saiba exatamente o que compensar;
+    // o group commit do SagaLog grava todos eles num único lote
+    private CompletableFuture<Void> executeStep(BatchTransactionContext context, Span sagaSpan, String step,
+                                                Supplier<CompletableFuture<List<UUID>>> action) {
+        log.info(StepLogSampler.STEP, "Executing group step {}", step);
+        Timer.Sample stepTimer = sagaMetrics.startTimer();
+        return sagaTracing.inSpan(sagaSpan, step, action)
+                .whenComplete((resourceIds, e) -> sagaMetrics.stepFinished(stepTimer, SagaMetrics.GROUP, step, e == null))
+                .thenCompose(resourceIds -> CompletableFuture.allOf(resourceIds.stream()
+                        .map(resourceId -> sagaLog.stepCompleted(context.getSagaId(), step, resourceId.toString()))
+                        .toArray(CompletableFuture[]::new)))
+                .handle((v, e) -> {
+                    if (e != null) {
+                        throw new SagaStepException(step, unwrap(e));
+                    }
+                    context.addCompletedStep(step);
+                    return null;
+                });
+    }
+
+    // Uma linha na outbox para o grupo inteiro, gravada junto com o SAGA_SUCCEEDED
+    private CompletableFuture<Void> queueConfirmations(BatchTransactionContext context) {
+        return sagaLog.sagaSucceeded(context.getSagaId(), new NotificationOutbox(context.getSagaId(), reservationIds(context), true))
+                .handle((v, e) -> {
+                    if (e != null) {
+                        throw new SagaStepException("SEND_NOTIFICATION", unwrap(e));
+                    }
+                    context.setNotificationQueued(true);
+                    log.info("{} confirmations queued", context.getReservations().size());
+                    return null;
+                });
+    }
+
+    private CompletableFuture<BatchTransactionContext> handleFailure(BatchTransactionContext context, String userId, Throwable error,
+                                                                     Timer.Sample sagaTimer, Span sagaSpan) {
+        Throwable cause = unwrap(error);
+        String failedStep = cause instanceof SagaStepException stepError ? stepError.getStep() : null;
+        log.error("Group transaction failed at step {} for user {} - Error: {}", failedStep, userId, cause.getMessage(), cause);
+
+        context.setFailure(failedStep, cause.getMessage());
+
+        log.info("Starting group compensation process");
+        return recorded(sagaLog.stepFailed(context.getSagaId(), failedStep, cause.getMessage()))
+                .thenCompose(v -> compensate(context, sagaSpan))
+                .handle((allCompensated, compensationError) -> {
+                    String outcome = compensationError == null && allCompensated
+                            ? SagaMetrics.COMPENSATED : SagaMetrics.COMPENSATION_FAILED;
+                    sagaMetrics.sagaFinished(sagaTimer, SagaMetrics.GROUP, outcome);
+                    sagaTracing.sagaFinished(sagaSpan.error(cause), outcome);
+                    if (compensationError != null) {
+                        log.error("Error during group compensation process: {}", compensationError.getMessage(), compensationError);
+                        context.setFailure(failedStep, cause.getMessage() + " | Compensation also failed: " + compensationError.getMessage());
+                    }
+                    return context;
+                });
+    }
+
+    // Compensa o grupo inteiro com uma chamada em lote por step; também é usado pela recuperação
+    public CompletableFuture<Boolean> compensate(BatchTransactionContext context) {
+        return compensate(context, null);
+    }
+
+    // Estorno e cancelamento do grupo em paralelo, como na saga individual
+    private CompletableFuture<Boolean> compensate(BatchTransactionContext context, Span sagaSpan) {
+        List<CompletableFuture<Boolean>> compensations = new ArrayList<>();
+
+        if (!context.getPayments().isEmpty()) {
+            List<UUID> paymentIds = ids(context.getPayments(), PaymentDto::getPaymentId);
+            compensations.add(compensateStep(context, sagaSpan, "REFUND_PAYMENT", paymentIds,
+                    () -> participantClient.refundPayments(context.getSagaId(), paymentIds)));
+        }
+
+        if (!context.getReservations().isEmpty()) {
+            List<UUID> reservationIds = reservationIds(context);
+            compensations.add(compensateStep(context, sagaSpan, "CANCEL_RESERVATION", reservationIds,
+                    () -> participantClient.cancelReservations(context.getSagaId(), reservationIds)));
+        }
+
+        return CompletableFuture.allOf(compensations.toArray(CompletableFuture[]::new))
+                .thenApply(v -> compensations.stream().allMatch(CompletableFuture::join))
+                .thenCompose(allCompensated -> allCompensated
+                ? recorded(sagaLog.sagaFinished(context.getSagaId(), SagaEventType.SAGA_COMPENSATED)).thenApply(v -> true)
+                : CompletableFuture.completedFuture(false));
+    }
+
+    private <T> CompletableFuture<Boolean> compensateStep(BatchTransactionContext context, Span sagaSpan, String compensationStep,
+                                                          List<UUID> resourceIds, Supplier<CompletableFuture<T>> action) {
+        log.info("Executing group compensation {} for {} resources", compensationStep, resourceIds.size());
+        Timer.Sample compensationTimer = sagaMetrics.startTimer();
+        return sagaTracing.inSpan(sagaSpan, compensationStep, action)
+                .orTimeout(compensationTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .handle((response, e) -> e == null ? null : unwrap(e))
+                .thenCompose(error -> {
+                    sagaMetrics.compensationFinished(compensationTimer, SagaMetrics.GROUP, compensationStep, error == null);
+                    if (error == null) {
+                        context.addCompensatedStep(compensationStep);
+                        log.info("Group compensation {} completed successfully", compensationStep);
+                        return recordedForEach(resourceIds, resourceId ->
+                                sagaLog.stepCompensated(context.getSagaId(), compensationStep, resourceId))
+                                .thenApply(v -> true);
+                    }
+                    String reason = compensationFailure(error, compensationTimeout);
+                    log.error("Failed to execute group compensation {}: {} - retrying in background", compensationStep, reason);
+                    // Uma única compensação pendente para o grupo, gravada junto com o primeiro COMPENSATION_FAILED
+                    PendingCompensation pending = new PendingCompensation(context.getSagaId(), compensationStep, resourceIds, true, reason);
+                    return recorded(sagaLog.compensationFailed(context.getSagaId(), compensationStep, resourceIds.get(0).toString(), reason, pending))
+                            .thenCompose(v -> recordedForEach(resourceIds.subList(1, resourceIds.size()), resourceId ->
+                                    sagaLog.compensationFailed(context.getSagaId(), compensationStep, resourceId, reason)))
+                            .thenApply(v -> false);
+                });
+    }
+
+    private CompletableFuture<Void> recordedForEach(List<UUID> resourceIds, Function<String, CompletableFuture<Void>> logWrite) {
+        return CompletableFuture.allOf(resourceIds.stream()
+                .map(resourceId -> recorded(logWrite.apply(resourceId.toString())))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    private CompletableFuture<Void> recorded(CompletableFuture<Void> logWrite) {
+        return logWrite.exceptionally(e -> {
+            log.error("Failed to record saga log event: {}", unwrap(e).getMessage());
+            return null;
+        });
+    }
+
+    private static List<UUID> reservationIds(BatchTransactionContext context) {
+        return ids(context.getReservations(), ReservationDto::getReservationId);
+    }
+
+    private static <T> List<UUID> ids(List<T> resources, Function<T, UUID> id) {
+        return resources.stream().map(id).toList();
+    }
+}
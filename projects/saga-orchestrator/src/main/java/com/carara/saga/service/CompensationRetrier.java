@@ -0,0 +1,236 @@
+package com.carara.saga.service;
+
+import com.carara.saga.client.ParticipantClient;
+import com.carara.saga.client.RetryPolicy;
+import com.carara.saga.model.PendingCompensation;
+import com.carara.saga.model.SagaEvent;
+import com.carara.saga.model.SagaEventType;
+import com.carara.saga.repository.PendingCompensationRepository;
+import com.carara.saga.repository.SagaEventRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.carara.saga.service.OrchestratorService.compensationFailure;
+import static com.carara.saga.service.OrchestratorService.unwrap;
+
+// Repete em segundo plano as compensações que falharam ou estouraram o prazo durante a saga, com backoff exponencial.
+// A saga é marcada como compensada quando o log mostra todos os steps concluídos desfeitos; as sagas com
+// compensação pendente ficam fora da recuperação, que não precisa mais esperar o período de tolerância por elas
+@Slf4j
+@Service
+public class CompensationRetrier {
+    private static final Map<String, String> COMPENSATION_OF = Map.of(
+            "CREATE_RESERVATION", "CANCEL_RESERVATION",
+            "PROCESS_PAYMENT", "REFUND_PAYMENT");
+
+    private final PendingCompensationRepository pendingCompensationRepository;
+    private final SagaEventRepository sagaEventRepository;
+    private final ParticipantClient participantClient;
+    private final SagaLog sagaLog;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration timeout;
+    private final RetryPolicy retryPolicy;
+    private final ScheduledExecutorService executor;
+
+    public CompensationRetrier(PendingCompensationRepository pendingCompensationRepository,
+                               SagaEventRepository sagaEventRepository,
+                               ParticipantClient participantClient,
+                               SagaLog sagaLog,
+                               TransactionTemplate transactionTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${saga.compensation.retry.batch-size:50}") int batchSize,
+                               @Value("${saga.compensation.retry.poll-interval:1s}") Duration pollInterval,
+                               @Value("${saga.compensation.timeout:10s}") Duration timeout,
+                               @Value("${saga.compensation.retry.max-attempts:20}") int maxAttempts,
+                               @Value("${saga.compensation.retry.initial-backoff:1s}") Duration initialBackoff,
+                               @Value("${saga.compensation.retry.max-backoff:5m}") Duration maxBackoff) {
+        this.pendingCompensationRepository = pendingCompensationRepository;
+        this.sagaEventRepository = sagaEventRepository;
+        this.participantClient = participantClient;
+        this.sagaLog = sagaLog;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.timeout = timeout;
+        this.retryPolicy = new RetryPolicy(maxAttempts, initialBackoff, 2.0, maxBackoff, 0.5, null);
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "compensation-retrier");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        executor.scheduleWithFixedDelay(this::drain, pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    public void drain() {
+        try {
+            while (retryBatch() == batchSize && !executor.isShutdown()) {
+                log.debug("Pending compensation backlog, retrying next batch");
+            }
+        } catch (Exception e) {
+            log.error("Pending compensation retry failed: {}", e.getMessage(), e);
+        }
+    }
+
+    int retryBatch() {
+        Instant now = Instant.now();
+        List<PendingCompensation> due = transactionTemplate.execute(status -> {
+            List<PendingCompensation> rows = pendingCompensationRepository.findDue(now, PageRequest.of(0, batchSize));
+            // Lease: o dobro do prazo da compensação, para outra instância não repetir a mesma chamada ao mesmo tempo
+            rows.forEach(row -> row.setNextAttemptAt(now.plus(timeout.multipliedBy(2))));
+            return rows;
+        });
+        if (due == null || due.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<?>> calls = due.stream()
+                .<CompletableFuture<?>>map(row -> compensate(row).orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS))
+                .toList();
+        try {
+            CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).get(timeout.toMillis() + 1000, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // Falhas tratadas abaixo, linha a linha
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<PendingCompensation> compensated = new ArrayList<>();
+        List<PendingCompensation> failed = new ArrayList<>();
+        for (int i = 0; i < due.size(); i++) {
+            CompletableFuture<?> call = calls.get(i);
+            if (!call.isDone()) {
+                continue;
+            }
+            Throwable error = call.handle((v, e) -> e).getNow(null);
+            if (error == null) {
+                compensated.add(due.get(i));
+            } else {
+                failed.add(retryLater(due.get(i), unwrap(error)));
+            }
+        }
+        record(compensated, failed);
+        return due.size();
+    }
+
+    private CompletableFuture<?> compensate(PendingCompensation row) {
+        String sagaId = row.getSagaId();
+        List<UUID> resourceIds = row.resourceIdList();
+        try {
+            return switch (row.getStep()) {
+                case "REFUND_PAYMENT" -> row.isGroupSaga()
+                        ? participantClient.refundPayments(sagaId, resourceIds)
+                        : participantClient.refundPayment(sagaId, resourceIds.get(0));
+                case "CANCEL_RESERVATION" -> row.isGroupSaga()
+                        ? participantClient.cancelReservations(sagaId, resourceIds)
+                        : participantClient.cancelReservation(sagaId, resourceIds.get(0));
+                default -> throw new IllegalArgumentException("Unknown compensation step: " + row.getStep());
+            };
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private PendingCompensation retryLater(PendingCompensation row, Throwable error) {
+        String reason = compensationFailure(error, timeout);
+        reason = reason == null ? error.getClass().getSimpleName() : reason;
+        row.setAttempts(row.getAttempts() + 1);
+        row.setLastError(reason.substring(0, Math.min(255, reason.length())));
+        if (row.getAttempts() >= retryPolicy.maxAttempts()) {
+            row.setStatus(PendingCompensation.FAILED);
+            log.error("Giving up on compensation {} for saga {} after {} attempts: {}",
+                    row.getStep(), row.getSagaId(), row.getAttempts(), reason);
+        } else {
+            row.setNextAttemptAt(Instant.now().plus(retryPolicy.backoff(row.getAttempts(), ThreadLocalRandom.current().nextDouble())));
+            log.warn("Compensation {} for saga {} failed (attempt {}), retrying at {}: {}",
+                    row.getStep(), row.getSagaId(), row.getAttempts(), row.getNextAttemptAt(), reason);
+        }
+        return row;
+    }
+
+    private void record(List<PendingCompensation> compensated, List<PendingCompensation> failed) {
+        // Os STEP_COMPENSATED precisam estar gravados antes de conferir se a saga terminou
+        CompletableFuture.allOf(compensated.stream()
+                .flatMap(row -> row.resourceIdList().stream()
+                        .map(resourceId -> sagaLog.stepCompensated(row.getSagaId(), row.getStep(), resourceId.toString())))
+                .toArray(CompletableFuture[]::new)).join();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!compensated.isEmpty()) {
+                pendingCompensationRepository.deleteAllInBatch(compensated);
+            }
+            if (!failed.isEmpty()) {
+                pendingCompensationRepository.saveAll(failed);
+            }
+        });
+
+        Set<String> sagaIds = new LinkedHashSet<>();
+        compensated.forEach(row -> {
+            log.info("Compensation {} for saga {} completed on attempt {}", row.getStep(), row.getSagaId(), row.getAttempts() + 1);
+            sagaIds.add(row.getSagaId());
+        });
+        sagaIds.stream().filter(this::fullyCompensated).forEach(sagaId -> {
+            log.info("Saga {} fully compensated", sagaId);
+            sagaLog.sagaFinished(sagaId, SagaEventType.SAGA_COMPENSATED).join();
+        });
+
+        meterRegistry.counter("saga.compensation.retries", "outcome", "compensated").increment(compensated.size());
+        failed.forEach(row -> meterRegistry.counter("saga.compensation.retries", "outcome",
+                PendingCompensation.FAILED.equals(row.getStatus()) ? "failed" : "retry").increment());
+    }
+
+    // Todo recurso criado por um step concluído tem o STEP_COMPENSATED correspondente no log
+    private boolean fullyCompensated(String sagaId) {
+        if (pendingCompensationRepository.existsBySagaId(sagaId)) {
+            return false;
+        }
+        Set<String> toUndo = new HashSet<>();
+        Set<String> undone = new HashSet<>();
+        for (SagaEvent event : sagaEventRepository.findBySagaIdOrderByIdAsc(sagaId)) {
+            if (event.getEventType().isTerminal()) {
+                return false;
+            }
+            if (event.getEventType() == SagaEventType.STEP_COMPLETED && COMPENSATION_OF.containsKey(event.getStep())) {
+                toUndo.add(COMPENSATION_OF.get(event.getStep()) + ":" + event.getResourceId());
+            } else if (event.getEventType() == SagaEventType.STEP_COMPENSATED) {
+                undone.add(event.getStep() + ":" + event.getResourceId());
+            }
+        }
+        return undone.containsAll(toUndo);
+    }
+}
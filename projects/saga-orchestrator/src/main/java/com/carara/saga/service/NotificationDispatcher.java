@@ -0,0 +1,178 @@
+package com.carara.saga.service;
+
+import com.carara.saga.client.ParticipantClient;
+import com.carara.saga.client.RetryPolicy;
+import com.carara.saga.model.NotificationOutbox;
+import com.carara.saga.repository.NotificationOutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.carara.saga.service.OrchestratorService.unwrap;
+
+// Drena a outbox de confirmações numa thread própria: reserva um lote de linhas vencidas (lease), envia todas
+// ao serviço de notificação e só busca o próximo lote depois das respostas, então no máximo batch-size
+// confirmações ficam em voo. Falhas voltam para a fila com backoff exponencial até max-attempts
+@Slf4j
+@Service
+public class NotificationDispatcher {
+    private final NotificationOutboxRepository notificationOutboxRepository;
+    private final ParticipantClient participantClient;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration lease;
+    private final RetryPolicy retryPolicy;
+    private final ScheduledExecutorService executor;
+
+    public NotificationDispatcher(NotificationOutboxRepository notificationOutboxRepository,
+                                  ParticipantClient participantClient,
+                                  TransactionTemplate transactionTemplate,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${saga.notification.outbox.batch-size:100}") int batchSize,
+                                  @Value("${saga.notification.outbox.poll-interval:500ms}") Duration pollInterval,
+                                  @Value("${saga.notification.outbox.lease:30s}") Duration lease,
+                                  @Value("${saga.notification.outbox.max-attempts:10}") int maxAttempts,
+                                  @Value("${saga.notification.outbox.initial-backoff:1s}") Duration initialBackoff,
+                                  @Value("${saga.notification.outbox.max-backoff:5m}") Duration maxBackoff) {
+        this.notificationOutboxRepository = notificationOutboxRepository;
+        this.participantClient = participantClient;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.lease = lease;
+        this.retryPolicy = new RetryPolicy(maxAttempts, initialBackoff, 2.0, maxBackoff, 0.5, null);
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        executor.scheduleWithFixedDelay(this::drain, pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    public void drain() {
+        try {
+            // Enquanto vierem lotes cheios ainda há backlog: segue drenando sem esperar o próximo ciclo
+            while (dispatchBatch() == batchSize && !executor.isShutdown()) {
+                log.debug("Notification outbox backlog, dispatching next batch");
+            }
+        } catch (Exception e) {
+            log.error("Notification outbox dispatch failed: {}", e.getMessage(), e);
+        }
+    }
+
+    int dispatchBatch() {
+        Instant now = Instant.now();
+        List<NotificationOutbox> due = transactionTemplate.execute(status -> {
+            List<NotificationOutbox> rows = notificationOutboxRepository.findDue(now, PageRequest.of(0, batchSize));
+            // Se esta instância cair no meio do envio, as linhas vencem de novo ao fim do lease e são reenviadas;
+            // a Idempotency-Key da saga evita confirmação duplicada
+            rows.forEach(row -> row.setNextAttemptAt(now.plus(lease)));
+            return rows;
+        });
+        if (due == null || due.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<?>> sends = due.stream().map(this::send).toList();
+        try {
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).get(lease.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // As que não responderam a tempo continuam reservadas e voltam quando o lease vencer
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<NotificationOutbox> sent = new ArrayList<>();
+        List<NotificationOutbox> failed = new ArrayList<>();
+        for (int i = 0; i < due.size(); i++) {
+            CompletableFuture<?> send = sends.get(i);
+            if (!send.isDone()) {
+                continue;
+            }
+            Throwable error = send.handle((v, e) -> e).getNow(null);
+            if (error == null) {
+                sent.add(due.get(i));
+            } else {
+                failed.add(retryLater(due.get(i), unwrap(error)));
+            }
+        }
+        record(sent, failed);
+        return due.size();
+    }
+
+    private CompletableFuture<?> send(NotificationOutbox row) {
+        try {
+            return row.isGroupSaga()
+                    ? participantClient.sendConfirmations(row.getSagaId(), row.reservationIdList())
+                    : participantClient.sendConfirmation(row.getSagaId(), row.reservationIdList().get(0));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private NotificationOutbox retryLater(NotificationOutbox row, Throwable error) {
+        String reason = error.getMessage() == null ? error.getClass().getSimpleName() : error.getMessage();
+        row.setAttempts(row.getAttempts() + 1);
+        row.setLastError(reason.substring(0, Math.min(255, reason.length())));
+        if (row.getAttempts() >= retryPolicy.maxAttempts()) {
+            row.setStatus(NotificationOutbox.FAILED);
+            log.error("Giving up on confirmation for saga {} after {} attempts: {}", row.getSagaId(), row.getAttempts(), reason);
+        } else {
+            row.setNextAttemptAt(Instant.now().plus(retryPolicy.backoff(row.getAttempts(), ThreadLocalRandom.current().nextDouble())));
+            log.warn("Confirmation for saga {} failed (attempt {}), retrying at {}: {}",
+                    row.getSagaId(), row.getAttempts(), row.getNextAttemptAt(), reason);
+        }
+        return row;
+    }
+
+    private void record(List<NotificationOutbox> sent, List<NotificationOutbox> failed) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!sent.isEmpty()) {
+                notificationOutboxRepository.deleteAllInBatch(sent);
+            }
+            if (!failed.isEmpty()) {
+                notificationOutboxRepository.saveAll(failed);
+            }
+        });
+
+        Instant now = Instant.now();
+        Timer lag = Timer.builder("saga.notification.outbox.lag")
+                .description("Time from saga commit to confirmation sent")
+                .register(meterRegistry);
+        sent.forEach(row -> lag.record(Duration.between(row.getCreatedAt(), now)));
+        meterRegistry.counter("saga.notification.outbox.dispatches", "outcome", "sent").increment(sent.size());
+        failed.forEach(row -> meterRegistry.counter("saga.notification.outbox.dispatches", "outcome",
+                NotificationOutbox.FAILED.equals(row.getStatus()) ? "failed" : "retry").increment());
+    }
+}
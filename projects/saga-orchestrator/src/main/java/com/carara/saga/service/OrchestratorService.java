@@ -1,55 +1,133 @@
 package com.carara.saga.service;
 
+import com.carara.saga.engine.SagaDefinition;
+import com.carara.saga.engine.SagaEngine;
+import com.carara.saga.exception.SagaStepException;
 import com.carara.saga.model.NotificationDto;
+import com.carara.saga.model.NotificationOutbox;
 import com.carara.saga.model.PaymentDto;
 import com.carara.saga.model.ReservationDto;
+import com.carara.saga.model.SagaEventType;
 import com.carara.saga.model.TransactionContext;
+import com.carara.saga.model.UuidV7;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+import static com.carara.saga.config.SagaDefinitionConfig.SEND_NOTIFICATION;
 
 @Slf4j
 @Service
 public class OrchestratorService {
-    private final RestTemplate restTemplate;
-    private final String reservationServiceUrl;
-    private final String paymentServiceUrl;
-    private final String notificationServiceUrl;
-    
-    public OrchestratorService(
-            @Value("${services.reservation.url}") String reservationServiceUrl,
-            @Value("${services.payment.url}") String paymentServiceUrl,
-            @Value("${services.notification.url}") String notificationServiceUrl) {
-        this.restTemplate = new RestTemplate();
-        this.reservationServiceUrl = reservationServiceUrl;
-        this.paymentServiceUrl = paymentServiceUrl;
-        this.notificationServiceUrl = notificationServiceUrl;
-        log.info("OrchestratorService initialized with URLs - Reservation: {}, Payment: {}, Notification: {}", 
-                reservationServiceUrl, paymentServiceUrl, notificationServiceUrl);
+    private final SagaDefinition<TransactionContext> reservationSaga;
+    private final SagaDefinition<TransactionContext> reservationSagaWithOutbox;
+    private final SagaEngine sagaEngine;
+    private final SagaLog sagaLog;
+    private final SagaMetrics sagaMetrics;
+    private final SagaTracing sagaTracing;
+    private final boolean notificationOutbox;
+
+    public OrchestratorService(SagaDefinition<TransactionContext> reservationSaga, SagaEngine sagaEngine, SagaLog sagaLog,
+                               SagaMetrics sagaMetrics, SagaTracing sagaTracing,
+                               @Value("${saga.notification.outbox.enabled:true}") boolean notificationOutbox) {
+        this.reservationSaga = reservationSaga;
+        // Com a outbox a confirmação sai depois, pelo NotificationDispatcher, e não é um step da saga
+        this.reservationSagaWithOutbox = reservationSaga.hasStep(SEND_NOTIFICATION)
+                ? reservationSaga.without(SEND_NOTIFICATION) : reservationSaga;
+        this.sagaEngine = sagaEngine;
+        this.sagaLog = sagaLog;
+        this.sagaMetrics = sagaMetrics;
+        this.sagaTracing = sagaTracing;
+        this.notificationOutbox = notificationOutbox;
     }
-    
+
     public TransactionContext executeTransaction(String userId, String journeyDate,
                                               String seatNumber, Double amount) {
         return executeTransaction(userId, journeyDate, seatNumber, amount, null);
     }
-    
+
     public TransactionContext executeTransaction(String userId, String journeyDate,
                                               String seatNumber, Double amount, String simulateFailureAt) {
-        log.info("Starting transaction execution for user {} - Journey: {}, Seat: {}, Amount: {}", 
+        return executeTransactionAsync(userId, journeyDate, seatNumber, amount, simulateFailureAt).join();
+    }
+
+    public CompletableFuture<TransactionContext> executeTransactionAsync(String userId, String journeyDate,
+                                                                         String seatNumber, Double amount) {
+        return executeTransactionAsync(userId, journeyDate, seatNumber, amount, null);
+    }
+
+    // Executa os steps da definição pelo SagaEngine sem bloquear nenhuma thread: cada chamada HTTP é
+    // não-bloqueante e cada step é encadeado na conclusão dos steps de que depende
+    public CompletableFuture<TransactionContext> executeTransactionAsync(String userId, String journeyDate,
+                                                                         String seatNumber, Double amount,
+                                                                         String simulateFailureAt) {
+        log.info("Starting transaction execution for user {} - Journey: {}, Seat: {}, Amount: {}",
                 userId, journeyDate, seatNumber, amount);
-        
+
         TransactionContext context = new TransactionContext();
-        String currentStep = null;
-        
-        try {
-            // Step 1: Create Reservation
-            currentStep = "CREATE_RESERVATION";
-            log.info("Step 1: Creating reservation");
-            if (currentStep.equals(simulateFailureAt)) {
+        context.setSagaId(UuidV7.next().toString());
+        context.setUserId(userId);
+        context.setJourneyDate(journeyDate);
+        context.setSeatNumber(seatNumber);
+        context.setAmount(amount);
+        String detail = "userId=" + SagaLog.truncate(userId, SagaLog.DETAIL_USER_ID_LENGTH) + ";journeyDate=" + journeyDate + ";seatNumber=" + seatNumber + ";amount=" + amount;
+        Timer.Sample sagaTimer = sagaMetrics.sagaStarted(SagaMetrics.SINGLE);
+        Span sagaSpan = sagaTracing.sagaStarted(SagaMetrics.SINGLE, context.getSagaId());
+        // Uma falha simulada na notificação ainda passa pelo step síncrono, para exercitar a compensação
+        boolean queueConfirmation = notificationOutbox && !SEND_NOTIFICATION.equals(simulateFailureAt);
+        SagaDefinition<TransactionContext> definition = queueConfirmation ? reservationSagaWithOutbox : reservationSaga;
+
+        return sagaLog.sagaStarted(context.getSagaId(), detail)
+                .thenCompose(v -> sagaEngine.execute(definition, context, sagaSpan, step -> {
+                    if (step.equals(simulateFailureAt)) {
+                        simulateFailure(context, step, userId, journeyDate, seatNumber, amount);
+                    }
+                }))
+                .thenCompose(v -> queueConfirmation
+                        ? queueConfirmation(context)
+                        // Se o evento final não for gravado, a recuperação conclui a saga a partir dos steps registrados
+                        : recorded(sagaLog.sagaFinished(context.getSagaId(), SagaEventType.SAGA_SUCCEEDED)))
+                .thenApply(v -> {
+                    // Mark transaction as successful
+                    context.markAsSuccess();
+                    sagaMetrics.sagaFinished(sagaTimer, SagaMetrics.SINGLE, SagaMetrics.SUCCEEDED);
+                    sagaTracing.sagaFinished(sagaSpan, SagaMetrics.SUCCEEDED);
+                    log.info("Transaction completed successfully for user {}", userId);
+                    return context;
+                })
+                .exceptionallyCompose(e -> handleFailure(context, userId, e, sagaTimer, sagaSpan));
+    }
+
+    // SAGA_SUCCEEDED e a confirmação devida num único commit: se ele falhar, a saga é compensada
+    // como se o envio tivesse falhado, porque nada garante que a confirmação seria enviada
+    private CompletableFuture<Void> queueConfirmation(TransactionContext context) {
+        NotificationOutbox confirmation = new NotificationOutbox(context.getSagaId(),
+                List.of(context.getReservation().getReservationId()), false);
+        return sagaLog.sagaSucceeded(context.getSagaId(), confirmation).handle((v, e) -> {
+            if (e != null) {
+                throw new SagaStepException(SEND_NOTIFICATION, unwrap(e));
+            }
+            context.setNotificationQueued(true);
+            log.info("Confirmation queued for reservation {}", context.getReservation().getReservationId());
+            return null;
+        });
+    }
+
+    private void simulateFailure(TransactionContext context, String step, String userId, String journeyDate,
+                                 String seatNumber, Double amount) {
+        switch (step) {
+            case "CREATE_RESERVATION" -> {
                 // Criar uma reservation com status FAILED para mostrar no contexto
                 ReservationDto failedReservation = new ReservationDto();
-                failedReservation.setReservationId(java.util.UUID.randomUUID().toString());
+                failedReservation.setReservationId(UuidV7.next());
                 failedReservation.setUserId(userId);
                 failedReservation.setJourneyDate(journeyDate);
                 failedReservation.setSeatNumber(seatNumber);
@@ -58,131 +136,85 @@ public class OrchestratorService {
                 context.setReservation(failedReservation);
                 throw new RuntimeException("Reservation service failed to create reservation");
             }
-            ReservationDto reservation = createReservation(userId, journeyDate, seatNumber, amount);
-            context.setReservation(reservation);
-            context.addCompletedStep(currentStep);
-            log.info("Reservation created successfully - ID: {}", reservation.getReservationId());
-            
-            // Step 2: Process Payment
-            currentStep = "PROCESS_PAYMENT";
-            log.info("Step 2: Processing payment");
-            if (currentStep.equals(simulateFailureAt)) {
+            case "PROCESS_PAYMENT" -> {
                 // Criar um payment com status FAILED para mostrar no contexto
                 PaymentDto failedPayment = new PaymentDto();
-                failedPayment.setPaymentId(java.util.UUID.randomUUID().toString());
+                failedPayment.setPaymentId(UuidV7.next());
                 failedPayment.setReservationId(context.getReservation().getReservationId());
                 failedPayment.setAmount(amount);
                 failedPayment.setStatus("FAILED");
                 context.setPayment(failedPayment);
                 throw new RuntimeException("Payment service failed to process payment");
             }
-            PaymentDto payment = processPayment(reservation.getReservationId(), amount);
-            context.setPayment(payment);
-            context.addCompletedStep(currentStep);
-            log.info("Payment processed successfully - ID: {}", payment.getPaymentId());
-            
-            // Step 3: Send Notification
-            currentStep = "SEND_NOTIFICATION";
-            log.info("Step 3: Sending confirmation");
-            if (currentStep.equals(simulateFailureAt)) {
+            case "SEND_NOTIFICATION" -> {
                 // Para uma falha mais realística, vamos criar um notification com status FAILED
                 NotificationDto failedNotification = new NotificationDto();
-                failedNotification.setNotificationId(java.util.UUID.randomUUID().toString());
+                failedNotification.setNotificationId(UuidV7.next());
                 failedNotification.setReservationId(context.getReservation().getReservationId());
                 failedNotification.setNotificationType("CONFIRMATION");
                 failedNotification.setStatus("FAILED");
                 context.setNotification(failedNotification);
                 throw new RuntimeException("Notification service failed to send confirmation");
             }
-            NotificationDto notification = sendConfirmation(context.getReservation().getReservationId());
-            context.setNotification(notification);
-            context.addCompletedStep(currentStep);
-            log.info("Confirmation sent successfully - ID: {}", notification.getNotificationId());
-            
-            // Mark transaction as successful
-            context.markAsSuccess();
-            log.info("Transaction completed successfully for user {}", userId);
-            return context;
-            
-        } catch (Exception e) {
-            log.error("Transaction failed at step {} for user {} - Error: {}", currentStep, userId, e.getMessage(), e);
-            
-            try {
-                // Set failure information
-                context.setFailure(currentStep, e.getMessage());
-                
-                log.info("Starting compensation process");
-                executeCompensation(context);
-                
-                log.info("Compensation completed for failed transaction. Returning context with failure details.");
-                return context; // Retorna o contexto em vez de lançar exceção
-                
-            } catch (Exception compensationError) {
-                log.error("Error during compensation process: {}", compensationError.getMessage(), compensationError);
-                // Mesmo se a compensação falhar, retorna o contexto com as informações disponíveis
-                context.setFailure(currentStep, e.getMessage() + " | Compensation also failed: " + compensationError.getMessage());
-                return context;
-            }
+            // Steps novos da definição não têm estado de falha próprio no contexto
+            default -> throw new RuntimeException("Simulated failure at step " + step);
         }
     }
-    
-    private void executeCompensation(TransactionContext context) {
-        // Execute compensation in reverse order
-        if (context.getPayment() != null) {
-            try {
-                log.info("Compensating payment - ID: {}", context.getPayment().getPaymentId());
-                refundPayment(context.getPayment().getPaymentId());
-                context.addCompensatedStep("REFUND_PAYMENT");
-                log.info("Payment compensation completed successfully");
-            } catch (Exception e) {
-                log.error("Failed to compensate payment: {}", e.getMessage());
-            }
-        }
-        
-        if (context.getReservation() != null) {
-            try {
-                log.info("Compensating reservation - ID: {}", context.getReservation().getReservationId());
-                cancelReservation(context.getReservation().getReservationId());
-                context.addCompensatedStep("CANCEL_RESERVATION");
-                log.info("Reservation compensation completed successfully");
-            } catch (Exception e) {
-                log.error("Failed to compensate reservation: {}", e.getMessage());
-            }
-        }
+
+    private CompletableFuture<TransactionContext> handleFailure(TransactionContext context, String userId, Throwable error,
+                                                                Timer.Sample sagaTimer, Span sagaSpan) {
+        Throwable cause = unwrap(error);
+        String failedStep = cause instanceof SagaStepException stepError ? stepError.getStep() : null;
+        log.error("Transaction failed at step {} for user {} - Error: {}", failedStep, userId, cause.getMessage(), cause);
+
+        // Set failure information
+        context.setFailure(failedStep, cause.getMessage());
+
+        log.info("Starting compensation process");
+        return recorded(sagaLog.stepFailed(context.getSagaId(), failedStep, cause.getMessage()))
+                .thenCompose(v -> compensate(context, sagaSpan))
+                .handle((allCompensated, compensationError) -> {
+                    String outcome = compensationError == null && allCompensated
+                            ? SagaMetrics.COMPENSATED : SagaMetrics.COMPENSATION_FAILED;
+                    sagaMetrics.sagaFinished(sagaTimer, SagaMetrics.SINGLE, outcome);
+                    sagaTracing.sagaFinished(sagaSpan.error(cause), outcome);
+                    if (compensationError == null) {
+                        log.info("Compensation completed for failed transaction. Returning context with failure details.");
+                    } else {
+                        log.error("Error during compensation process: {}", compensationError.getMessage(), compensationError);
+                        // Mesmo se a compensação falhar, retorna o contexto com as informações disponíveis
+                        context.setFailure(failedStep, cause.getMessage() + " | Compensation also failed: " + compensationError.getMessage());
+                    }
+                    return context; // Retorna o contexto em vez de lançar exceção
+                });
     }
-    
-    private ReservationDto createReservation(String userId, String journeyDate,
-                                           String seatNumber, Double amount) {
-        String url = String.format("%s?userId=%s&journeyDate=%s&seatNumber=%s&amount=%s",
-                reservationServiceUrl, userId, journeyDate, seatNumber, amount);
-        log.info("Calling reservation service: {}", url);
-        return restTemplate.postForObject(url, null, ReservationDto.class);
+
+    // Compensa os steps registrados no contexto; também é usado pela recuperação de sagas interrompidas.
+    // A saga só é marcada como compensada quando todas as compensações tiverem sucesso,
+    // caso contrário ela continua em andamento no log e será retomada pela recuperação
+    public CompletableFuture<Boolean> compensate(TransactionContext context) {
+        return compensate(context, null);
     }
-    
-    private ReservationDto cancelReservation(String reservationId) {
-        String url = String.format("%s/%s/cancel", reservationServiceUrl, reservationId);
-        log.info("Calling reservation cancellation: {}", url);
-        return restTemplate.postForObject(url, null, ReservationDto.class);
+
+    private CompletableFuture<Boolean> compensate(TransactionContext context, Span sagaSpan) {
+        return sagaEngine.compensate(reservationSaga, context, sagaSpan).thenCompose(allCompensated -> allCompensated
+                ? recorded(sagaLog.sagaFinished(context.getSagaId(), SagaEventType.SAGA_COMPENSATED)).thenApply(v -> true)
+                : CompletableFuture.completedFuture(false));
     }
-    
-    private PaymentDto processPayment(String reservationId, Double amount) {
-        String url = String.format("%s?reservationId=%s&amount=%s",
-                paymentServiceUrl, reservationId, amount);
-        log.info("Calling payment service: {}", url);
-        return restTemplate.postForObject(url, null, PaymentDto.class);
+
+    // Falhas ao gravar o log fora dos steps não podem interromper o fim da saga nem a compensação
+    private CompletableFuture<Void> recorded(CompletableFuture<Void> logWrite) {
+        return logWrite.exceptionally(e -> {
+            log.error("Failed to record saga log event: {}", unwrap(e).getMessage());
+            return null;
+        });
     }
-    
-    private PaymentDto refundPayment(String paymentId) {
-        String url = String.format("%s/%s/refund", paymentServiceUrl, paymentId);
-        log.info("Calling payment refund: {}", url);
-        return restTemplate.postForObject(url, null, PaymentDto.class);
+
+    public static String compensationFailure(Throwable error, Duration timeout) {
+        return error instanceof TimeoutException ? "Compensation timed out after " + timeout.toMillis() + " ms" : error.getMessage();
     }
-    
-    private NotificationDto sendConfirmation(String reservationId) {
-        String url = String.format("%s/confirm?reservationId=%s",
-                notificationServiceUrl, reservationId);
-        log.info("Calling notification service: {}", url);
-        return restTemplate.postForObject(url, null, NotificationDto.class);
+
+    public static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
     }
 }
-
@@ -0,0 +1,312 @@
+package com.carara.saga.service;
+
+import com.carara.saga.client.ParticipantClient;
+import com.carara.saga.client.ReconciliationClient;
+import com.carara.saga.model.KeysetPageDto;
+import com.carara.saga.model.PaymentDto;
+import com.carara.saga.model.ReconciliationCursor;
+import com.carara.saga.model.ReservationDto;
+import com.carara.saga.repository.ReconciliationCursorRepository;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+import static com.carara.saga.service.OrchestratorService.unwrap;
+
+// Reconciliação incremental entre pagamentos e reservas, para o que as compensações deixaram para trás:
+// pagamento APPROVED de reserva CANCELED ou inexistente é estornado, reserva CREATED sem pagamento APPROVED é
+// cancelada. Cada tabela é varrida por id (UUID v7, em ordem de criação) da última posição salva até
+// now - grace-period, em lotes de chunk-size cruzados com o outro participante por uma consulta em lote. A faixa
+// é dividida em partições de tempo varridas em paralelo, e a posição só avança quando todas terminam sem falha;
+// estorno e cancelamento são idempotentes, então conferir de novo uma faixa é inofensivo
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "saga.reconciliation.enabled", havingValue = "true", matchIfMissing = true)
+public class ReconciliationService {
+    static final String PAYMENTS = "PAYMENTS";
+    static final String RESERVATIONS = "RESERVATIONS";
+    private static final UUID FIRST_ID = new UUID(0L, 0L);
+
+    private final ReconciliationClient reconciliationClient;
+    private final ParticipantClient participantClient;
+    private final ReconciliationCursorRepository cursorRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final RateLimiter rateLimiter;
+    private final Duration interval;
+    private final int partitions;
+    private final int chunkSize;
+    private final Duration gracePeriod;
+    private final Duration lease;
+    private final Duration timeout;
+    private final boolean dryRun;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService partitionExecutor;
+
+    private record PartitionResult(long rows, long failed) {
+    }
+
+    @FunctionalInterface
+    interface Pager<T> {
+        CompletableFuture<KeysetPageDto<T>> page(UUID after, UUID before, int limit);
+    }
+
+    public ReconciliationService(ReconciliationClient reconciliationClient,
+                                 ParticipantClient participantClient,
+                                 ReconciliationCursorRepository cursorRepository,
+                                 TransactionTemplate transactionTemplate,
+                                 MeterRegistry meterRegistry,
+                                 RateLimiterRegistry rateLimiterRegistry,
+                                 @Value("${saga.reconciliation.interval:5m}") Duration interval,
+                                 @Value("${saga.reconciliation.partitions:4}") int partitions,
+                                 @Value("${saga.reconciliation.chunk-size:500}") int chunkSize,
+                                 @Value("${saga.reconciliation.grace-period:2h}") Duration gracePeriod,
+                                 @Value("${saga.reconciliation.lease:30m}") Duration lease,
+                                 @Value("${saga.compensation.timeout:10s}") Duration timeout,
+                                 @Value("${saga.reconciliation.dry-run:false}") boolean dryRun) {
+        this.reconciliationClient = reconciliationClient;
+        this.participantClient = participantClient;
+        this.cursorRepository = cursorRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.rateLimiter = rateLimiterRegistry.rateLimiter("reconciliation");
+        this.interval = interval;
+        this.partitions = partitions;
+        this.chunkSize = chunkSize;
+        this.gracePeriod = gracePeriod;
+        this.lease = lease;
+        this.timeout = timeout;
+        this.dryRun = dryRun;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reconciliation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threads = new AtomicInteger();
+        this.partitionExecutor = Executors.newFixedThreadPool(partitions, runnable -> {
+            Thread thread = new Thread(runnable, "reconciliation-partition-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::run, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        scheduler.shutdown();
+        partitionExecutor.shutdown();
+        partitionExecutor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    public void run() {
+        try {
+            reconcilePayments();
+            reconcileReservations();
+        } catch (Exception e) {
+            log.error("Reconciliation failed: {}", unwrap(e).getMessage(), e);
+        }
+    }
+
+    void reconcilePayments() {
+        reconcile(PAYMENTS, reconciliationClient::paymentsPage, PaymentDto::getPaymentId, this::correctPayments);
+    }
+
+    void reconcileReservations() {
+        reconcile(RESERVATIONS, reconciliationClient::reservationsPage, ReservationDto::getReservationId, this::correctReservations);
+    }
+
+    private <T> void reconcile(String scan, Pager<T> pager, Function<T, UUID> idOf, ToIntFunction<List<T>> correctChunk) {
+        Instant now = Instant.now();
+        ReconciliationCursor cursor = claim(scan, now);
+        if (cursor == null) {
+            log.debug("Reconciliation of {} is running on another instance", scan);
+            return;
+        }
+        UUID position = cursor.getPosition() == null ? FIRST_ID : cursor.getPosition();
+        UUID watermark = idFloor(now.minus(gracePeriod).toEpochMilli());
+        UUID newPosition = null;
+        try {
+            List<T> first = await(pager.page(position, watermark, 1)).getItems();
+            if (first.isEmpty()) {
+                return;
+            }
+            List<UUID> bounds = partitionBounds(position, timestampOf(idOf.apply(first.get(0))), watermark);
+            List<CompletableFuture<PartitionResult>> scans = new ArrayList<>();
+            for (int i = 0; i < bounds.size() - 1; i++) {
+                UUID after = bounds.get(i);
+                UUID before = bounds.get(i + 1);
+                scans.add(CompletableFuture.supplyAsync(() -> scanPartition(scan, pager, after, before, correctChunk), partitionExecutor));
+            }
+            CompletableFuture.allOf(scans.toArray(CompletableFuture[]::new)).join();
+            long rows = scans.stream().mapToLong(partition -> partition.join().rows()).sum();
+            long failed = scans.stream().mapToLong(partition -> partition.join().failed()).sum();
+            if (failed == 0) {
+                newPosition = watermark;
+                log.info("Reconciled {} {} rows in {} partitions up to {}", rows, scan, scans.size(), now.minus(gracePeriod));
+            } else {
+                log.warn("Reconciliation of {} left {} corrections failed out of {} rows, range will be checked again", scan, failed, rows);
+            }
+        } finally {
+            release(scan, newPosition);
+        }
+    }
+
+    // Partições de tempo iguais entre a linha mais antiga ainda não conferida e o watermark. Os limites são
+    // exclusivos dos dois lados, o que não perde linha nenhuma porque idFloor nunca coincide com um id gerado
+    private List<UUID> partitionBounds(UUID position, long firstMillis, UUID watermark) {
+        long span = timestampOf(watermark) - firstMillis;
+        int count = (int) Math.max(1, Math.min(partitions, span));
+        List<UUID> bounds = new ArrayList<>(count + 1);
+        bounds.add(position);
+        for (int i = 1; i < count; i++) {
+            bounds.add(idFloor(firstMillis + span * i / count));
+        }
+        bounds.add(watermark);
+        return bounds;
+    }
+
+    private <T> PartitionResult scanPartition(String scan, Pager<T> pager, UUID after, UUID before, ToIntFunction<List<T>> correctChunk) {
+        long rows = 0;
+        long failed = 0;
+        UUID cursor = after;
+        while (cursor != null && !scheduler.isShutdown()) {
+            KeysetPageDto<T> page = await(pager.page(cursor, before, chunkSize));
+            failed += correctChunk.applyAsInt(page.getItems());
+            rows += page.getItems().size();
+            meterRegistry.counter("saga.reconciliation.rows", "scan", scan).increment(page.getItems().size());
+            cursor = page.getNextCursor();
+        }
+        return new PartitionResult(rows, failed);
+    }
+
+    int correctPayments(List<PaymentDto> payments) {
+        List<PaymentDto> approved = payments.stream().filter(payment -> "APPROVED".equals(payment.getStatus())).toList();
+        if (approved.isEmpty()) {
+            return 0;
+        }
+        List<UUID> reservationIds = approved.stream().map(PaymentDto::getReservationId).distinct().toList();
+        Map<UUID, ReservationDto> reservations = await(reconciliationClient.findReservations(reservationIds)).stream()
+                .collect(Collectors.toMap(ReservationDto::getReservationId, Function.identity()));
+        int failed = 0;
+        for (PaymentDto payment : approved) {
+            ReservationDto reservation = reservations.get(payment.getReservationId());
+            if (reservation == null || "CANCELED".equals(reservation.getStatus())) {
+                String reason = reservation == null ? "reservation " + payment.getReservationId() + " not found"
+                        : "reservation " + payment.getReservationId() + " canceled";
+                failed += correct("REFUND_PAYMENT", payment.getPaymentId(), reason,
+                        sagaId -> participantClient.refundPayment(sagaId, payment.getPaymentId())) ? 0 : 1;
+            }
+        }
+        return failed;
+    }
+
+    int correctReservations(List<ReservationDto> reservations) {
+        List<ReservationDto> created = reservations.stream().filter(reservation -> "CREATED".equals(reservation.getStatus())).toList();
+        if (created.isEmpty()) {
+            return 0;
+        }
+        List<UUID> reservationIds = created.stream().map(ReservationDto::getReservationId).toList();
+        Set<UUID> paid = await(reconciliationClient.findPaymentsByReservations(reservationIds)).stream()
+                .filter(payment -> "APPROVED".equals(payment.getStatus()))
+                .map(PaymentDto::getReservationId)
+                .collect(Collectors.toSet());
+        int failed = 0;
+        for (ReservationDto reservation : created) {
+            if (!paid.contains(reservation.getReservationId())) {
+                failed += correct("CANCEL_RESERVATION", reservation.getReservationId(), "no approved payment",
+                        sagaId -> participantClient.cancelReservation(sagaId, reservation.getReservationId())) ? 0 : 1;
+            }
+        }
+        return failed;
+    }
+
+    // Os comandos corretivos passam pelo rate limiter reconciliation (resilience4j.ratelimiter), compartilhado
+    // pelas partições, para não disputar os participantes com as sagas
+    private boolean correct(String action, UUID resourceId, String reason, Function<String, CompletableFuture<?>> command) {
+        if (dryRun) {
+            log.warn("Reconciliation would run {} on {}: {}", action, resourceId, reason);
+            meterRegistry.counter("saga.reconciliation.corrections", "action", action, "outcome", "dry-run").increment();
+            return true;
+        }
+        RateLimiter.waitForPermission(rateLimiter);
+        log.warn("Reconciliation running {} on {}: {}", action, resourceId, reason);
+        try {
+            await(command.apply("reconciliation-" + resourceId));
+            meterRegistry.counter("saga.reconciliation.corrections", "action", action, "outcome", "corrected").increment();
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Reconciliation {} on {} failed: {}", action, resourceId, unwrap(e).getMessage());
+            meterRegistry.counter("saga.reconciliation.corrections", "action", action, "outcome", "failed").increment();
+            return false;
+        }
+    }
+
+    private ReconciliationCursor claim(String scan, Instant now) {
+        try {
+            return transactionTemplate.execute(status -> {
+                ReconciliationCursor cursor = cursorRepository.lockByScan(scan).orElseGet(() -> new ReconciliationCursor(scan));
+                if (cursor.getLeaseUntil() != null && cursor.getLeaseUntil().isAfter(now)) {
+                    return null;
+                }
+                cursor.setLeaseUntil(now.plus(lease));
+                return cursorRepository.save(cursor);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Outra instância criou a linha do cursor ao mesmo tempo e ficou com o lease
+            return null;
+        }
+    }
+
+    private void release(String scan, UUID newPosition) {
+        transactionTemplate.executeWithoutResult(status -> cursorRepository.findById(scan).ifPresent(cursor -> {
+            if (newPosition != null) {
+                cursor.setPosition(newPosition);
+            }
+            cursor.setLeaseUntil(null);
+            cursor.setUpdatedAt(Instant.now());
+            cursorRepository.save(cursor);
+        }));
+    }
+
+    private <T> T await(CompletableFuture<T> call) {
+        return call.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).join();
+    }
+
+    // Menor que qualquer UUID v7 gerado nesse milissegundo: o variant ocupa os bits altos da segunda metade
+    static UUID idFloor(long epochMillis) {
+        return new UUID(epochMillis << 16 | 0x7000L, 0L);
+    }
+
+    private static long timestampOf(UUID id) {
+        return id.getMostSignificantBits() >>> 16;
+    }
+}
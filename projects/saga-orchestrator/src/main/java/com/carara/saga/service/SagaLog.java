@@ -0,0 +1,213 @@
+package com.carara.saga.service;
+
+import com.carara.saga.model.NotificationOutbox;
+import com.carara.saga.model.PendingCompensation;
+import com.carara.saga.model.SagaEvent;
+import com.carara.saga.model.SagaEventType;
+import com.carara.saga.repository.NotificationOutboxRepository;
+import com.carara.saga.repository.PendingCompensationRepository;
+import com.carara.saga.repository.SagaEventRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Log durável da saga com group commit: os eventos enfileirados por todas as sagas em andamento
+// são gravados em lote por uma única thread, e cada future só completa depois do commit do seu lote.
+// As confirmações devidas (outbox) e as compensações pendentes entram na mesma transação do evento que as origina
+@Slf4j
+@Service
+public class SagaLog {
+    // Comprimento das colunas texto de saga_event (varchar(255))
+    static final int TEXT_COLUMN_LENGTH = 255;
+    // Parte do userId que entra no detail de SAGA_STARTED
+    static final int DETAIL_USER_ID_LENGTH = 64;
+
+    private final SagaEventRepository sagaEventRepository;
+    private final NotificationOutboxRepository notificationOutboxRepository;
+    private final PendingCompensationRepository pendingCompensationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<PendingEvent> queue;
+    private final int batchSize;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public SagaLog(SagaEventRepository sagaEventRepository,
+                   NotificationOutboxRepository notificationOutboxRepository,
+                   PendingCompensationRepository pendingCompensationRepository,
+                   TransactionTemplate transactionTemplate,
+                   @Value("${saga.log.queue-capacity:10000}") int queueCapacity,
+                   @Value("${saga.log.batch-size:50}") int batchSize) {
+        this.sagaEventRepository = sagaEventRepository;
+        this.notificationOutboxRepository = notificationOutboxRepository;
+        this.pendingCompensationRepository = pendingCompensationRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.writer = new Thread(this::writeLoop, "saga-log-writer");
+        this.writer.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+        // Grava o que ainda estiver na fila antes de desligar
+        flushRemaining();
+    }
+
+    public CompletableFuture<Void> sagaStarted(String sagaId, String detail) {
+        return append(new SagaEvent(sagaId, SagaEventType.SAGA_STARTED, null, null, detail));
+    }
+
+    public CompletableFuture<Void> stepCompleted(String sagaId, String step, String resourceId) {
+        return append(new SagaEvent(sagaId, SagaEventType.STEP_COMPLETED, step, resourceId, null));
+    }
+
+    public CompletableFuture<Void> stepFailed(String sagaId, String step, String reason) {
+        return append(new SagaEvent(sagaId, SagaEventType.STEP_FAILED, step, null, reason));
+    }
+
+    public CompletableFuture<Void> stepCompensated(String sagaId, String step, String resourceId) {
+        return append(new SagaEvent(sagaId, SagaEventType.STEP_COMPENSATED, step, resourceId, null));
+    }
+
+    public CompletableFuture<Void> compensationFailed(String sagaId, String step, String resourceId, String reason) {
+        return append(new SagaEvent(sagaId, SagaEventType.COMPENSATION_FAILED, step, resourceId, reason));
+    }
+
+    // Falha de compensação que será repetida em segundo plano pelo CompensationRetrier
+    public CompletableFuture<Void> compensationFailed(String sagaId, String step, String resourceId, String reason,
+                                                      PendingCompensation pending) {
+        return append(new SagaEvent(sagaId, SagaEventType.COMPENSATION_FAILED, step, resourceId, reason), null, pending);
+    }
+
+    public CompletableFuture<Void> sagaFinished(String sagaId, SagaEventType terminalType) {
+        return append(new SagaEvent(sagaId, terminalType, null, null, null));
+    }
+
+    // Commit da saga: SAGA_SUCCEEDED e a confirmação a enviar ficam gravados juntos ou nenhum dos dois
+    public CompletableFuture<Void> sagaSucceeded(String sagaId, NotificationOutbox confirmation) {
+        return append(new SagaEvent(sagaId, SagaEventType.SAGA_SUCCEEDED, null, null, null), confirmation, null);
+    }
+
+    private CompletableFuture<Void> append(SagaEvent event) {
+        return append(event, null, null);
+    }
+
+    private CompletableFuture<Void> append(SagaEvent event, NotificationOutbox confirmation, PendingCompensation compensation) {
+        // detail guarda o motivo das falhas, que pode ser uma mensagem de erro longa do participante
+        event.setDetail(truncate(event.getDetail(), TEXT_COLUMN_LENGTH));
+        if (compensation != null) {
+            compensation.setLastError(truncate(compensation.getLastError(), TEXT_COLUMN_LENGTH));
+        }
+        PendingEvent pending = new PendingEvent(event, confirmation, compensation, new CompletableFuture<>());
+        if (!running || !queue.offer(pending)) {
+            pending.future().completeExceptionally(
+                    new IllegalStateException("Saga log is not accepting events for saga " + event.getSagaId()));
+        }
+        return pending.future();
+    }
+
+    private void writeLoop() {
+        List<PendingEvent> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flushRemaining() {
+        List<PendingEvent> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<PendingEvent> batch) {
+        try {
+            save(batch);
+            batch.forEach(pending -> pending.future().complete(null));
+        } catch (Exception e) {
+            if (batch.stream().map(pending -> pending.event().getSagaId()).distinct().count() == 1) {
+                log.error("Failed to write {} saga log events: {}", batch.size(), e.getMessage(), e);
+                batch.forEach(pending -> pending.future().completeExceptionally(e));
+                return;
+            }
+            // Uma linha inválida derrubaria as sagas concorrentes do lote: grava cada saga na sua transação,
+            // para que só a que tem a linha ruim falhe (e seja compensada)
+            log.warn("Failed to write batch of {} saga log events, writing each saga separately: {}", batch.size(), e.getMessage());
+            batch.stream().collect(Collectors.groupingBy(pending -> pending.event().getSagaId(), LinkedHashMap::new, Collectors.toList()))
+                    .values().forEach(this::writeSaga);
+        }
+    }
+
+    private void writeSaga(List<PendingEvent> events) {
+        // O INSERT que voltou atrás deixou ids da sequence nas entidades, que pareceriam já gravadas
+        events.forEach(pending -> {
+            pending.event().setId(null);
+            if (pending.confirmation() != null) {
+                pending.confirmation().setId(null);
+            }
+            if (pending.compensation() != null) {
+                pending.compensation().setId(null);
+            }
+        });
+        try {
+            save(events);
+            events.forEach(pending -> pending.future().complete(null));
+        } catch (Exception e) {
+            log.error("Failed to write {} saga log events of saga {}: {}", events.size(), events.get(0).event().getSagaId(), e.getMessage(), e);
+            events.forEach(pending -> pending.future().completeExceptionally(e));
+        }
+    }
+
+    private void save(List<PendingEvent> batch) {
+        List<NotificationOutbox> confirmations = batch.stream().map(PendingEvent::confirmation).filter(Objects::nonNull).toList();
+        List<PendingCompensation> compensations = batch.stream().map(PendingEvent::compensation).filter(Objects::nonNull).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            sagaEventRepository.saveAll(batch.stream().map(PendingEvent::event).toList());
+            if (!confirmations.isEmpty()) {
+                notificationOutboxRepository.saveAll(confirmations);
+            }
+            if (!compensations.isEmpty()) {
+                pendingCompensationRepository.saveAll(compensations);
+            }
+        });
+    }
+
+    private record PendingEvent(SagaEvent event, NotificationOutbox confirmation, PendingCompensation compensation,
+                                CompletableFuture<Void> future) {
+    }
+
+    static String truncate(String value, int maxLength) {
+        return value == null || value.length() <= maxLength ? value : value.substring(0, maxLength);
+    }
+}
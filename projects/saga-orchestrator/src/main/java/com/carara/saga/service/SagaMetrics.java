@@ -0,0 +1,97 @@
+package com.carara.saga.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Métricas da saga expostas em /actuator/prometheus: duração de cada step e de cada compensação
+// (só a chamada ao participante, sem a gravação no log), contadores de falha e sagas em andamento.
+// A tag type separa a saga de assento único (single) da reserva em grupo (group)
+@Component
+public class SagaMetrics {
+    public static final String SINGLE = "single";
+    public static final String GROUP = "group";
+
+    public static final String SUCCEEDED = "succeeded";
+    public static final String COMPENSATED = "compensated";
+    public static final String COMPENSATION_FAILED = "compensation_failed";
+
+    private final MeterRegistry meterRegistry;
+    // O Gauge guarda só uma referência fraca ao contador; o mapa mantém a referência forte
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    public SagaMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        inFlight(SINGLE);
+        inFlight(GROUP);
+    }
+
+    public Timer.Sample sagaStarted(String type) {
+        inFlight(type).incrementAndGet();
+        return Timer.start(meterRegistry);
+    }
+
+    public void sagaFinished(Timer.Sample sample, String type, String outcome) {
+        inFlight(type).decrementAndGet();
+        sample.stop(Timer.builder("saga.duration")
+                .description("End-to-end saga duration")
+                .tag("type", type)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+
+    public Timer.Sample startTimer() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void stepFinished(Timer.Sample sample, String type, String step, boolean success) {
+        sample.stop(Timer.builder("saga.step.duration")
+                .description("Participant call duration per saga step")
+                .tag("type", type)
+                .tag("step", step)
+                .tag("outcome", success ? "success" : "failure")
+                .register(meterRegistry));
+        if (!success) {
+            Counter.builder("saga.step.failures")
+                    .description("Failed saga steps")
+                    .tag("type", type)
+                    .tag("step", step)
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    public void compensationFinished(Timer.Sample sample, String type, String step, boolean success) {
+        sample.stop(Timer.builder("saga.compensation.duration")
+                .description("Participant call duration per compensation")
+                .tag("type", type)
+                .tag("step", step)
+                .tag("outcome", success ? "success" : "failure")
+                .register(meterRegistry));
+        if (!success) {
+            Counter.builder("saga.compensation.failures")
+                    .description("Failed compensations, left for recovery")
+                    .tag("type", type)
+                    .tag("step", step)
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    private AtomicInteger inFlight(String type) {
+        return inFlight.computeIfAbsent(type, key -> {
+            AtomicInteger count = new AtomicInteger();
+            Gauge.builder("saga.in.flight", count, AtomicInteger::get)
+                    .description("Sagas currently executing")
+                    .tag("type", key)
+                    .register(meterRegistry);
+            return count;
+        });
+    }
+}
@@ -0,0 +1,184 @@
+package com.carara.saga.service;
+
+import com.carara.saga.model.BatchTransactionContext;
+import com.carara.saga.model.PaymentDto;
+import com.carara.saga.model.ReservationDto;
+import com.carara.saga.model.SagaEvent;
+import com.carara.saga.model.SagaEventType;
+import com.carara.saga.model.TransactionContext;
+import com.carara.saga.repository.SagaEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Retoma sagas que ficaram sem evento final no log (por exemplo, após uma queda do orquestrador):
+// sagas com todos os steps concluídos são finalizadas, as demais são compensadas. As que têm compensação
+// pendente ficam com o CompensationRetrier
+@Slf4j
+@Service
+public class SagaRecoveryService {
+    private final SagaEventRepository sagaEventRepository;
+    private final OrchestratorService orchestratorService;
+    private final BatchOrchestratorService batchOrchestratorService;
+    private final SagaLog sagaLog;
+    private final Duration gracePeriod;
+    private final int batchSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public SagaRecoveryService(SagaEventRepository sagaEventRepository,
+                               OrchestratorService orchestratorService,
+                               BatchOrchestratorService batchOrchestratorService,
+                               SagaLog sagaLog,
+                               @Value("${saga.recovery.grace-period:5m}") Duration gracePeriod,
+                               @Value("${saga.recovery.batch-size:100}") int batchSize) {
+        this.sagaEventRepository = sagaEventRepository;
+        this.orchestratorService = orchestratorService;
+        this.batchOrchestratorService = batchOrchestratorService;
+        this.sagaLog = sagaLog;
+        this.gracePeriod = gracePeriod;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverOnStartup() {
+        log.info("Scanning saga log for interrupted sagas");
+        recoverInFlightSagas();
+    }
+
+    @Scheduled(fixedDelayString = "${saga.recovery.interval:60s}", initialDelayString = "${saga.recovery.interval:60s}")
+    public void recoverInFlightSagas() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // Só considera sagas mais antigas que o período de tolerância, para não competir
+            // com sagas ainda em execução nesta ou em outra instância do orquestrador
+            List<String> sagaIds = sagaEventRepository.findInFlightSagaIds(
+                    Instant.now().minus(gracePeriod),
+                    EnumSet.of(SagaEventType.SAGA_SUCCEEDED, SagaEventType.SAGA_COMPENSATED),
+                    PageRequest.of(0, batchSize));
+            if (!sagaIds.isEmpty()) {
+                log.info("Recovering {} interrupted sagas", sagaIds.size());
+            }
+            sagaIds.forEach(this::recover);
+        } catch (Exception e) {
+            log.error("Saga recovery scan failed: {}", e.getMessage(), e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void recover(String sagaId) {
+        List<SagaEvent> events = sagaEventRepository.findBySagaIdOrderByIdAsc(sagaId);
+        // Sagas de reserva em grupo registram um STEP_COMPLETED por reserva criada
+        if (events.stream().filter(event -> event.getEventType() == SagaEventType.STEP_COMPLETED
+                && "CREATE_RESERVATION".equals(event.getStep())).count() > 1) {
+            recoverGroup(sagaId, events);
+            return;
+        }
+        TransactionContext context = rebuildContext(sagaId, events);
+
+        if (context.getCompletedSteps().contains("SEND_NOTIFICATION")) {
+            log.info("Saga {} completed all steps, marking as succeeded", sagaId);
+            sagaLog.sagaFinished(sagaId, SagaEventType.SAGA_SUCCEEDED).join();
+            return;
+        }
+
+        log.info("Compensating interrupted saga {} - Completed steps: {}, already compensated: {}",
+                sagaId, context.getCompletedSteps(), context.getCompensatedSteps());
+        orchestratorService.compensate(context).join();
+    }
+
+    private TransactionContext rebuildContext(String sagaId, List<SagaEvent> events) {
+        TransactionContext context = new TransactionContext();
+        context.setSagaId(sagaId);
+        UUID reservationId = null;
+        UUID paymentId = null;
+
+        for (SagaEvent event : events) {
+            if (event.getEventType() == SagaEventType.STEP_COMPLETED) {
+                context.addCompletedStep(event.getStep());
+                if ("CREATE_RESERVATION".equals(event.getStep())) {
+                    reservationId = UUID.fromString(event.getResourceId());
+                } else if ("PROCESS_PAYMENT".equals(event.getStep())) {
+                    paymentId = UUID.fromString(event.getResourceId());
+                }
+            } else if (event.getEventType() == SagaEventType.STEP_COMPENSATED) {
+                context.addCompensatedStep(event.getStep());
+            }
+        }
+
+        // Apenas os steps concluídos e ainda não compensados entram no contexto a ser compensado
+        if (paymentId != null && !context.getCompensatedSteps().contains("REFUND_PAYMENT")) {
+            PaymentDto payment = new PaymentDto();
+            payment.setPaymentId(paymentId);
+            payment.setReservationId(reservationId);
+            context.setPayment(payment);
+        }
+        if (reservationId != null && !context.getCompensatedSteps().contains("CANCEL_RESERVATION")) {
+            ReservationDto reservation = new ReservationDto();
+            reservation.setReservationId(reservationId);
+            context.setReservation(reservation);
+        }
+        return context;
+    }
+
+    private void recoverGroup(String sagaId, List<SagaEvent> events) {
+        BatchTransactionContext context = new BatchTransactionContext();
+        context.setSagaId(sagaId);
+        List<UUID> reservationIds = new ArrayList<>();
+        List<UUID> paymentIds = new ArrayList<>();
+
+        for (SagaEvent event : events) {
+            if (event.getEventType() == SagaEventType.STEP_COMPLETED) {
+                if (!context.getCompletedSteps().contains(event.getStep())) {
+                    context.addCompletedStep(event.getStep());
+                }
+                if ("CREATE_RESERVATION".equals(event.getStep())) {
+                    reservationIds.add(UUID.fromString(event.getResourceId()));
+                } else if ("PROCESS_PAYMENT".equals(event.getStep())) {
+                    paymentIds.add(UUID.fromString(event.getResourceId()));
+                }
+            } else if (event.getEventType() == SagaEventType.STEP_COMPENSATED
+                    && !context.getCompensatedSteps().contains(event.getStep())) {
+                context.addCompensatedStep(event.getStep());
+            }
+        }
+
+        if (context.getCompletedSteps().contains("SEND_NOTIFICATION")) {
+            log.info("Group saga {} completed all steps, marking as succeeded", sagaId);
+            sagaLog.sagaFinished(sagaId, SagaEventType.SAGA_SUCCEEDED).join();
+            return;
+        }
+
+        if (!context.getCompensatedSteps().contains("REFUND_PAYMENT")) {
+            paymentIds.forEach(paymentId -> {
+                PaymentDto payment = new PaymentDto();
+                payment.setPaymentId(paymentId);
+                context.getPayments().add(payment);
+            });
+        }
+        if (!context.getCompensatedSteps().contains("CANCEL_RESERVATION")) {
+            reservationIds.forEach(reservationId -> {
+                ReservationDto reservation = new ReservationDto();
+                reservation.setReservationId(reservationId);
+                context.getReservations().add(reservation);
+            });
+        }
+        log.info("Compensating interrupted group saga {} - {} reservations, {} payments",
+                sagaId, context.getReservations().size(), context.getPayments().size());
+        batchOrchestratorService.compensate(context).join();
+    }
+}
@@ -0,0 +1,55 @@
+package com.carara.saga.service;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static com.carara.saga.service.OrchestratorService.unwrap;
+
+// Spans da saga: um span por saga, filho do span HTTP da requisição, e um span por step e por compensação.
+// Os steps continuam em threads do cliente HTTP, onde não há span corrente; por isso o span da saga é
+// passado explicitamente e cada chamada ao participante é feita com o span do step em escopo, para que
+// o WebClient (ou o RabbitTemplate) propague o traceparent com o step como pai
+@Component
+public class SagaTracing {
+    private final Tracer tracer;
+
+    @Autowired
+    public SagaTracing(ObjectProvider<Tracer> tracer) {
+        this(tracer.getIfAvailable(() -> Tracer.NOOP));
+    }
+
+    public SagaTracing(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    public Span sagaStarted(String type, String sagaId) {
+        return tracer.nextSpan().name("saga " + type).tag("saga.id", sagaId).start();
+    }
+
+    public void sagaFinished(Span sagaSpan, String outcome) {
+        sagaSpan.tag("saga.outcome", outcome).end();
+    }
+
+    // Sem span da saga (recuperação de sagas interrompidas) o span do step inicia um novo trace
+    public <T> CompletableFuture<T> inSpan(Span sagaSpan, String name, Supplier<CompletableFuture<T>> action) {
+        Span span = (sagaSpan == null ? tracer.nextSpan() : tracer.nextSpan(sagaSpan)).name(name).start();
+        CompletableFuture<T> result;
+        try (Tracer.SpanInScope scope = tracer.withSpan(span)) {
+            result = action.get();
+        } catch (Exception e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        return result.whenComplete((value, e) -> {
+            if (e != null) {
+                span.error(unwrap(e));
+            }
+            span.end();
+        });
+    }
+}
@@ -0,0 +1,31 @@
+package com.carara.saga.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// Amostragem dos logs INFO por step (marcados com STEP): só sampleRate deles passa. Como TurboFilter, a decisão
+// acontece antes de a mensagem ser montada, então um log descartado não aloca nada. WARN e ERROR passam sempre.
+// Configurado no logback-spring.xml a partir de saga.logging.step-sample-rate
+public class StepLogSampler extends TurboFilter {
+    public static final Marker STEP = MarkerFactory.getMarker("SAGA_STEP");
+
+    private double sampleRate = 1.0;
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (marker != STEP || sampleRate >= 1.0 || level.isGreaterOrEqual(Level.WARN)) {
+            return FilterReply.NEUTRAL;
+        }
+        return ThreadLocalRandom.current().nextDouble() < sampleRate ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+}
@@ -0,0 +1,61 @@
+-- Esquema inicial do orquestrador, equivalente ao que o ddl-auto: update gerava a partir das entidades.
+-- Bancos já criados pelo Hibernate entram nesta versão pelo baseline-on-migrate, sem executar o script
+
+create sequence saga_event_seq start with 1 increment by 50;
+create sequence notification_outbox_seq start with 1 increment by 50;
+create sequence pending_compensation_seq start with 1 increment by 50;
+
+-- Log append-only das transições da saga
+create table saga_event (
+    id          bigint                      not null,
+    saga_id     varchar(36)                 not null,
+    event_type  varchar(32)                 not null,
+    step        varchar(255),
+    resource_id varchar(255),
+    detail      varchar(255),
+    created_at  timestamp(6) with time zone not null,
+    primary key (id)
+);
+
+create index idx_saga_event_saga_id on saga_event (saga_id);
+create index idx_saga_event_type_created_at on saga_event (event_type, created_at);
+
+create table notification_outbox (
+    id              bigint                      not null,
+    saga_id         varchar(36)                 not null,
+    reservation_ids varchar(4000)               not null,
+    group_saga      boolean                     not null,
+    status          varchar(16)                 not null,
+    attempts        integer                     not null,
+    next_attempt_at timestamp(6) with time zone not null,
+    last_error      varchar(255),
+    created_at      timestamp(6) with time zone not null,
+    primary key (id)
+);
+
+create index idx_notification_outbox_status_next_attempt on notification_outbox (status, next_attempt_at);
+
+create table pending_compensation (
+    id              bigint                      not null,
+    saga_id         varchar(36)                 not null,
+    step            varchar(32)                 not null,
+    resource_ids    varchar(4000)               not null,
+    group_saga      boolean                     not null,
+    status          varchar(16)                 not null,
+    attempts        integer                     not null,
+    next_attempt_at timestamp(6) with time zone not null,
+    last_error      varchar(255),
+    created_at      timestamp(6) with time zone not null,
+    primary key (id)
+);
+
+create index idx_pending_compensation_status_next_attempt on pending_compensation (status, next_attempt_at);
+create index idx_pending_compensation_saga_id on pending_compensation (saga_id);
+
+create table reconciliation_cursor (
+    scan        varchar(32) not null,
+    position    uuid,
+    lease_until timestamp(6) with time zone,
+    updated_at  timestamp(6) with time zone,
+    primary key (scan)
+);
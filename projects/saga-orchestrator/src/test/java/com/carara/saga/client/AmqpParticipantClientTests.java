@@ -0,0 +1,116 @@
+package com.carara.saga.client;
+
+import com.carara.saga.client.AmqpParticipantClient.MessagingQueues;
+import com.carara.saga.exception.SagaCommandFailedException;
+import com.carara.saga.messaging.SagaCommand;
+import com.carara.saga.messaging.SagaReply;
+import com.carara.saga.model.PaymentDto;
+import com.carara.saga.model.ReservationDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AmqpParticipantClientTests {
+
+    private static final MessagingQueues QUEUES = new MessagingQueues(
+            "saga.reservation.commands", "saga.reservation.replies.test",
+            "saga.payment.commands", "saga.payment.replies.test",
+            "saga.notification.commands", "saga.notification.replies.test");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService brokerThreads = Executors.newFixedThreadPool(4);
+    private final List<String> replyQueues = new CopyOnWriteArrayList<>();
+
+    // Stand-in do broker em processo: confirma o publish, entrega o comando ao "participante"
+    // e publica a resposta de volta no listener de respostas do cliente
+    private AmqpParticipantClient client(Function<SagaCommand, SagaReply> participant, boolean ack) {
+        AmqpParticipantClient[] holder = new AmqpParticipantClient[1];
+        RabbitTemplate broker = new RabbitTemplate() {
+            @Override
+            public void convertAndSend(String exchange, String routingKey, Object payload,
+                                       MessagePostProcessor postProcessor, CorrelationData correlationData) {
+                Message message = postProcessor.postProcessMessage(new Message(new byte[0], new MessageProperties()));
+                String correlationId = message.getMessageProperties().getCorrelationId();
+                replyQueues.add(message.getMessageProperties().getReplyTo());
+                correlationData.getFuture().complete(new CorrelationData.Confirm(ack, ack ? null : "queue full"));
+                if (ack) {
+                    brokerThreads.submit(() -> holder[0].onReply(participant.apply((SagaCommand) payload), correlationId));
+                }
+            }
+        };
+        holder[0] = new AmqpParticipantClient(broker, objectMapper, QUEUES, Duration.ofSeconds(5));
+        return holder[0];
+    }
+
+    private SagaReply reply(SagaCommand command, boolean success, Object result) {
+        SagaReply reply = new SagaReply();
+        reply.setSagaId(command.getSagaId());
+        reply.setCommandType(command.getCommandType());
+        reply.setSuccess(success);
+        reply.setResult(result == null ? null : objectMapper.valueToTree(result));
+        if (!success) {
+            reply.setErrorCode("PAYMENT_PROCESSING_ERROR");
+            reply.setErrorMessage("Failed to process payment: Payment processing failed");
+        }
+        return reply;
+    }
+
+    @Test
+    void correlatesRepliesOfManyConcurrentSagas() {
+        AmqpParticipantClient client = client(command -> {
+            ReservationDto reservation = new ReservationDto();
+            reservation.setReservationId(UUID.nameUUIDFromBytes(command.getSagaId().getBytes()));
+            reservation.setSeatNumber((String) command.getArguments().get("seatNumber"));
+            return reply(command, true, reservation);
+        }, true);
+
+        List<CompletableFuture<ReservationDto>> futures = IntStream.range(0, 500)
+                .mapToObj(i -> client.createReservation("saga-" + i, "user-1", "2025-12-01", "S" + i, 10.0))
+                .toList();
+
+        for (int i = 0; i < futures.size(); i++) {
+            ReservationDto reservation = futures.get(i).join();
+            assertThat(reservation.getReservationId()).isEqualTo(UUID.nameUUIDFromBytes(("saga-" + i).getBytes()));
+            assertThat(reservation.getSeatNumber()).isEqualTo("S" + i);
+        }
+        assertThat(client.pendingReplyCount()).isZero();
+        assertThat(replyQueues).containsOnly("saga.reservation.replies.test");
+    }
+
+    @Test
+    void surfacesParticipantErrorCode() {
+        AmqpParticipantClient client = client(command -> reply(command, false, null), true);
+
+        CompletableFuture<PaymentDto> payment = client.processPayment("saga-1", UUID.randomUUID(), 10.0);
+
+        assertThatThrownBy(payment::join)
+                .hasCauseInstanceOf(SagaCommandFailedException.class)
+                .hasMessageContaining("PAYMENT_PROCESSING_ERROR");
+    }
+
+    @Test
+    void failsFastWhenBrokerNacksTheCommand() {
+        AmqpParticipantClient client = client(command -> reply(command, true, null), false);
+
+        assertThatThrownBy(() -> client.refundPayment("saga-1", UUID.randomUUID()).join())
+                .hasMessageContaining("queue full");
+        assertThat(client.pendingReplyCount()).isZero();
+    }
+}
@@ -0,0 +1,121 @@
+package com.carara.saga.client;
+
+import com.carara.saga.config.SagaDefinitionConfig;
+import com.carara.saga.engine.SagaEngine;
+import com.carara.saga.exception.ParticipantUnavailableException;
+import com.carara.saga.model.PaymentDto;
+import com.carara.saga.model.ReservationDto;
+import com.carara.saga.model.TransactionContext;
+import com.carara.saga.service.OrchestratorService;
+import com.carara.saga.service.SagaLog;
+import com.carara.saga.service.SagaMetrics;
+import com.carara.saga.service.SagaTracing;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ResilientParticipantClientTests {
+
+    private static final UUID RESERVATION_ID = UUID.fromString("01900000-0000-7000-8000-0000000000a1");
+
+    private final ParticipantClient transport = mock(ParticipantClient.class);
+    private final CircuitBreakerRegistry circuitBreakers = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+            .slidingWindowSize(4)
+            .minimumNumberOfCalls(4)
+            .failureRateThreshold(50)
+            .waitDurationInOpenState(Duration.ofMinutes(1))
+            .build());
+    private final BulkheadRegistry bulkheads = BulkheadRegistry.of(BulkheadConfig.custom()
+            .maxConcurrentCalls(1)
+            .maxWaitDuration(Duration.ZERO)
+            .build());
+    private final ResilientParticipantClient client = new ResilientParticipantClient(transport, circuitBreakers, bulkheads);
+
+    @Test
+    void opensTheCircuitAndFailsFastWithoutCallingTheParticipant() {
+        when(transport.processPayment(anyString(), any(), anyDouble()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("500 Internal Server Error")));
+
+        for (int i = 0; i < 4; i++) {
+            String sagaId = "saga-" + i;
+            assertThatThrownBy(() -> client.processPayment(sagaId, RESERVATION_ID, 10.0).join())
+                    .hasMessageContaining("500 Internal Server Error");
+        }
+
+        assertThatThrownBy(() -> client.processPayment("saga-5", RESERVATION_ID, 10.0).join())
+                .hasCauseInstanceOf(ParticipantUnavailableException.class)
+                .hasMessageContaining("Participant payment unavailable: circuit breaker is open");
+
+        verify(transport, times(4)).processPayment(anyString(), any(), anyDouble());
+        // Os outros participantes têm o próprio circuito
+        assertThat(circuitBreakers.circuitBreaker(ResilientParticipantClient.RESERVATION).getState())
+                .isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void bulkheadRejectsCallsAboveTheConcurrencyLimit() {
+        CompletableFuture<PaymentDto> slowPayment = new CompletableFuture<>();
+        when(transport.processPayment(anyString(), any(), anyDouble())).thenReturn(slowPayment);
+        when(transport.sendConfirmation(anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        CompletableFuture<PaymentDto> first = client.processPayment("saga-1", RESERVATION_ID, 10.0);
+
+        assertThatThrownBy(() -> client.processPayment("saga-2", RESERVATION_ID, 10.0).join())
+                .hasCauseInstanceOf(ParticipantUnavailableException.class)
+                .hasMessageContaining("bulkhead is full (1 concurrent calls)");
+        // Um participante saturado não consome a cota dos demais
+        client.sendConfirmation("saga-3", RESERVATION_ID).join();
+
+        slowPayment.complete(new PaymentDto());
+        first.join();
+        client.processPayment("saga-4", RESERVATION_ID, 10.0).join();
+    }
+
+    @Test
+    void sagaCompensatesImmediatelyWhenTheCircuitIsOpen() {
+        ReservationDto reservation = new ReservationDto();
+        reservation.setReservationId(RESERVATION_ID);
+        when(transport.createReservation(anyString(), anyString(), anyString(), anyString(), anyDouble()))
+                .thenReturn(CompletableFuture.completedFuture(reservation));
+        when(transport.cancelReservation(anyString(), any())).thenReturn(CompletableFuture.completedFuture(reservation));
+        circuitBreakers.circuitBreaker(ResilientParticipantClient.PAYMENT).transitionToOpenState();
+        SagaLog sagaLog = mock(SagaLog.class, invocation ->
+                invocation.getMethod().getReturnType() == CompletableFuture.class ? CompletableFuture.completedFuture(null) : null);
+
+        SagaMetrics sagaMetrics = new SagaMetrics(new SimpleMeterRegistry());
+        SagaTracing sagaTracing = new SagaTracing(Tracer.NOOP);
+        SagaEngine sagaEngine = new SagaEngine(sagaLog, sagaMetrics, sagaTracing,
+                new RetryableErrors(Set.of(), new ObjectMapper()), Duration.ofSeconds(5));
+        TransactionContext context = new OrchestratorService(new SagaDefinitionConfig().reservationSaga(client), sagaEngine,
+                sagaLog, sagaMetrics, sagaTracing, true)
+                .executeTransactionAsync("user-1", "2025-12-01", "12A", 100.0)
+                .join();
+
+        assertThat(context.getFailedStep()).isEqualTo("PROCESS_PAYMENT");
+        assertThat(context.getFailureReason()).isEqualTo("Participant payment unavailable: circuit breaker is open");
+        assertThat(context.getCompensatedSteps()).containsExactly("CANCEL_RESERVATION");
+        verify(transport, never()).processPayment(anyString(), any(), anyDouble());
+    }
+}
@@ -0,0 +1,116 @@
+package com.carara.saga.client;
+
+import com.carara.saga.exception.ParticipantUnavailableException;
+import com.carara.saga.model.NotificationDto;
+import com.carara.saga.model.PaymentDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RetryingParticipantClientTests {
+
+    private static final UUID RESERVATION_ID = UUID.fromString("01900000-0000-7000-8000-0000000000a1");
+    private static final RetryPolicy RETRY = new RetryPolicy(3, Duration.ofMillis(10), 2.0, Duration.ofMillis(50), 0.5, null);
+
+    private final ParticipantClient transport = mock(ParticipantClient.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private RetryingParticipantClient client(Map<String, RetryPolicy> policies) {
+        return new RetryingParticipantClient(transport, policies,
+                new RetryableErrors(Set.of("PAYMENT_PROCESSING_ERROR", "NOTIFICATION_SEND_ERROR"), new ObjectMapper()),
+                meterRegistry, Tracer.NOOP);
+    }
+
+    private static <T> CompletableFuture<T> errorResponse(int status, String code) {
+        byte[] body = ("{\"code\":\"" + code + "\",\"message\":\"failed\"}").getBytes(StandardCharsets.UTF_8);
+        return CompletableFuture.failedFuture(
+                WebClientResponseException.create(status, "error", HttpHeaders.EMPTY, body, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void retriesTransientFailureInsteadOfFailingTheStep() {
+        PaymentDto approved = new PaymentDto();
+        when(transport.processPayment(anyString(), any(), anyDouble()))
+                .thenReturn(errorResponse(500, "PAYMENT_PROCESSING_ERROR"))
+                .thenReturn(CompletableFuture.completedFuture(approved));
+
+        PaymentDto payment = client(Map.of(RetryingParticipantClient.PROCESS_PAYMENT, RETRY))
+                .processPayment("saga-1", RESERVATION_ID, 10.0).join();
+
+        assertThat(payment).isSameAs(approved);
+        verify(transport, times(2)).processPayment("saga-1", RESERVATION_ID, 10.0);
+        assertThat(meterRegistry.get("saga.step.retries").tag("step", "PROCESS_PAYMENT").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void givesUpAfterMaxAttemptsAndOnNonRetryableErrors() {
+        when(transport.processPayment(anyString(), any(), anyDouble())).thenReturn(errorResponse(500, "PAYMENT_PROCESSING_ERROR"));
+        when(transport.createReservation(anyString(), anyString(), anyString(), anyString(), anyDouble()))
+                .thenReturn(errorResponse(409, "RESERVATION_SEAT_UNAVAILABLE"));
+        when(transport.refundPayment(anyString(), any())).thenReturn(CompletableFuture.failedFuture(
+                new ParticipantUnavailableException("payment", "circuit breaker is open", null)));
+        RetryingParticipantClient client = client(Map.of(
+                RetryingParticipantClient.PROCESS_PAYMENT, RETRY,
+                RetryingParticipantClient.CREATE_RESERVATION, RETRY,
+                RetryingParticipantClient.REFUND_PAYMENT, RETRY));
+
+        assertThatThrownBy(() -> client.processPayment("saga-1", RESERVATION_ID, 10.0).join())
+                .hasCauseInstanceOf(WebClientResponseException.class);
+        assertThatThrownBy(() -> client.createReservation("saga-1", "user-1", "2025-12-01", "12A", 10.0).join())
+                .hasCauseInstanceOf(WebClientResponseException.class);
+        assertThatThrownBy(() -> client.refundPayment("saga-1", UUID.randomUUID()).join())
+                .hasCauseInstanceOf(ParticipantUnavailableException.class);
+
+        verify(transport, times(3)).processPayment(anyString(), any(), anyDouble());
+        verify(transport, times(1)).createReservation(anyString(), anyString(), anyString(), anyString(), anyDouble());
+        verify(transport, times(1)).refundPayment(anyString(), any());
+    }
+
+    @Test
+    void hedgesSlowIdempotentStep() {
+        NotificationDto sent = new NotificationDto();
+        CompletableFuture<NotificationDto> stuck = new CompletableFuture<>();
+        when(transport.sendConfirmation(anyString(), any()))
+                .thenReturn(stuck)
+                .thenReturn(CompletableFuture.completedFuture(sent));
+        RetryPolicy hedged = new RetryPolicy(1, Duration.ZERO, 1.0, Duration.ZERO, 0.0, Duration.ofMillis(20));
+
+        NotificationDto notification = client(Map.of(RetryingParticipantClient.SEND_NOTIFICATION, hedged))
+                .sendConfirmation("saga-1", RESERVATION_ID).orTimeout(5, TimeUnit.SECONDS).join();
+
+        assertThat(notification).isSameAs(sent);
+        verify(transport, times(2)).sendConfirmation("saga-1", RESERVATION_ID);
+        assertThat(meterRegistry.get("saga.step.hedges").tag("step", "SEND_NOTIFICATION").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void backoffGrowsExponentiallyUpToTheCapWithJitter() {
+        RetryPolicy policy = new RetryPolicy(5, Duration.ofMillis(100), 2.0, Duration.ofMillis(300), 0.5, null);
+
+        assertThat(policy.backoff(1, 0.0)).isEqualTo(Duration.ofMillis(100));
+        assertThat(policy.backoff(2, 0.0)).isEqualTo(Duration.ofMillis(200));
+        assertThat(policy.backoff(3, 0.0)).isEqualTo(Duration.ofMillis(300));
+        assertThat(policy.backoff(2, 0.99)).isBetween(Duration.ofMillis(100), Duration.ofMillis(200));
+    }
+}
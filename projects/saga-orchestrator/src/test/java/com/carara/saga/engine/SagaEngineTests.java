@@ -0,0 +1,162 @@
+package com.carara.saga.engine;
+
+import com.carara.saga.client.RetryPolicy;
+import com.carara.saga.client.RetryableErrors;
+import com.carara.saga.exception.SagaStepException;
+import com.carara.saga.service.SagaLog;
+import com.carara.saga.service.SagaMetrics;
+import com.carara.saga.service.SagaTracing;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class SagaEngineTests {
+
+    private final SagaLog sagaLog = mock(SagaLog.class, invocation ->
+            invocation.getMethod().getReturnType() == CompletableFuture.class ? CompletableFuture.completedFuture(null) : null);
+    private final SagaEngine engine = new SagaEngine(sagaLog, new SagaMetrics(new SimpleMeterRegistry()), new SagaTracing(Tracer.NOOP),
+            new RetryableErrors(Set.of(), new ObjectMapper()), Duration.ofSeconds(5));
+    private final List<String> events = new CopyOnWriteArrayList<>();
+
+    static class TestContext implements SagaContext {
+        final Map<String, UUID> resources = new ConcurrentHashMap<>();
+        final List<String> completedSteps = new CopyOnWriteArrayList<>();
+        final List<String> compensatedSteps = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String getSagaId() {
+            return "saga-1";
+        }
+
+        @Override
+        public void addCompletedStep(String step) {
+            completedSteps.add(step);
+        }
+
+        @Override
+        public void addCompensatedStep(String step) {
+            compensatedSteps.add(step);
+        }
+    }
+
+    private SagaStep.Builder<TestContext> step(String name, CompletableFuture<UUID> result) {
+        return SagaStep.<TestContext>named(name)
+                .action(context -> {
+                    events.add("start " + name);
+                    return result.thenApply(id -> {
+                        context.resources.put(name, id);
+                        return id;
+                    });
+                })
+                .compensation("UNDO_" + name, context -> context.resources.get(name), (context, id) -> {
+                    events.add("undo " + name);
+                    return CompletableFuture.completedFuture(null);
+                });
+    }
+
+    @Test
+    void runsIndependentStepsConcurrently() {
+        CompletableFuture<UUID> seatLock = new CompletableFuture<>();
+        CompletableFuture<UUID> fraudCheck = new CompletableFuture<>();
+        SagaDefinition<TestContext> definition = SagaDefinition.<TestContext>builder("test")
+                .step(step("SEAT_LOCK", seatLock).build())
+                .step(step("FRAUD_CHECK", fraudCheck).build())
+                .step(step("PAYMENT", CompletableFuture.completedFuture(UUID.randomUUID())).dependsOn("SEAT_LOCK", "FRAUD_CHECK").build())
+                .build();
+        TestContext context = new TestContext();
+
+        CompletableFuture<Void> saga = engine.execute(definition, context, null, step -> { });
+
+        assertThat(events).containsExactly("start SEAT_LOCK", "start FRAUD_CHECK");
+        seatLock.complete(UUID.randomUUID());
+        assertThat(events).doesNotContain("start PAYMENT");
+        fraudCheck.complete(UUID.randomUUID());
+        saga.orTimeout(5, TimeUnit.SECONDS).join();
+        assertThat(events).containsExactly("start SEAT_LOCK", "start FRAUD_CHECK", "start PAYMENT");
+        assertThat(context.completedSteps).containsExactlyInAnyOrder("SEAT_LOCK", "FRAUD_CHECK", "PAYMENT");
+    }
+
+    @Test
+    void waitsForStepsInFlightAndCompensatesInReverseTopologicalOrder() {
+        CompletableFuture<UUID> seatLock = new CompletableFuture<>();
+        CompletableFuture<UUID> fraudCheck = new CompletableFuture<>();
+        SagaDefinition<TestContext> definition = SagaDefinition.<TestContext>builder("test")
+                .step(step("RESERVATION", CompletableFuture.completedFuture(UUID.randomUUID())).build())
+                .step(step("SEAT_LOCK", seatLock).dependsOn("RESERVATION").build())
+                .step(step("FRAUD_CHECK", fraudCheck).dependsOn("RESERVATION").build())
+                .step(step("PAYMENT", CompletableFuture.completedFuture(UUID.randomUUID())).dependsOn("SEAT_LOCK", "FRAUD_CHECK").build())
+                .build();
+        TestContext context = new TestContext();
+
+        CompletableFuture<Void> saga = engine.execute(definition, context, null, step -> { });
+
+        seatLock.completeExceptionally(new IllegalStateException("seat already locked"));
+        assertThat(saga).isNotDone();
+        fraudCheck.complete(UUID.randomUUID());
+        assertThatThrownBy(() -> saga.orTimeout(5, TimeUnit.SECONDS).join())
+                .hasCauseInstanceOf(SagaStepException.class)
+                .hasMessageContaining("seat already locked");
+        assertThat(events).doesNotContain("start PAYMENT");
+
+        assertThat(engine.compensate(definition, context, null).join()).isTrue();
+        assertThat(context.compensatedSteps).containsExactlyInAnyOrder("UNDO_FRAUD_CHECK", "UNDO_RESERVATION");
+        assertThat(events.indexOf("undo FRAUD_CHECK")).isLessThan(events.indexOf("undo RESERVATION"));
+    }
+
+    @Test
+    void retriesStepWithItsOwnPolicy() {
+        AtomicInteger attempts = new AtomicInteger();
+        SagaDefinition<TestContext> definition = SagaDefinition.<TestContext>builder("test")
+                .step(SagaStep.<TestContext>named("FRAUD_CHECK")
+                        .action(context -> attempts.incrementAndGet() < 3
+                                ? CompletableFuture.failedFuture(new IOException("connection reset"))
+                                : CompletableFuture.completedFuture(UUID.randomUUID()))
+                        .retry(new RetryPolicy(3, Duration.ofMillis(5), 2.0, Duration.ofMillis(20), 0.0, null))
+                        .build())
+                .build();
+
+        engine.execute(definition, new TestContext(), null, step -> { }).orTimeout(5, TimeUnit.SECONDS).join();
+
+        assertThat(attempts).hasValue(3);
+    }
+
+    @Test
+    void rejectsInvalidDependencyGraphs() {
+        CompletableFuture<UUID> done = CompletableFuture.completedFuture(UUID.randomUUID());
+
+        assertThatThrownBy(() -> SagaDefinition.<TestContext>builder("test")
+                .step(step("A", done).dependsOn("B").build())
+                .step(step("B", done).dependsOn("A").build())
+                .build())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("dependency cycle");
+        assertThatThrownBy(() -> SagaDefinition.<TestContext>builder("test")
+                .step(step("A", done).dependsOn("MISSING").build())
+                .build())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("unknown step MISSING");
+        assertThatThrownBy(() -> SagaDefinition.<TestContext>builder("test")
+                .step(step("A", done).build())
+                .step(step("B", done).dependsOn("A").build())
+                .build()
+                .without("A"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,133 @@
+package com.carara.saga.service;
+
+import com.carara.saga.client.HttpParticipantClient;
+import com.carara.saga.model.BatchReservationRequest;
+import com.carara.saga.model.BatchTransactionContext;
+import com.carara.saga.model.SagaEventType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class BatchOrchestratorServiceTests {
+
+    private static final UUID RESERVATION_ID = UUID.fromString("01900000-0000-7000-8000-0000000000a1");
+    private static final UUID SECOND_RESERVATION_ID = UUID.fromString("01900000-0000-7000-8000-0000000000a2");
+    private static final UUID PAYMENT_ID = UUID.fromString("01900000-0000-7000-8000-0000000000b1");
+    private static final UUID SECOND_PAYMENT_ID = UUID.fromString("01900000-0000-7000-8000-0000000000b2");
+    private static final UUID NOTIFICATION_ID = UUID.fromString("01900000-0000-7000-8000-0000000000c1");
+    private static final UUID SECOND_NOTIFICATION_ID = UUID.fromString("01900000-0000-7000-8000-0000000000c2");
+
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+    private final SagaLog sagaLog = mock(SagaLog.class, invocation ->
+            invocation.getMethod().getReturnType() == CompletableFuture.class ? CompletableFuture.completedFuture(null) : null);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private BatchOrchestratorService service(String failingPath) {
+        return service(failingPath, false);
+    }
+
+    private BatchOrchestratorService service(String failingPath, boolean notificationOutbox) {
+        ExchangeFunction exchange = request -> {
+            String path = request.url().getPath();
+            calls.add(path);
+            if (path.equals(failingPath)) {
+                return Mono.just(ClientResponse.create(HttpStatus.INTERNAL_SERVER_ERROR).build());
+            }
+            String body;
+            if (path.startsWith("/api/reservations")) {
+                body = "[{\"reservationId\":\"" + RESERVATION_ID + "\",\"seatNumber\":\"1A\",\"status\":\"CREATED\"},"
+                        + "{\"reservationId\":\"" + SECOND_RESERVATION_ID + "\",\"seatNumber\":\"1B\",\"status\":\"CREATED\"}]";
+            } else if (path.startsWith("/api/payments")) {
+                body = "[{\"paymentId\":\"" + PAYMENT_ID + "\",\"reservationId\":\"" + RESERVATION_ID + "\",\"status\":\"APPROVED\"},"
+                        + "{\"paymentId\":\"" + SECOND_PAYMENT_ID + "\",\"reservationId\":\"" + SECOND_RESERVATION_ID + "\",\"status\":\"APPROVED\"}]";
+            } else {
+                body = "[{\"notificationId\":\"" + NOTIFICATION_ID + "\",\"reservationId\":\"" + RESERVATION_ID + "\",\"status\":\"SENT\"},"
+                        + "{\"notificationId\":\"" + SECOND_NOTIFICATION_ID + "\",\"reservationId\":\"" + SECOND_RESERVATION_ID + "\",\"status\":\"SENT\"}]";
+            }
+            return Mono.just(ClientResponse.create(HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body(body)
+                    .build());
+        };
+        return new BatchOrchestratorService(new HttpParticipantClient(
+                webClient(exchange, "http://reservation/api/reservations"),
+                webClient(exchange, "http://payment/api/payments"),
+                webClient(exchange, "http://notification/api/notifications"),
+                "http://reservation/api/reservations", "http://payment/api/payments", "http://notification/api/notifications"),
+                sagaLog, new SagaMetrics(meterRegistry), new SagaTracing(Tracer.NOOP), notificationOutbox, Duration.ofSeconds(5));
+    }
+
+    private WebClient webClient(ExchangeFunction exchange, String baseUrl) {
+        return WebClient.builder().baseUrl(baseUrl).exchangeFunction(exchange).build();
+    }
+
+    private BatchReservationRequest request() {
+        BatchReservationRequest request = new BatchReservationRequest();
+        request.setUserId("school-1");
+        request.setJourneyDate("2025-12-01");
+        request.setSeatNumbers(List.of("1A", "1B"));
+        request.setAmount(50.0);
+        return request;
+    }
+
+    @Test
+    void makesOneCallPerParticipantForTheWholeGroup() {
+        BatchTransactionContext context = service(null).executeBatchTransactionAsync(request()).join();
+
+        assertThat(context.isSuccess()).isTrue();
+        assertThat(calls).containsExactly(
+                "/api/reservations/batch", "/api/payments/batch", "/api/notifications/confirm/batch");
+        assertThat(context.getReservations()).hasSize(2);
+        verify(sagaLog).stepCompleted(context.getSagaId(), "CREATE_RESERVATION", SECOND_RESERVATION_ID.toString());
+        verify(sagaLog).stepCompleted(context.getSagaId(), "PROCESS_PAYMENT", SECOND_PAYMENT_ID.toString());
+        verify(sagaLog).sagaFinished(context.getSagaId(), SagaEventType.SAGA_SUCCEEDED);
+    }
+
+    @Test
+    void compensatesTheWholeGroupWhenNotificationsFail() {
+        BatchTransactionContext context = service("/api/notifications/confirm/batch")
+                .executeBatchTransactionAsync(request()).join();
+
+        assertThat(context.isSuccess()).isFalse();
+        assertThat(context.getFailedStep()).isEqualTo("SEND_NOTIFICATION");
+        assertThat(context.getCompensatedSteps()).containsExactlyInAnyOrder("REFUND_PAYMENT", "CANCEL_RESERVATION");
+        assertThat(calls).endsWith("/api/payments/batch/refund", "/api/reservations/batch/cancel");
+        verify(sagaLog, times(2)).stepCompensated(eq(context.getSagaId()), eq("CANCEL_RESERVATION"), anyString());
+        verify(sagaLog).sagaFinished(context.getSagaId(), SagaEventType.SAGA_COMPENSATED);
+    }
+
+    @Test
+    void sagaStartedDetailFitsTheColumnForALargeGroup() {
+        BatchReservationRequest request = request();
+        request.setUserId("u".repeat(500));
+        request.setSeatNumbers(IntStream.range(0, 100).mapToObj(i -> "SEAT-" + i).toList());
+
+        BatchTransactionContext context = service(null).executeBatchTransactionAsync(request).join();
+
+        ArgumentCaptor<String> detail = ArgumentCaptor.forClass(String.class);
+        verify(sagaLog).sagaStarted(eq(context.getSagaId()), detail.capture());
+        assertThat(detail.getValue()).hasSizeLessThanOrEqualTo(255).contains(";seats=100;").doesNotContain("SEAT-");
+    }
+}
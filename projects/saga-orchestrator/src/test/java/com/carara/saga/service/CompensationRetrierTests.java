@@ -0,0 +1,93 @@
+package com.carara.saga.service;
+
+import com.carara.saga.client.ParticipantClient;
+import com.carara.saga.model.PaymentDto;
+import com.carara.saga.model.PendingCompensation;
+import com.carara.saga.model.SagaEvent;
+import com.carara.saga.model.SagaEventType;
+import com.carara.saga.repository.PendingCompensationRepository;
+import com.carara.saga.repository.SagaEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CompensationRetrierTests {
+
+    private static final UUID RESERVATION_ID = UUID.fromString("01900000-0000-7000-8000-0000000000a1");
+    private static final UUID PAYMENT_ID = UUID.fromString("01900000-0000-7000-8000-0000000000b1");
+
+    private final PendingCompensationRepository repository = mock(PendingCompensationRepository.class);
+    private final SagaEventRepository sagaEventRepository = mock(SagaEventRepository.class);
+    private final ParticipantClient participantClient = mock(ParticipantClient.class);
+    private final SagaLog sagaLog = mock(SagaLog.class, invocation ->
+            invocation.getMethod().getReturnType() == CompletableFuture.class ? CompletableFuture.completedFuture(null) : null);
+    private final CompensationRetrier retrier = new CompensationRetrier(repository, sagaEventRepository, participantClient,
+            sagaLog, new TransactionTemplate(mock(PlatformTransactionManager.class)), new SimpleMeterRegistry(),
+            10, Duration.ofSeconds(1), Duration.ofSeconds(2), 3, Duration.ofSeconds(1), Duration.ofMinutes(1));
+
+    private PendingCompensation pendingRefund() {
+        return new PendingCompensation("saga-1", "REFUND_PAYMENT", List.of(PAYMENT_ID), false, "timed out");
+    }
+
+    @Test
+    void finishesTheSagaOnceEveryCompletedStepIsUndone() {
+        PendingCompensation refund = pendingRefund();
+        when(repository.findDue(any(), any())).thenReturn(List.of(refund));
+        when(participantClient.refundPayment("saga-1", PAYMENT_ID)).thenReturn(CompletableFuture.completedFuture(new PaymentDto()));
+        when(sagaEventRepository.findBySagaIdOrderByIdAsc("saga-1")).thenReturn(List.of(
+                new SagaEvent("saga-1", SagaEventType.STEP_COMPLETED, "CREATE_RESERVATION", RESERVATION_ID.toString(), null),
+                new SagaEvent("saga-1", SagaEventType.STEP_COMPLETED, "PROCESS_PAYMENT", PAYMENT_ID.toString(), null),
+                new SagaEvent("saga-1", SagaEventType.STEP_COMPENSATED, "CANCEL_RESERVATION", RESERVATION_ID.toString(), null),
+                new SagaEvent("saga-1", SagaEventType.STEP_COMPENSATED, "REFUND_PAYMENT", PAYMENT_ID.toString(), null)));
+
+        assertThat(retrier.retryBatch()).isEqualTo(1);
+
+        verify(sagaLog).stepCompensated("saga-1", "REFUND_PAYMENT", PAYMENT_ID.toString());
+        verify(repository).deleteAllInBatch(List.of(refund));
+        verify(sagaLog).sagaFinished("saga-1", SagaEventType.SAGA_COMPENSATED);
+    }
+
+    @Test
+    void leavesTheSagaOpenWhileAnotherCompensationIsOutstanding() {
+        when(repository.findDue(any(), any())).thenReturn(List.of(pendingRefund()));
+        when(participantClient.refundPayment("saga-1", PAYMENT_ID)).thenReturn(CompletableFuture.completedFuture(new PaymentDto()));
+        when(sagaEventRepository.findBySagaIdOrderByIdAsc("saga-1")).thenReturn(List.of(
+                new SagaEvent("saga-1", SagaEventType.STEP_COMPLETED, "CREATE_RESERVATION", RESERVATION_ID.toString(), null),
+                new SagaEvent("saga-1", SagaEventType.STEP_COMPLETED, "PROCESS_PAYMENT", PAYMENT_ID.toString(), null),
+                new SagaEvent("saga-1", SagaEventType.STEP_COMPENSATED, "REFUND_PAYMENT", PAYMENT_ID.toString(), null)));
+
+        retrier.retryBatch();
+
+        verify(sagaLog, never()).sagaFinished(anyString(), any());
+    }
+
+    @Test
+    void reschedulesFailedCompensationWithBackoff() {
+        PendingCompensation refund = pendingRefund();
+        when(repository.findDue(any(), any())).thenReturn(List.of(refund));
+        when(participantClient.refundPayment("saga-1", PAYMENT_ID))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("503 Service Unavailable")));
+
+        retrier.retryBatch();
+
+        verify(repository).saveAll(List.of(refund));
+        assertThat(refund.getAttempts()).isEqualTo(1);
+        assertThat(refund.getStatus()).isEqualTo(PendingCompensation.PENDING);
+        assertThat(refund.getLastError()).isEqualTo("503 Service Unavailable");
+        verify(sagaLog, never()).stepCompensated(anyString(), anyString(), anyString());
+    }
+}
@@ -0,0 +1,76 @@
+package com.carara.saga.service;
+
+import com.carara.saga.client.ParticipantClient;
+import com.carara.saga.model.NotificationDto;
+import com.carara.saga.model.NotificationOutbox;
+import com.carara.saga.repository.NotificationOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationDispatcherTests {
+
+    private static final UUID RESERVATION_ID = UUID.fromString("01900000-0000-7000-8000-0000000000a1");
+    private static final UUID SECOND_RESERVATION_ID = UUID.fromString("01900000-0000-7000-8000-0000000000a2");
+
+    private final NotificationOutboxRepository repository = mock(NotificationOutboxRepository.class);
+    private final ParticipantClient participantClient = mock(ParticipantClient.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final NotificationDispatcher dispatcher = new NotificationDispatcher(repository, participantClient,
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), meterRegistry,
+            10, Duration.ofMillis(500), Duration.ofSeconds(5), 2, Duration.ofSeconds(1), Duration.ofMinutes(1));
+
+    @Test
+    void sendsDueConfirmationsAndRemovesThemFromTheOutbox() {
+        NotificationOutbox single = new NotificationOutbox("saga-1", List.of(RESERVATION_ID), false);
+        NotificationOutbox group = new NotificationOutbox("saga-2", List.of(RESERVATION_ID, SECOND_RESERVATION_ID), true);
+        when(repository.findDue(any(), any())).thenReturn(List.of(single, group));
+        when(participantClient.sendConfirmation("saga-1", RESERVATION_ID))
+                .thenReturn(CompletableFuture.completedFuture(new NotificationDto()));
+        when(participantClient.sendConfirmations("saga-2", List.of(RESERVATION_ID, SECOND_RESERVATION_ID)))
+                .thenReturn(CompletableFuture.completedFuture(List.of()));
+
+        assertThat(dispatcher.dispatchBatch()).isEqualTo(2);
+
+        verify(repository).deleteAllInBatch(List.of(single, group));
+        verify(repository, never()).saveAll(anyList());
+        assertThat(meterRegistry.get("saga.notification.outbox.dispatches").tag("outcome", "sent").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void reschedulesFailedConfirmationsAndGivesUpAfterMaxAttempts() {
+        NotificationOutbox firstFailure = new NotificationOutbox("saga-1", List.of(RESERVATION_ID), false);
+        NotificationOutbox lastAttempt = new NotificationOutbox("saga-2", List.of(SECOND_RESERVATION_ID), false);
+        lastAttempt.setAttempts(1);
+        when(repository.findDue(any(), any())).thenReturn(List.of(firstFailure, lastAttempt));
+        when(participantClient.sendConfirmation(any(), any())).thenReturn(
+                CompletableFuture.failedFuture(new RuntimeException("500 Internal Server Error")));
+        Instant before = Instant.now();
+
+        dispatcher.dispatchBatch();
+
+        verify(repository).saveAll(eq(List.of(firstFailure, lastAttempt)));
+        assertThat(firstFailure.getStatus()).isEqualTo(NotificationOutbox.PENDING);
+        assertThat(firstFailure.getAttempts()).isEqualTo(1);
+        assertThat(firstFailure.getNextAttemptAt()).isAfter(before);
+        assertThat(firstFailure.getLastError()).isEqualTo("500 Internal Server Error");
+        assertThat(lastAttempt.getStatus()).isEqualTo(NotificationOutbox.FAILED);
+        assertThat(meterRegistry.get("saga.notification.outbox.dispatches").tag("outcome", "failed").counter().count()).isEqualTo(1);
+    }
+}
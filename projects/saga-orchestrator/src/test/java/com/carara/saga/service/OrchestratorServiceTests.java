@@ -0,0 +1,271 @@
+package com.carara.saga.service;
+
+import com.carara.saga.client.HttpParticipantClient;
+import com.carara.saga.client.ParticipantClient;
+import com.carara.saga.client.RetryableErrors;
+import com.carara.saga.config.SagaDefinitionConfig;
+import com.carara.saga.engine.SagaEngine;
+import com.carara.saga.model.NotificationOutbox;
+import com.carara.saga.model.PaymentDto;
+import com.carara.saga.model.PendingCompensation;
+import com.carara.saga.model.ReservationDto;
+import com.carara.saga.model.SagaEventType;
+import com.carara.saga.model.TransactionContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrchestratorServiceTests {
+
+    private static final UUID RESERVATION_ID = UUID.fromString("01900000-0000-7000-8000-0000000000a1");
+    private static final UUID PAYMENT_ID = UUID.fromString("01900000-0000-7000-8000-0000000000b1");
+    private static final UUID NOTIFICATION_ID = UUID.fromString("01900000-0000-7000-8000-0000000000c1");
+
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+    private final List<String> queries = new CopyOnWriteArrayList<>();
+    private final List<String> idempotencyKeys = new CopyOnWriteArrayList<>();
+    private final SagaLog sagaLog = mock(SagaLog.class, invocation ->
+            invocation.getMethod().getReturnType() == CompletableFuture.class ? CompletableFuture.completedFuture(null) : null);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private OrchestratorService service(String failingPath) {
+        return service(failingPath, false);
+    }
+
+    private OrchestratorService service(String failingPath, boolean notificationOutbox) {
+        ExchangeFunction exchange = request -> {
+            String path = request.url().getPath();
+            calls.add(path);
+            queries.add(String.valueOf(request.url().getRawQuery()));
+            String idempotencyKey = request.headers().getFirst(HttpParticipantClient.IDEMPOTENCY_KEY_HEADER);
+            if (idempotencyKey != null) {
+                idempotencyKeys.add(idempotencyKey);
+            }
+            if (path.equals(failingPath)) {
+                return Mono.just(ClientResponse.create(HttpStatus.INTERNAL_SERVER_ERROR).build());
+            }
+            String body;
+            if (path.startsWith("/api/reservations")) {
+                body = "{\"reservationId\":\"" + RESERVATION_ID + "\",\"status\":\"CREATED\"}";
+            } else if (path.startsWith("/api/payments")) {
+                body = "{\"paymentId\":\"" + PAYMENT_ID + "\",\"reservationId\":\"" + RESERVATION_ID + "\",\"status\":\"APPROVED\"}";
+            } else {
+                body = "{\"notificationId\":\"" + NOTIFICATION_ID + "\",\"reservationId\":\"" + RESERVATION_ID + "\",\"status\":\"SENT\"}";
+            }
+            return Mono.just(ClientResponse.create(HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body(body)
+                    .build());
+        };
+        return service(new HttpParticipantClient(
+                webClient(exchange, "http://reservation/api/reservations"),
+                webClient(exchange, "http://payment/api/payments"),
+                webClient(exchange, "http://notification/api/notifications"),
+                "http://reservation/api/reservations", "http://payment/api/payments", "http://notification/api/notifications"),
+                notificationOutbox, Duration.ofSeconds(5));
+    }
+
+    private OrchestratorService service(ParticipantClient participantClient, boolean notificationOutbox, Duration compensationTimeout) {
+        SagaMetrics sagaMetrics = new SagaMetrics(meterRegistry);
+        SagaTracing sagaTracing = new SagaTracing(Tracer.NOOP);
+        SagaEngine sagaEngine = new SagaEngine(sagaLog, sagaMetrics, sagaTracing,
+                new RetryableErrors(Set.of(), new ObjectMapper()), compensationTimeout);
+        return new OrchestratorService(new SagaDefinitionConfig().reservationSaga(participantClient), sagaEngine, sagaLog,
+                sagaMetrics, sagaTracing, notificationOutbox);
+    }
+
+    private WebClient webClient(ExchangeFunction exchange, String baseUrl) {
+        return WebClient.builder().baseUrl(baseUrl).exchangeFunction(exchange).build();
+    }
+
+    @Test
+    void completesAllStepsAsynchronously() {
+        TransactionContext context = service(null)
+                .executeTransactionAsync("user-1", "2025-12-01", "12A", 100.0)
+                .join();
+
+        assertThat(context.isSuccess()).isTrue();
+        assertThat(context.getCompletedSteps())
+                .containsExactly("CREATE_RESERVATION", "PROCESS_PAYMENT", "SEND_NOTIFICATION");
+        assertThat(context.getNotification().getNotificationId()).isEqualTo(NOTIFICATION_ID);
+        verify(sagaLog).stepCompleted(context.getSagaId(), "CREATE_RESERVATION", RESERVATION_ID.toString());
+        verify(sagaLog).stepCompleted(context.getSagaId(), "PROCESS_PAYMENT", PAYMENT_ID.toString());
+        verify(sagaLog).sagaFinished(context.getSagaId(), SagaEventType.SAGA_SUCCEEDED);
+    }
+
+    @Test
+    void compensatesWhenNotificationFails() {
+        TransactionContext context = service("/api/notifications/confirm")
+                .executeTransactionAsync("user-1", "2025-12-01", "12A", 100.0)
+                .join();
+
+        assertThat(context.isSuccess()).isFalse();
+        assertThat(context.getFailedStep()).isEqualTo("SEND_NOTIFICATION");
+        assertThat(context.getCompensatedSteps()).containsExactlyInAnyOrder("REFUND_PAYMENT", "CANCEL_RESERVATION");
+        assertThat(calls).contains("/api/payments/" + PAYMENT_ID + "/refund", "/api/reservations/" + RESERVATION_ID + "/cancel");
+        verify(sagaLog).stepCompensated(context.getSagaId(), "REFUND_PAYMENT", PAYMENT_ID.toString());
+        verify(sagaLog).sagaFinished(context.getSagaId(), SagaEventType.SAGA_COMPENSATED);
+    }
+
+    @Test
+    void leavesSagaInFlightWhenCompensationFails() {
+        TransactionContext context = service("/api/payments/" + PAYMENT_ID + "/refund")
+                .executeTransactionAsync("user-1", "2025-12-01", "12A", 100.0, "SEND_NOTIFICATION")
+                .join();
+
+        assertThat(context.getCompensatedSteps()).containsExactly("CANCEL_RESERVATION");
+        verify(sagaLog).compensationFailed(eq(context.getSagaId()), eq("REFUND_PAYMENT"), eq(PAYMENT_ID.toString()), anyString(), any(PendingCompensation.class));
+        verify(sagaLog, never()).sagaFinished(anyString(), any());
+        assertThat(meterRegistry.get("saga.compensation.failures").tag("step", "REFUND_PAYMENT").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("saga.duration").tag("outcome", SagaMetrics.COMPENSATION_FAILED).timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void recordsStepAndCompensationMetrics() {
+        service("/api/notifications/confirm").executeTransactionAsync("user-1", "2025-12-01", "12A", 100.0).join();
+
+        assertThat(meterRegistry.get("saga.step.duration").tags("step", "PROCESS_PAYMENT", "outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("saga.step.failures").tag("step", "SEND_NOTIFICATION").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("saga.compensation.duration").tags("step", "CANCEL_RESERVATION", "outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("saga.duration").tags("type", SagaMetrics.SINGLE, "outcome", SagaMetrics.COMPENSATED).timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("saga.in.flight").tag("type", SagaMetrics.SINGLE).gauge().value()).isZero();
+    }
+
+    @Test
+    void simulatedFailureSkipsTheParticipantCall() {
+        TransactionContext context = service(null)
+                .executeTransactionAsync("user-1", "2025-12-01", "12A", 100.0, "PROCESS_PAYMENT")
+                .join();
+
+        assertThat(context.getFailedStep()).isEqualTo("PROCESS_PAYMENT");
+        assertThat(context.getCompletedSteps()).containsExactly("CREATE_RESERVATION");
+        assertThat(calls).doesNotContain("/api/payments");
+        assertThat(context.getCompensatedSteps()).containsExactlyInAnyOrder("REFUND_PAYMENT", "CANCEL_RESERVATION");
+    }
+
+    @Test
+    void expandsParticipantUriTemplates() {
+        service(null).executeTransactionAsync("user 1", "2025-12-01", "12A", 100.0).join();
+
+        assertThat(calls).containsExactly(
+                "/api/reservations", "/api/payments", "/api/notifications/confirm");
+        assertThat(queries.get(0)).isEqualTo("userId=user%201&journeyDate=2025-12-01&seatNumber=12A&amount=100.0");
+        assertThat(queries.get(2)).isEqualTo("reservationId=" + RESERVATION_ID);
+    }
+
+    @Test
+    void sendsSagaScopedIdempotencyKeyPerStep() {
+        TransactionContext context = service(null).executeTransactionAsync("user-1", "2025-12-01", "12A", 100.0).join();
+
+        assertThat(idempotencyKeys).containsExactly(
+                context.getSagaId() + ":CREATE_RESERVATION",
+                context.getSagaId() + ":PROCESS_PAYMENT",
+                context.getSagaId() + ":SEND_NOTIFICATION");
+    }
+
+    @Test
+    void queuesConfirmationInTheSagaCommitInsteadOfCallingNotification() {
+        TransactionContext context = service("/api/notifications/confirm", true)
+                .executeTransactionAsync("user-1", "2025-12-01", "12A", 100.0)
+                .join();
+
+        assertThat(context.isSuccess()).isTrue();
+        assertThat(context.isNotificationQueued()).isTrue();
+        assertThat(context.getCompletedSteps()).containsExactly("CREATE_RESERVATION", "PROCESS_PAYMENT");
+        assertThat(calls).containsExactly("/api/reservations", "/api/payments");
+        verify(sagaLog).sagaSucceeded(eq(context.getSagaId()), argThat((NotificationOutbox confirmation) ->
+                !confirmation.isGroupSaga() && confirmation.reservationIdList().equals(List.of(RESERVATION_ID))));
+    }
+
+    @Test
+    void compensatesWhenTheSagaCommitFails() {
+        when(sagaLog.sagaSucceeded(anyString(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("database down")));
+
+        TransactionContext context = service(null, true)
+                .executeTransactionAsync("user-1", "2025-12-01", "12A", 100.0)
+                .join();
+
+        assertThat(context.isSuccess()).isFalse();
+        assertThat(context.isNotificationQueued()).isFalse();
+        assertThat(context.getFailedStep()).isEqualTo("SEND_NOTIFICATION");
+        assertThat(context.getCompensatedSteps()).containsExactlyInAnyOrder("REFUND_PAYMENT", "CANCEL_RESERVATION");
+    }
+
+    private ParticipantClient failingPaymentParticipant() {
+        ParticipantClient participantClient = mock(ParticipantClient.class);
+        ReservationDto reservation = new ReservationDto();
+        reservation.setReservationId(RESERVATION_ID);
+        PaymentDto payment = new PaymentDto();
+        payment.setPaymentId(PAYMENT_ID);
+        when(participantClient.createReservation(anyString(), anyString(), anyString(), anyString(), anyDouble()))
+                .thenReturn(CompletableFuture.completedFuture(reservation));
+        when(participantClient.processPayment(anyString(), any(), anyDouble()))
+                .thenReturn(CompletableFuture.completedFuture(payment));
+        return participantClient;
+    }
+
+    @Test
+    void runsIndependentCompensationsConcurrently() {
+        ParticipantClient participantClient = failingPaymentParticipant();
+        CompletableFuture<ReservationDto> cancel = new CompletableFuture<>();
+        // O estorno só responde depois que o cancelamento foi disparado: em sequência, estouraria o prazo
+        when(participantClient.cancelReservation(anyString(), any())).thenAnswer(invocation -> {
+            cancel.complete(new ReservationDto());
+            return cancel;
+        });
+        when(participantClient.refundPayment(anyString(), any()))
+                .thenAnswer(invocation -> cancel.thenApply(canceled -> new PaymentDto()));
+
+        TransactionContext context = service(participantClient, true, Duration.ofSeconds(2))
+                .executeTransactionAsync("user-1", "2025-12-01", "12A", 100.0, "SEND_NOTIFICATION")
+                .join();
+
+        assertThat(context.getCompensatedSteps()).containsExactlyInAnyOrder("REFUND_PAYMENT", "CANCEL_RESERVATION");
+        verify(sagaLog).sagaFinished(context.getSagaId(), SagaEventType.SAGA_COMPENSATED);
+    }
+
+    @Test
+    void persistsPendingCompensationWhenUndoMissesTheDeadline() {
+        ParticipantClient participantClient = failingPaymentParticipant();
+        when(participantClient.cancelReservation(anyString(), any()))
+                .thenReturn(CompletableFuture.completedFuture(new ReservationDto()));
+        when(participantClient.refundPayment(anyString(), any())).thenReturn(new CompletableFuture<>());
+
+        TransactionContext context = service(participantClient, true, Duration.ofMillis(100))
+                .executeTransactionAsync("user-1", "2025-12-01", "12A", 100.0, "SEND_NOTIFICATION")
+                .join();
+
+        assertThat(context.getCompensatedSteps()).containsExactly("CANCEL_RESERVATION");
+        verify(sagaLog).compensationFailed(eq(context.getSagaId()), eq("REFUND_PAYMENT"), eq(PAYMENT_ID.toString()),
+                eq("Compensation timed out after 100 ms"), argThat((PendingCompensation pending) ->
+                        pending.getStep().equals("REFUND_PAYMENT") && pending.resourceIdList().equals(List.of(PAYMENT_ID))));
+        verify(sagaLog, never()).sagaFinished(anyString(), any());
+    }
+}
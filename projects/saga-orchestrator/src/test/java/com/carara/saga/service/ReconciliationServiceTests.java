@@ -0,0 +1,154 @@
+package com.carara.saga.service;
+
+import com.carara.saga.client.ParticipantClient;
+import com.carara.saga.client.ReconciliationClient;
+import com.carara.saga.model.KeysetPageDto;
+import com.carara.saga.model.PaymentDto;
+import com.carara.saga.model.ReconciliationCursor;
+import com.carara.saga.model.ReservationDto;
+import com.carara.saga.repository.ReconciliationCursorRepository;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReconciliationServiceTests {
+
+    private final ReconciliationClient reconciliationClient = mock(ReconciliationClient.class);
+    private final ParticipantClient participantClient = mock(ParticipantClient.class);
+    private final ReconciliationCursorRepository cursorRepository = mock(ReconciliationCursorRepository.class);
+    private final ReconciliationService service = new ReconciliationService(reconciliationClient, participantClient,
+            cursorRepository, new TransactionTemplate(mock(PlatformTransactionManager.class)), new SimpleMeterRegistry(),
+            RateLimiterRegistry.ofDefaults(), Duration.ofMinutes(5), 3, 2, Duration.ofHours(2), Duration.ofMinutes(30),
+            Duration.ofSeconds(2), false);
+    private final ReconciliationCursor cursor = new ReconciliationCursor(ReconciliationService.PAYMENTS);
+
+    ReconciliationServiceTests() {
+        when(cursorRepository.lockByScan(anyString())).thenReturn(Optional.of(cursor));
+        when(cursorRepository.findById(anyString())).thenReturn(Optional.of(cursor));
+        when(cursorRepository.save(any(ReconciliationCursor.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    // UUID v7 criado há hoursAgo horas, como os gerados pelos participantes
+    private static UUID idCreated(double hoursAgo, int sequence) {
+        long millis = Instant.now().toEpochMilli() - (long) (hoursAgo * 3_600_000);
+        return new UUID(millis << 16 | 0x7000L | sequence, 0x8000000000000000L | sequence);
+    }
+
+    private static PaymentDto payment(UUID paymentId, UUID reservationId, String status) {
+        PaymentDto payment = new PaymentDto();
+        payment.setPaymentId(paymentId);
+        payment.setReservationId(reservationId);
+        payment.setStatus(status);
+        return payment;
+    }
+
+    private static ReservationDto reservation(UUID reservationId, String status) {
+        ReservationDto reservation = new ReservationDto();
+        reservation.setReservationId(reservationId);
+        reservation.setStatus(status);
+        return reservation;
+    }
+
+    // Página por keyset sobre a tabela em memória, na ordem do índice uuid do Postgres (a da string hexadecimal)
+    private static <T> CompletableFuture<KeysetPageDto<T>> page(List<T> table, Function<T, UUID> idOf, InvocationOnMock invocation) {
+        String after = invocation.<UUID>getArgument(0).toString();
+        String before = invocation.<UUID>getArgument(1).toString();
+        int limit = invocation.getArgument(2);
+        List<T> rows = table.stream()
+                .filter(row -> idOf.apply(row).toString().compareTo(after) > 0 && idOf.apply(row).toString().compareTo(before) < 0)
+                .toList();
+        KeysetPageDto<T> page = new KeysetPageDto<>();
+        page.setItems(rows.subList(0, Math.min(limit, rows.size())));
+        page.setNextCursor(rows.size() > limit ? idOf.apply(rows.get(limit - 1)) : null);
+        return CompletableFuture.completedFuture(page);
+    }
+
+    @Test
+    void refundsApprovedPaymentsWhoseReservationIsCanceledOrMissingAndAdvancesTheCursor() {
+        UUID canceledReservation = idCreated(30, 1);
+        UUID activeReservation = idCreated(20, 2);
+        UUID missingReservation = idCreated(10, 3);
+        PaymentDto orphanedByCancel = payment(idCreated(30, 11), canceledReservation, "APPROVED");
+        PaymentDto consistent = payment(idCreated(20, 12), activeReservation, "APPROVED");
+        PaymentDto alreadyRefunded = payment(idCreated(15, 13), canceledReservation, "REFUNDED");
+        PaymentDto orphanedByMissing = payment(idCreated(10, 14), missingReservation, "APPROVED");
+        PaymentDto inGracePeriod = payment(idCreated(1, 15), UUID.randomUUID(), "APPROVED");
+        List<PaymentDto> payments = List.of(orphanedByCancel, consistent, alreadyRefunded, orphanedByMissing, inGracePeriod);
+        when(reconciliationClient.paymentsPage(any(), any(), anyInt()))
+                .thenAnswer(invocation -> page(payments, PaymentDto::getPaymentId, invocation));
+        when(reconciliationClient.findReservations(anyList())).thenAnswer(invocation -> CompletableFuture.completedFuture(
+                invocation.<List<UUID>>getArgument(0).stream()
+                        .filter(id -> !id.equals(missingReservation))
+                        .map(id -> reservation(id, id.equals(canceledReservation) ? "CANCELED" : "CREATED"))
+                        .toList()));
+        when(participantClient.refundPayment(anyString(), any())).thenReturn(CompletableFuture.completedFuture(new PaymentDto()));
+
+        service.reconcilePayments();
+
+        verify(participantClient).refundPayment(anyString(), eq(orphanedByCancel.getPaymentId()));
+        verify(participantClient).refundPayment(anyString(), eq(orphanedByMissing.getPaymentId()));
+        verify(participantClient, never()).refundPayment(anyString(), eq(consistent.getPaymentId()));
+        verify(participantClient, never()).refundPayment(anyString(), eq(inGracePeriod.getPaymentId()));
+        assertThat(cursor.getLeaseUntil()).isNull();
+        assertThat(cursor.getPosition().toString()).isGreaterThan(orphanedByMissing.getPaymentId().toString())
+                .isLessThan(inGracePeriod.getPaymentId().toString());
+    }
+
+    @Test
+    void cancelsCreatedReservationsWithoutApprovedPaymentAndRetriesTheRangeWhenACorrectionFails() {
+        ReservationDto paid = reservation(idCreated(30, 1), "CREATED");
+        ReservationDto refunded = reservation(idCreated(20, 2), "CREATED");
+        ReservationDto unpaid = reservation(idCreated(10, 3), "CREATED");
+        ReservationDto canceled = reservation(idCreated(5, 4), "CANCELED");
+        List<ReservationDto> reservations = List.of(paid, refunded, unpaid, canceled);
+        when(reconciliationClient.reservationsPage(any(), any(), anyInt()))
+                .thenAnswer(invocation -> page(reservations, ReservationDto::getReservationId, invocation));
+        when(reconciliationClient.findPaymentsByReservations(anyList())).thenReturn(CompletableFuture.completedFuture(List.of(
+                payment(UUID.randomUUID(), paid.getReservationId(), "APPROVED"),
+                payment(UUID.randomUUID(), refunded.getReservationId(), "REFUNDED"))));
+        when(participantClient.cancelReservation(anyString(), eq(refunded.getReservationId())))
+                .thenReturn(CompletableFuture.completedFuture(new ReservationDto()));
+        when(participantClient.cancelReservation(anyString(), eq(unpaid.getReservationId())))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("503 Service Unavailable")));
+
+        service.reconcileReservations();
+
+        verify(participantClient).cancelReservation(anyString(), eq(refunded.getReservationId()));
+        verify(participantClient).cancelReservation(anyString(), eq(unpaid.getReservationId()));
+        verify(participantClient, never()).cancelReservation(anyString(), eq(paid.getReservationId()));
+        verify(participantClient, never()).cancelReservation(anyString(), eq(canceled.getReservationId()));
+        assertThat(cursor.getPosition()).isNull();
+        assertThat(cursor.getLeaseUntil()).isNull();
+    }
+
+    @Test
+    void skipsTheScanWhileAnotherInstanceHoldsTheLease() {
+        cursor.setLeaseUntil(Instant.now().plus(Duration.ofMinutes(10)));
+
+        service.reconcilePayments();
+
+        verify(reconciliationClient, never()).paymentsPage(any(), any(), anyInt());
+    }
+}
@@ -0,0 +1,106 @@
+package com.carara.saga.service;
+
+import com.carara.saga.model.SagaEvent;
+import com.carara.saga.model.SagaEventType;
+import com.carara.saga.repository.NotificationOutboxRepository;
+import com.carara.saga.repository.PendingCompensationRepository;
+import com.carara.saga.repository.SagaEventRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SagaLogTests {
+
+    private final SagaEventRepository repository = mock(SagaEventRepository.class);
+    private final NotificationOutboxRepository outboxRepository = mock(NotificationOutboxRepository.class);
+    private final PendingCompensationRepository pendingCompensationRepository = mock(PendingCompensationRepository.class);
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private SagaLog sagaLog;
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        sagaLog.stop();
+    }
+
+    @Test
+    void groupsConcurrentAppendsIntoBatches() {
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<SagaEvent> batch = invocation.getArgument(0);
+            batchSizes.add(batch.size());
+            Thread.sleep(5);
+            return batch;
+        });
+        sagaLog = new SagaLog(repository, outboxRepository, pendingCompensationRepository, transactionTemplate, 1000, 20);
+        sagaLog.start();
+
+        CompletableFuture<?>[] writes = IntStream.range(0, 200)
+                .mapToObj(i -> sagaLog.stepCompleted("saga-" + i, "CREATE_RESERVATION", "r-" + i))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(writes).join();
+
+        assertThat(batchSizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(200);
+        assertThat(batchSizes).allMatch(size -> size <= 20);
+        assertThat(batchSizes.size()).isLessThan(200);
+    }
+
+    @Test
+    void failsPendingEventsWhenBatchWriteFails() {
+        when(repository.saveAll(anyList())).thenThrow(new IllegalStateException("database down"));
+        sagaLog = new SagaLog(repository, outboxRepository, pendingCompensationRepository, transactionTemplate, 10, 10);
+        sagaLog.start();
+
+        assertThatThrownBy(() -> sagaLog.sagaStarted("saga-1", "detail").join())
+                .hasRootCauseMessage("database down");
+    }
+
+    @Test
+    void failedBatchIsRetriedPerSagaSoOnlyTheBadSagaFails() {
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<SagaEvent> events = invocation.getArgument(0);
+            if (events.stream().anyMatch(event -> "saga-bad".equals(event.getSagaId()))) {
+                throw new IllegalStateException("value too long");
+            }
+            return events;
+        });
+        sagaLog = new SagaLog(repository, outboxRepository, pendingCompensationRepository, transactionTemplate, 10, 10);
+
+        // Enfileirados antes da thread de gravação começar: caem no mesmo lote
+        CompletableFuture<Void> good = sagaLog.stepCompleted("saga-good", "CREATE_RESERVATION", "r-1");
+        CompletableFuture<Void> bad = sagaLog.stepCompleted("saga-bad", "CREATE_RESERVATION", "r-2");
+        CompletableFuture<Void> alsoGood = sagaLog.sagaFinished("saga-other", SagaEventType.SAGA_SUCCEEDED);
+        sagaLog.start();
+
+        good.join();
+        alsoGood.join();
+        assertThatThrownBy(bad::join).hasRootCauseMessage("value too long");
+    }
+
+    @Test
+    void truncatesDetailToTheColumnLength() {
+        List<SagaEvent> written = new CopyOnWriteArrayList<>();
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<SagaEvent> events = invocation.getArgument(0);
+            written.addAll(events);
+            return events;
+        });
+        sagaLog = new SagaLog(repository, outboxRepository, pendingCompensationRepository, transactionTemplate, 10, 10);
+        sagaLog.start();
+
+        sagaLog.stepFailed("saga-1", "PROCESS_PAYMENT", "x".repeat(1000)).join();
+
+        assertThat(written).singleElement().extracting(SagaEvent::getDetail).asString().hasSize(255);
+    }
+}
@@ -0,0 +1,31 @@
+package com.carara.saga.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StepLogSamplerTests {
+
+    private final Logger logger = new LoggerContext().getLogger(StepLogSamplerTests.class);
+
+    @Test
+    void dropsUnsampledStepLogsButKeepsWarningsAndUnmarkedLogs() {
+        StepLogSampler sampler = new StepLogSampler();
+        sampler.setSampleRate(0.0);
+
+        assertThat(sampler.decide(StepLogSampler.STEP, logger, Level.INFO, "Executing step {}", null, null)).isEqualTo(FilterReply.DENY);
+        assertThat(sampler.decide(StepLogSampler.STEP, logger, Level.WARN, "Step {} failed", null, null)).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(sampler.decide(null, logger, Level.INFO, "Starting transaction", null, null)).isEqualTo(FilterReply.NEUTRAL);
+    }
+
+    @Test
+    void keepsEveryStepLogAtFullRate() {
+        StepLogSampler sampler = new StepLogSampler();
+
+        assertThat(sampler.decide(StepLogSampler.STEP, logger, Level.INFO, "Executing step {}", null, null)).isEqualTo(FilterReply.NEUTRAL);
+    }
+}